@@ -0,0 +1,364 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Throughput benchmarks for the evaluation engine.
+ * <p>
+ * A small self-contained harness: every case is warmed up, then timed over several fixed-length iterations,
+ * and the best and mean throughput are printed. Cases run against the default config (5 paylines) and a
+ * high-payline variant (25 paylines). Run with {@code gradle benchmark}; pass a substring to run only the
+ * matching cases, e.g. {@code gradle benchmark --args=payline}.
+ */
+public class EngineBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int GRIDS = 4096;
+
+    /**
+     * A benchmark case; each call performs a unit of work and returns the number of operations done.
+     */
+    interface Case {
+        long run();
+    }
+
+    private static final List<String> names = new ArrayList<>();
+    private static final List<Case> cases = new ArrayList<>();
+    private static final List<Supplier<String>> notes = new ArrayList<>();
+    private static long blackhole;
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        System.out.printf("Vector API available: %s%n", PaylineEvaluators.isVectorAvailable());
+        addPaylineCases("default", null);
+        addPaylineCases("25-line", highPaylineConfig(25));
+        for (int i = 0; i < cases.size(); i++) {
+            if (names.get(i).contains(filter)) {
+                measure(names.get(i), cases.get(i));
+                if (notes.get(i) != null) System.out.println("    " + notes.get(i).get());
+            }
+        }
+        if (blackhole == 42) System.out.println();
+    }
+
+    static void add(String name, Case benchmarkCase) {
+        add(name, benchmarkCase, null);
+    }
+
+    // The note is printed after the case's throughput, e.g. a hit rate
+    static void add(String name, Case benchmarkCase, Supplier<String> note) {
+        names.add(name);
+        cases.add(benchmarkCase);
+        notes.add(note);
+    }
+
+    private static void addPaylineCases(String label, String paylinesConfig) {
+        SlotMachine machine = new SlotMachine(0, true, null, paylinesConfig, 3, SlotMachineConfig.defaults().createReels(new Random(1)));
+        int[][] paylines = machine.getPaylines();
+        Random random = new Random(2);
+        Symbol[][][] grids = new Symbol[GRIDS][][];
+        int[][] gridStops = new int[GRIDS][];
+        int[][] rowMajor = new int[GRIDS][15];
+        int[][] columns = new int[15][GRIDS];
+        IReel[] reels = machine.getReels();
+        int[] stops = new int[reels.length];
+        for (int g = 0; g < GRIDS; g++) {
+            for (int r = 0; r < reels.length; r++) {
+                stops[r] = reels[r].stopAt(random.nextInt(reels[r].stopCount()));
+            }
+            grids[g] = machine.gridAt(stops);
+            gridStops[g] = stops.clone();
+            for (int cell = 0; cell < 15; cell++) {
+                int ordinal = grids[g][cell / 5][cell % 5].ordinal();
+                rowMajor[g][cell] = ordinal;
+                columns[cell][g] = ordinal;
+            }
+        }
+        List<PaylineEvaluator> evaluators = new ArrayList<>();
+        evaluators.add(new ScalarPaylineEvaluator(paylines));
+        PaylineEvaluator vector = PaylineEvaluators.createVector(paylines);
+        if (vector != null) evaluators.add(vector);
+
+        BatchEvaluator batch = new BatchEvaluator(machine, GRIDS);
+        java.util.SplittableRandom batchRandom = new java.util.SplittableRandom(3);
+        add(label + " batch.fillUniform", () -> {
+            batch.fillUniform(batchRandom, GRIDS);
+            blackhole += batch.stop(0, 0);
+            return GRIDS;
+        });
+        add(label + " batch.evaluate", () -> {
+            batch.evaluate();
+            blackhole += batch.payout(0);
+            return GRIDS;
+        });
+        SimulationStats stats = new SimulationStats();
+        add(label + " batch.record", () -> {
+            batch.record(stats);
+            blackhole += stats.getSpins();
+            return GRIDS;
+        });
+        add(label + " slotmachine.evaluate", () -> {
+            long sum = 0;
+            for (Symbol[][] grid : grids) sum += machine.evaluate(grid, 1).totalPayout;
+            blackhole += sum;
+            return GRIDS;
+        });
+        add(label + " slotmachine.evaluateStops", () -> {
+            long sum = 0;
+            for (int[] spin : gridStops) sum += machine.evaluateStops(spin, 1).totalPayout;
+            blackhole += sum;
+            return GRIDS;
+        });
+        addPayoutCacheCases(label, paylinesConfig, gridStops);
+        addStreamCase(label, machine);
+        if (label.equals("default")) {
+            addJournalCase(machine, grids.length);
+            addJackpotCases();
+            addSpinCases(label, machine);
+            addCoalescerCase(label);
+        }
+        for (PaylineEvaluator evaluator : evaluators) {
+            int[] counts = new int[paylines.length];
+            int[] symbols = new int[paylines.length];
+            add(label + " payline.grid " + evaluator.name(), () -> {
+                long sum = 0;
+                for (int[] cells : rowMajor) {
+                    evaluator.evaluateGrid(cells, counts, symbols);
+                    sum += counts[0];
+                }
+                blackhole += sum;
+                return GRIDS;
+            });
+            int[] batchCounts = new int[GRIDS];
+            add(label + " payline.batch " + evaluator.name(), () -> {
+                long sum = 0;
+                for (int line = 0; line < paylines.length; line++) {
+                    evaluator.evaluateBatch(columns, GRIDS, line, batchCounts);
+                    sum += batchCounts[line];
+                }
+                blackhole += sum;
+                return GRIDS;
+            });
+        }
+    }
+
+    // Stored stops and fresh spins against machines with the same reels, each with its own payout cache.
+    // Every evaluation is one cache lookup, so a case counts its lookups to turn the misses into a hit rate
+    private static void addPayoutCacheCases(String label, String paylinesConfig, int[][] gridStops) {
+        SlotMachine[] cached = new SlotMachine[2];
+        long[] lookups = new long[cached.length];
+        for (int m = 0; m < cached.length; m++) {
+            cached[m] = new SlotMachine(0, true, null, paylinesConfig, 3, SlotMachineConfig.defaults().createReels(new Random(1)));
+            cached[m].setPayoutCacheSize(SlotMachineConfig.DEFAULT_PAYOUT_CACHE_SIZE);
+        }
+        add(label + " slotmachine.evaluateStops cached", () -> {
+            long sum = 0;
+            for (int[] spin : gridStops) sum += cached[0].evaluateStops(spin, 1).totalPayout;
+            blackhole += sum;
+            lookups[0] += GRIDS;
+            return GRIDS;
+        }, () -> cacheHitRate(cached[0].getPayoutCache(), lookups[0]));
+        SlotMachine plain = new SlotMachine(0, true, null, paylinesConfig, 3, SlotMachineConfig.defaults().createReels(new Random(1)));
+        SlotMachine[] spinning = {plain, cached[1]};
+        String[] names = {"uncached", "cached"};
+        for (int m = 0; m < spinning.length; m++) {
+            SlotMachine machine = spinning[m];
+            add(label + " spinAndEvaluate " + names[m], () -> {
+                long sum = 0;
+                for (int i = 0; i < 1024; i++) sum += machine.spinAndEvaluate().totalPayout;
+                blackhole += sum;
+                lookups[1] += 1024;
+                return 1024;
+            }, machine.getPayoutCache() == null ? null : () -> cacheHitRate(machine.getPayoutCache(), lookups[1]));
+        }
+    }
+
+    // Striped jackpot contributions against a single shared counter updated by CAS
+    private static void addJackpotCases() {
+        JackpotPool pool;
+        try {
+            java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("jackpot-bench");
+            dir.toFile().deleteOnExit();
+            pool = new JackpotPool(dir, new JackpotPool.Trigger(Symbol.SCATTER, 5), 100, 1000);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        add("jackpot.contribute striped", () -> {
+            for (int i = 0; i < 1024; i++) pool.contribute(2);
+            return 1024;
+        });
+        java.util.concurrent.atomic.AtomicLong shared = new java.util.concurrent.atomic.AtomicLong();
+        add("jackpot.contribute cas", () -> {
+            for (int i = 0; i < 1024; i++) shared.addAndGet(200);
+            blackhole += shared.get();
+            return 1024;
+        });
+    }
+
+    // A subscriber with unbounded demand draining a finite stream on the calling thread
+    private static void addStreamCase(String label, SlotMachine machine) {
+        int spins = 16 * Simulator.BATCH_SIZE;
+        SpinPublisher publisher = new SpinPublisher(machine, 5L, spins, 1, Runnable::run);
+        add(label + " spinPublisher.stream", () -> {
+            long[] sum = new long[1];
+            publisher.subscribe(new java.util.concurrent.Flow.Subscriber<SpinResult>() {
+                @Override
+                public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(SpinResult item) {
+                    sum[0] += item.totalPayout;
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throw new IllegalStateException(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            blackhole += sum[0];
+            return spins;
+        });
+    }
+
+    private static String cacheHitRate(PayoutCache cache, long lookups) {
+        long misses = cache.getMisses();
+        return String.format(Locale.ROOT, "payout cache: %d of 5 reels keyed, %d lookups, %d misses, %.4f%% hit rate",
+                cache.getPrefixReels(), lookups, misses, lookups == 0 ? 0.0 : 100.0 * (lookups - misses) / lookups);
+    }
+
+    // spinAndEvaluate plain, instrumented, instrumented feeding an RTP monitor, and with metrics switched off
+    private static void addSpinCases(String label, SlotMachine machine) {
+        EngineMetrics enabled = new EngineMetrics(machine.getPaylines().length);
+        EngineMetrics monitored = new EngineMetrics(machine.getPaylines().length);
+        monitored.setRtpMonitor(new RtpMonitor(RtpMonitor.Baseline.simulate(machine, 100_000L, 1L)));
+        EngineMetrics disabled = new EngineMetrics(machine.getPaylines().length);
+        disabled.setEnabled(false);
+        ISlotMachine[] machines = {machine, new InstrumentedSlotMachine(machine, enabled),
+                new InstrumentedSlotMachine(machine, monitored), new InstrumentedSlotMachine(machine, disabled)};
+        String[] names = {"plain", "instrumented", "instrumented-rtp", "instrumented-off"};
+        for (int m = 0; m < machines.length; m++) {
+            ISlotMachine spinning = machines[m];
+            add(label + " spinAndEvaluate " + names[m], () -> {
+                long sum = 0;
+                for (int i = 0; i < 1024; i++) sum += spinning.spinAndEvaluate().totalPayout;
+                blackhole += sum;
+                return 1024;
+            });
+        }
+        // Stops drawn from a counter-based session source instead of the reels' Random
+        SessionRng rng = new SessionRng(1L);
+        add(label + " spinAndEvaluate session-rng", () -> {
+            long sum = 0;
+            for (int i = 0; i < 1024; i++) sum += machine.spinAndEvaluate(1, rng).totalPayout;
+            blackhole += sum;
+            return 1024;
+        });
+    }
+
+    // 1024 sessions with a spin in flight each, as when many players spin at once, served in batches
+    private static void addCoalescerCase(String label) {
+        MachineRegistry registry = new MachineRegistry(1L);
+        registry.register(label, SlotMachineConfig.defaults());
+        SpinCoalescer coalescer = SpinCoalescer.start(registry.getModel(label));
+        MachineSession[] sessions = new MachineSession[1024];
+        for (int i = 0; i < sessions.length; i++) sessions[i] = registry.openSession(label, Integer.MAX_VALUE / 2);
+        java.util.List<java.util.concurrent.CompletableFuture<SpinResult>> futures = new ArrayList<>(sessions.length);
+        add(label + " spinCoalescer.spin", () -> {
+            for (MachineSession session : sessions) futures.add(coalescer.spin(session));
+            // Waiting on the last spin first wakes this thread once per batch rather than once per spin
+            long sum = 0;
+            for (int i = futures.size() - 1; i >= 0; i--) sum += futures.get(i).join().totalPayout;
+            futures.clear();
+            blackhole += sum;
+            return sessions.length;
+        }, () -> String.format(Locale.ROOT, "mean batch %.1f spins", coalescer.meanBatchSize()));
+    }
+
+    // Appends to a real mapped journal; it is recreated every few million records to bound disk use
+    private static void addJournalCase(SlotMachine machine, int count) {
+        SpinJournal[] journal = new SpinJournal[1];
+        java.nio.file.Path[] dir = new java.nio.file.Path[1];
+        int[] stops = new int[5];
+        add("journal.append", () -> {
+            try {
+                if (journal[0] == null || journal[0].lastSequence() > 4_000_000) {
+                    if (journal[0] != null) {
+                        journal[0].close();
+                        for (java.nio.file.Path segment : SpinJournal.listSegments(dir[0])) java.nio.file.Files.delete(segment);
+                    } else {
+                        dir[0] = java.nio.file.Files.createTempDirectory("bench-journal");
+                    }
+                    journal[0] = new SpinJournal(dir[0], machine);
+                }
+                for (int i = 0; i < count; i++) {
+                    stops[0] = i & 63;
+                    journal[0].append(stops, 1, i & 7, 0, false, i);
+                }
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Builds a paylines config with the given number of lines whose rows move by at most one between reels.
+     * @param lines Number of paylines
+     * @return Paylines config string
+     */
+    static String highPaylineConfig(int lines) {
+        StringBuilder sb = new StringBuilder("1,1,1,1,1;0,0,0,0,0;2,2,2,2,2;0,1,2,1,0;2,1,0,1,2");
+        int added = 5;
+        for (int code = 0; code < 243 && added < lines; code++) {
+            int[] rows = new int[5];
+            int c = code;
+            boolean smooth = true;
+            for (int col = 0; col < 5; col++) {
+                rows[col] = c % 3;
+                c /= 3;
+                if (col > 0 && Math.abs(rows[col] - rows[col - 1]) > 1) smooth = false;
+            }
+            String line = rows[0] + "," + rows[1] + "," + rows[2] + "," + rows[3] + "," + rows[4];
+            if (!smooth || sb.toString().contains(line)) continue;
+            sb.append(';').append(line);
+            added++;
+        }
+        return sb.toString();
+    }
+
+    private static void measure(String name, Case benchmarkCase) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(benchmarkCase);
+        }
+        double best = 0;
+        double total = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            double opsPerSecond = iteration(benchmarkCase);
+            best = Math.max(best, opsPerSecond);
+            total += opsPerSecond;
+        }
+        System.out.printf(Locale.ROOT, "%-48s %14.0f ops/s (best %14.0f)%n", name, total / MEASURE_ITERATIONS, best);
+    }
+
+    private static double iteration(Case benchmarkCase) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            ops += benchmarkCase.run();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return ops * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,187 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulator that runs until the RTP confidence interval is narrow enough, or a spin or time budget runs out.
+ * <p>
+ * Workers evaluate batches in parallel exactly as {@link Simulator} does. Completed batches are merged in
+ * batch order into a running total, and the stopping rule is checked after every merged batch; the check
+ * only needs the streaming sums in {@link SimulationStats}, so it costs a few arithmetic operations per
+ * 4096 spins. Because the rule sees batches in index order, a run stopped by precision or by the spin
+ * budget always covers the same batches for a given seed, whatever the thread count. Batches finished past
+ * the stopping point are discarded.
+ */
+public class AdaptiveSimulator {
+    /**
+     * Why a run stopped.
+     */
+    public enum StopReason {
+        CONVERGED, SPIN_BUDGET, TIME_BUDGET, CANCELLED
+    }
+
+    /**
+     * Stopping rule of an adaptive run.
+     */
+    public static class Target {
+        public final double halfWidth;
+        public final double confidence;
+        public final long minSpins;
+        public final long maxSpins;
+        public final long maxNanos;
+
+        /**
+         * @param halfWidth Required RTP half-width, as a fraction of the amount bet (e.g. 0.0005 for ±0.05%)
+         * @param confidence Confidence level of the interval (e.g. 0.99)
+         * @param minSpins Spins to run before convergence is trusted; guards against early variance underestimates
+         * @param maxSpins Spin budget
+         * @param maxNanos Time budget in nanoseconds (0 for none)
+         */
+        public Target(double halfWidth, double confidence, long minSpins, long maxSpins, long maxNanos) {
+            if (!(halfWidth > 0)) {
+                throw new IllegalArgumentException("Target half-width must be positive: " + halfWidth);
+            }
+            if (maxSpins < 1 || minSpins < 0) {
+                throw new IllegalArgumentException("Invalid spin budget " + minSpins + ".." + maxSpins);
+            }
+            if (maxNanos < 0) {
+                throw new IllegalArgumentException("Time budget must not be negative");
+            }
+            this.halfWidth = halfWidth;
+            this.confidence = confidence;
+            this.minSpins = minSpins;
+            this.maxSpins = maxSpins;
+            this.maxNanos = maxNanos;
+            SimulationStats.zForConfidence(confidence);
+        }
+    }
+
+    /**
+     * Outcome of an adaptive run.
+     */
+    public static class Results {
+        public final SimulationStats stats;
+        public final StopReason stopReason;
+        public final double z;
+
+        Results(SimulationStats stats, StopReason stopReason, double z) {
+            this.stats = stats;
+            this.stopReason = stopReason;
+            this.z = z;
+        }
+
+        public double halfWidth() {
+            return stats.rtpHalfWidth(z);
+        }
+    }
+
+    private final Simulator simulator;
+    private final ISlotMachine machine;
+    private final int threads;
+
+    /**
+     * Constructs an adaptive simulator.
+     * @param machine Machine whose reels and paylines are simulated
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     */
+    public AdaptiveSimulator(ISlotMachine machine, long seed, int threads) {
+        this.simulator = new Simulator(machine, seed, threads);
+        this.machine = machine;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs until the target is met.
+     * @param target Stopping rule
+     * @param progress Progress tracker and cancellation flag (may be null)
+     * @return Merged statistics of the batches up to the stopping point, and why the run stopped
+     */
+    public Results run(Target target, SimulationProgress progress) {
+        int batchSize = Simulator.BATCH_SIZE;
+        long batches = (target.maxSpins + batchSize - 1) / batchSize;
+        double z = SimulationStats.zForConfidence(target.confidence);
+        Merger merger = new Merger(target, z, batches, progress);
+        AtomicLong nextBatch = new AtomicLong();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                BatchEvaluator evaluator = new BatchEvaluator(machine, batchSize);
+                long batch;
+                while ((batch = nextBatch.getAndIncrement()) < merger.limit) {
+                    SimulationStats stats = new SimulationStats();
+                    long first = batch * batchSize;
+                    simulator.runBatch(evaluator, batch, (int) Math.min(batchSize, target.maxSpins - first), stats);
+                    if (progress != null) {
+                        progress.add(stats.spins, stats.totalWon);
+                    }
+                    merger.complete(batch, stats);
+                }
+                return null;
+            });
+        }
+        Simulator.runAll(workers);
+        return new Results(merger.total, merger.reason(), z);
+    }
+
+    /**
+     * Merges completed batches in index order and applies the stopping rule to each prefix.
+     */
+    private static class Merger {
+        final SimulationStats total = new SimulationStats();
+        private final Target target;
+        private final double z;
+        private final SimulationProgress progress;
+        private final long deadline;
+        // Batches completed out of order, waiting for their predecessors
+        private final Map<Long, SimulationStats> pending = new HashMap<>();
+        private long merged;
+        private StopReason reason;
+        // Workers stop claiming batches at this index
+        volatile long limit;
+
+        Merger(Target target, double z, long batches, SimulationProgress progress) {
+            this.target = target;
+            this.z = z;
+            this.progress = progress;
+            this.deadline = target.maxNanos > 0 ? System.nanoTime() + target.maxNanos : 0;
+            this.limit = batches;
+        }
+
+        synchronized void complete(long batch, SimulationStats stats) {
+            if (batch >= limit) return;
+            pending.put(batch, stats);
+            SimulationStats next;
+            while (merged < limit && (next = pending.remove(merged)) != null) {
+                total.merge(next);
+                merged++;
+                if (total.spins >= target.minSpins && total.spins >= 2
+                        && total.rtpHalfWidth(z) <= target.halfWidth) {
+                    stop(StopReason.CONVERGED);
+                }
+            }
+            if (limit > merged) {
+                if (progress != null && progress.isCancelled()) {
+                    stop(StopReason.CANCELLED);
+                } else if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                    stop(StopReason.TIME_BUDGET);
+                }
+            }
+        }
+
+        private void stop(StopReason why) {
+            reason = why;
+            limit = merged;
+            pending.clear();
+        }
+
+        synchronized StopReason reason() {
+            return reason != null ? reason : StopReason.SPIN_BUDGET;
+        }
+    }
+}
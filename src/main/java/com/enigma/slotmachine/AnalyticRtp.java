@@ -0,0 +1,96 @@
+package com.enigma.slotmachine;
+
+/**
+ * Exact (analytic) expected payouts of the base game, computed from the reel strips rather than simulated.
+ * <p>
+ * Reels are independent and every valid stop is equally likely, so the probability of a symbol appearing in
+ * a given row of a reel is just its frequency over the valid stops. From that, the expected payout of each
+ * payline follows directly. Values are per unit bet.
+ */
+public final class AnalyticRtp {
+    private static final int ROWS = 3;
+
+    private AnalyticRtp() {
+    }
+
+    /**
+     * Returns, per reel and row, the probability of each symbol being shown.
+     * @param reels Reels of the machine
+     * @return probabilities[reel][row][symbol ordinal]
+     */
+    static double[][][] symbolProbabilities(IReel[] reels) {
+        int symbols = Symbol.values().length;
+        double[][][] probabilities = new double[reels.length][ROWS][symbols];
+        for (int r = 0; r < reels.length; r++) {
+            int stops = reels[r].stopCount();
+            for (int i = 0; i < stops; i++) {
+                Symbol[] window = reels[r].windowAt(reels[r].stopAt(i));
+                for (int row = 0; row < ROWS; row++) {
+                    probabilities[r][row][window[row].ordinal()] += 1.0 / stops;
+                }
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * Returns the expected sum of all line wins per spin, as if every winning line paid.
+     * For machines that pay all wins this is the exact line RTP.
+     * @param machine The slot machine
+     * @return Expected pay-all line payout per unit bet
+     */
+    public static double allLinesRtp(ISlotMachine machine) {
+        IReel[] reels = machine.getReels();
+        double[][][] p = symbolProbabilities(reels);
+        double expected = 0.0;
+        for (int[] payline : machine.getPaylines()) {
+            for (Symbol symbol : Symbol.values()) {
+                if (symbol == Symbol.SCATTER) continue;
+                int s = symbol.ordinal();
+                // atLeast[k] = probability that the first k reels of the line all show the symbol
+                double[] atLeast = new double[reels.length + 2];
+                atLeast[0] = 1.0;
+                for (int col = 0; col < reels.length; col++) {
+                    atLeast[col + 1] = atLeast[col] * p[col][payline[col]][s];
+                }
+                for (int k = 3; k <= reels.length; k++) {
+                    double exactly = atLeast[k] - atLeast[k + 1];
+                    expected += exactly * symbol.getPayout(k);
+                }
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Returns the expected scatter payout per spin. Each valid stop shows at most one scatter per reel.
+     * @param machine The slot machine
+     * @return Expected scatter payout per unit bet
+     */
+    public static double scatterRtp(ISlotMachine machine) {
+        IReel[] reels = machine.getReels();
+        // distribution[n] = probability of n scatters on the reels processed so far
+        double[] distribution = new double[reels.length + 1];
+        distribution[0] = 1.0;
+        for (IReel reel : reels) {
+            int withScatter = 0;
+            for (int i = 0; i < reel.stopCount(); i++) {
+                for (Symbol s : reel.windowAt(reel.stopAt(i))) {
+                    if (s == Symbol.SCATTER) {
+                        withScatter++;
+                        break;
+                    }
+                }
+            }
+            double q = (double) withScatter / reel.stopCount();
+            for (int n = reels.length; n >= 0; n--) {
+                distribution[n] = distribution[n] * (1 - q) + (n > 0 ? distribution[n - 1] * q : 0.0);
+            }
+        }
+        double expected = 0.0;
+        for (int n = 3; n <= reels.length; n++) {
+            expected += distribution[n] * Symbol.SCATTER.getPayout(n);
+        }
+        return expected;
+    }
+}
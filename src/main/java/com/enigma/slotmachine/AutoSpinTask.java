@@ -0,0 +1,79 @@
+package com.enigma.slotmachine;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs auto-spin analytics in the background so the console stays responsive.
+ * <p>
+ * The task owns a single daemon thread that drives a {@link Simulator}; the menu polls
+ * {@link #getProgress()} for live figures and may {@link #cancel()} the run at any time, in which case the
+ * statistics of all completed batches are still reported.
+ */
+public class AutoSpinTask {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auto-spin");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SimulationProgress progress;
+    private final Future<SimulationStats> result;
+    private final int betAmount;
+
+    /**
+     * Starts a background auto-spin run.
+     * @param slotMachine The slot machine whose reels and paylines are simulated
+     * @param autospinCount Number of auto-spins to run
+     * @param threads Number of simulation worker threads
+     */
+    public AutoSpinTask(ISlotMachine slotMachine, int autospinCount, int threads) {
+        this.betAmount = slotMachine.getBetAmount();
+        this.progress = new SimulationProgress(autospinCount);
+        Simulator simulator = new Simulator(slotMachine, new Random().nextLong(), threads);
+        this.result = executor.submit(() -> simulator.run(autospinCount, progress));
+        executor.shutdown();
+    }
+
+    public SimulationProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Returns the bet amount captured when the run started; all totals are scaled by it.
+     * @return Bet amount
+     */
+    public int getBetAmount() {
+        return betAmount;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    public boolean isCancelled() {
+        return progress.isCancelled();
+    }
+
+    /**
+     * Stops the run after the batches currently in flight.
+     */
+    public void cancel() {
+        progress.cancel();
+    }
+
+    /**
+     * Waits for the run to finish and returns its statistics (partial if cancelled).
+     * @return Statistics at a bet of 1
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public SimulationStats awaitResult() throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Auto-spin run failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.enigma.slotmachine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Evaluates thousands of spins at once using columnar primitive arrays (struct-of-arrays).
+ * <p>
+ * A batch holds, per reel, the stop positions of every spin and, per grid cell, the symbol ordinal of every
+ * spin. Scatters and paylines are then evaluated cell by cell and line by line over whole columns, so the
+ * inner loops are tight, branch-light and auto-vectorisable (and use SIMD lanes through
+ * {@link PaylineEvaluator#evaluateBatch} when the Vector API is available). Payouts are at a bet of 1.
+ * <p>
+ * Instances are not thread-safe; give each worker thread its own.
+ */
+public class BatchEvaluator {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int REELS = 5;
+    private static final int ROWS = 3;
+    private static final int CELLS = REELS * ROWS;
+    private static final int SCATTER = Symbol.SCATTER.ordinal();
+
+    private final int capacity;
+    private final int[][] validStops;
+    // windowSymbols[reel][row][stop]: ordinal shown in a row when the reel stops at a position
+    private final int[][][] windowSymbols;
+    private final int[][] paylines;
+    private final int[][] lineCells;
+    private final boolean payAllWins;
+    private final PaylineEvaluator evaluator;
+    // linePays[ordinal * 6 + matchCount]
+    private final int[] linePays;
+    private final int[] scatterPays;
+
+    private final int[][] stops;
+    private final int[][] cells;
+    private final int[][] lineMatches;
+    private final int[] payouts;
+    private final int[] allLinePayouts;
+    private final int[] scatterCounts;
+    private final int[] scatterPayouts;
+    private final long[] winMasks;
+    private int size;
+
+    /**
+     * Constructs a batch evaluator with the default capacity.
+     * @param machine Machine whose reels, paylines and payout mode are evaluated
+     */
+    public BatchEvaluator(ISlotMachine machine) {
+        this(machine, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a batch evaluator.
+     * @param machine Machine whose reels, paylines and payout mode are evaluated
+     * @param capacity Maximum number of spins per batch
+     */
+    public BatchEvaluator(ISlotMachine machine, int capacity) {
+        IReel[] reels = machine.getReels();
+        this.capacity = capacity;
+        this.validStops = new int[REELS][];
+        this.windowSymbols = new int[REELS][ROWS][];
+        for (int r = 0; r < REELS; r++) {
+            validStops[r] = new int[reels[r].stopCount()];
+            for (int i = 0; i < validStops[r].length; i++) {
+                validStops[r][i] = reels[r].stopAt(i);
+            }
+            Symbol[] strip = reels[r].getFullStrip();
+            for (int row = 0; row < ROWS; row++) {
+                windowSymbols[r][row] = new int[strip.length];
+                for (int stop = 0; stop < strip.length; stop++) {
+                    windowSymbols[r][row][stop] = strip[(stop + row) % strip.length].ordinal();
+                }
+            }
+        }
+        this.paylines = machine.getPaylines();
+        this.lineCells = ScalarPaylineEvaluator.toCellIndices(paylines);
+        this.payAllWins = machine.isPayAllWins();
+        this.evaluator = PaylineEvaluators.createForBatch(paylines);
+        Symbol[] symbols = Symbol.values();
+        this.linePays = new int[symbols.length * 6];
+        for (Symbol s : symbols) {
+            for (int match = 3; match <= 5; match++) {
+                linePays[s.ordinal() * 6 + match] = s.getPayout(match);
+            }
+        }
+        this.scatterPays = new int[CELLS + 1];
+        for (int n = 3; n <= CELLS; n++) {
+            scatterPays[n] = Symbol.SCATTER.getPayout(Math.min(n, 5));
+        }
+
+        this.stops = new int[REELS][capacity];
+        this.cells = new int[CELLS][capacity];
+        this.lineMatches = new int[paylines.length][capacity];
+        this.payouts = new int[capacity];
+        this.allLinePayouts = new int[capacity];
+        this.scatterCounts = new int[capacity];
+        this.scatterPayouts = new int[capacity];
+        this.winMasks = new long[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of valid stops of a reel (the range of stop indices).
+     * @param reel Reel index
+     * @return Number of valid stops
+     */
+    public int stopCount(int reel) {
+        return validStops[reel].length;
+    }
+
+    /**
+     * Draws uniform stops for a batch, spin by spin and reel by reel.
+     * @param random Random stream
+     * @param count Number of spins
+     */
+    public void fillUniform(SplittableRandom random, int count) {
+        checkCount(count);
+        for (int i = 0; i < count; i++) {
+            for (int r = 0; r < REELS; r++) {
+                stops[r][i] = validStops[r][RngStreams.nextIndex(random, validStops[r].length)];
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Sets the stops of a batch from valid-stop indices (see {@link IReel#stopAt(int)}).
+     * @param indices Valid-stop index per reel, each array indexed by spin
+     * @param count Number of spins
+     */
+    public void fillIndices(int[][] indices, int count) {
+        checkCount(count);
+        for (int r = 0; r < REELS; r++) {
+            int[] valid = validStops[r];
+            int[] in = indices[r];
+            int[] out = stops[r];
+            for (int i = 0; i < count; i++) {
+                out[i] = valid[in[i]];
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Sets the stops of a batch from uniform draws in [0, 1), mapping each draw to a valid-stop index by
+     * scaling. Machines with different strip lengths fed the same draws see the same underlying randomness,
+     * which is what common-random-numbers comparisons rely on.
+     * @param uniforms Uniform draw per reel, each array indexed by spin
+     * @param count Number of spins
+     */
+    public void fillUniforms(double[][] uniforms, int count) {
+        checkCount(count);
+        for (int r = 0; r < REELS; r++) {
+            int[] valid = validStops[r];
+            int last = valid.length - 1;
+            double[] in = uniforms[r];
+            int[] out = stops[r];
+            for (int i = 0; i < count; i++) {
+                out[i] = valid[Math.min(last, (int) (in[i] * valid.length))];
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Sets the stops of a batch from strip stop positions.
+     * @param stopPositions Stop position per reel, each array indexed by spin
+     * @param count Number of spins
+     */
+    public void fillStops(int[][] stopPositions, int count) {
+        checkCount(count);
+        for (int r = 0; r < REELS; r++) {
+            System.arraycopy(stopPositions[r], 0, stops[r], 0, count);
+        }
+        size = count;
+    }
+
+    private void checkCount(int count) {
+        if (count < 0 || count > capacity) {
+            throw new IllegalArgumentException("Batch size " + count + " outside 0.." + capacity);
+        }
+    }
+
+    /**
+     * Evaluates the current batch: grid cells, scatters, paylines and payouts.
+     */
+    public void evaluate() {
+        int count = size;
+        for (int r = 0; r < REELS; r++) {
+            int[] reelStops = stops[r];
+            for (int row = 0; row < ROWS; row++) {
+                int[] symbols = windowSymbols[r][row];
+                int[] out = cells[row * REELS + r];
+                for (int i = 0; i < count; i++) {
+                    out[i] = symbols[reelStops[i]];
+                }
+            }
+        }
+
+        Arrays.fill(scatterCounts, 0, count, 0);
+        for (int cell = 0; cell < CELLS; cell++) {
+            int[] column = cells[cell];
+            for (int i = 0; i < count; i++) {
+                scatterCounts[i] += column[i] == SCATTER ? 1 : 0;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            scatterPayouts[i] = scatterPays[scatterCounts[i]];
+        }
+
+        Arrays.fill(payouts, 0, count, 0);
+        Arrays.fill(allLinePayouts, 0, count, 0);
+        Arrays.fill(winMasks, 0, count, 0L);
+        for (int line = 0; line < paylines.length; line++) {
+            int[] matches = lineMatches[line];
+            evaluator.evaluateBatch(cells, count, line, matches);
+            int[] first = cells[lineCells[line][0]];
+            long bit = line < 64 ? 1L << line : 0L;
+            if (payAllWins) {
+                for (int i = 0; i < count; i++) {
+                    int pay = linePays[first[i] * 6 + matches[i]];
+                    payouts[i] += pay;
+                    winMasks[i] |= pay > 0 ? bit : 0L;
+                }
+            } else {
+                // Highest line only; ties keep the lowest line index, as in SlotMachine
+                for (int i = 0; i < count; i++) {
+                    int pay = linePays[first[i] * 6 + matches[i]];
+                    allLinePayouts[i] += pay;
+                    if (pay > payouts[i]) {
+                        payouts[i] = pay;
+                        winMasks[i] = bit;
+                    }
+                }
+            }
+        }
+        if (payAllWins) {
+            System.arraycopy(payouts, 0, allLinePayouts, 0, count);
+        }
+        for (int i = 0; i < count; i++) {
+            payouts[i] += scatterPayouts[i];
+        }
+    }
+
+    /**
+     * Records the evaluated batch into simulation statistics.
+     * @param stats Statistics to record into
+     */
+    public void record(SimulationStats stats) {
+        for (int i = 0; i < size; i++) {
+            stats.record(payouts[i], scatterPayouts[i], scatterCounts[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total payout of a spin in the batch (bet of 1).
+     * @param i Spin index
+     * @return Total payout
+     */
+    public int payout(int i) {
+        return payouts[i];
+    }
+
+    /**
+     * Returns the sum of all line wins of a spin as if every winning line paid, regardless of the payout
+     * mode (bet of 1). Its exact expectation is known analytically, which makes it a control variate.
+     * @param i Spin index
+     * @return Pay-all line payout
+     */
+    public int allLinePayout(int i) {
+        return allLinePayouts[i];
+    }
+
+    public int scatterCount(int i) {
+        return scatterCounts[i];
+    }
+
+    public int scatterPayout(int i) {
+        return scatterPayouts[i];
+    }
+
+    /**
+     * Returns the paid paylines of a spin as a bit mask (bit n = payline n + 1; first 64 lines only).
+     * @param i Spin index
+     * @return Bit mask of paid lines
+     */
+    public long winMask(int i) {
+        return winMasks[i];
+    }
+
+    /**
+     * Returns the match count of a payline for a spin (3-5, or 0 for no win), whether or not it was paid.
+     * @param line Payline index
+     * @param i Spin index
+     * @return Match count
+     */
+    public int lineMatch(int line, int i) {
+        return lineMatches[line][i];
+    }
+
+    /**
+     * Returns the symbol ordinal on the first reel of a payline for a spin.
+     * @param line Payline index
+     * @param i Spin index
+     * @return Symbol ordinal
+     */
+    public int lineSymbol(int line, int i) {
+        return cells[lineCells[line][0]][i];
+    }
+
+    /**
+     * Returns the stop position of a reel for a spin.
+     * @param reel Reel index
+     * @param i Spin index
+     * @return Stop position on the strip
+     */
+    public int stop(int reel, int i) {
+        return stops[reel][i];
+    }
+
+    public int paylineCount() {
+        return paylines.length;
+    }
+
+    /**
+     * Packs a spin of the batch into a {@link SpinResult} whose grid and line wins are built on demand.
+     * @param machine Machine with the reels and paylines of this batch (at most 64 paylines)
+     * @param i Spin index
+     * @param betAmount Bet multiplier applied to all payouts
+     * @return Packed SpinResult
+     */
+    SpinResult result(SlotMachine machine, int i, int betAmount) {
+        int[] spinStops = new int[REELS];
+        for (int r = 0; r < REELS; r++) spinStops[r] = stops[r][i];
+        long winMask = winMasks[i];
+        long matchCounts = 0;
+        for (long mask = winMask; mask != 0; mask &= mask - 1) {
+            int line = Long.numberOfTrailingZeros(mask);
+            if (line < SpinResult.PACKED_LINES) matchCounts |= (long) lineMatches[line][i] << (3 * line);
+        }
+        return new SpinResult(machine, spinStops, betAmount, winMask, matchCounts, scatterCounts[i],
+                scatterPayouts[i] * betAmount, payouts[i] * betAmount);
+    }
+}
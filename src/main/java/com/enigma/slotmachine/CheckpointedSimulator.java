@@ -0,0 +1,235 @@
+package com.enigma.slotmachine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulator that periodically saves its state to a checkpoint file and can resume from it.
+ * <p>
+ * Every batch draws from its own random stream (see {@link RngStreams}), so the whole RNG position of a run
+ * is the index of the next batch to simulate. Completed batches are merged in batch order; a checkpoint
+ * holds that index together with the merged statistics of all batches before it. Resuming continues from
+ * the index, so a run that is killed and resumed gives exactly the same result as an uninterrupted one.
+ * Checkpoints are small (about 120 bytes), written to a temporary file, forced to disk and atomically moved
+ * over the previous one, so a crash during a write always leaves the last complete checkpoint in place.
+ */
+public class CheckpointedSimulator {
+    private static final int MAGIC = 0x534D434B; // "SMCK"
+    private static final int VERSION = 1;
+
+    /**
+     * State saved in a checkpoint file.
+     */
+    public static class Checkpoint {
+        public final long seed;
+        public final long spins;
+        public final long fingerprint;
+        public final long nextBatch;
+        public final SimulationStats stats;
+
+        Checkpoint(long seed, long spins, long fingerprint, long nextBatch, SimulationStats stats) {
+            this.seed = seed;
+            this.spins = spins;
+            this.fingerprint = fingerprint;
+            this.nextBatch = nextBatch;
+            this.stats = stats;
+        }
+    }
+
+    private final Simulator simulator;
+    private final ISlotMachine machine;
+    private final long seed;
+    private final int threads;
+    private final Path file;
+    private final long intervalNanos;
+    private long savedBatch;
+
+    /**
+     * Constructs a checkpointing simulator.
+     * @param machine Machine whose reels and paylines are simulated
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     * @param file Checkpoint file
+     * @param intervalNanos Minimum time between checkpoints (0 to checkpoint after every batch)
+     */
+    public CheckpointedSimulator(ISlotMachine machine, long seed, int threads, Path file, long intervalNanos) {
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative");
+        }
+        this.simulator = new Simulator(machine, seed, threads);
+        this.machine = machine;
+        this.seed = seed;
+        this.threads = threads;
+        this.file = file;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Runs the given number of spins, resuming from the checkpoint file if it exists. A final checkpoint is
+     * written when the run stops, whether it completed or was cancelled; after cancellation, batches finished
+     * out of order beyond the checkpoint are discarded and simulated again on resume.
+     * @param spins Number of spins of the whole run
+     * @param progress Progress tracker and cancellation flag (may be null)
+     * @return Merged statistics of the checkpointed batches, including those from earlier sessions
+     * @throws IOException If the checkpoint cannot be read or written, or belongs to a different run
+     */
+    public SimulationStats run(long spins, SimulationProgress progress) throws IOException {
+        long batches = (spins + Simulator.BATCH_SIZE - 1) / Simulator.BATCH_SIZE;
+        long fingerprint = ShardCoordinator.fingerprint(machine);
+        Checkpoint start = new Checkpoint(seed, spins, fingerprint, 0, new SimulationStats());
+        if (Files.exists(file)) {
+            start = read(file);
+            if (start.seed != seed || start.spins != spins || start.fingerprint != fingerprint) {
+                throw new IOException(file + " is a checkpoint of a different run (seed " + start.seed
+                        + ", " + start.spins + " spins)");
+            }
+            if (progress != null) {
+                progress.add(start.stats.spins, start.stats.totalWon);
+            }
+        }
+        Sequencer merged = new Sequencer(start);
+        savedBatch = start.nextBatch;
+        AtomicLong nextBatch = new AtomicLong(merged.next);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                BatchEvaluator evaluator = new BatchEvaluator(machine, Simulator.BATCH_SIZE);
+                long batch;
+                while ((progress == null || !progress.isCancelled())
+                        && (batch = nextBatch.getAndIncrement()) < batches) {
+                    SimulationStats stats = new SimulationStats();
+                    long first = batch * Simulator.BATCH_SIZE;
+                    simulator.runBatch(evaluator, batch, (int) Math.min(Simulator.BATCH_SIZE, spins - first), stats);
+                    if (progress != null) {
+                        progress.add(stats.spins, stats.totalWon);
+                    }
+                    Checkpoint due = merged.complete(batch, stats);
+                    if (due != null) save(due);
+                }
+                return null;
+            });
+        }
+        try {
+            Simulator.runAll(workers);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+        Checkpoint last = merged.snapshot();
+        save(last);
+        return last.stats;
+    }
+
+    /**
+     * Merges completed batches in index order and decides when a checkpoint is due.
+     */
+    private class Sequencer {
+        private final SimulationStats total = new SimulationStats();
+        // Batches completed out of order, waiting for their predecessors
+        private final Map<Long, SimulationStats> pending = new HashMap<>();
+        private final Checkpoint base;
+        private long next;
+        private long lastWrite = System.nanoTime();
+
+        Sequencer(Checkpoint base) {
+            this.base = base;
+            this.next = base.nextBatch;
+            total.merge(base.stats);
+        }
+
+        synchronized Checkpoint complete(long batch, SimulationStats stats) {
+            pending.put(batch, stats);
+            boolean advanced = false;
+            SimulationStats ready;
+            while ((ready = pending.remove(next)) != null) {
+                total.merge(ready);
+                next++;
+                advanced = true;
+            }
+            long now = System.nanoTime();
+            if (!advanced || now - lastWrite < intervalNanos) return null;
+            lastWrite = now;
+            return snapshot();
+        }
+
+        synchronized Checkpoint snapshot() {
+            SimulationStats copy = new SimulationStats();
+            copy.merge(total);
+            return new Checkpoint(base.seed, base.spins, base.fingerprint, next, copy);
+        }
+    }
+
+    // Serialises checkpoint writes; a checkpoint older than the one already saved is skipped
+    private synchronized void save(Checkpoint checkpoint) throws IOException {
+        if (checkpoint.nextBatch < savedBatch) return;
+        write(file, checkpoint);
+        savedBatch = checkpoint.nextBatch;
+    }
+
+    /**
+     * Atomically replaces a checkpoint file.
+     * @param file Checkpoint file
+     * @param checkpoint State to save
+     * @throws IOException If writing fails
+     */
+    static void write(Path file, Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checkpoint.seed);
+            out.writeLong(checkpoint.spins);
+            out.writeLong(checkpoint.fingerprint);
+            out.writeLong(checkpoint.nextBatch);
+            checkpoint.stats.writeTo(out);
+        }
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Makes the rename itself durable
+            DirectorySync.force(dir);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads a checkpoint file.
+     * @param file Checkpoint file
+     * @return Saved state
+     * @throws IOException If the file cannot be read or is not a checkpoint
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a checkpoint file (version " + VERSION + ")");
+            }
+            long seed = in.readLong();
+            long spins = in.readLong();
+            long fingerprint = in.readLong();
+            long nextBatch = in.readLong();
+            return new Checkpoint(seed, spins, fingerprint, nextBatch, SimulationStats.readFrom(in));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares several machine configurations using common random numbers.
+ * <p>
+ * Every spin draws one uniform number per reel, and all configurations are evaluated on those same draws in
+ * the same pass (each scales the draw to its own strip). Because the configurations see identical
+ * randomness, their per-spin payouts are strongly correlated and the variance of the paired difference is
+ * far smaller than that of two independent runs, so an RTP difference becomes significant with a fraction of
+ * the spins. The first machine is the baseline all others are compared against.
+ */
+public class ComparisonSimulator {
+    private final List<ISlotMachine> machines;
+    private final long seed;
+    private final int threads;
+
+    /**
+     * Paired statistics of one configuration against the baseline. Totals are exact integers and mergeable.
+     */
+    public static class Paired {
+        long spins;
+        long sumDiff;
+        long sumDiffSquares;
+
+        void merge(Paired other) {
+            spins += other.spins;
+            sumDiff += other.sumDiff;
+            sumDiffSquares += other.sumDiffSquares;
+        }
+
+        /**
+         * Returns the mean per-spin payout difference (configuration minus baseline), i.e. the RTP difference.
+         * @return RTP difference as a fraction of the amount bet
+         */
+        public double meanDiff() {
+            return spins == 0 ? 0.0 : (double) sumDiff / spins;
+        }
+
+        /**
+         * Returns the sample variance of the per-spin payout difference.
+         * @return Variance of the paired difference
+         */
+        public double variance() {
+            if (spins < 2) return 0.0;
+            double mean = meanDiff();
+            return Math.max(0.0, ((double) sumDiffSquares - spins * mean * mean) / (spins - 1));
+        }
+
+        /**
+         * Returns the half-width of the confidence interval of the RTP difference.
+         * @param z Normal quantile for the confidence level
+         * @return Half-width as a fraction of the amount bet
+         */
+        public double halfWidth(double z) {
+            return spins == 0 ? 0.0 : z * Math.sqrt(variance() / spins);
+        }
+    }
+
+    /**
+     * Results of a comparison run.
+     */
+    public static class Results {
+        public final SimulationStats[] stats;
+        public final Paired[] paired;
+
+        Results(int configs) {
+            stats = new SimulationStats[configs];
+            paired = new Paired[configs];
+            for (int k = 0; k < configs; k++) {
+                stats[k] = new SimulationStats();
+                paired[k] = new Paired();
+            }
+        }
+
+        void merge(Results other) {
+            for (int k = 0; k < stats.length; k++) {
+                stats[k].merge(other.stats[k]);
+                paired[k].merge(other.paired[k]);
+            }
+        }
+
+        /**
+         * Returns how many times more spins two independent runs would need for the same precision on the
+         * difference of configuration k against the baseline.
+         * @param k Configuration index (1 or more)
+         * @return Variance reduction factor, or 0 if undefined
+         */
+        public double varianceReduction(int k) {
+            double independent = stats[0].variance() + stats[k].variance();
+            double pairedVariance = paired[k].variance();
+            return pairedVariance > 0 ? independent / pairedVariance : 0.0;
+        }
+    }
+
+    /**
+     * Constructs a comparison simulator.
+     * @param machines Configurations to compare; the first is the baseline
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     */
+    public ComparisonSimulator(List<? extends ISlotMachine> machines, long seed, int threads) {
+        if (machines.size() < 2) {
+            throw new IllegalArgumentException("At least two configurations are needed for a comparison");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.machines = new ArrayList<>(machines);
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs the given number of common spins through all configurations.
+     * @param spins Number of spins
+     * @return Per-configuration and paired statistics
+     */
+    public Results run(long spins) {
+        int batchSize = Simulator.BATCH_SIZE;
+        long batches = (spins + batchSize - 1) / batchSize;
+        AtomicLong nextBatch = new AtomicLong();
+        List<Callable<Results>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                Results local = new Results(machines.size());
+                BatchEvaluator[] evaluators = new BatchEvaluator[machines.size()];
+                for (int k = 0; k < evaluators.length; k++) {
+                    evaluators[k] = new BatchEvaluator(machines.get(k), batchSize);
+                }
+                double[][] uniforms = new double[SlotMachineConfig.REELS][batchSize];
+                long batch;
+                while ((batch = nextBatch.getAndIncrement()) < batches) {
+                    int count = (int) Math.min(batchSize, spins - batch * batchSize);
+                    runBatch(batch, count, uniforms, evaluators, local);
+                }
+                return local;
+            });
+        }
+        Results total = new Results(machines.size());
+        for (Results results : Simulator.runAll(workers)) {
+            total.merge(results);
+        }
+        return total;
+    }
+
+    private void runBatch(long batch, int count, double[][] uniforms, BatchEvaluator[] evaluators, Results results) {
+        SplittableRandom random = RngStreams.forBatch(seed, batch);
+        for (int i = 0; i < count; i++) {
+            for (int r = 0; r < uniforms.length; r++) {
+                uniforms[r][i] = random.nextDouble();
+            }
+        }
+        for (BatchEvaluator evaluator : evaluators) {
+            evaluator.fillUniforms(uniforms, count);
+            evaluator.evaluate();
+        }
+        for (int k = 0; k < evaluators.length; k++) {
+            evaluators[k].record(results.stats[k]);
+        }
+        BatchEvaluator baseline = evaluators[0];
+        for (int k = 1; k < evaluators.length; k++) {
+            BatchEvaluator other = evaluators[k];
+            Paired paired = results.paired[k];
+            long sum = 0;
+            long sumSquares = 0;
+            for (int i = 0; i < count; i++) {
+                long diff = other.payout(i) - baseline.payout(i);
+                sum += diff;
+                sumSquares += diff * diff;
+            }
+            paired.spins += count;
+            paired.sumDiff += sum;
+            paired.sumDiffSquares += sumSquares;
+        }
+    }
+}
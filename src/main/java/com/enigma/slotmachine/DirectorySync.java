@@ -0,0 +1,33 @@
+package com.enigma.slotmachine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Forces a directory's entries to disk, so a file created or renamed in it survives a crash.
+ * <p>
+ * Forcing a file only makes its contents durable; the rename that publishes it lives in the directory, which
+ * has to be forced as well. Windows cannot open a directory as a channel and makes renames durable on its
+ * own, so there this is a no-op.
+ */
+final class DirectorySync {
+    private static final boolean WINDOWS = File.separatorChar == '\\';
+
+    private DirectorySync() {
+    }
+
+    /**
+     * Forces the entries of a directory to disk.
+     * @param dir Directory
+     * @throws IOException If the directory cannot be opened or forced
+     */
+    static void force(Path dir) throws IOException {
+        if (WINDOWS) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
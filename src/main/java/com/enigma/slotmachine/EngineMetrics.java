@@ -0,0 +1,290 @@
+package com.enigma.slotmachine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the spin hot path, filled by {@link InstrumentedSlotMachine}.
+ * <p>
+ * Every counter is a {@link LongAdder} (and every histogram bucket one, see {@link LatencyHistogram}), so
+ * recording from many threads never contends on a shared cache line. Values are read by pulling a
+ * {@link Snapshot}, or over JMX after {@link #register(String)}. Metrics can be switched off at runtime; the
+ * instrumented machine then passes calls straight through after one volatile read. Machines that are not
+ * instrumented at all pay nothing.
+ */
+public class EngineMetrics implements IEngineMetricsMXBean {
+    private final LatencyHistogram spinLatency = new LatencyHistogram();
+    private final LatencyHistogram reelSpinLatency = new LatencyHistogram();
+    private final LatencyHistogram evaluateLatency = new LatencyHistogram();
+    private final LongAdder spins = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder totalBet = new LongAdder();
+    private final LongAdder totalPayout = new LongAdder();
+    private final LongAdder scatterTriggers = new LongAdder();
+    private final LongAdder[] paylineWins;
+    private final LongAdder[] symbolWins = new LongAdder[Symbol.values().length];
+    private volatile boolean enabled = true;
+    private volatile RtpMonitor rtpMonitor;
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Constructs metrics for a machine with the given number of paylines.
+     * @param paylines Number of paylines
+     */
+    public EngineMetrics(int paylines) {
+        this.paylineWins = new LongAdder[paylines];
+        for (int i = 0; i < paylines; i++) paylineWins[i] = new LongAdder();
+        for (int i = 0; i < symbolWins.length; i++) symbolWins[i] = new LongAdder();
+    }
+
+    /**
+     * Records the counters of one evaluated spin.
+     * @param result Spin result
+     * @param betAmount Bet of the spin
+     */
+    void recordSpin(SpinResult result, int betAmount) {
+        spins.increment();
+        totalBet.add(betAmount);
+        if (result.totalPayout > 0) {
+            wins.increment();
+            totalPayout.add(result.totalPayout);
+        }
+        if (result.scatterCount >= 3) scatterTriggers.increment();
+        RtpMonitor monitor = rtpMonitor;
+        if (monitor != null) monitor.record(result, betAmount);
+        if (paylineWins.length > Long.SIZE) {
+            // The bitmask only covers 64 lines
+            for (SpinResult.LineWin win : result.getLineWins()) {
+                if (win.lineIndex <= paylineWins.length) paylineWins[win.lineIndex - 1].increment();
+                symbolWins[win.symbol.ordinal()].increment();
+            }
+            return;
+        }
+        // Walks the win bitmask so packed results never build their line wins
+        for (long mask = result.winMask; mask != 0; mask &= mask - 1) {
+            int line = Long.numberOfTrailingZeros(mask);
+            if (line < paylineWins.length) paylineWins[line].increment();
+            symbolWins[result.getLineSymbol(line + 1).ordinal()].increment();
+        }
+    }
+
+    /**
+     * Feeds every recorded spin to a live RTP monitor as well.
+     * @param rtpMonitor Monitor, or null to stop feeding one
+     */
+    public void setRtpMonitor(RtpMonitor rtpMonitor) {
+        this.rtpMonitor = rtpMonitor;
+    }
+
+    /**
+     * Records the latencies of one timed spin.
+     * @param reelNanos Time spent spinning the reels
+     * @param evaluateNanos Time spent evaluating the grid
+     * @param totalNanos Time of the whole spin
+     */
+    void recordSpinLatency(long reelNanos, long evaluateNanos, long totalNanos) {
+        spinLatency.record(totalNanos);
+        reelSpinLatency.record(reelNanos);
+        evaluateLatency.record(evaluateNanos);
+    }
+
+    /**
+     * Records an evaluation made outside a spin.
+     * @param nanos Evaluation time
+     */
+    void recordEvaluate(long nanos) {
+        evaluateLatency.record(nanos);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     * @param name Value of the {@code name} key of the object name
+     * @return Registered object name
+     * @throws IOException If registration fails (e.g. the name is taken)
+     */
+    public ObjectName register(String name) throws IOException {
+        try {
+            ObjectName objectName = new ObjectName("com.enigma.slotmachine:type=EngineMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IOException("Cannot register engine metrics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Takes a point-in-time copy of all metrics.
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        spinLatency.reset();
+        reelSpinLatency.reset();
+        evaluateLatency.reset();
+        for (LongAdder adder : new LongAdder[] {spins, wins, totalBet, totalPayout, scatterTriggers}) adder.reset();
+        for (LongAdder adder : paylineWins) adder.reset();
+        for (LongAdder adder : symbolWins) adder.reset();
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public long getSpins() {
+        return spins.sum();
+    }
+
+    @Override
+    public long getWins() {
+        return wins.sum();
+    }
+
+    @Override
+    public long getTotalBet() {
+        return totalBet.sum();
+    }
+
+    @Override
+    public long getTotalPayout() {
+        return totalPayout.sum();
+    }
+
+    @Override
+    public double getRtp() {
+        long bet = totalBet.sum();
+        return bet == 0 ? 0.0 : (double) totalPayout.sum() / bet;
+    }
+
+    @Override
+    public long getScatterTriggers() {
+        return scatterTriggers.sum();
+    }
+
+    @Override
+    public double getSpinsPerSecond() {
+        return snapshot().spinsPerSecond();
+    }
+
+    @Override
+    public long getSpinLatencyP50Nanos() {
+        return spinLatency.snapshot().percentile(0.50);
+    }
+
+    @Override
+    public long getSpinLatencyP99Nanos() {
+        return spinLatency.snapshot().percentile(0.99);
+    }
+
+    @Override
+    public long getSpinLatencyP999Nanos() {
+        return spinLatency.snapshot().percentile(0.999);
+    }
+
+    @Override
+    public long getSpinLatencyMaxNanos() {
+        return spinLatency.snapshot().getMax();
+    }
+
+    @Override
+    public long getReelSpinLatencyP99Nanos() {
+        return reelSpinLatency.snapshot().percentile(0.99);
+    }
+
+    @Override
+    public long getEvaluateLatencyP99Nanos() {
+        return evaluateLatency.snapshot().percentile(0.99);
+    }
+
+    @Override
+    public long[] getPaylineWins() {
+        return sums(paylineWins);
+    }
+
+    @Override
+    public Map<String, Long> getSymbolWins() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Symbol symbol : Symbol.values()) {
+            counts.put(symbol.name(), symbolWins[symbol.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] values = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) values[i] = adders[i].sum();
+        return values;
+    }
+
+    /**
+     * Point-in-time copy of the metrics. Two snapshots give the rates over the time between them.
+     */
+    public static class Snapshot {
+        public final long nanoTime;
+        public final long elapsedNanos;
+        public final long spins;
+        public final long wins;
+        public final long totalBet;
+        public final long totalPayout;
+        public final long scatterTriggers;
+        // Index 0 is payline 1
+        public final long[] paylineWins;
+        // Indexed by symbol ordinal
+        public final long[] symbolWins;
+        public final LatencyHistogram.Snapshot spinLatency;
+        public final LatencyHistogram.Snapshot reelSpinLatency;
+        public final LatencyHistogram.Snapshot evaluateLatency;
+
+        Snapshot(EngineMetrics metrics) {
+            this.nanoTime = System.nanoTime();
+            this.elapsedNanos = nanoTime - metrics.startNanos;
+            this.spins = metrics.spins.sum();
+            this.wins = metrics.wins.sum();
+            this.totalBet = metrics.totalBet.sum();
+            this.totalPayout = metrics.totalPayout.sum();
+            this.scatterTriggers = metrics.scatterTriggers.sum();
+            this.paylineWins = sums(metrics.paylineWins);
+            this.symbolWins = sums(metrics.symbolWins);
+            this.spinLatency = metrics.spinLatency.snapshot();
+            this.reelSpinLatency = metrics.reelSpinLatency.snapshot();
+            this.evaluateLatency = metrics.evaluateLatency.snapshot();
+        }
+
+        /**
+         * Returns the average spin rate since the metrics were created or reset.
+         * @return Spins per second
+         */
+        public double spinsPerSecond() {
+            return elapsedNanos <= 0 ? 0.0 : spins * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the spin rate between an earlier snapshot and this one.
+         * @param earlier Earlier snapshot of the same metrics
+         * @return Spins per second
+         */
+        public double spinsPerSecondSince(Snapshot earlier) {
+            long nanos = nanoTime - earlier.nanoTime;
+            return nanos <= 0 ? 0.0 : (spins - earlier.spins) * 1e9 / nanos;
+        }
+    }
+}
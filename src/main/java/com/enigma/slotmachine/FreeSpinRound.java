@@ -0,0 +1,40 @@
+package com.enigma.slotmachine;
+
+import java.util.List;
+
+/**
+ * Aggregated result of a free-spin round played in one call (see {@link ISlotMachine#playFreeSpinRound()}).
+ * <p>
+ * Holds the round totals plus the packed result of every free spin, in order, for callers that journal or
+ * settle spins one by one.
+ */
+public class FreeSpinRound {
+    // Bet of the triggering spin, at which every free spin pays
+    public final int betAmount;
+    public final int spinsPlayed;
+    // Free spins awarded by retriggers during the round
+    public final int spinsAwarded;
+    public final int retriggers;
+    public final long totalPayout;
+    public final int biggestWin;
+    private final List<SpinResult> spins;
+
+    public FreeSpinRound(int betAmount, int spinsAwarded, int retriggers, long totalPayout, int biggestWin,
+                         List<SpinResult> spins) {
+        this.betAmount = betAmount;
+        this.spinsPlayed = spins.size();
+        this.spinsAwarded = spinsAwarded;
+        this.retriggers = retriggers;
+        this.totalPayout = totalPayout;
+        this.biggestWin = biggestWin;
+        this.spins = List.copyOf(spins);
+    }
+
+    /**
+     * Returns the free spins of the round, in the order played.
+     * @return Unmodifiable list of spin results
+     */
+    public List<SpinResult> getSpins() {
+        return spins;
+    }
+}
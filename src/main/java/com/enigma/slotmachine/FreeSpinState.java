@@ -0,0 +1,168 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bonus-round state of one player: free spins left, the bet they pay at, and the round's JFR event.
+ * <p>
+ * A spin showing {@value #TRIGGER_SCATTERS} or more scatters awards {@code freeSpinsPerTrigger} free spins,
+ * in the base game and during a round alike (a retrigger). Free spins cost nothing and pay at the bet of the
+ * spin that started the round. The round's {@link GameEvents.FreeSpinRoundEvent} begins at the trigger and
+ * is committed when the last free spin has been played.
+ * <p>
+ * A spin is {@link #stake staked} before it is drawn and {@link #settle settled} with its result; {@link #play}
+ * does both around a synchronous spin, while a {@link SpinCoalescer} stakes on the submitting thread and
+ * settles on its dispatcher. Only one spin may be in flight at a time.
+ */
+final class FreeSpinState {
+    static final int TRIGGER_SCATTERS = 3;
+
+    private int freeSpinsPerTrigger;
+    private int freeSpins;
+    private int betAmount;
+    private GameEvents.FreeSpinRoundEvent round;
+    // Whether the spin staked last is a free spin, and its bet
+    private boolean free;
+    private int stakedBet;
+
+    FreeSpinState(int freeSpinsPerTrigger) {
+        setFreeSpinsPerTrigger(freeSpinsPerTrigger);
+    }
+
+    /**
+     * Returns the bonus-round state of one of the engine's players.
+     * @param player Player
+     * @return Its state, or null for implementations outside the engine
+     */
+    static FreeSpinState of(ISlotMachine player) {
+        if (player instanceof MachineSession) return ((MachineSession) player).getFreeSpinState();
+        if (player instanceof SlotMachine) return ((SlotMachine) player).getFreeSpinState();
+        if (player instanceof InstrumentedSlotMachine) return ((InstrumentedSlotMachine) player).getFreeSpinState();
+        return null;
+    }
+
+    int getFreeSpinsPerTrigger() {
+        return freeSpinsPerTrigger;
+    }
+
+    void setFreeSpinsPerTrigger(int freeSpinsPerTrigger) {
+        if (freeSpinsPerTrigger < 0) {
+            throw new IllegalArgumentException("Free spins per trigger must not be negative");
+        }
+        this.freeSpinsPerTrigger = freeSpinsPerTrigger;
+    }
+
+    int getFreeSpins() {
+        return freeSpins;
+    }
+
+    /**
+     * Plays one spin for the player: a free spin while any are left, otherwise a paid spin at its bet.
+     * @param player Player whose balance is debited and credited
+     * @param spin Spins and evaluates at the given bet
+     * @return Result of the spin
+     */
+    SpinResult play(ISlotMachine player, IntFunction<SpinResult> spin) {
+        int bet = stake(player);
+        SpinResult result;
+        try {
+            result = spin.apply(bet);
+        } catch (RuntimeException e) {
+            unstake(player, bet);
+            throw e;
+        }
+        settle(player, result);
+        return result;
+    }
+
+    /**
+     * Pays for the player's next spin: takes one of the free spins left, otherwise debits the player's bet.
+     * @param player Player whose balance is debited
+     * @return Bet the spin is to be evaluated at
+     * @throws IllegalStateException If a paid spin is not covered by the balance
+     */
+    int stake(ISlotMachine player) {
+        free = freeSpins > 0;
+        int bet = free ? betAmount : player.getBetAmount();
+        if (free) {
+            freeSpins--;
+        } else {
+            if (player.getBalance() < bet) {
+                throw new IllegalStateException("Not enough balance to spin at a bet of " + bet);
+            }
+            player.deductBalance(bet);
+        }
+        stakedBet = bet;
+        return bet;
+    }
+
+    /**
+     * Undoes the stake of a spin that was never played.
+     * @param player Player that staked the spin
+     * @param bet Bet returned by {@link #stake}
+     */
+    void unstake(ISlotMachine player, int bet) {
+        if (free) {
+            freeSpins++;
+        } else {
+            player.addBalance(bet);
+        }
+    }
+
+    /**
+     * Credits the staked spin's payout and awards any free spins it triggered.
+     * @param player Player whose balance is credited
+     * @param result Result of the staked spin
+     */
+    void settle(ISlotMachine player, SpinResult result) {
+        int bet = stakedBet;
+        player.addBalance(result.totalPayout);
+        if (free) {
+            round.spinsPlayed++;
+            round.payout += result.totalPayout;
+        }
+        if (result.scatterCount >= TRIGGER_SCATTERS && freeSpinsPerTrigger > 0) {
+            if (round == null) {
+                round = new GameEvents.FreeSpinRoundEvent();
+                round.begin();
+                round.triggerScatterCount = result.scatterCount;
+                betAmount = bet;
+            }
+            round.spinsAwarded += freeSpinsPerTrigger;
+            freeSpins += freeSpinsPerTrigger;
+        }
+        if (freeSpins == 0 && round != null) {
+            round.commit();
+            round = null;
+        }
+    }
+
+    /**
+     * Plays free spins until none are left, retriggers included.
+     * @param player Player whose balance is credited
+     * @param spin Spins and evaluates at the given bet
+     * @return Aggregated round, empty if no free spins were left
+     */
+    FreeSpinRound playRound(ISlotMachine player, IntFunction<SpinResult> spin) {
+        int bet = betAmount;
+        List<SpinResult> spins = new ArrayList<>(freeSpins);
+        int awarded = 0;
+        int retriggers = 0;
+        long total = 0;
+        int biggest = 0;
+        while (freeSpins > 0) {
+            int before = freeSpins;
+            SpinResult result = play(player, spin);
+            if (freeSpins >= before) {
+                retriggers++;
+                awarded += freeSpinsPerTrigger;
+            }
+            spins.add(result);
+            total += result.totalPayout;
+            biggest = Math.max(biggest, result.totalPayout);
+        }
+        return new FreeSpinRound(bet, awarded, retriggers, total, biggest, spins);
+    }
+}
@@ -0,0 +1,118 @@
+package com.enigma.slotmachine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder events of the game, so profiles can be lined up with game activity.
+ * <p>
+ * Every event is enabled by default and is controlled through the standard JFR settings under its name,
+ * e.g. {@code -XX:StartFlightRecording:com.enigma.slotmachine.Spin#threshold=0ms} to record every spin.
+ * Spins default to a 1 ms threshold, so continuous recording only keeps the slow ones; each spin then costs
+ * two timestamp reads. The other events are rare and have no threshold. Events are only filled in when
+ * they will be committed.
+ */
+public final class GameEvents {
+    private static final String CATEGORY = "Slot Machine";
+
+    private GameEvents() {
+    }
+
+    @Name("com.enigma.slotmachine.Spin")
+    @Label("Spin")
+    @Description("One spinAndEvaluate call: reel spins and win evaluation")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class SpinEvent extends Event {
+        @Label("Bet")
+        int bet;
+
+        @Label("Payout")
+        int payout;
+
+        @Label("Scatter Count")
+        int scatterCount;
+
+        @Label("Winning Lines")
+        int winningLines;
+
+        /**
+         * Ends the event and commits it with the spin's figures if it passes its threshold.
+         * @param betAmount Bet of the spin
+         * @param result Evaluated spin
+         */
+        void end(int betAmount, SpinResult result) {
+            end();
+            if (shouldCommit()) {
+                bet = betAmount;
+                payout = result.totalPayout;
+                scatterCount = result.scatterCount;
+                winningLines = result.getWinningLineCount();
+                commit();
+            }
+        }
+    }
+
+    @Name("com.enigma.slotmachine.FreeSpinRound")
+    @Label("Free-Spin Round")
+    @Description("A free-spin round, from the triggering spin until the last free spin is played")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class FreeSpinRoundEvent extends Event {
+        @Label("Trigger Scatter Count")
+        int triggerScatterCount;
+
+        @Label("Free Spins Awarded")
+        int spinsAwarded;
+
+        @Label("Free Spins Played")
+        int spinsPlayed;
+
+        @Label("Round Payout")
+        long payout;
+    }
+
+    @Name("com.enigma.slotmachine.ReelBuild")
+    @Label("Reel Build")
+    @Description("Construction of a reel strip and its valid stops")
+    @Category(CATEGORY)
+    public static class ReelBuildEvent extends Event {
+        @Label("Strip Length")
+        int stripLength;
+
+        @Label("Valid Stops")
+        int validStops;
+
+        @Label("Scatters")
+        int scatters;
+
+        @Label("Minimum Scatter Distance")
+        int minScatterDistance;
+    }
+
+    @Name("com.enigma.slotmachine.ConfigLoad")
+    @Label("Config Load")
+    @Description("Loading of a slot machine properties file")
+    @Category(CATEGORY)
+    public static class ConfigLoadEvent extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("File Size")
+        @DataAmount
+        long size;
+
+        @Label("Warnings")
+        int warnings;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
@@ -0,0 +1,664 @@
+package com.enigma.slotmachine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Non-interactive entry point for batch simulation jobs.
+ * <p>
+ * Selected by passing command-line arguments to {@link Main}. Runs the requested simulation without any
+ * per-spin console output and writes a single buffered JSON or CSV summary to a file or stdout.
+ * Diagnostics go to stderr so that stdout only ever carries the report.
+ * <pre>
+ * --mode M         simulate (default), adaptive, shard, worker, sessions, compare, journal, verify or outcomes
+ * --spins N        Number of spins (default: autospinCount from the config)
+ * --threads N      Worker threads (default: available processors)
+ * --seed N         Run seed; also seeds the reel strip shuffle (default: random, echoed in the report)
+ * --config PATH    Properties file (default: slotmachine.properties)
+ * --format F       json or csv (default: json)
+ * --out PATH       Output file (default: stdout)
+ *
+ * simulate mode:
+ * --checkpoint PATH      Save progress to PATH and resume from it if it exists, with the checkpoint's seed
+ *                        unless --seed is given; removed when the run completes
+ * --checkpoint-seconds X Time between checkpoints (default: 5)
+ * --sampler S      uniform, antithetic or stratified; selects the variance-reduced simulator, which also
+ *                  reports a control-variate estimate and precision per CPU-second; cannot be combined
+ *                  with --checkpoint or --outcomes
+ * --outcomes PATH  Record every spin's stops, payout, scatter count and paid lines into a columnar store
+ *
+ * adaptive mode:
+ * --precision X    Target RTP half-width as a fraction of the bet (default: 0.0005, i.e. ±0.05%)
+ * --confidence X   Confidence level of the interval (default: 0.99)
+ * --min-spins N    Spins before convergence is checked (default: 1000000)
+ * --max-spins N    Spin budget (default: 10000000000)
+ * --max-seconds X  Time budget, 0 for none (default: 0)
+ *
+ * shard mode (simulate split across worker JVMs; --threads is per worker):
+ * --shards N       Number of worker processes (default: 2)
+ * --work-dir PATH  Directory for shard files and worker logs (default: shards)
+ * --attempts N     Launches per shard before giving up (default: 3)
+ * --worker-timeout S  Seconds the workers of one attempt may run before they are killed (default: 3600)
+ *
+ * worker mode (one shard, normally launched by shard mode):
+ * --from-batch N   First batch (inclusive)
+ * --to-batch N     Last batch (exclusive)
+ * --out PATH       Binary shard file to write (required)
+ *
+ * sessions mode:
+ * --players N      Number of simulated players (default: 1000000)
+ * --min-balance N  Lowest starting balance (default: 100)
+ * --max-balance N  Highest starting balance (default: min-balance)
+ * --bet N          Fixed bet, or 0 for a random bet option per player (default: 0)
+ * --max-spins N    Spin limit per session (default: 10000)
+ * --target X       Stop at X times the starting balance, 0 for none (default: 2.0)
+ *
+ * journal mode (writes matching spin records as CSV):
+ * --journal PATH   Spin journal directory (required)
+ * --from N         First sequence number (default: 1)
+ * --to N           Last sequence number (default: all)
+ * --min-payout N   Only spins paying at least N
+ * --free-spins     Only free spins
+ *
+ * verify mode (replays recorded spins; exits with 3 if any payout does not match):
+ * --journal PATH   Spin journal directory to verify, or
+ * --stops PATH     Text file of stop1,stop2,stop3,stop4,stop5,bet,payout lines, played on the machine
+ *                  built from --config and --seed
+ *
+ * outcomes mode (win distribution and payline heatmap of a recorded store):
+ * --outcomes PATH  Outcome store directory (required)
+ *
+ * compare mode:
+ * --config PATH    Repeat for each configuration; the first one is the baseline
+ * </pre>
+ */
+public class HeadlessRunner {
+    // Exit code for jobs that complete but report a failed check (verify mode)
+    static final int EXIT_CHECK_FAILED = 3;
+
+    private final Map<String, List<String>> options;
+    private int exitCode;
+
+    HeadlessRunner(Map<String, List<String>> options) {
+        this.options = options;
+    }
+
+    /**
+     * Parses the arguments and runs the requested job.
+     * @param args Command-line arguments
+     * @return Process exit code (0 on success)
+     */
+    public static int run(String[] args) {
+        HeadlessRunner runner;
+        try {
+            runner = new HeadlessRunner(parseOptions(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            return 2;
+        }
+        try {
+            runner.execute();
+            return runner.exitCode;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    static Map<String, List<String>> parseOptions(String[] args) {
+        Map<String, List<String>> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String key = arg.substring(2);
+            String value;
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            } else {
+                value = "true";
+            }
+            options.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return options;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: [--mode simulate|adaptive|shard|worker|sessions|compare|journal|verify|outcomes] --spins N --threads N --seed N --config PATH --format json|csv --out PATH");
+    }
+
+    void execute() throws IOException {
+        String mode = getString("mode", "simulate");
+        switch (mode) {
+            case "simulate":
+                runSimulation();
+                break;
+            case "adaptive":
+                runAdaptive();
+                break;
+            case "shard":
+                runSharded();
+                break;
+            case "worker":
+                runWorker();
+                break;
+            case "journal":
+                runJournalScan();
+                break;
+            case "verify":
+                runVerify();
+                break;
+            case "outcomes":
+                runOutcomeScan();
+                break;
+            case "sessions":
+                runSessions();
+                break;
+            case "compare":
+                runComparison();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    private void runSimulation() throws IOException {
+        String sampler = getString("sampler", null);
+        String checkpoint = getString("checkpoint", null);
+        String outcomes = getString("outcomes", null);
+        if (outcomes != null && checkpoint != null) {
+            throw new IllegalArgumentException("--outcomes cannot be combined with --checkpoint");
+        }
+        if (sampler != null && (checkpoint != null || outcomes != null)) {
+            throw new IllegalArgumentException("--sampler cannot be combined with --"
+                    + (checkpoint != null ? "checkpoint" : "outcomes"));
+        }
+        SlotMachineConfig config = loadConfig(getString("config", SlotMachineConfig.DEFAULT_PATH));
+        long seed = simulationSeed();
+        int threads = getThreads();
+        long spins = getLong("spins", config.getAutospinCount());
+        if (spins < 0) {
+            throw new IllegalArgumentException("Invalid --spins: " + spins);
+        }
+
+        SlotMachine machine = config.createMachine(0, new Random(seed));
+        if (sampler != null) {
+            runReducedSimulation(machine, parseSampler(sampler), seed, threads, spins);
+            return;
+        }
+        long start = System.nanoTime();
+        SimulationStats stats;
+        if (outcomes != null) {
+            try (OutcomeRecorder recorder = new OutcomeRecorder(Paths.get(outcomes), machine, spins)) {
+                stats = new Simulator(machine, seed, threads, recorder).run(spins);
+            }
+        } else if (checkpoint != null) {
+            double interval = getDouble("checkpoint-seconds", 5);
+            if (interval < 0) {
+                throw new IllegalArgumentException("Invalid --checkpoint-seconds: " + interval);
+            }
+            Path file = Paths.get(checkpoint);
+            stats = new CheckpointedSimulator(machine, seed, threads, file, (long) (interval * 1e9)).run(spins, null);
+            Files.delete(file);
+        } else {
+            stats = new Simulator(machine, seed, threads).run(spins);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        SimulationReport report = new SimulationReport()
+                .put("mode", "simulate")
+                .put("config", getString("config", SlotMachineConfig.DEFAULT_PATH))
+                .put("seed", seed)
+                .put("threads", threads)
+                .putStats(stats, elapsed);
+        writeReport(report);
+    }
+
+    private void runReducedSimulation(SlotMachine machine, VarianceReducedSimulator.Sampler sampler, long seed,
+            int threads, long spins) throws IOException {
+        long start = System.nanoTime();
+        VarianceReducedSimulator.Results results = new VarianceReducedSimulator(machine, seed, threads, sampler).run(spins);
+        long elapsed = System.nanoTime() - start;
+        double cpuSeconds = elapsed / 1e9 * threads;
+        double z = 1.959964;
+        SimulationStats stats = results.stats;
+        SimulationReport report = new SimulationReport()
+                .put("mode", "simulate")
+                .put("config", getString("config", SlotMachineConfig.DEFAULT_PATH))
+                .put("seed", seed)
+                .put("threads", threads)
+                .put("sampler", sampler.name().toLowerCase(Locale.ROOT))
+                .put("spins", stats.getSpins())
+                .put("replicates", results.replicates.replicates)
+                .put("rtp", results.rtp())
+                .put("rtpHalfWidth95", results.rtpHalfWidth(z))
+                .put("cvRtp", results.controlVariateRtp())
+                .put("cvHalfWidth95", results.controlVariateHalfWidth(z))
+                .put("cvBeta", results.beta)
+                .put("analyticLineRtp", results.controlMean)
+                .put("analyticScatterRtp", AnalyticRtp.scatterRtp(machine))
+                .put("hitRate", stats.hitRate())
+                .put("scatterTriggerRate", stats.getSpins() == 0 ? 0.0 : (double) stats.getScatterTriggers() / stats.getSpins())
+                .put("precisionPerCpuSecond", precision(results.rtpHalfWidth(z), cpuSeconds))
+                .put("cvPrecisionPerCpuSecond", precision(results.controlVariateHalfWidth(z), cpuSeconds))
+                .put("elapsedSeconds", elapsed / 1e9);
+        writeReport(report);
+    }
+
+    // 1 / (half-width^2 * CPU seconds): higher means a tighter interval for the same compute
+    private static double precision(double halfWidth, double cpuSeconds) {
+        return halfWidth > 0 && cpuSeconds > 0 ? 1.0 / (halfWidth * halfWidth * cpuSeconds) : 0.0;
+    }
+
+    private static VarianceReducedSimulator.Sampler parseSampler(String sampler) {
+        try {
+            return VarianceReducedSimulator.Sampler.valueOf(sampler.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sampler: " + sampler + " (expected uniform, antithetic or stratified)");
+        }
+    }
+
+    private void runAdaptive() throws IOException {
+        SlotMachineConfig config = loadConfig(getString("config", SlotMachineConfig.DEFAULT_PATH));
+        long seed = getLong("seed", new Random().nextLong());
+        int threads = getThreads();
+        double maxSeconds = getDouble("max-seconds", 0);
+        if (maxSeconds < 0) {
+            throw new IllegalArgumentException("Invalid --max-seconds: " + maxSeconds);
+        }
+        AdaptiveSimulator.Target target = new AdaptiveSimulator.Target(
+                getDouble("precision", 0.0005),
+                getDouble("confidence", 0.99),
+                getLong("min-spins", 1_000_000L),
+                getLong("max-spins", 10_000_000_000L),
+                (long) (maxSeconds * 1e9));
+
+        SlotMachine machine = config.createMachine(0, new Random(seed));
+        long start = System.nanoTime();
+        AdaptiveSimulator.Results results = new AdaptiveSimulator(machine, seed, threads).run(target, null);
+        long elapsed = System.nanoTime() - start;
+
+        SimulationReport report = new SimulationReport()
+                .put("mode", "adaptive")
+                .put("config", getString("config", SlotMachineConfig.DEFAULT_PATH))
+                .put("seed", seed)
+                .put("threads", threads)
+                .put("targetHalfWidth", target.halfWidth)
+                .put("confidence", target.confidence)
+                .put("stopReason", results.stopReason.name().toLowerCase(Locale.ROOT))
+                .put("rtpHalfWidth", results.halfWidth())
+                .putStats(results.stats, elapsed);
+        writeReport(report);
+    }
+
+    private void runSharded() throws IOException {
+        String configPath = getString("config", SlotMachineConfig.DEFAULT_PATH);
+        SlotMachineConfig config = loadConfig(configPath);
+        long seed = getLong("seed", new Random().nextLong());
+        int threads = getThreads();
+        int shards = getInt("shards", 2);
+        long spins = getLong("spins", config.getAutospinCount());
+
+        long start = System.nanoTime();
+        SimulationStats stats = new ShardCoordinator(configPath, seed, spins, shards, threads,
+                Paths.get(getString("work-dir", "shards")), getInt("attempts", 3),
+                getLong("worker-timeout", ShardCoordinator.DEFAULT_WORKER_TIMEOUT_SECONDS)).run();
+        long elapsed = System.nanoTime() - start;
+
+        SimulationReport report = new SimulationReport()
+                .put("mode", "shard")
+                .put("config", configPath)
+                .put("seed", seed)
+                .put("shards", shards)
+                .put("threadsPerShard", threads)
+                .putStats(stats, elapsed);
+        writeReport(report);
+    }
+
+    private void runWorker() throws IOException {
+        SlotMachineConfig config = loadConfig(getString("config", SlotMachineConfig.DEFAULT_PATH));
+        long seed = getLong("seed", 0);
+        long spins = getLong("spins", config.getAutospinCount());
+        long fromBatch = getLong("from-batch", 0);
+        long toBatch = getLong("to-batch", (spins + Simulator.BATCH_SIZE - 1) / Simulator.BATCH_SIZE);
+        String out = getString("out", null);
+        if (out == null) {
+            throw new IllegalArgumentException("Worker mode needs --out for the shard file");
+        }
+        if (spins < 0 || fromBatch < 0 || toBatch < fromBatch) {
+            throw new IllegalArgumentException("Invalid shard: spins " + spins + ", batches " + fromBatch + ".." + toBatch);
+        }
+        SimulationStats stats = ShardCoordinator.runWorker(config, seed, spins, fromBatch, toBatch, getThreads(), Paths.get(out));
+        System.err.printf(Locale.ROOT, "Shard %d..%d done: %d spins%n", fromBatch, toBatch, stats.getSpins());
+    }
+
+    private void runJournalScan() throws IOException {
+        String dir = getString("journal", null);
+        if (dir == null) {
+            throw new IllegalArgumentException("Journal mode needs --journal DIR");
+        }
+        long from = getLong("from", 1);
+        long to = getLong("to", Long.MAX_VALUE);
+        int minPayout = getInt("min-payout", 0);
+        boolean freeOnly = Boolean.parseBoolean(getString("free-spins", "false"));
+        String out = getString("out", null);
+        Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+        long[] totals = new long[2];
+        try {
+            writer.write("sequence,time,stops,bet,payout,scatters,freeSpin,balanceAfter\n");
+            long matched = new SpinJournalReader(Paths.get(dir)).scan(from, to,
+                    r -> r.payout >= minPayout && (!freeOnly || r.freeSpin),
+                    r -> {
+                        totals[0] += r.bet;
+                        totals[1] += r.payout;
+                        try {
+                            writer.write(String.format(Locale.ROOT, "%d,%s,%d-%d-%d-%d-%d,%d,%d,%d,%b,%d%n",
+                                    r.sequence, java.time.Instant.ofEpochMilli(r.timeMillis),
+                                    r.stops[0], r.stops[1], r.stops[2], r.stops[3], r.stops[4],
+                                    r.bet, r.payout, r.scatterCount, r.freeSpin, r.balanceAfter));
+                        } catch (IOException e) {
+                            throw new java.io.UncheckedIOException(e);
+                        }
+                    });
+            System.err.printf(Locale.ROOT, "%d spins matched, total bet %d, total paid %d%n", matched, totals[0], totals[1]);
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (out == null) writer.flush(); else writer.close();
+        }
+    }
+
+    private void runVerify() throws IOException {
+        String journal = getString("journal", null);
+        String stops = getString("stops", null);
+        if ((journal == null) == (stops == null)) {
+            throw new IllegalArgumentException("Verify mode needs either --journal DIR or --stops FILE");
+        }
+        int threads = getThreads();
+        ReplayVerifier verifier = new ReplayVerifier(threads);
+        long start = System.nanoTime();
+        ReplayVerifier.Results results;
+        SimulationReport report = new SimulationReport().put("mode", "verify");
+        if (journal != null) {
+            report.put("journal", journal);
+            results = verifier.verifyJournal(Paths.get(journal));
+        } else {
+            SlotMachineConfig config = loadConfig(getString("config", SlotMachineConfig.DEFAULT_PATH));
+            long seed = getLong("seed", 0);
+            report.put("stops", stops).put("config", getString("config", SlotMachineConfig.DEFAULT_PATH)).put("seed", seed);
+            results = verifier.verifyStops(Paths.get(stops), config.createMachine(0, new Random(seed)));
+        }
+        long elapsed = System.nanoTime() - start;
+        for (ReplayVerifier.Mismatch mismatch : results.mismatches) {
+            System.err.println("Mismatch " + mismatch);
+        }
+        for (long sequence : results.corruptRecords) {
+            System.err.println("Corrupt journal record #" + sequence);
+        }
+        report.put("threads", threads)
+                .put("spins", results.spins)
+                .put("totalBet", results.totalBet)
+                .put("totalPaid", results.totalPaid)
+                .put("mismatches", results.mismatchCount)
+                .put("corruptRecords", results.corruptRecords.size())
+                .put("verified", results.isClean())
+                .put("elapsedSeconds", elapsed / 1e9)
+                .put("spinsPerSecond", elapsed > 0 ? results.spins * 1e9 / elapsed : 0.0);
+        writeReport(report);
+        if (!results.isClean()) exitCode = EXIT_CHECK_FAILED;
+    }
+
+    private void runOutcomeScan() throws IOException {
+        String dir = getString("outcomes", null);
+        if (dir == null) {
+            throw new IllegalArgumentException("Outcomes mode needs --outcomes DIR");
+        }
+        int threads = getThreads();
+        long start = System.nanoTime();
+        OutcomeScanner scanner = new OutcomeScanner(Paths.get(dir), threads);
+        long spins = scanner.spins();
+        int[] bounds = {0, 1, 2, 5, 10, 20, 50, 100, 500};
+        long[] histogram = scanner.payoutHistogram(bounds);
+        long[][] heatmap = scanner.paylineHeatmap();
+        long totalPayout = scanner.totalPayout();
+        long elapsed = System.nanoTime() - start;
+
+        SimulationReport report = new SimulationReport()
+                .put("mode", "outcomes")
+                .put("outcomes", dir)
+                .put("threads", threads)
+                .put("spins", spins)
+                .put("rtp", spins == 0 ? 0.0 : (double) totalPayout / spins);
+        for (int k = 0; k < histogram.length; k++) {
+            String label = k == 0 ? "eq0" : k == bounds.length ? "gt" + bounds[k - 1]
+                    : bounds[k] == bounds[k - 1] + 1 ? "eq" + bounds[k] : (bounds[k - 1] + 1) + "to" + bounds[k];
+            report.put("payout_" + label, histogram[k]);
+        }
+        for (int a = 0; a < heatmap.length; a++) {
+            for (int b = a; b < heatmap.length; b++) {
+                report.put("lines_" + (a + 1) + "_" + (b + 1), heatmap[a][b]);
+            }
+        }
+        report.put("elapsedSeconds", elapsed / 1e9)
+                .put("spinsPerSecond", elapsed > 0 ? spins * 1e9 / elapsed : 0.0);
+        writeReport(report);
+    }
+
+    private void runSessions() throws IOException {
+        SlotMachineConfig config = loadConfig(getString("config", SlotMachineConfig.DEFAULT_PATH));
+        long seed = getLong("seed", new Random().nextLong());
+        int threads = getThreads();
+        int players = getInt("players", 1_000_000);
+        int minBalance = getInt("min-balance", 100);
+        PlayerSessionSimulator.Rules rules = new PlayerSessionSimulator.Rules(minBalance,
+                getInt("max-balance", minBalance), getInt("bet", 0), getInt("max-spins", 10_000),
+                getDouble("target", 2.0));
+        if (players < 0) {
+            throw new IllegalArgumentException("Invalid --players: " + players);
+        }
+
+        SlotMachine machine = config.createMachine(0, new Random(seed));
+        long start = System.nanoTime();
+        PlayerSessionSimulator.Results results = new PlayerSessionSimulator(machine, seed, threads).run(players, rules);
+        long elapsed = System.nanoTime() - start;
+
+        double ruin = results.probability(PlayerSessionSimulator.OUTCOME_RUIN);
+        int[] timesToRuin = results.timesToRuin();
+        SimulationReport report = new SimulationReport()
+                .put("mode", "sessions")
+                .put("config", getString("config", SlotMachineConfig.DEFAULT_PATH))
+                .put("seed", seed)
+                .put("threads", threads)
+                .put("players", players)
+                .put("minStartBalance", rules.minStartBalance)
+                .put("maxStartBalance", rules.maxStartBalance)
+                .put("bet", rules.betAmount > 0 ? String.valueOf(rules.betAmount) : "random")
+                .put("maxSpins", rules.maxSpins)
+                .put("targetMultiplier", rules.targetMultiplier)
+                .put("ruinProbability", ruin)
+                .put("ruinHalfWidth95", players > 0 ? 1.959964 * Math.sqrt(ruin * (1 - ruin) / players) : 0.0)
+                .put("targetProbability", results.probability(PlayerSessionSimulator.OUTCOME_TARGET))
+                .put("maxSpinsProbability", results.probability(PlayerSessionSimulator.OUTCOME_MAX_SPINS))
+                .put("meanSpins", results.meanSpins())
+                .put("timeToRuinMean", mean(timesToRuin))
+                .put("timeToRuinP50", percentile(timesToRuin, 0.50))
+                .put("timeToRuinP90", percentile(timesToRuin, 0.90))
+                .put("timeToRuinP99", percentile(timesToRuin, 0.99));
+        double[] bounds = {0.25, 0.5, 0.75, 1.0, 1.5, 2.0, 5.0};
+        long[] histogram = results.finalRatioHistogram(bounds);
+        for (int i = 0; i < histogram.length; i++) {
+            String label = i == 0 ? "lt" + bounds[0]
+                    : i == bounds.length ? "ge" + bounds[i - 1]
+                    : bounds[i - 1] + "to" + bounds[i];
+            report.put("finalRatio_" + label, histogram[i]);
+        }
+        report.put("elapsedSeconds", elapsed / 1e9);
+        writeReport(report);
+    }
+
+    private void runComparison() throws IOException {
+        List<String> paths = getAll("config");
+        if (paths.size() < 2) {
+            throw new IllegalArgumentException("Compare mode needs at least two --config options");
+        }
+        long seed = getLong("seed", new Random().nextLong());
+        int threads = getThreads();
+        List<SlotMachine> machines = new ArrayList<>();
+        long defaultSpins = 0;
+        for (String path : paths) {
+            SlotMachineConfig config = loadConfig(path);
+            if (machines.isEmpty()) defaultSpins = config.getAutospinCount();
+            // Same seed for every config, so identical symbol distributions get identical strips
+            machines.add(config.createMachine(0, new Random(seed)));
+        }
+        long spins = getLong("spins", defaultSpins);
+        if (spins < 0) {
+            throw new IllegalArgumentException("Invalid --spins: " + spins);
+        }
+
+        long start = System.nanoTime();
+        ComparisonSimulator.Results results = new ComparisonSimulator(machines, seed, threads).run(spins);
+        long elapsed = System.nanoTime() - start;
+
+        SimulationReport report = new SimulationReport()
+                .put("mode", "compare")
+                .put("seed", seed)
+                .put("threads", threads)
+                .put("spins", spins);
+        for (int k = 0; k < paths.size(); k++) {
+            SimulationStats stats = results.stats[k];
+            report.put("config_" + k, paths.get(k))
+                    .put("rtp_" + k, stats.rtp())
+                    .put("rtpHalfWidth95_" + k, stats.rtpHalfWidth(1.959964))
+                    .put("hitRate_" + k, stats.hitRate());
+            if (k > 0) {
+                ComparisonSimulator.Paired paired = results.paired[k];
+                report.put("rtpDiff_" + k, paired.meanDiff())
+                        .put("rtpDiffHalfWidth95_" + k, paired.halfWidth(1.959964))
+                        .put("varianceReduction_" + k, results.varianceReduction(k));
+            }
+        }
+        report.put("elapsedSeconds", elapsed / 1e9);
+        writeReport(report);
+    }
+
+    private int getThreads() {
+        return getInt("threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double mean(int[] values) {
+        long total = 0;
+        for (int v : values) total += v;
+        return values.length == 0 ? 0.0 : (double) total / values.length;
+    }
+
+    private static int percentile(int[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    SlotMachineConfig loadConfig(String path) throws IOException {
+        SlotMachineConfig config = SlotMachineConfig.load(path);
+        for (String warning : config.getWarnings()) {
+            System.err.println(path + ": " + warning);
+        }
+        return config;
+    }
+
+    void writeReport(SimulationReport report) throws IOException {
+        SimulationReport.Format format = parseFormat(getString("format", "json"));
+        String out = getString("out", null);
+        if (out == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            report.write(writer, format);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                report.write(writer, format);
+            }
+        }
+    }
+
+    private static SimulationReport.Format parseFormat(String format) {
+        try {
+            return SimulationReport.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + format + " (expected json or csv)");
+        }
+    }
+
+    String getString(String key, String defaultValue) {
+        List<String> values = options.get(key);
+        return values == null ? defaultValue : values.get(values.size() - 1);
+    }
+
+    List<String> getAll(String key) {
+        return options.getOrDefault(key, List.of());
+    }
+
+    /**
+     * Returns the seed of a simulate run: --seed, else the seed of the checkpoint being resumed, else a random one.
+     * A run started without --seed can thus be resumed with the same arguments.
+     * @return Run seed
+     * @throws IOException If an existing checkpoint cannot be read
+     */
+    long simulationSeed() throws IOException {
+        if (getString("seed", null) != null) return getLong("seed", 0);
+        String checkpoint = getString("checkpoint", null);
+        if (checkpoint != null && Files.exists(Paths.get(checkpoint))) {
+            return CheckpointedSimulator.read(Paths.get(checkpoint)).seed;
+        }
+        return new Random().nextLong();
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value.replace("_", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid --" + key + ": " + value);
+        }
+    }
+
+    int getInt(String key, int defaultValue) {
+        long value = getLong(key, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid --" + key + ": " + value);
+        }
+        return (int) value;
+    }
+
+    double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid --" + key + ": " + value);
+        }
+    }
+}
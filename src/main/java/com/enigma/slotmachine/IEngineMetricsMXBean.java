@@ -0,0 +1,39 @@
+package com.enigma.slotmachine;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link EngineMetrics}. Latencies are in nanoseconds and are upper bounds accurate to 12.5%.
+ */
+public interface IEngineMetricsMXBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    void reset();
+
+    long getSpins();
+    long getWins();
+    long getTotalBet();
+    long getTotalPayout();
+    double getRtp();
+    long getScatterTriggers();
+    double getSpinsPerSecond();
+
+    long getSpinLatencyP50Nanos();
+    long getSpinLatencyP99Nanos();
+    long getSpinLatencyP999Nanos();
+    long getSpinLatencyMaxNanos();
+    long getReelSpinLatencyP99Nanos();
+    long getEvaluateLatencyP99Nanos();
+
+    /**
+     * Returns the wins per payline (index 0 is payline 1).
+     * @return Win count per payline
+     */
+    long[] getPaylineWins();
+
+    /**
+     * Returns the line wins per symbol name.
+     * @return Win count per symbol
+     */
+    Map<String, Long> getSymbolWins();
+}
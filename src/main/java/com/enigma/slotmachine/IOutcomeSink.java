@@ -0,0 +1,16 @@
+package com.enigma.slotmachine;
+
+/**
+ * Receives the per-spin outcomes of every batch a {@link Simulator} evaluates.
+ * <p>
+ * Called from the simulator's worker threads, possibly concurrently and in any batch order, right after
+ * a batch is evaluated; implementations must copy what they need before returning.
+ */
+public interface IOutcomeSink {
+    /**
+     * Accepts an evaluated batch.
+     * @param batch Batch index; its spins are {@code batch * Simulator.BATCH_SIZE} onwards
+     * @param evaluator Evaluator holding the batch's stops, payouts, scatter counts and win masks
+     */
+    void accept(long batch, BatchEvaluator evaluator);
+}
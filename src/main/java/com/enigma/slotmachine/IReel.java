@@ -2,8 +2,37 @@ package com.enigma.slotmachine;
 
 /**
  * Interface for a slot machine reel, allowing for swappable implementations.
+ * <p>
+ * Besides spinning with its own randomness, a reel exposes its valid stops so that
+ * simulators can draw stop positions from their own random streams.
  */
 public interface IReel {
     Symbol[] spin();
+
+    /**
+     * Spins the reel and returns where it landed.
+     * @return Stop position on the strip (see {@link #windowAt(int)})
+     */
+    int spinStop();
     Symbol[] getFullStrip();
+
+    /**
+     * Returns the number of valid stop positions (stops whose visible window holds at most one scatter).
+     * @return Number of valid stops
+     */
+    int stopCount();
+
+    /**
+     * Maps an index in [0, stopCount()) to a stop position on the strip.
+     * @param index Index of the valid stop
+     * @return Stop position on the strip
+     */
+    int stopAt(int index);
+
+    /**
+     * Returns the 3-symbol visible window starting at the given stop position.
+     * @param stop Stop position on the strip
+     * @return Visible window (top to bottom)
+     */
+    Symbol[] windowAt(int stop);
 }
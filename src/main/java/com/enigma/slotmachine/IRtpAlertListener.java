@@ -0,0 +1,15 @@
+package com.enigma.slotmachine;
+
+/**
+ * Receives the alerts of an {@link RtpMonitor}.
+ * <p>
+ * Called from the thread advancing the monitor, once when a window's metric leaves its band and once when
+ * it returns; implementations should hand slow work off rather than delay the next bucket.
+ */
+public interface IRtpAlertListener {
+    /**
+     * Accepts an alert.
+     * @param alert Metric, window and how far it is from the baseline
+     */
+    void onAlert(RtpMonitor.Alert alert);
+}
@@ -7,6 +7,7 @@ import com.enigma.slotmachine.SpinResult;
  */
 public interface ISlotMachine {
     Symbol[][] spin();
+    int[] spinStops();
     int getBalance();
     void addBalance(int amount);
     void deductBalance(int amount);
@@ -14,9 +15,45 @@ public interface ISlotMachine {
     void setBetAmount(int betAmount);
     int[] getBetOptions();
     int[][] getPaylines();
+    boolean isPayAllWins();
     int countScatters(Symbol[][] grid);
     int calculatePayout(Symbol[][] grid);
     SpinResult spinAndEvaluate();
+    SpinResult evaluate(Symbol[][] grid, int betAmount);
+
+    /**
+     * Evaluates the spin that landed on the given stops; the grid and line wins of the result may be
+     * built lazily, on first access.
+     * @param stops Stop position per reel
+     * @param betAmount Bet multiplier applied to all payouts
+     * @return SpinResult
+     */
+    SpinResult evaluateStops(int[] stops, int betAmount);
+    Symbol[][] gridAt(int[] stops);
+
+    /**
+     * Returns the free spins left in the current bonus round.
+     * @return Free spins left, 0 outside a round
+     */
+    int getFreeSpins();
+    int getFreeSpinsPerTrigger();
+    void setFreeSpinsPerTrigger(int freeSpinsPerTrigger);
+
+    /**
+     * Plays one spin with its balance and bonus-round bookkeeping: a free spin while any are left, otherwise
+     * a spin at the current bet, which is deducted first. The payout is credited, and three or more scatters
+     * award {@link #getFreeSpinsPerTrigger()} free spins.
+     * @return SpinResult
+     * @throws IllegalStateException If no free spins are left and the balance does not cover the bet
+     */
+    SpinResult playSpin();
+
+    /**
+     * Plays all free spins left, retriggers included, crediting their payouts.
+     * @return Aggregated round, with no spins if no free spins were left
+     */
+    FreeSpinRound playFreeSpinRound();
+    IReel[] getReels();
     void printPayoutTable();
 
 }
@@ -0,0 +1,217 @@
+package com.enigma.slotmachine;
+
+/**
+ * Decorator that records {@link EngineMetrics} around a machine's hot path.
+ * <p>
+ * Counters are updated on every spin. Latency is timed on one spin in {@code sampleEvery} (8 by default),
+ * since reading the clock costs about as much as a reel spin; a timed {@link #spinAndEvaluate()} is split
+ * into its two phases, spinning the reels and evaluating the stops, so each gets its own latency histogram
+ * besides the one for the whole spin. Evaluation is done by the wrapped machine, which keeps results
+ * identical to calling it directly, and every spin emits the same JFR {@link GameEvents.SpinEvent}. Bonus rounds are tracked by the decorator itself, so free spins played
+ * through {@link #playSpin()} and {@link #playFreeSpinRound()} are recorded too. All other calls are passed
+ * through. While the metrics are disabled
+ * every call goes straight to the wrapped machine.
+ */
+public class InstrumentedSlotMachine implements ISlotMachine {
+    public static final int DEFAULT_SAMPLE_EVERY = 8;
+
+    private final ISlotMachine delegate;
+    private final EngineMetrics metrics;
+    private final int sampleMask;
+    private final FreeSpinState freeSpinState;
+    // Racy by design: a lost increment only shifts which spin gets timed
+    private int calls;
+
+    /**
+     * Wraps a machine, timing one spin in {@value #DEFAULT_SAMPLE_EVERY}.
+     * @param delegate Machine to instrument
+     * @param metrics Metrics to record into
+     */
+    public InstrumentedSlotMachine(ISlotMachine delegate, EngineMetrics metrics) {
+        this(delegate, metrics, DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * Wraps a machine.
+     * @param delegate Machine to instrument
+     * @param metrics Metrics to record into
+     * @param sampleEvery Time one spin in this many (a power of two; 1 times every spin)
+     */
+    public InstrumentedSlotMachine(ISlotMachine delegate, EngineMetrics metrics, int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("Sample interval must be a power of two");
+        }
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.sampleMask = sampleEvery - 1;
+        this.freeSpinState = new FreeSpinState(delegate.getFreeSpinsPerTrigger());
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public SpinResult spinAndEvaluate() {
+        if (!metrics.isEnabled()) return delegate.spinAndEvaluate();
+        if ((++calls & sampleMask) != 0) {
+            SpinResult result = delegate.spinAndEvaluate();
+            metrics.recordSpin(result, delegate.getBetAmount());
+            return result;
+        }
+        return timedSpin(delegate.getBetAmount());
+    }
+
+    // Spin at a given bet, e.g. a free spin paying at the bet of the spin that triggered it
+    private SpinResult spinAtBet(int betAmount) {
+        boolean enabled = metrics.isEnabled();
+        if (enabled && (++calls & sampleMask) == 0) return timedSpin(betAmount);
+        // Spun from the stops, so the Spin event the wrapped machine's spinAndEvaluate emits is emitted here
+        GameEvents.SpinEvent event = new GameEvents.SpinEvent();
+        event.begin();
+        SpinResult result = delegate.evaluateStops(delegate.spinStops(), betAmount);
+        event.end(betAmount, result);
+        if (enabled) metrics.recordSpin(result, betAmount);
+        return result;
+    }
+
+    private SpinResult timedSpin(int betAmount) {
+        GameEvents.SpinEvent event = new GameEvents.SpinEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int[] stops = delegate.spinStops();
+        long spun = System.nanoTime();
+        SpinResult result = delegate.evaluateStops(stops, betAmount);
+        long end = System.nanoTime();
+        event.end(betAmount, result);
+        metrics.recordSpin(result, betAmount);
+        metrics.recordSpinLatency(spun - start, end - spun, end - start);
+        return result;
+    }
+
+    @Override
+    public SpinResult evaluate(Symbol[][] grid, int betAmount) {
+        if (!metrics.isEnabled() || (++calls & sampleMask) != 0) return delegate.evaluate(grid, betAmount);
+        long start = System.nanoTime();
+        SpinResult result = delegate.evaluate(grid, betAmount);
+        metrics.recordEvaluate(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public SpinResult evaluateStops(int[] stops, int betAmount) {
+        if (!metrics.isEnabled() || (++calls & sampleMask) != 0) return delegate.evaluateStops(stops, betAmount);
+        long start = System.nanoTime();
+        SpinResult result = delegate.evaluateStops(stops, betAmount);
+        metrics.recordEvaluate(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public Symbol[][] spin() {
+        return delegate.spin();
+    }
+
+    @Override
+    public int[] spinStops() {
+        return delegate.spinStops();
+    }
+
+    @Override
+    public int getBalance() {
+        return delegate.getBalance();
+    }
+
+    @Override
+    public void addBalance(int amount) {
+        delegate.addBalance(amount);
+    }
+
+    @Override
+    public void deductBalance(int amount) {
+        delegate.deductBalance(amount);
+    }
+
+    @Override
+    public int getBetAmount() {
+        return delegate.getBetAmount();
+    }
+
+    @Override
+    public void setBetAmount(int betAmount) {
+        delegate.setBetAmount(betAmount);
+    }
+
+    @Override
+    public int[] getBetOptions() {
+        return delegate.getBetOptions();
+    }
+
+    @Override
+    public int[][] getPaylines() {
+        return delegate.getPaylines();
+    }
+
+    @Override
+    public boolean isPayAllWins() {
+        return delegate.isPayAllWins();
+    }
+
+    @Override
+    public int countScatters(Symbol[][] grid) {
+        return delegate.countScatters(grid);
+    }
+
+    @Override
+    public int calculatePayout(Symbol[][] grid) {
+        return delegate.calculatePayout(grid);
+    }
+
+    FreeSpinState getFreeSpinState() {
+        return freeSpinState;
+    }
+
+    @Override
+    public int getFreeSpins() {
+        return freeSpinState.getFreeSpins();
+    }
+
+    @Override
+    public int getFreeSpinsPerTrigger() {
+        return freeSpinState.getFreeSpinsPerTrigger();
+    }
+
+    @Override
+    public void setFreeSpinsPerTrigger(int freeSpinsPerTrigger) {
+        freeSpinState.setFreeSpinsPerTrigger(freeSpinsPerTrigger);
+    }
+
+    /**
+     * Plays one spin; the bonus round is tracked here, so every spin of it is recorded.
+     * @return SpinResult
+     */
+    @Override
+    public SpinResult playSpin() {
+        return freeSpinState.play(this, this::spinAtBet);
+    }
+
+    @Override
+    public FreeSpinRound playFreeSpinRound() {
+        return freeSpinState.playRound(this, this::spinAtBet);
+    }
+
+    @Override
+    public Symbol[][] gridAt(int[] stops) {
+        return delegate.gridAt(stops);
+    }
+
+    @Override
+    public IReel[] getReels() {
+        return delegate.getReels();
+    }
+
+    @Override
+    public void printPayoutTable() {
+        delegate.printPayoutTable();
+    }
+}
@@ -0,0 +1,433 @@
+package com.enigma.slotmachine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32C;
+
+/**
+ * Progressive jackpot shared by all sessions and machines of a process, funded by a share of every bet.
+ * <p>
+ * Contributions go to striped counters in the style of {@link java.util.concurrent.atomic.LongAdder}: each
+ * thread adds to its own cache-line-padded cell, so spins never contend on the pool. Amounts are kept in
+ * basis points of a credit, so a contribution rate such as 1.5% loses nothing to rounding. When a spin hits
+ * the {@link Trigger}, {@link #award(long, long, SpinResult)} takes the pool under a lock that only awards
+ * and checkpoints use: every cell is emptied with an atomic swap, so each contribution is paid exactly once
+ * and contributions racing with an award go to the next pool. The winner gets the seed amount plus the
+ * whole credits of the pool; the fraction of a credit is carried over.
+ * <p>
+ * Awards are exactly-once per spin: an award is keyed by session and spin id, appended to a CRC-checked
+ * history log and forced to disk before it is returned, and awarding the same spin again returns the
+ * recorded award. The pool value is checkpointed atomically (temporary file and rename) on every award and
+ * by a background thread every flush interval, so a crash loses at most the contributions of one interval.
+ * A failed background checkpoint is thrown from the next {@link #onSpin}, {@link #flush()} or {@link #close()}.
+ */
+public class JackpotPool implements Closeable {
+    public static final int UNITS_PER_CREDIT = 10_000;
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+    public static final int RECORD_SIZE = 56;
+
+    private static final int STATE_MAGIC = 0x534D4A50; // "SMJP"
+    private static final int VERSION = 1;
+    private static final String STATE_FILE = "jackpot.state";
+    private static final String HISTORY_FILE = "jackpot-awards.log";
+    // Longs per cell: 128 bytes keeps neighbouring cells off each other's cache lines
+    private static final int CELL_STRIDE = 16;
+
+    private final Path dir;
+    private final Trigger trigger;
+    private final int contributionBasisPoints;
+    private final long seedAmount;
+    private final long flushMillis;
+    private final AtomicLongArray cells;
+    private final int cellMask;
+    private final List<Award> awards = new ArrayList<>();
+    // Awards by session id and spin id, for exactly-once awarding
+    private final Map<Long, Map<Long, Award>> awarded = new HashMap<>();
+    private final Thread flusher;
+    private final FileChannel history;
+
+    // Guarded by this: pool units not held in the cells, and the last checkpointed total
+    private long carriedUnits;
+    private long checkpointedUnits = -1;
+    private boolean closed;
+    // Failure of a background checkpoint, not yet reported to a caller
+    private volatile IOException flushFailure;
+
+    /**
+     * Opens (or creates) a jackpot pool with the default flush interval.
+     * @param dir Pool directory
+     * @param trigger Spin outcome that wins the jackpot
+     * @param contributionBasisPoints Share of every bet added to the pool, in hundredths of a percent
+     * @param seedAmount Amount the pool restarts from after an award
+     * @throws IOException If the pool cannot be opened or recovered
+     */
+    public JackpotPool(Path dir, Trigger trigger, int contributionBasisPoints, long seedAmount) throws IOException {
+        this(dir, trigger, contributionBasisPoints, seedAmount, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) a jackpot pool, recovering its value and award history.
+     * @param dir Pool directory
+     * @param trigger Spin outcome that wins the jackpot
+     * @param contributionBasisPoints Share of every bet added to the pool, in hundredths of a percent
+     * @param seedAmount Amount the pool restarts from after an award
+     * @param flushMillis Interval of the background checkpoint in milliseconds
+     * @throws IOException If the pool cannot be opened or recovered
+     */
+    public JackpotPool(Path dir, Trigger trigger, int contributionBasisPoints, long seedAmount, long flushMillis)
+            throws IOException {
+        if (contributionBasisPoints < 0 || contributionBasisPoints > UNITS_PER_CREDIT) {
+            throw new IllegalArgumentException("Jackpot contribution must be between 0 and 10000 basis points");
+        }
+        if (seedAmount < 0 || flushMillis < 1) {
+            throw new IllegalArgumentException("Jackpot seed must not be negative and flush interval must be at least 1");
+        }
+        this.dir = dir;
+        this.trigger = trigger;
+        this.contributionBasisPoints = contributionBasisPoints;
+        this.seedAmount = seedAmount;
+        this.flushMillis = flushMillis;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        this.cells = new AtomicLongArray(stripes * CELL_STRIDE);
+        this.cellMask = stripes - 1;
+        Files.createDirectories(dir);
+        this.history = FileChannel.open(dir.resolve(HISTORY_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException e) {
+            history.close();
+            throw e;
+        }
+        this.flusher = new Thread(this::flushLoop, "jackpot-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Adds the contribution of one bet to the pool. Never blocks.
+     * @param betAmount Amount bet
+     */
+    public void contribute(int betAmount) {
+        long units = (long) betAmount * contributionBasisPoints;
+        if (units == 0) return;
+        int cell = (int) RngStreams.mix64(System.identityHashCode(Thread.currentThread())) & cellMask;
+        cells.getAndAdd(cell * CELL_STRIDE, units);
+    }
+
+    /**
+     * Returns the current value of the pool: what a winner would get now.
+     * @return Pool value in credits
+     */
+    public synchronized long value() {
+        return seedAmount + (carriedUnits + sumCells()) / UNITS_PER_CREDIT;
+    }
+
+    /**
+     * Contributes a paid spin's bet and awards the jackpot if the spin hits the trigger.
+     * @param sessionId Session that played the spin
+     * @param spinId Id of the spin, unique within the session
+     * @param betAmount Amount bet (0 for a free spin, which does not contribute)
+     * @param result Spin result
+     * @return The award, or null if the spin did not hit the trigger
+     * @throws IOException If the award could not be made durable, or a background checkpoint failed
+     */
+    public Award onSpin(long sessionId, long spinId, int betAmount, SpinResult result) throws IOException {
+        contribute(betAmount);
+        if (trigger.matches(result)) return award(sessionId, spinId, result);
+        // Reported after the spin is counted, so an award is never withheld for an earlier failure
+        if (flushFailure != null) reportFlushFailure();
+        return null;
+    }
+
+    /**
+     * Awards the whole pool to a spin. Awarding a spin that already won returns its recorded award.
+     * @param sessionId Session that played the spin
+     * @param spinId Id of the spin, unique within the session
+     * @param result Spin result, which must hit the trigger
+     * @return The award, durable when returned
+     * @throws IOException If the pool is closed or the award could not be written
+     */
+    public synchronized Award award(long sessionId, long spinId, SpinResult result) throws IOException {
+        if (!trigger.matches(result)) {
+            throw new IllegalArgumentException("Spin does not hit the jackpot trigger " + trigger);
+        }
+        if (closed) throw new IOException("Jackpot pool is closed");
+        Award previous = awarded.getOrDefault(sessionId, Map.of()).get(spinId);
+        if (previous != null) return previous;
+        long units = carriedUnits;
+        for (int i = 0; i <= cellMask; i++) units += cells.getAndSet(i * CELL_STRIDE, 0);
+        long carried = units % UNITS_PER_CREDIT;
+        Award award = new Award(awards.size() + 1, sessionId, spinId, seedAmount + units / UNITS_PER_CREDIT,
+                System.currentTimeMillis());
+        appendHistory(award, carried);
+        carriedUnits = carried;
+        awards.add(award);
+        awarded.computeIfAbsent(sessionId, id -> new HashMap<>()).put(spinId, award);
+        writeState();
+        return award;
+    }
+
+    /**
+     * Returns the recorded awards, oldest first.
+     * @return Award history
+     */
+    public synchronized List<Award> getAwards() {
+        return new ArrayList<>(awards);
+    }
+
+    /**
+     * Checkpoints the pool value now.
+     * @throws IOException If the checkpoint could not be written
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) throw new IOException("Jackpot pool is closed");
+        reportFlushFailure();
+        writeState();
+    }
+
+    /**
+     * Stops the background checkpoint and writes a final one.
+     * @throws IOException If the final checkpoint could not be written, or an earlier background one failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                writeState();
+            } finally {
+                history.close();
+            }
+            reportFlushFailure();
+        }
+    }
+
+    // Throws a background checkpoint failure once; later checkpoints rewrite the whole state
+    private synchronized void reportFlushFailure() throws IOException {
+        IOException failure = flushFailure;
+        if (failure == null) return;
+        flushFailure = null;
+        throw failure;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    wait(flushMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) return;
+                try {
+                    writeState();
+                } catch (IOException e) {
+                    if (flushFailure == null) flushFailure = new IOException("Jackpot checkpoint failed", e);
+                }
+            }
+        }
+    }
+
+    private long sumCells() {
+        long sum = 0;
+        for (int i = 0; i <= cellMask; i++) sum += cells.get(i * CELL_STRIDE);
+        return sum;
+    }
+
+    // Called holding the lock; skipped when nothing changed since the last checkpoint
+    private void writeState() throws IOException {
+        long units = carriedUnits + sumCells();
+        if (units == checkpointedUnits) return;
+        ByteBuffer buffer = newBuffer(28);
+        buffer.putInt(STATE_MAGIC).putInt(VERSION).putLong(units).putLong(awards.size());
+        CRC32C check = new CRC32C();
+        check.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) check.getValue());
+        buffer.flip();
+        Path file = dir.resolve(STATE_FILE);
+        Path tmp = Files.createTempFile(dir, STATE_FILE, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            DirectorySync.force(dir);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        checkpointedUnits = units;
+    }
+
+    private void appendHistory(Award award, long carried) throws IOException {
+        ByteBuffer record = newBuffer(RECORD_SIZE);
+        record.putLong(award.awardId).putLong(award.sessionId).putLong(award.spinId).putLong(award.amount)
+                .putLong(carried).putLong(award.timeMillis);
+        CRC32C check = new CRC32C();
+        check.update(record.array(), 0, 48);
+        record.putInt((int) check.getValue()).putInt(0);
+        record.flip();
+        long position = history.size();
+        while (record.hasRemaining()) position += history.write(record, position);
+        history.force(false);
+    }
+
+    private void recover() throws IOException {
+        long stateUnits = 0;
+        long stateAwards = 0;
+        Path state = dir.resolve(STATE_FILE);
+        if (Files.exists(state)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(state)).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C check = new CRC32C();
+            check.update(buffer.array(), 0, Math.min(24, buffer.limit()));
+            if (buffer.limit() != 28 || buffer.getInt(0) != STATE_MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(24) != (int) check.getValue()) {
+                throw new IOException(state + " is not a valid jackpot state (version " + VERSION + ")");
+            }
+            stateUnits = buffer.getLong(8);
+            stateAwards = buffer.getLong(16);
+        }
+        ByteBuffer record = newBuffer(RECORD_SIZE);
+        long validEnd = 0;
+        long carriedAfterLast = -1;
+        while (true) {
+            record.clear();
+            int read = 0;
+            while (record.hasRemaining()) {
+                int n = history.read(record, validEnd + read);
+                if (n <= 0) break;
+                read += n;
+            }
+            if (read < RECORD_SIZE) break;
+            CRC32C check = new CRC32C();
+            check.update(record.array(), 0, 48);
+            if (record.getInt(48) != (int) check.getValue()) break;
+            Award award = new Award(record.getLong(0), record.getLong(8), record.getLong(16), record.getLong(24),
+                    record.getLong(40));
+            if (award.awardId != awards.size() + 1) {
+                throw new IOException("Jackpot history jumps from award " + awards.size() + " to " + award.awardId);
+            }
+            awards.add(award);
+            awarded.computeIfAbsent(award.sessionId, id -> new HashMap<>()).put(award.spinId, award);
+            carriedAfterLast = record.getLong(32);
+            validEnd += RECORD_SIZE;
+        }
+        if (validEnd < history.size()) {
+            // A record torn by a crash: the award was never returned
+            history.truncate(validEnd);
+            history.force(true);
+        }
+        if (awards.size() < stateAwards) {
+            throw new IOException("Jackpot history has " + awards.size() + " awards but the state expects " + stateAwards);
+        }
+        // An award logged after the last checkpoint already took the checkpointed pool
+        carriedUnits = awards.size() > stateAwards ? carriedAfterLast : stateUnits;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * One jackpot award.
+     */
+    public static class Award {
+        public final long awardId;
+        public final long sessionId;
+        public final long spinId;
+        public final long amount;
+        public final long timeMillis;
+
+        public Award(long awardId, long sessionId, long spinId, long amount, long timeMillis) {
+            this.awardId = awardId;
+            this.sessionId = sessionId;
+            this.spinId = spinId;
+            this.amount = amount;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    /**
+     * Spin outcome that wins the jackpot: at least a number of scatters anywhere, or a paid line of at
+     * least a number of a symbol.
+     */
+    public static class Trigger {
+        private final Symbol symbol;
+        private final int count;
+
+        /**
+         * Constructs a trigger.
+         * @param symbol Scatter, or the symbol of the winning line
+         * @param count Minimum number of scatters, or minimum match count of the line (3-5)
+         */
+        public Trigger(Symbol symbol, int count) {
+            if (count < 1 || (symbol != Symbol.SCATTER && (count < 3 || count > 5))) {
+                throw new IllegalArgumentException("Invalid jackpot trigger count " + count + " for " + symbol);
+            }
+            this.symbol = symbol;
+            this.count = count;
+        }
+
+        /**
+         * Parses a trigger such as {@code SCATTER:5} or {@code P4:5}.
+         * @param spec Symbol name and count separated by a colon
+         * @return Trigger
+         */
+        public static Trigger parse(String spec) {
+            String[] parts = spec.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Jackpot trigger must be SYMBOL:COUNT, was " + spec);
+            }
+            try {
+                return new Trigger(Symbol.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid jackpot trigger count in " + spec, e);
+            }
+        }
+
+        /**
+         * Checks a spin against the trigger, without building its line wins.
+         * @param result Spin result
+         * @return True if the spin wins the jackpot
+         */
+        public boolean matches(SpinResult result) {
+            if (symbol == Symbol.SCATTER) return result.scatterCount >= count;
+            for (long mask = result.winMask; mask != 0; mask &= mask - 1) {
+                int lineIndex = Long.numberOfTrailingZeros(mask) + 1;
+                if (result.getLineSymbol(lineIndex) == symbol && result.getMatchCount(lineIndex) >= count) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return symbol.name() + ":" + count;
+        }
+    }
+}
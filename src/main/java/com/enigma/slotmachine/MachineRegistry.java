@@ -0,0 +1,198 @@
+package com.enigma.slotmachine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Registry of many game configurations in one JVM, sharing everything that does not belong to a player.
+ * <p>
+ * Each registered game is backed by a model: a {@link SlotMachine} whose reels, paylines, payline
+ * evaluator, window tables and payout cache are built once and never change. Identical pieces are interned
+ * across games: reel strips by their symbols, payline tables by their rows, and whole models when two
+ * games only differ in their name. Players get a {@link MachineSession}, which holds nothing but a
+ * reference to the model, a balance, a bet and its bonus round, so an additional session costs a few dozen bytes instead of
+ * the reels, window tables and cache of a machine of its own.
+ * <p>
+ * Reel strips are shuffled from the registry seed, so games with the same symbol distribution and scatter
+ * spacing get the same strips. The seed is only used for the shuffle: the reels of a model spin with the
+ * calling thread's {@link ThreadLocalRandom}, so spins are neither repeated across restarts nor predictable
+ * from the seed, and threads playing the same game share no random state. Sessions of one game may
+ * therefore be played from different threads, while a single session is not thread-safe, just like a
+ * {@link SlotMachine}. Sessions opened with a seed draw from their own {@link SessionRng} instead.
+ */
+public class MachineRegistry {
+    private static final Random SPINS = new ThreadLocalSpins();
+    private final long seed;
+    private final Map<String, SlotMachine> games = new ConcurrentHashMap<>();
+    // Interning tables, guarded by this
+    private final Map<List<Object>, IReel[]> reelSets = new HashMap<>();
+    private final Map<List<Symbol>, IReel> reelsByStrip = new HashMap<>();
+    private final Map<String, int[][]> paylineTables = new HashMap<>();
+    private final Map<int[][], PaylineEvaluator> evaluators = new IdentityHashMap<>();
+    private final Map<List<Object>, SlotMachine> models = new HashMap<>();
+
+    /**
+     * Constructs an empty registry.
+     * @param seed Seed of the reel strip shuffles (the same seed gives the same strips)
+     */
+    public MachineRegistry(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Loads a properties file and registers it as a game.
+     * @param name Game name
+     * @param path Path to the properties file
+     * @return Loaded configuration, with any warnings
+     * @throws IOException If the file is missing or unreadable
+     */
+    public SlotMachineConfig load(String name, Path path) throws IOException {
+        SlotMachineConfig config = SlotMachineConfig.load(path.toString());
+        register(name, config);
+        return config;
+    }
+
+    /**
+     * Registers a game, reusing the reels, paylines and model of earlier games where they are identical.
+     * @param name Game name
+     * @param config Game configuration
+     * @return Shared model of the game
+     */
+    public synchronized SlotMachine register(String name, SlotMachineConfig config) {
+        if (games.containsKey(name)) {
+            throw new IllegalArgumentException("Game already registered: " + name);
+        }
+        Map<Symbol, Integer> symbolDistribution = Reel.parseSymbolDistribution(config.getSymbolConfig());
+        IReel[] reels = internReels(config, symbolDistribution);
+        int[][] paylines = internPaylines(SlotMachine.parsePaylines(config.getPaylinesConfig()));
+        List<Object> key = new ArrayList<>();
+        key.add(config.isPayAllWins());
+        key.add(paylines);
+        key.add(config.getPayoutCacheSize());
+        key.add(config.getFreeSpinsPerTrigger());
+        key.addAll(Arrays.asList(reels));
+        SlotMachine model = models.get(key);
+        if (model == null) {
+            PaylineEvaluator evaluator = evaluators.computeIfAbsent(paylines, PaylineEvaluators::create);
+            model = new SlotMachine(0, config.isPayAllWins(), symbolDistribution, paylines, evaluator,
+                    config.getMinScatterDistance(), reels);
+            model.setPayoutCacheSize(config.getPayoutCacheSize());
+            model.setFreeSpinsPerTrigger(config.getFreeSpinsPerTrigger());
+            models.put(key, model);
+        }
+        games.put(name, model);
+        return model;
+    }
+
+    private IReel[] internReels(SlotMachineConfig config, Map<Symbol, Integer> symbolDistribution) {
+        List<Object> key = List.of(symbolDistribution, config.getMinScatterDistance());
+        IReel[] reels = reelSets.get(key);
+        if (reels == null) {
+            reels = config.createReels(new Random(seed));
+            for (int r = 0; r < reels.length; r++) {
+                // Only the shuffle is seeded; the interned reel spins with the thread-local source
+                Symbol[] strip = reels[r].getFullStrip();
+                reels[r] = reelsByStrip.computeIfAbsent(List.of(strip), symbols -> new Reel(strip, SPINS));
+            }
+            reelSets.put(key, reels);
+        }
+        return reels;
+    }
+
+    private int[][] internPaylines(int[][] paylines) {
+        return paylineTables.computeIfAbsent(Arrays.deepToString(paylines), rows -> paylines);
+    }
+
+    /**
+     * Opens a player session on a registered game.
+     * @param name Game name
+     * @param startingBalance Initial player balance
+     * @return New session sharing the game's model
+     */
+    public MachineSession openSession(String name, int startingBalance) {
+        return new MachineSession(getModel(name), startingBalance, null);
+    }
+
+    /**
+     * Opens a player session on a registered game whose spins are drawn from its own seeded source, so any
+     * of them can be regenerated later from the seed and the spin's ordinal.
+     * @param name Game name
+     * @param startingBalance Initial player balance
+     * @param seed Session seed
+     * @return New session sharing the game's model
+     */
+    public MachineSession openSession(String name, int startingBalance, long seed) {
+        return new MachineSession(getModel(name), startingBalance, new SessionRng(seed));
+    }
+
+    /**
+     * Returns the shared model of a registered game.
+     * @param name Game name
+     * @return Shared model
+     */
+    public SlotMachine getModel(String name) {
+        SlotMachine model = games.get(name);
+        if (model == null) {
+            throw new IllegalArgumentException("Unknown game: " + name);
+        }
+        return model;
+    }
+
+    /**
+     * Returns the names of the registered games.
+     * @return Game names, sorted
+     */
+    public Set<String> getNames() {
+        return new TreeSet<>(games.keySet());
+    }
+
+    /**
+     * Returns the number of distinct reel strips held for all games.
+     * @return Distinct reel strips
+     */
+    public synchronized int distinctReelStrips() {
+        return reelsByStrip.size();
+    }
+
+    /**
+     * Returns the number of distinct payline tables held for all games.
+     * @return Distinct payline tables
+     */
+    public synchronized int distinctPaylineTables() {
+        return paylineTables.size();
+    }
+
+    /**
+     * Returns the number of models backing the registered games.
+     * @return Distinct models
+     */
+    public synchronized int distinctModels() {
+        return models.size();
+    }
+
+    // Spin source of the interned reels: every call goes to the calling thread's ThreadLocalRandom
+    private static final class ThreadLocalSpins extends Random {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected int next(int bits) {
+            return ThreadLocalRandom.current().nextInt() >>> (Integer.SIZE - bits);
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.enigma.slotmachine;
+
+/**
+ * Lightweight player handle onto a shared game model from a {@link MachineRegistry}.
+ * <p>
+ * A session keeps only what belongs to the player, its balance, bet and bonus round; spinning and
+ * evaluation go to the model, whose reels, paylines and payout cache are shared by every session of the
+ * game. The model is never mutated through a session. Like {@link SlotMachine}, a session is meant to be used by one thread at a time.
+ */
+public class MachineSession implements ISlotMachine {
+    private final SlotMachine model;
+    private int balance;
+    private int betAmount = 1;
+    private final FreeSpinState freeSpinState;
+    // Null when the session spins with the model's own randomness
+    private final SessionRng sessionRng;
+
+    /**
+     * Constructs a session on a shared model.
+     * @param model Shared game model
+     * @param startingBalance Initial player balance
+     * @param sessionRng Source of the session's stops, or null to spin with the model's reels
+     */
+    MachineSession(SlotMachine model, int startingBalance, SessionRng sessionRng) {
+        this.model = model;
+        this.sessionRng = sessionRng;
+        this.balance = startingBalance;
+        this.freeSpinState = new FreeSpinState(model.getFreeSpinsPerTrigger());
+    }
+
+    /**
+     * Returns the shared model this session plays.
+     * @return Game model
+     */
+    public SlotMachine getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the session's own random source.
+     * @return Source, or null when the session spins with the model's reels
+     */
+    public SessionRng getSessionRng() {
+        return sessionRng;
+    }
+
+    @Override
+    public Symbol[][] spin() {
+        return model.gridAt(spinStops());
+    }
+
+    @Override
+    public int[] spinStops() {
+        return sessionRng != null ? sessionRng.nextStops(model.getReels()) : model.spinStops();
+    }
+
+    /**
+     * Regenerates and evaluates any spin of this session from its seed and ordinal.
+     * @param ordinal Spin ordinal within the session
+     * @param betAmount Bet the spin was played at
+     * @return SpinResult identical to the one the spin produced
+     */
+    public SpinResult replaySpin(long ordinal, int betAmount) {
+        if (sessionRng == null) {
+            throw new IllegalStateException("Session was opened without a seed");
+        }
+        return model.evaluateStops(SessionRng.stopsAt(sessionRng.getSeed(), ordinal, model.getReels()), betAmount);
+    }
+
+    @Override
+    public int getBalance() {
+        return balance;
+    }
+
+    @Override
+    public void addBalance(int amount) {
+        balance += amount;
+    }
+
+    @Override
+    public void deductBalance(int amount) {
+        balance -= amount;
+    }
+
+    @Override
+    public int getBetAmount() {
+        return betAmount;
+    }
+
+    @Override
+    public void setBetAmount(int betAmount) {
+        this.betAmount = betAmount;
+    }
+
+    @Override
+    public int[] getBetOptions() {
+        return model.getBetOptions();
+    }
+
+    @Override
+    public int[][] getPaylines() {
+        return model.getPaylines();
+    }
+
+    @Override
+    public boolean isPayAllWins() {
+        return model.isPayAllWins();
+    }
+
+    @Override
+    public int countScatters(Symbol[][] grid) {
+        return model.countScatters(grid);
+    }
+
+    /**
+     * Calculates the total payout for a grid at this session's bet.
+     * @param grid The symbol grid
+     * @return Total payout
+     */
+    @Override
+    public int calculatePayout(Symbol[][] grid) {
+        // The model is never given a bet, so it pays at 1
+        return model.calculatePayout(grid) * betAmount;
+    }
+
+    @Override
+    public SpinResult spinAndEvaluate() {
+        return model.spinAndEvaluate(betAmount, sessionRng);
+    }
+
+    @Override
+    public SpinResult evaluate(Symbol[][] grid, int betAmount) {
+        return model.evaluate(grid, betAmount);
+    }
+
+    @Override
+    public SpinResult evaluateStops(int[] stops, int betAmount) {
+        return model.evaluateStops(stops, betAmount);
+    }
+
+    FreeSpinState getFreeSpinState() {
+        return freeSpinState;
+    }
+
+    @Override
+    public int getFreeSpins() {
+        return freeSpinState.getFreeSpins();
+    }
+
+    @Override
+    public int getFreeSpinsPerTrigger() {
+        return freeSpinState.getFreeSpinsPerTrigger();
+    }
+
+    @Override
+    public void setFreeSpinsPerTrigger(int freeSpinsPerTrigger) {
+        freeSpinState.setFreeSpinsPerTrigger(freeSpinsPerTrigger);
+    }
+
+    @Override
+    public SpinResult playSpin() {
+        return freeSpinState.play(this, bet -> model.spinAndEvaluate(bet, sessionRng));
+    }
+
+    @Override
+    public FreeSpinRound playFreeSpinRound() {
+        return freeSpinState.playRound(this, bet -> model.spinAndEvaluate(bet, sessionRng));
+    }
+
+    @Override
+    public Symbol[][] gridAt(int[] stops) {
+        return model.gridAt(stops);
+    }
+
+    @Override
+    public IReel[] getReels() {
+        return model.getReels();
+    }
+
+    @Override
+    public void printPayoutTable() {
+        model.printPayoutTable();
+    }
+}
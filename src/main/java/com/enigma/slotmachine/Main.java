@@ -3,11 +3,10 @@ package com.enigma.slotmachine;
 import com.enigma.slotmachine.SpinResult;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Map;
-import java.util.Properties;
+import java.nio.file.Paths;
+import java.util.Random;
 
 /**
  * Main entry point for the Java console slot machine game.
@@ -25,6 +24,9 @@ public class Main {
             "V-Shape",
             "Inverted V-Shape"
     };
+    private static final int STARTING_BALANCE = 100;
+    // Wallet store session of the console player
+    static final long PLAYER_SESSION = 1;
 
     /**
      * Tracks session statistics for summary and analytics.
@@ -36,84 +38,105 @@ public class Main {
         int biggestWin = 0;
         int startingBalance = 0;
         int endingBalance = 0;
+        // Base of this run's jackpot spin ids when there is no wallet log to number spins
+        final long spinIdBase = System.currentTimeMillis() << 20;
     }
 
     /**
      * The main method to start the slot machine game.
      * 
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments; any arguments select the headless simulation runner
+     *             (see {@link HeadlessRunner})
      */
     public static void main(String[] args) {
-        boolean payAllWins = true;
-        String symbolConfig = null;
-        String paylinesConfig = null;
-        int autospinCount = 1000;
-        int freeSpinsPerTrigger = 10;
-        ISlotMachine slotMachine;
-        try (FileInputStream configStream = new FileInputStream("slotmachine.properties")) {
-            Properties config = new Properties();
-            config.load(configStream);
-            String payAll = config.getProperty("payAllWins");
-            if (payAll != null)
-                payAllWins = Boolean.parseBoolean(payAll);
-            symbolConfig = config.getProperty("symbols");
-            paylinesConfig = config.getProperty("paylines");
-            String minScatterDistanceStr = config.getProperty("minScatterDistance");
-            String autospinCountStr = config.getProperty("autospinCount");
-            String freeSpinsStr = config.getProperty("freeSpinsPerTrigger");
-            int minScatterDistance = 3;
-            if (minScatterDistanceStr != null) {
-                try {
-                    minScatterDistance = Integer.parseInt(minScatterDistanceStr);
-                } catch (NumberFormatException e) {
-                    System.out.println("Invalid minScatterDistance in config, using default 3.");
-                }
+        if (args.length > 0) {
+            int exitCode = HeadlessRunner.run(args);
+            if (exitCode != 0) System.exit(exitCode);
+            return;
+        }
+        SlotMachineConfig config;
+        try {
+            config = SlotMachineConfig.load(SlotMachineConfig.DEFAULT_PATH);
+            for (String warning : config.getWarnings()) {
+                System.out.println(warning);
             }
-            if (autospinCountStr != null) {
-                try {
-                    autospinCount = Integer.parseInt(autospinCountStr);
-                } catch (NumberFormatException e) {
-                    System.out.println("Invalid autospinCount in config, using default 1000.");
+        } catch (IOException e) {
+            System.out.println(
+                    "Config file not found or unreadable, using default payout mode (pay all wins). Using default scatter distance.");
+            config = SlotMachineConfig.defaults();
+        }
+        int autospinCount = config.getAutospinCount();
+        WalletStore wallet = null;
+        int startingBalance = STARTING_BALANCE;
+        if (config.getWalletDir() != null) {
+            try {
+                wallet = WalletStore.open(Paths.get(config.getWalletDir()));
+                if (!wallet.hasSession(PLAYER_SESSION)) {
+                    wallet.awaitDurable(wallet.deposit(PLAYER_SESSION, STARTING_BALANCE));
                 }
+                startingBalance = (int) Math.min(Integer.MAX_VALUE, wallet.balance(PLAYER_SESSION));
+            } catch (IOException e) {
+                System.out.println("Cannot open wallet store " + config.getWalletDir() + ": " + e.getMessage());
+                return;
             }
-            if (freeSpinsStr != null) {
-                try {
-                    freeSpinsPerTrigger = Integer.parseInt(freeSpinsStr);
-                } catch (NumberFormatException e) {
-                    System.out.println("Invalid freeSpinsPerTrigger in config, using default 10.");
+        }
+        JackpotPool jackpot = null;
+        if (config.getJackpotDir() != null) {
+            try {
+                jackpot = new JackpotPool(Paths.get(config.getJackpotDir()), config.getJackpotTrigger(),
+                        config.getJackpotContributionBasisPoints(), config.getJackpotSeed());
+                if (wallet != null && payUnpaidAwards(wallet, jackpot) > 0) {
+                    startingBalance = (int) Math.min(Integer.MAX_VALUE, wallet.balance(PLAYER_SESSION));
                 }
+            } catch (IOException e) {
+                System.out.println("Cannot open jackpot pool " + config.getJackpotDir() + ": " + e.getMessage());
+                closeWallet(wallet);
+                return;
             }
-            // Dependency injection: create reels externally
-            IReel[] reels = new IReel[5];
-            Map<Symbol, Integer> symbolDist = Reel.parseSymbolDistribution(symbolConfig);
-            for (int i = 0; i < 5; i++) {
-                reels[i] = new Reel(symbolDist, minScatterDistance);
+        }
+        // Dependency injection: create reels externally
+        ISlotMachine slotMachine = config.createMachine(startingBalance, new Random());
+        if (config.isMetricsEnabled()) {
+            EngineMetrics metrics = new EngineMetrics(slotMachine.getPaylines().length);
+            try {
+                metrics.register("console");
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
             }
-            slotMachine = new SlotMachine(100, payAllWins, symbolConfig, paylinesConfig, minScatterDistance, reels);
-        } catch (IOException e) {
-            System.out.println(
-                    "Config file not found or unreadable, using default payout mode (pay all wins). Using default scatter distance.");
-            // Fallback: create default reels
-            IReel[] reels = new IReel[5];
-            Map<Symbol, Integer> symbolDist = Reel.parseSymbolDistribution(symbolConfig);
-            for (int i = 0; i < 5; i++) {
-                reels[i] = new Reel(symbolDist, 3);
+            startRtpMonitor(slotMachine, metrics);
+            slotMachine = new InstrumentedSlotMachine(slotMachine, metrics);
+        }
+        SpinJournal journal = null;
+        if (config.getJournalDir() != null) {
+            try {
+                journal = new SpinJournal(Paths.get(config.getJournalDir()), slotMachine);
+            } catch (IOException e) {
+                System.out.println("Cannot open spin journal " + config.getJournalDir() + ": " + e.getMessage());
+                closeJackpot(jackpot);
+                closeWallet(wallet);
+                return;
             }
-            slotMachine = new SlotMachine(100, payAllWins, symbolConfig, paylinesConfig, 3, reels);
         }
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        int freeSpins = 0;
         System.out.println("Welcome to the Java Slot Machine!");
         boolean running = true;
         SessionStats stats = new SessionStats();
-        stats.startingBalance = 100;
+        stats.startingBalance = startingBalance;
+        AutoSpinTask autoSpin = null;
         try {
             while (running) {
-                printMenu(slotMachine, freeSpins, autospinCount);
+                if (autoSpin != null && autoSpin.isDone()) {
+                    printAutoSpinAnalytics(autoSpin);
+                    autoSpin = null;
+                }
+                printMenu(slotMachine, autospinCount, autoSpin != null, jackpot);
                 String input = reader.readLine();
+                if (input == null) {
+                    input = "6";
+                }
                 switch (input) {
                     case "1":
-                        freeSpins = handleSpin(slotMachine, freeSpins, reader, stats, freeSpinsPerTrigger);
+                        handleSpin(slotMachine, stats, journal, wallet, jackpot);
                         break;
                     case "2":
                         slotMachine.printPayoutTable();
@@ -125,9 +148,32 @@ public class Main {
                         changeBetAmount(reader, slotMachine);
                         break;
                     case "5":
-                        runAutoSpins(slotMachine, stats, reader, autospinCount);
+                        if (autoSpin != null) {
+                            System.out.println("Auto-spins are already running. Use 7 to view progress or 8 to cancel.");
+                        } else {
+                            autoSpin = startAutoSpins(slotMachine, autospinCount);
+                        }
+                        break;
+                    case "7":
+                        if (autoSpin != null) {
+                            printAutoSpinProgress(autoSpin);
+                        } else {
+                            System.out.println("Invalid option. Try again.");
+                        }
+                        break;
+                    case "8":
+                        if (autoSpin != null) {
+                            autoSpin.cancel();
+                            printAutoSpinAnalytics(autoSpin);
+                            autoSpin = null;
+                        } else {
+                            System.out.println("Invalid option. Try again.");
+                        }
                         break;
                     case "6":
+                        if (autoSpin != null) {
+                            autoSpin.cancel();
+                        }
                         running = false;
                         stats.endingBalance = slotMachine.getBalance();
                         printSessionSummary(stats);
@@ -139,6 +185,75 @@ public class Main {
             }
         } catch (IOException e) {
             System.out.println("Input/output error. Exiting game.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted. Exiting game.");
+        } finally {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.out.println("Spin journal could not be committed: " + e.getMessage());
+                }
+            }
+            closeJackpot(jackpot);
+            closeWallet(wallet);
+        }
+    }
+
+    /**
+     * Credits the player's jackpot awards that a crash kept out of the wallet: an award is durable in the
+     * pool's history before it is credited, and the wallet records the id of the last award it paid.
+     *
+     * @param wallet  Wallet store
+     * @param jackpot Jackpot pool
+     * @return Number of awards credited
+     * @throws IOException If a credit could not be made durable
+     */
+    static int payUnpaidAwards(WalletStore wallet, JackpotPool jackpot) throws IOException {
+        int paid = 0;
+        for (JackpotPool.Award award : jackpot.getAwards()) {
+            if (award.sessionId != PLAYER_SESSION || award.awardId <= wallet.lastReference(PLAYER_SESSION)) continue;
+            wallet.awaitDurable(wallet.credit(PLAYER_SESSION, award.amount, award.awardId));
+            System.out.printf("Credited jackpot award %d of %d that was not paid before the last exit.%n",
+                    award.awardId, award.amount);
+            paid++;
+        }
+        return paid;
+    }
+
+    private static void closeJackpot(JackpotPool jackpot) {
+        if (jackpot == null) return;
+        try {
+            jackpot.close();
+        } catch (IOException e) {
+            System.out.println("Jackpot pool could not be saved: " + e.getMessage());
+        }
+    }
+
+    // Live RTP against the machine's own long-run values, attached once its baseline is simulated in the
+    // background so the menu comes up at once; alerts print as they happen
+    private static void startRtpMonitor(ISlotMachine machine, EngineMetrics metrics) {
+        Thread thread = new Thread(() -> {
+            try {
+                RtpMonitor monitor = new RtpMonitor(RtpMonitor.Baseline.simulate(machine, 1_000_000L, 1L));
+                monitor.addListener(alert -> System.out.println("RTP monitor: " + alert));
+                monitor.start();
+                metrics.setRtpMonitor(monitor);
+            } catch (RuntimeException e) {
+                System.out.println("RTP monitor disabled: " + e.getMessage());
+            }
+        }, "rtp-baseline");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeWallet(WalletStore wallet) {
+        if (wallet == null) return;
+        try {
+            wallet.close();
+        } catch (IOException e) {
+            System.out.println("Wallet store could not be committed: " + e.getMessage());
         }
     }
 
@@ -146,69 +261,155 @@ public class Main {
      * Prints the main menu, including balance, bet, and free spins.
      * 
      * @param slotMachine The slot machine instance
-     * @param freeSpins   Number of free spins left
+     * @param autospinCount Number of auto-spins per analytics run
+     * @param autoSpinRunning Whether an auto-spin run is in progress in the background
+     * @param jackpot     Jackpot pool, or null if there is no jackpot
      */
-    private static void printMenu(ISlotMachine slotMachine, int freeSpins, int autospinCount) {
-        if (freeSpins > 0) {
-            System.out.printf("%nBalance: %d (Free Spins left: %d)%n", slotMachine.getBalance(), freeSpins);
+    private static void printMenu(ISlotMachine slotMachine, int autospinCount, boolean autoSpinRunning,
+            JackpotPool jackpot) {
+        if (slotMachine.getFreeSpins() > 0) {
+            System.out.printf("%nBalance: %d (Free Spins left: %d)%n", slotMachine.getBalance(), slotMachine.getFreeSpins());
         } else {
             System.out.printf("%nBalance: %d%n", slotMachine.getBalance());
         }
         System.out.printf("Current Bet: %d%n", slotMachine.getBetAmount());
+        if (jackpot != null) {
+            System.out.printf("Jackpot: %d (%s)%n", jackpot.value(), jackpot.getTrigger());
+        }
         System.out.println("1. Spin");
         System.out.println("2. View Payout Table");
         System.out.println("3. View Paylines");
         System.out.println("4. Change Bet Amount");
         System.out.printf("5. Run %d Auto-Spins (Analytics)\n", autospinCount);
         System.out.println("6. Exit");
+        if (autoSpinRunning) {
+            System.out.println("7. Auto-Spin Progress");
+            System.out.println("8. Cancel Auto-Spin");
+        }
         System.out.println("Choose an option: ");
     }
 
     /**
      * Handles a spin, including deducting balance, evaluating wins, and displaying
-     * results.
+     * results. A spin that triggers free spins goes straight on to play the whole
+     * bonus round.
      * 
      * @param slotMachine The slot machine instance
-     * @param freeSpins   Number of free spins left
-     * @param reader      BufferedReader for user input
      * @param stats       Session statistics
-     * @param freeSpinsPerTrigger Number of free spins awarded for triggering scatters
-     * @return Updated free spins count
+     * @param journal     Spin audit journal, or null if spins are not journaled
+     * @param wallet      Wallet store, or null if the balance is kept in memory only
+     * @param jackpot     Jackpot pool, or null if there is no jackpot
      * @throws IOException If an input or output exception occurred
      */
-    private static int handleSpin(ISlotMachine slotMachine, int freeSpins, BufferedReader reader, SessionStats stats, int freeSpinsPerTrigger)
-            throws IOException {
-        if (freeSpins == 0 && slotMachine.getBalance() < slotMachine.getBetAmount()) {
+    private static void handleSpin(ISlotMachine slotMachine, SessionStats stats, SpinJournal journal,
+            WalletStore wallet, JackpotPool jackpot) throws IOException {
+        if (slotMachine.getFreeSpins() > 0) {
+            playFreeSpinRound(slotMachine, stats, journal, wallet, jackpot);
+            return;
+        }
+        if (slotMachine.getBalance() < slotMachine.getBetAmount()) {
             System.out.println("Not enough balance to spin. Each spin costs " + slotMachine.getBetAmount() + ".");
-            return freeSpins;
+            return;
         }
-        if (freeSpins == 0) {
-            slotMachine.deductBalance(slotMachine.getBetAmount());
-            stats.totalSpins++;
-        } else if (freeSpins > 0) {
-            System.out.println("Using free spin...");
-            stats.totalSpins++;
-        } else
-            freeSpins--;
-        SpinResult result = slotMachine.spinAndEvaluate();
+        int debit = slotMachine.getBetAmount();
+        SpinResult result = slotMachine.playSpin();
+        stats.totalSpins++;
         System.out.println("\n--- Spin Result ---");
-        printHighlightedGrid(result.grid, result.lineWins, slotMachine.getPaylines());
+        printHighlightedGrid(result.getGrid(), result.getLineWins(), slotMachine.getPaylines());
         printSpinSummary(result);
         if (result.totalPayout > 0) {
             System.out.printf("You win: %d!%n", result.totalPayout);
-            slotMachine.addBalance(result.totalPayout);
             stats.totalWon += result.totalPayout;
             if (result.totalPayout > stats.biggestWin)
                 stats.biggestWin = result.totalPayout;
         } else {
-            stats.totalLost += slotMachine.getBetAmount();
+            stats.totalLost += debit;
             System.out.println("No win this time.");
         }
-        if (result.scatterCount >= 3) {
-            System.out.printf("Bonus! You triggered %d free spins with %d Scatters!%n", freeSpinsPerTrigger, result.scatterCount);
-            freeSpins += freeSpinsPerTrigger;
+        settle(slotMachine, stats, journal, wallet, jackpot, result, debit, debit, false, slotMachine.getBalance());
+        if (slotMachine.getFreeSpins() > 0) {
+            System.out.printf("Bonus! You triggered %d free spins with %d Scatters!%n", slotMachine.getFreeSpins(), result.scatterCount);
+            playFreeSpinRound(slotMachine, stats, journal, wallet, jackpot);
+        }
+    }
+
+    /**
+     * Plays all free spins left in one call and settles, journals and reports each of them.
+     * 
+     * @param slotMachine The slot machine instance
+     * @param stats       Session statistics
+     * @param journal     Spin audit journal, or null if spins are not journaled
+     * @param wallet      Wallet store, or null if the balance is kept in memory only
+     * @param jackpot     Jackpot pool, or null if there is no jackpot
+     * @throws IOException If an input or output exception occurred
+     */
+    private static void playFreeSpinRound(ISlotMachine slotMachine, SessionStats stats, SpinJournal journal,
+            WalletStore wallet, JackpotPool jackpot) throws IOException {
+        int balanceBefore = slotMachine.getBalance();
+        FreeSpinRound round = slotMachine.playFreeSpinRound();
+        // The machine has credited the whole round; rebuild the balance after each spin for the journal
+        long balance = balanceBefore;
+        int spin = 0;
+        for (SpinResult result : round.getSpins()) {
+            spin++;
+            stats.totalSpins++;
+            stats.totalWon += result.totalPayout;
+            if (result.totalPayout > stats.biggestWin)
+                stats.biggestWin = result.totalPayout;
+            balance += result.totalPayout;
+            System.out.printf("Free spin %d: %s%s%n", spin,
+                    result.totalPayout > 0 ? "win " + result.totalPayout : "no win",
+                    result.scatterCount >= 3 ? " (" + result.scatterCount + " Scatters, more free spins!)" : "");
+            balance += settle(slotMachine, stats, journal, wallet, jackpot, result, round.betAmount, 0, true,
+                    (int) Math.min(Integer.MAX_VALUE, balance));
+        }
+        System.out.printf("Free spins over: %d spins played", round.spinsPlayed);
+        if (round.retriggers > 0) {
+            System.out.printf(", %d retriggers", round.retriggers);
         }
-        return freeSpins;
+        System.out.printf(", total win %d.%n", round.totalPayout);
+    }
+
+    /**
+     * Records a played spin: wallet settlement, jackpot and spin journal.
+     * 
+     * @param slotMachine The slot machine instance
+     * @param stats       Session statistics
+     * @param journal     Spin audit journal, or null if spins are not journaled
+     * @param wallet      Wallet store, or null if the balance is kept in memory only
+     * @param jackpot     Jackpot pool, or null if there is no jackpot
+     * @param result      The result of the spin
+     * @param betAmount   Bet the spin paid at
+     * @param debit       Bet deducted for the spin, 0 for a free spin
+     * @param freeSpin    Whether the spin was free
+     * @param balanceAfter Balance right after the spin was credited
+     * @return Jackpot amount credited, or 0
+     * @throws IOException If an input or output exception occurred
+     */
+    private static int settle(ISlotMachine slotMachine, SessionStats stats, SpinJournal journal, WalletStore wallet,
+            JackpotPool jackpot, SpinResult result, int betAmount, int debit, boolean freeSpin, int balanceAfter) throws IOException {
+        long spinId = stats.spinIdBase + stats.totalSpins;
+        if (wallet != null) {
+            // Bet and payout go into one wallet record, durable before the next spin
+            spinId = wallet.settle(PLAYER_SESSION, debit, result.totalPayout);
+            wallet.awaitDurable(spinId);
+        }
+        int jackpotWin = 0;
+        if (jackpot != null) {
+            JackpotPool.Award award = jackpot.onSpin(PLAYER_SESSION, spinId, debit, result);
+            if (award != null) {
+                jackpotWin = (int) Math.min(Integer.MAX_VALUE, award.amount);
+                System.out.printf("JACKPOT! You win the progressive jackpot of %d!%n", jackpotWin);
+                slotMachine.addBalance(jackpotWin);
+                stats.totalWon += jackpotWin;
+                // Keyed by award id, so an award whose credit a crash lost is paid once on the next start
+                if (wallet != null) wallet.awaitDurable(wallet.credit(PLAYER_SESSION, award.amount, award.awardId));
+            }
+        }
+        if (journal != null) {
+            journal.append(result, betAmount, freeSpin, balanceAfter + jackpotWin);
+        }
+        return jackpotWin;
     }
 
     /**
@@ -284,8 +485,8 @@ public class Main {
      * @param result The result of the spin
      */
     private static void printSpinSummary(SpinResult result) {
-        if (!result.lineWins.isEmpty()) {
-            for (SpinResult.LineWin win : result.lineWins) {
+        if (!result.getLineWins().isEmpty()) {
+            for (SpinResult.LineWin win : result.getLineWins()) {
                 String lineName = win.lineIndex >= 1 && win.lineIndex <= PAYLINE_NAMES.length
                         ? PAYLINE_NAMES[win.lineIndex - 1]
                         : ("Line " + win.lineIndex);
@@ -295,7 +496,7 @@ public class Main {
         if (result.scatterPayout > 0) {
             System.out.printf("Scatter: %dx, pays %d%n", result.scatterCount, result.scatterPayout);
         }
-        if (result.lineWins.isEmpty() && result.scatterPayout == 0) {
+        if (result.getLineWins().isEmpty() && result.scatterPayout == 0) {
             System.out.println("No winning lines or scatters.");
         }
     }
@@ -349,44 +550,56 @@ public class Main {
     }
 
     /**
-     * Runs a predefined number of auto-spins for analytics.
+     * Starts a predefined number of auto-spins for analytics in the background.
      * @param slotMachine The slot machine instance
-     * @param stats Session statistics
-     * @param reader BufferedReader for user input
      * @param autospinCount Number of auto-spins to run
-     * @throws IOException If an input or output exception occurred
+     * @return The running auto-spin task
      */
-    private static void runAutoSpins(ISlotMachine slotMachine, SessionStats stats, BufferedReader reader, int autospinCount) throws IOException {
-        System.out.printf("Running %d auto-spins...%n", autospinCount);
-        int autoTotalWon = 0;
-        int autoBiggestWin = 0;
-        int autoTotalLost = 0;
-        int autoBalance = slotMachine.getBetAmount() * autospinCount; // Start with enough for all spins
-        int startBalance = autoBalance;
-        for (int i = 0; i < autospinCount; i++) {
-            if (autoBalance < slotMachine.getBetAmount()) break;
-            autoBalance -= slotMachine.getBetAmount();
-            SpinResult result = slotMachine.spinAndEvaluate();
-            if (result.totalPayout > 0) {
-                autoBalance += result.totalPayout;
-                autoTotalWon += result.totalPayout;
-                if (result.totalPayout > autoBiggestWin) {
-                    autoBiggestWin = result.totalPayout;
-                }
-            } else {
-                autoTotalLost += slotMachine.getBetAmount();
-            }
-        }
-        int net = autoBalance - startBalance;
+    private static AutoSpinTask startAutoSpins(ISlotMachine slotMachine, int autospinCount) {
+        System.out.printf("Running %d auto-spins in the background...%n", autospinCount);
+        return new AutoSpinTask(slotMachine, autospinCount, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Prints live progress of a background auto-spin run.
+     * @param autoSpin The running auto-spin task
+     */
+    private static void printAutoSpinProgress(AutoSpinTask autoSpin) {
+        SimulationProgress progress = autoSpin.getProgress();
+        double eta = progress.etaSeconds();
+        System.out.println("--- Auto-Spin Progress ---");
+        System.out.printf("Spins: %d / %d (%.1f%%)%n", progress.getSpins(), progress.getTargetSpins(),
+                progress.getTargetSpins() > 0 ? 100.0 * progress.getSpins() / progress.getTargetSpins() : 100.0);
+        System.out.printf("Speed: %.0f spins/sec%n", progress.spinsPerSecond());
+        System.out.printf("Running RTP: %.2f%%%n", progress.runningRtp() * 100.0);
+        System.out.println(eta >= 0 ? String.format("ETA: %.1f s", eta) : "ETA: unknown");
+    }
+
+    /**
+     * Waits for an auto-spin run to finish and prints its analytics (partial results if it was cancelled).
+     * @param autoSpin The auto-spin task
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private static void printAutoSpinAnalytics(AutoSpinTask autoSpin) throws InterruptedException {
+        SimulationStats result = autoSpin.awaitResult();
+        int bet = autoSpin.getBetAmount();
+        long spins = result.getSpins();
+        long autoTotalWon = result.getTotalWon() * bet;
+        long autoTotalLost = (spins - result.getHits()) * bet;
+        long startBalance = autoSpin.getProgress().getTargetSpins() * bet; // Start with enough for all spins
+        long autoBalance = startBalance - spins * bet + autoTotalWon;
+        long net = autoBalance - startBalance;
         System.out.println("--- Auto-Spin Analytics ---");
-        System.out.printf("Total Auto-Spins: %d\n", autospinCount);
+        if (autoSpin.isCancelled() && spins < autoSpin.getProgress().getTargetSpins()) {
+            System.out.printf("Cancelled after %d of %d spins (partial results)\n", spins, autoSpin.getProgress().getTargetSpins());
+        }
+        System.out.printf("Total Auto-Spins: %d\n", spins);
         System.out.printf("Total Won: %d\n", autoTotalWon);
         System.out.printf("Total Lost: %d\n", autoTotalLost);
-        System.out.printf("Biggest Win: %d\n", autoBiggestWin);
+        System.out.printf("Biggest Win: %d\n", result.getBiggestWin() * bet);
         System.out.printf("Starting Balance: %d\n", startBalance);
         System.out.printf("Ending Balance: %d\n", autoBalance);
         System.out.printf("Net Result: %s%d\n", net >= 0 ? "+" : "", net);
-        double rtp = (double) autoTotalWon / (autospinCount * slotMachine.getBetAmount()) * 100.0;
-        System.out.printf("RTP (Return to Player): %.2f%%\n", rtp);
+        System.out.printf("RTP (Return to Player): %.2f%%\n", result.rtp() * 100.0);
     }
 }
@@ -0,0 +1,246 @@
+package com.enigma.slotmachine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Records the per-spin outcomes of a simulation into off-heap, memory-mapped column files.
+ * <p>
+ * Spins are stored in chunk files of up to 16M spins. Within a chunk each field is its own column: the five
+ * reel stops (shorts), the payout at a bet of 1 (int), the scatter count (byte) and the bit mask of paid
+ * lines (long), 23 bytes per spin, little-endian. A batch's spins have fixed positions given by the batch
+ * index, so worker threads write their batches straight into the mapped columns in any order and nothing
+ * is kept on the heap. Closing the recorder forces the columns to disk and writes {@code outcomes.meta},
+ * which makes the store readable by {@link OutcomeScanner}; if batches are missing (a cancelled run), only
+ * the spins before the first missing batch are published.
+ */
+public class OutcomeRecorder implements IOutcomeSink, Closeable {
+    static final int CHUNK_SPINS = 1 << 24;
+    static final int BYTES_PER_SPIN = 23;
+    static final String META_FILE = "outcomes.meta";
+
+    private static final int MAGIC = 0x534D4F43; // "SMOC"
+    private static final int VERSION = 1;
+    private static final int REELS = SlotMachineConfig.REELS;
+
+    /**
+     * Contents of the metadata file.
+     */
+    static class Meta {
+        // Readable spins, and spins of the run (which sets the chunk layout)
+        final long spins;
+        final long runSpins;
+        final long fingerprint;
+        final boolean payAllWins;
+        final int[][] paylines;
+
+        Meta(long spins, long runSpins, long fingerprint, boolean payAllWins, int[][] paylines) {
+            this.spins = spins;
+            this.runSpins = runSpins;
+            this.fingerprint = fingerprint;
+            this.payAllWins = payAllWins;
+            this.paylines = paylines;
+        }
+    }
+
+    private final Path dir;
+    private final ISlotMachine machine;
+    private final long spins;
+    private final MappedByteBuffer[] chunks;
+    // Batches written so far
+    private final BitSet written = new BitSet();
+    private boolean closed;
+
+    /**
+     * Creates an outcome store for a run, replacing any store already in the directory.
+     * @param dir Store directory
+     * @param machine Machine the spins are simulated on
+     * @param spins Number of spins of the run
+     * @throws IOException If the directory cannot be prepared
+     */
+    public OutcomeRecorder(Path dir, ISlotMachine machine, long spins) throws IOException {
+        if (spins < 0) {
+            throw new IllegalArgumentException("Spin count must not be negative");
+        }
+        for (IReel reel : machine.getReels()) {
+            if (reel.getFullStrip().length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Reel strips longer than " + Short.MAX_VALUE + " cannot be recorded");
+            }
+        }
+        this.dir = dir;
+        this.machine = machine;
+        this.spins = spins;
+        this.chunks = new MappedByteBuffer[(int) ((spins + CHUNK_SPINS - 1) / CHUNK_SPINS)];
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(META_FILE));
+        for (int c = 0; Files.exists(chunkFile(dir, c)); c++) {
+            Files.delete(chunkFile(dir, c));
+        }
+    }
+
+    @Override
+    public void accept(long batch, BatchEvaluator evaluator) {
+        long first = batch * Simulator.BATCH_SIZE;
+        int chunk = (int) (first / CHUNK_SPINS);
+        int capacity = chunkCapacity(spins, chunk);
+        MappedByteBuffer buffer;
+        try {
+            buffer = chunk(chunk, capacity);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        int index = (int) (first % CHUNK_SPINS);
+        int count = evaluator.size();
+        for (int r = 0; r < REELS; r++) {
+            int base = stopsOffset(r, capacity) + 2 * index;
+            for (int i = 0; i < count; i++) {
+                buffer.putShort(base + 2 * i, (short) evaluator.stop(r, i));
+            }
+        }
+        int payouts = payoutOffset(capacity) + 4 * index;
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(payouts + 4 * i, evaluator.payout(i));
+        }
+        int scatters = scatterOffset(capacity) + index;
+        for (int i = 0; i < count; i++) {
+            buffer.put(scatters + i, (byte) evaluator.scatterCount(i));
+        }
+        int masks = winMaskOffset(capacity) + 8 * index;
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(masks + 8 * i, evaluator.winMask(i));
+        }
+        synchronized (written) {
+            written.set((int) batch);
+        }
+    }
+
+    private MappedByteBuffer chunk(int chunk, int capacity) throws IOException {
+        synchronized (chunks) {
+            if (chunks[chunk] == null) {
+                try (FileChannel channel = FileChannel.open(chunkFile(dir, chunk),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * BYTES_PER_SPIN);
+                }
+                chunks[chunk].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return chunks[chunk];
+        }
+    }
+
+    /**
+     * Returns the number of spins readable once the recorder is closed: those before the first batch that
+     * has not been written.
+     * @return Number of recorded spins
+     */
+    public long recordedSpins() {
+        synchronized (written) {
+            return Math.min(spins, (long) written.nextClearBit(0) * Simulator.BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Forces the columns to disk and publishes the store.
+     * @throws IOException If the metadata cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (chunks) {
+            if (closed) return;
+            closed = true;
+            for (MappedByteBuffer chunk : chunks) {
+                if (chunk != null) chunk.force();
+            }
+        }
+        writeMeta(dir, new Meta(recordedSpins(), spins, ShardCoordinator.fingerprint(machine), machine.isPayAllWins(),
+                machine.getPaylines()));
+    }
+
+    static Path chunkFile(Path dir, int chunk) {
+        return dir.resolve(String.format("outcomes-%06d.columns", chunk));
+    }
+
+    static int chunkCapacity(long spins, int chunk) {
+        return (int) Math.min(CHUNK_SPINS, spins - (long) chunk * CHUNK_SPINS);
+    }
+
+    static int stopsOffset(int reel, int capacity) {
+        return 2 * reel * capacity;
+    }
+
+    static int payoutOffset(int capacity) {
+        return 2 * REELS * capacity;
+    }
+
+    static int scatterOffset(int capacity) {
+        return (2 * REELS + 4) * capacity;
+    }
+
+    static int winMaskOffset(int capacity) {
+        return (2 * REELS + 5) * capacity;
+    }
+
+    private static void writeMeta(Path dir, Meta meta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(meta.spins);
+            out.writeLong(meta.runSpins);
+            out.writeInt(CHUNK_SPINS);
+            out.writeLong(meta.fingerprint);
+            out.writeBoolean(meta.payAllWins);
+            out.writeInt(meta.paylines.length);
+            for (int[] line : meta.paylines) {
+                for (int row : line) out.writeByte(row);
+            }
+        }
+        Path file = dir.resolve(META_FILE);
+        Path tmp = Files.createTempFile(dir, META_FILE, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static Meta readMeta(Path dir) throws IOException {
+        Path file = dir.resolve(META_FILE);
+        if (!Files.exists(file)) {
+            throw new IOException(dir + " holds no complete outcome store (missing " + META_FILE + ")");
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not an outcome store (version " + VERSION + ")");
+            }
+            long spins = in.readLong();
+            long runSpins = in.readLong();
+            if (in.readInt() != CHUNK_SPINS) {
+                throw new IOException(file + " uses a different chunk size");
+            }
+            long fingerprint = in.readLong();
+            boolean payAllWins = in.readBoolean();
+            int[][] paylines = new int[in.readInt()][REELS];
+            for (int[] line : paylines) {
+                for (int r = 0; r < REELS; r++) line[r] = in.readByte();
+            }
+            return new Meta(spins, runSpins, fingerprint, payAllWins, paylines);
+        }
+    }
+}
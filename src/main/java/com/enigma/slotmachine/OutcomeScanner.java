@@ -0,0 +1,234 @@
+package com.enigma.slotmachine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Runs aggregations over an outcome store written by {@link OutcomeRecorder}.
+ * <p>
+ * Chunk files are memory-mapped read-only and split into slices of 1M spins that worker threads claim.
+ * Each slice gives direct access to the mapped columns, so an aggregation reads only the columns it
+ * needs, straight from the page cache, and never materialises spins on the heap. Per-thread accumulators
+ * are merged at the end, so any associative aggregation runs in parallel. Win distributions and payline
+ * heatmaps are built in.
+ */
+public class OutcomeScanner {
+    private static final int SLICE_SPINS = 1 << 20;
+
+    /**
+     * A contiguous range of spins in one chunk, read straight from the mapped columns.
+     */
+    public static final class Slice {
+        private final MappedByteBuffer buffer;
+        private final long firstSpin;
+        private final int index;
+        private final int size;
+        private final int capacity;
+
+        Slice(MappedByteBuffer buffer, long firstSpin, int index, int size, int capacity) {
+            this.buffer = buffer;
+            this.firstSpin = firstSpin;
+            this.index = index;
+            this.size = size;
+            this.capacity = capacity;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the run-wide index of the slice's first spin.
+         * @return Spin index
+         */
+        public long firstSpin() {
+            return firstSpin;
+        }
+
+        /**
+         * Returns the stop position of a reel for a spin of the slice.
+         * @param reel Reel index
+         * @param i Spin index within the slice
+         * @return Stop position on the strip
+         */
+        public int stop(int reel, int i) {
+            return buffer.getShort(OutcomeRecorder.stopsOffset(reel, capacity) + 2 * (index + i));
+        }
+
+        /**
+         * Returns the total payout of a spin of the slice (bet of 1).
+         * @param i Spin index within the slice
+         * @return Total payout
+         */
+        public int payout(int i) {
+            return buffer.getInt(OutcomeRecorder.payoutOffset(capacity) + 4 * (index + i));
+        }
+
+        public int scatterCount(int i) {
+            return buffer.get(OutcomeRecorder.scatterOffset(capacity) + index + i);
+        }
+
+        /**
+         * Returns the paid paylines of a spin as a bit mask (bit n = payline n + 1; first 64 lines only).
+         * @param i Spin index within the slice
+         * @return Bit mask of paid lines
+         */
+        public long winMask(int i) {
+            return buffer.getLong(OutcomeRecorder.winMaskOffset(capacity) + 8 * (index + i));
+        }
+    }
+
+    private final OutcomeRecorder.Meta meta;
+    private final List<Slice> slices = new ArrayList<>();
+    private final int threads;
+
+    /**
+     * Opens an outcome store.
+     * @param dir Store directory
+     * @param threads Number of worker threads for scans
+     * @throws IOException If the store is incomplete or cannot be mapped
+     */
+    public OutcomeScanner(Path dir, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.threads = threads;
+        this.meta = OutcomeRecorder.readMeta(dir);
+        for (int chunk = 0; (long) chunk * OutcomeRecorder.CHUNK_SPINS < meta.spins; chunk++) {
+            long chunkStart = (long) chunk * OutcomeRecorder.CHUNK_SPINS;
+            int capacity = OutcomeRecorder.chunkCapacity(meta.runSpins, chunk);
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(OutcomeRecorder.chunkFile(dir, chunk), StandardOpenOption.READ)) {
+                if (channel.size() < (long) capacity * OutcomeRecorder.BYTES_PER_SPIN) {
+                    throw new IOException(OutcomeRecorder.chunkFile(dir, chunk) + " is truncated");
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) capacity * OutcomeRecorder.BYTES_PER_SPIN);
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int used = (int) Math.min(capacity, meta.spins - chunkStart);
+            for (int index = 0; index < used; index += SLICE_SPINS) {
+                slices.add(new Slice(buffer, chunkStart + index, index, Math.min(SLICE_SPINS, used - index), capacity));
+            }
+        }
+    }
+
+    public long spins() {
+        return meta.spins;
+    }
+
+    /**
+     * Returns the paylines of the machine the outcomes were simulated on.
+     * @return Paylines
+     */
+    public int[][] getPaylines() {
+        return meta.paylines;
+    }
+
+    public boolean isPayAllWins() {
+        return meta.payAllWins;
+    }
+
+    /**
+     * Runs an aggregation over every spin. Each worker thread folds the slices it claims into its own
+     * accumulator; the accumulators are then merged in thread order.
+     * @param newAccumulator Creates an empty accumulator
+     * @param action Folds one slice into an accumulator
+     * @param merge Combines two accumulators
+     * @param <A> Accumulator type
+     * @return Merged accumulator
+     */
+    public <A> A scan(Supplier<A> newAccumulator, BiConsumer<A, Slice> action, BinaryOperator<A> merge) {
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<A>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                A accumulator = newAccumulator.get();
+                int slice;
+                while ((slice = next.getAndIncrement()) < slices.size()) {
+                    action.accept(accumulator, slices.get(slice));
+                }
+                return accumulator;
+            });
+        }
+        A result = newAccumulator.get();
+        for (A accumulator : Simulator.runAll(workers)) {
+            result = merge.apply(result, accumulator);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total payout of all spins (bet of 1).
+     * @return Sum of payouts
+     */
+    public long totalPayout() {
+        return scan(() -> new long[1], (total, slice) -> {
+            long sum = 0;
+            for (int i = 0; i < slice.size(); i++) sum += slice.payout(i);
+            total[0] += sum;
+        }, OutcomeScanner::add)[0];
+    }
+
+    /**
+     * Counts spins by payout. Bucket k holds payouts in {@code (upperBounds[k-1], upperBounds[k]]} (the first
+     * bucket everything up to {@code upperBounds[0]}); the last bucket holds payouts above the last bound.
+     * @param upperBounds Ascending inclusive upper bounds
+     * @return Spin count per bucket ({@code upperBounds.length + 1} buckets)
+     */
+    public long[] payoutHistogram(int... upperBounds) {
+        for (int k = 1; k < upperBounds.length; k++) {
+            if (upperBounds[k] <= upperBounds[k - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be ascending");
+            }
+        }
+        return scan(() -> new long[upperBounds.length + 1], (counts, slice) -> {
+            for (int i = 0; i < slice.size(); i++) {
+                int payout = slice.payout(i);
+                int bucket = 0;
+                while (bucket < upperBounds.length && payout > upperBounds[bucket]) bucket++;
+                counts[bucket]++;
+            }
+        }, OutcomeScanner::add);
+    }
+
+    /**
+     * Builds a payline heatmap: entry {@code [a][b]} counts spins on which paylines a and b both paid, so the
+     * diagonal holds each line's hit count and the rest shows which lines win together.
+     * @return Co-occurrence counts per pair of paylines (first 64 lines)
+     */
+    public long[][] paylineHeatmap() {
+        int lines = Math.min(64, meta.paylines.length);
+        long[] flat = scan(() -> new long[lines * lines], (counts, slice) -> {
+            for (int i = 0; i < slice.size(); i++) {
+                long mask = slice.winMask(i);
+                for (long a = mask; a != 0; a &= a - 1) {
+                    int row = Long.numberOfTrailingZeros(a) * lines;
+                    for (long b = mask; b != 0; b &= b - 1) {
+                        counts[row + Long.numberOfTrailingZeros(b)]++;
+                    }
+                }
+            }
+        }, OutcomeScanner::add);
+        long[][] heatmap = new long[lines][lines];
+        for (int a = 0; a < lines; a++) {
+            System.arraycopy(flat, a * lines, heatmap[a], 0, lines);
+        }
+        return heatmap;
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+}
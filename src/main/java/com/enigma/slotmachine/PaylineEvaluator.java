@@ -0,0 +1,33 @@
+package com.enigma.slotmachine;
+
+/**
+ * Evaluates payline matches for a fixed set of paylines.
+ * <p>
+ * Grids are passed as symbol ordinals rather than {@link Symbol} objects so that implementations can work on
+ * primitive arrays (and SIMD lanes). A line matches when the symbol on its first reel is not a scatter and is
+ * repeated on at least 3 consecutive reels from the left; the match count is 0 otherwise.
+ */
+public interface PaylineEvaluator {
+    /**
+     * Evaluates all paylines of one grid.
+     * @param cells Symbol ordinals in row-major order (index row * 5 + col)
+     * @param matchCounts Output: match count per payline (3-5, or 0 for no win)
+     * @param symbols Output: ordinal of the symbol on the first reel of each payline
+     */
+    void evaluateGrid(int[] cells, int[] matchCounts, int[] symbols);
+
+    /**
+     * Evaluates one payline across a batch of grids stored column by column.
+     * @param cellColumns Symbol ordinals per cell (row * 5 + col), each array indexed by grid
+     * @param count Number of grids in the batch
+     * @param line Payline index
+     * @param matchCounts Output: match count per grid (3-5, or 0 for no win)
+     */
+    void evaluateBatch(int[][] cellColumns, int count, int line, int[] matchCounts);
+
+    /**
+     * Returns a short name for reports and benchmarks.
+     * @return Implementation name
+     */
+    String name();
+}
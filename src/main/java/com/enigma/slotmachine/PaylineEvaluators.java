@@ -0,0 +1,73 @@
+package com.enigma.slotmachine;
+
+/**
+ * Chooses the payline evaluator implementation.
+ * <p>
+ * The SIMD evaluator is opt-in through the {@code slotmachine.evaluator} system property ({@code vector},
+ * {@code scalar} or {@code auto}; default {@code scalar}, since with a handful of paylines per grid the scalar
+ * loop is already cheap). {@code auto} and {@code vector} both fall back to the scalar evaluator when the
+ * JVM was started without {@code --add-modules jdk.incubator.vector}.
+ * <p>
+ * Batch evaluation ({@link BatchEvaluator}) always benefits from SIMD lanes, so it uses the vector evaluator
+ * whenever the module is present unless the property is explicitly set to {@code scalar}.
+ */
+public final class PaylineEvaluators {
+    public static final String PROPERTY = "slotmachine.evaluator";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_CLASS = "com.enigma.slotmachine.VectorPaylineEvaluator";
+
+    private PaylineEvaluators() {
+    }
+
+    /**
+     * Creates the evaluator selected by the {@code slotmachine.evaluator} system property.
+     * @param paylines Row index per reel for each payline
+     * @return Payline evaluator
+     */
+    public static PaylineEvaluator create(int[][] paylines) {
+        String choice = System.getProperty(PROPERTY, "scalar");
+        if (choice.equals("vector") || choice.equals("auto")) {
+            PaylineEvaluator vector = createVector(paylines);
+            if (vector != null) return vector;
+        }
+        return new ScalarPaylineEvaluator(paylines);
+    }
+
+    /**
+     * Creates the evaluator for batch evaluation: SIMD when available, unless scalar is explicitly requested.
+     * @param paylines Row index per reel for each payline
+     * @return Payline evaluator
+     */
+    public static PaylineEvaluator createForBatch(int[][] paylines) {
+        if (!"scalar".equals(System.getProperty(PROPERTY))) {
+            PaylineEvaluator vector = createVector(paylines);
+            if (vector != null) return vector;
+        }
+        return new ScalarPaylineEvaluator(paylines);
+    }
+
+    /**
+     * Returns whether the Vector API module is available to this JVM.
+     * @return True if the SIMD evaluator can be used
+     */
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Creates the SIMD evaluator, or returns null if the Vector API is not available.
+     * @param paylines Row index per reel for each payline
+     * @return Vector evaluator, or null
+     */
+    public static PaylineEvaluator createVector(int[][] paylines) {
+        if (!isVectorAvailable()) return null;
+        try {
+            // Loaded reflectively so this class never links against the incubator module
+            return (PaylineEvaluator) Class.forName(VECTOR_CLASS)
+                    .getConstructor(int[][].class)
+                    .newInstance((Object) paylines);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
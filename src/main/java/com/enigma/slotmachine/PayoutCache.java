@@ -0,0 +1,195 @@
+package com.enigma.slotmachine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memo of payline work keyed by the visible windows of the leading reels.
+ * <p>
+ * A reel strip of n stops shows at most n distinct 3-symbol windows (about 80 on the default strips), and
+ * stops showing the same window get the same window ID. The cache keys on the window IDs of the first
+ * {@link #getPrefixReels()} reels: the most reels whose window combinations fit in the capacity, so with
+ * tiny strips the key is the whole 5-tuple. An entry holds, per payline, how far its run gets over those
+ * reels, which lines are still open (matched on every keyed reel) or already won, and the scatters in the
+ * keyed windows. On a hit only the open and won lines are looked at, mostly none.
+ * <p>
+ * The table is direct-mapped: a key always lands in the same slot, and a different key evicts it. Entries
+ * are immutable, so lookups from several threads are safe. Only misses are counted, in a {@link LongAdder}
+ * on the miss path: a model shared by many threads would otherwise bounce a counter's cache line between
+ * them on every hit.
+ */
+final class PayoutCache {
+    private static final int REELS = 5;
+    private static final int ROWS = 3;
+    private static final int SCATTER = Symbol.SCATTER.ordinal();
+
+    private final int[][][] windows;
+    private final int[][] paylines;
+    private final int prefixReels;
+    private final int[] distinctWindows;
+    // windowIds[reel][stop]: ID of the window shown at the stop, shared by stops showing the same symbols
+    private final int[][] windowIds;
+    // radix[reel]: multiplier of the reel's window ID in the key
+    private final long[] radix;
+    // windowScatters[reel][stop]: scatters in the window shown at the stop
+    private final int[][] windowScatters;
+    private final Entry[] slots;
+    private final int slotMask;
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Builds the window-ID tables for a machine's reels.
+     * @param windows Window symbol ordinals, [reel][row][stop]
+     * @param paylines Paylines (at most 64)
+     * @param capacity Number of cache slots (a power of two)
+     */
+    PayoutCache(int[][][] windows, int[][] paylines, int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Payout cache size must be a power of two");
+        }
+        if (paylines.length > Long.SIZE) {
+            throw new IllegalArgumentException("Payout cache supports at most " + Long.SIZE + " paylines");
+        }
+        this.windows = windows;
+        this.paylines = paylines;
+        this.windowIds = new int[REELS][];
+        this.windowScatters = new int[REELS][];
+        int[] distinct = new int[REELS];
+        this.distinctWindows = distinct;
+        for (int r = 0; r < REELS; r++) {
+            int stops = windows[r][0].length;
+            windowIds[r] = new int[stops];
+            windowScatters[r] = new int[stops];
+            Map<List<Integer>, Integer> ids = new HashMap<>();
+            for (int stop = 0; stop < stops; stop++) {
+                List<Integer> window = List.of(windows[r][0][stop], windows[r][1][stop], windows[r][2][stop]);
+                Integer id = ids.get(window);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(window, id);
+                }
+                windowIds[r][stop] = id;
+                for (int row = 0; row < ROWS; row++) {
+                    if (windows[r][row][stop] == SCATTER) windowScatters[r][stop]++;
+                }
+            }
+            distinct[r] = ids.size();
+        }
+        int prefix = 1;
+        long combinations = distinct[0];
+        while (prefix < REELS && combinations * distinct[prefix] <= capacity) {
+            combinations *= distinct[prefix];
+            prefix++;
+        }
+        this.prefixReels = prefix;
+        this.radix = new long[REELS];
+        long multiplier = 1;
+        for (int r = prefix - 1; r >= 0; r--) {
+            radix[r] = multiplier;
+            multiplier *= distinct[r];
+        }
+        this.slots = new Entry[capacity];
+        this.slotMask = capacity - 1;
+    }
+
+    /**
+     * Returns the entry for the windows of the leading reels, computing it on a miss.
+     * @param stops Stop position per reel
+     * @return Cache entry
+     */
+    Entry lookup(int[] stops) {
+        long key = 0;
+        for (int r = 0; r < prefixReels; r++) key += windowIds[r][stops[r]] * radix[r];
+        int slot = (int) (key & slotMask);
+        Entry entry = slots[slot];
+        if (entry != null && entry.key == key) {
+            return entry;
+        }
+        misses.increment();
+        entry = compute(key, stops);
+        slots[slot] = entry;
+        return entry;
+    }
+
+    /**
+     * Counts the scatters on the reels after the keyed prefix.
+     * @param stops Stop position per reel
+     * @return Scatters outside the prefix
+     */
+    int suffixScatters(int[] stops) {
+        int scatters = 0;
+        for (int r = prefixReels; r < REELS; r++) scatters += windowScatters[r][stops[r]];
+        return scatters;
+    }
+
+    private Entry compute(long key, int[] stops) {
+        byte[] runs = new byte[paylines.length];
+        long open = 0;
+        long won = 0;
+        for (int i = 0; i < paylines.length; i++) {
+            int[] line = paylines[i];
+            int first = windows[0][line[0]][stops[0]];
+            if (first == SCATTER) continue;
+            int run = 1;
+            while (run < prefixReels && windows[run][line[run]][stops[run]] == first) run++;
+            runs[i] = (byte) run;
+            if (run == prefixReels) {
+                open |= 1L << i;
+            } else if (run >= 3) {
+                won |= 1L << i;
+            }
+        }
+        int scatters = 0;
+        for (int r = 0; r < prefixReels; r++) scatters += windowScatters[r][stops[r]];
+        return new Entry(key, open, won, runs, scatters);
+    }
+
+    /**
+     * Returns how many leading reels the key covers.
+     * @return Keyed reels, 1 to 5
+     */
+    int getPrefixReels() {
+        return prefixReels;
+    }
+
+    /**
+     * Returns the number of distinct windows on a reel.
+     * @param reel Reel index
+     * @return Distinct windows
+     */
+    int distinctWindows(int reel) {
+        return distinctWindows[reel];
+    }
+
+    /**
+     * Returns the number of lookups that had to compute their entry.
+     * @return Misses so far
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Payline runs over the keyed reels of one window combination.
+     */
+    static final class Entry {
+        final long key;
+        // Lines that matched on every keyed reel and may run on
+        final long open;
+        // Lines whose run of 3 or more ended inside the keyed reels
+        final long won;
+        // Run length of each line over the keyed reels, 0 when it starts with a scatter
+        final byte[] runs;
+        final int scatters;
+
+        Entry(long key, long open, long won, byte[] runs, int scatters) {
+            this.key = key;
+            this.open = open;
+            this.won = won;
+            this.runs = runs;
+            this.scatters = scatters;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates many independent player sessions to measure bankroll behaviour and risk of ruin.
+ * <p>
+ * Each player starts with their own balance, bets an amount taken from {@link ISlotMachine#getBetOptions()}
+ * and plays until ruined (balance below the bet), until reaching a win target, or until a spin limit.
+ * Bonus rounds are played as in the engine's {@link FreeSpinState}: a spin with enough scatters awards the
+ * machine's free spins per trigger, which cost nothing, pay at the player's bet and count towards the spin
+ * limit; ruin and the target are only checked outside a round.
+ * Player state is kept as parallel primitive arrays (struct-of-arrays) so millions of players fit in a
+ * few bytes each. Players are processed in blocks across all worker threads; each block draws from its
+ * own random stream, so results depend only on the seed. Spin outcomes are produced a batch at a time by
+ * a {@link BatchEvaluator}, one per worker thread, and consumed by the block's players in order.
+ */
+public class PlayerSessionSimulator {
+    public static final byte OUTCOME_RUIN = 0;
+    public static final byte OUTCOME_TARGET = 1;
+    public static final byte OUTCOME_MAX_SPINS = 2;
+
+    private static final int BLOCK_SIZE = 1024;
+    // Separates player streams from the base-game simulator's batch streams for the same seed
+    private static final long STREAM_OFFSET = 1L << 62;
+
+    /**
+     * Session rules shared by all simulated players.
+     */
+    public static class Rules {
+        public final int minStartBalance;
+        public final int maxStartBalance;
+        public final int betAmount;
+        public final int maxSpins;
+        public final double targetMultiplier;
+
+        /**
+         * @param minStartBalance Lowest starting balance (inclusive)
+         * @param maxStartBalance Highest starting balance (inclusive)
+         * @param betAmount Fixed bet per spin, or 0 to give each player a random bet from the bet options
+         * @param maxSpins Maximum spins per session
+         * @param targetMultiplier Stop once the balance reaches this multiple of the starting balance (0 for no target)
+         */
+        public Rules(int minStartBalance, int maxStartBalance, int betAmount, int maxSpins, double targetMultiplier) {
+            if (minStartBalance < 1 || maxStartBalance < minStartBalance) {
+                throw new IllegalArgumentException("Invalid starting balance range " + minStartBalance + ".." + maxStartBalance);
+            }
+            if (betAmount < 0) {
+                throw new IllegalArgumentException("Bet must not be negative (0 picks a random bet option)");
+            }
+            if (maxSpins < 1) {
+                throw new IllegalArgumentException("Max spins must be at least 1");
+            }
+            this.minStartBalance = minStartBalance;
+            this.maxStartBalance = maxStartBalance;
+            this.betAmount = betAmount;
+            this.maxSpins = maxSpins;
+            this.targetMultiplier = targetMultiplier;
+        }
+    }
+
+    /**
+     * Per-player outcomes stored as parallel arrays, indexed by player.
+     */
+    public static class Results {
+        public final int[] startBalance;
+        public final int[] finalBalance;
+        public final int[] bet;
+        public final int[] spins;
+        public final byte[] outcome;
+
+        Results(int players) {
+            startBalance = new int[players];
+            finalBalance = new int[players];
+            bet = new int[players];
+            spins = new int[players];
+            outcome = new byte[players];
+        }
+
+        public int players() {
+            return outcome.length;
+        }
+
+        /**
+         * Returns the fraction of players with the given outcome.
+         * @param kind One of the OUTCOME_ constants
+         * @return Fraction of players
+         */
+        public double probability(byte kind) {
+            return players() == 0 ? 0.0 : (double) count(kind) / players();
+        }
+
+        public int count(byte kind) {
+            int n = 0;
+            for (byte o : outcome) if (o == kind) n++;
+            return n;
+        }
+
+        /**
+         * Returns the sorted session lengths (in spins) of all ruined players.
+         * @return Sorted times to ruin
+         */
+        public int[] timesToRuin() {
+            int[] times = new int[count(OUTCOME_RUIN)];
+            int n = 0;
+            for (int p = 0; p < outcome.length; p++) {
+                if (outcome[p] == OUTCOME_RUIN) times[n++] = spins[p];
+            }
+            Arrays.parallelSort(times);
+            return times;
+        }
+
+        public double meanSpins() {
+            long total = 0;
+            for (int s : spins) total += s;
+            return players() == 0 ? 0.0 : (double) total / players();
+        }
+
+        /**
+         * Counts players by final balance relative to their starting balance.
+         * @param upperBounds Ascending exclusive upper bounds of the ratio buckets; a final bucket collects the rest
+         * @return Player count per bucket (length upperBounds.length + 1)
+         */
+        public long[] finalRatioHistogram(double[] upperBounds) {
+            long[] counts = new long[upperBounds.length + 1];
+            for (int p = 0; p < outcome.length; p++) {
+                double ratio = (double) finalBalance[p] / startBalance[p];
+                int bucket = 0;
+                while (bucket < upperBounds.length && ratio >= upperBounds[bucket]) bucket++;
+                counts[bucket]++;
+            }
+            return counts;
+        }
+    }
+
+    private final ISlotMachine machine;
+    private final long seed;
+    private final int threads;
+
+    /**
+     * Constructs a player-session simulator.
+     * @param machine Machine whose reels, paylines and bet options are used
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     */
+    public PlayerSessionSimulator(ISlotMachine machine, long seed, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.machine = machine;
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    /**
+     * Simulates the given number of players.
+     * @param players Number of independent players
+     * @param rules Session rules
+     * @return Per-player outcomes
+     */
+    public Results run(int players, Rules rules) {
+        Results results = new Results(players);
+        int blocks = (players + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        AtomicInteger nextBlock = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                // One evaluator per worker; each block refills it from its own stream
+                BatchEvaluator evaluator = new BatchEvaluator(machine);
+                int block;
+                while ((block = nextBlock.getAndIncrement()) < blocks) {
+                    int from = block * BLOCK_SIZE;
+                    runBlock(block, from, Math.min(players, from + BLOCK_SIZE), rules, results, evaluator);
+                }
+                return null;
+            });
+        }
+        Simulator.runAll(workers);
+        return results;
+    }
+
+    private void runBlock(int block, int from, int to, Rules rules, Results results, BatchEvaluator evaluator) {
+        SplittableRandom random = RngStreams.forBatch(seed, STREAM_OFFSET + block);
+        PayoutStream payouts = new PayoutStream(evaluator, random.split());
+        int[] options = machine.getBetOptions();
+        int freeSpinsPerTrigger = machine.getFreeSpinsPerTrigger();
+        for (int p = from; p < to; p++) {
+            int start = rules.minStartBalance == rules.maxStartBalance
+                    ? rules.minStartBalance
+                    : rules.minStartBalance + random.nextInt(rules.maxStartBalance - rules.minStartBalance + 1);
+            int bet = rules.betAmount > 0 ? rules.betAmount : options[random.nextInt(options.length)];
+            long target = rules.targetMultiplier > 0 ? (long) Math.ceil(start * rules.targetMultiplier) : Long.MAX_VALUE;
+            long balance = start;
+            int spins = 0;
+            int freeSpins = 0;
+            byte outcome = OUTCOME_MAX_SPINS;
+            while (true) {
+                if (freeSpins == 0) {
+                    if (balance < bet) {
+                        outcome = OUTCOME_RUIN;
+                        break;
+                    }
+                    if (balance >= target) {
+                        outcome = OUTCOME_TARGET;
+                        break;
+                    }
+                }
+                if (spins >= rules.maxSpins) break;
+                if (freeSpins > 0) {
+                    freeSpins--;
+                } else {
+                    balance -= bet;
+                }
+                balance += (long) payouts.next() * bet;
+                if (payouts.scatterCount() >= FreeSpinState.TRIGGER_SCATTERS) freeSpins += freeSpinsPerTrigger;
+                spins++;
+            }
+            results.startBalance[p] = start;
+            results.finalBalance[p] = (int) Math.min(Integer.MAX_VALUE, balance);
+            results.bet[p] = bet;
+            results.spins[p] = spins;
+            results.outcome[p] = outcome;
+        }
+    }
+
+    /**
+     * Sequential stream of spin payouts (bet of 1), refilled one evaluated batch at a time.
+     */
+    private static class PayoutStream {
+        private final BatchEvaluator evaluator;
+        private final SplittableRandom random;
+        private int position;
+
+        PayoutStream(BatchEvaluator evaluator, SplittableRandom random) {
+            this.evaluator = evaluator;
+            this.random = random;
+            // Whatever an earlier block left in the evaluator is never read
+            this.position = evaluator.size();
+        }
+
+        int next() {
+            if (position == evaluator.size()) {
+                evaluator.fillUniform(random, evaluator.capacity());
+                evaluator.evaluate();
+                position = 0;
+            }
+            return evaluator.payout(position++);
+        }
+
+        // Scatters of the spin last returned by next()
+        int scatterCount() {
+            return evaluator.scatterCount(position - 1);
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.util.*;
 public class Reel implements IReel {
     private final List<Symbol> strip;
     private final Random random;
+    private final int[] validStops;
 
     public Reel() {
         this(new EnumMap<>(Map.of(
@@ -29,9 +30,63 @@ public class Reel implements IReel {
     }
 
     public Reel(Map<Symbol, Integer> symbolDistribution, int minScatterDistance) {
-        this.random = new Random();
+        this(symbolDistribution, minScatterDistance, new Random());
+    }
+
+    /**
+     * Constructs a reel whose strip shuffle and spins are driven by the given random source,
+     * so that a seeded Random reproduces the same strip.
+     * @param symbolDistribution Symbol counts for the strip
+     * @param minScatterDistance Minimum distance between scatters
+     * @param random Random source for strip construction and spins
+     */
+    public Reel(Map<Symbol, Integer> symbolDistribution, int minScatterDistance, Random random) {
+        GameEvents.ReelBuildEvent event = new GameEvents.ReelBuildEvent();
+        event.begin();
+        this.random = random;
         checkScatterFeasibility(symbolDistribution, minScatterDistance);
         this.strip = buildReelStrip(symbolDistribution, minScatterDistance);
+        this.validStops = findValidStops(strip);
+        commitBuildEvent(event, minScatterDistance);
+    }
+
+    /**
+     * Constructs a reel with a fixed strip, e.g. one restored from a spin journal.
+     * @param strip Symbols of the strip, in order
+     * @param random Random source for spins
+     */
+    public Reel(Symbol[] strip, Random random) {
+        GameEvents.ReelBuildEvent event = new GameEvents.ReelBuildEvent();
+        event.begin();
+        this.random = random;
+        this.strip = new ArrayList<>(Arrays.asList(strip));
+        this.validStops = findValidStops(this.strip);
+        commitBuildEvent(event, 0);
+    }
+
+    private void commitBuildEvent(GameEvents.ReelBuildEvent event, int minScatterDistance) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.stripLength = strip.size();
+            event.validStops = validStops.length;
+            event.scatters = Collections.frequency(strip, Symbol.SCATTER);
+            event.minScatterDistance = minScatterDistance;
+            event.commit();
+        }
+    }
+
+    // Stops whose visible window holds at most one scatter; spins only ever land on these
+    private static int[] findValidStops(List<Symbol> strip) {
+        int[] stops = new int[strip.size()];
+        int count = 0;
+        for (int stop = 0; stop < strip.size(); stop++) {
+            int scatterCount = 0;
+            for (int i = 0; i < 3; i++) {
+                if (strip.get((stop + i) % strip.size()) == Symbol.SCATTER) scatterCount++;
+            }
+            if (scatterCount <= 1) stops[count++] = stop;
+        }
+        return Arrays.copyOf(stops, count);
     }
 
     // Build the reel strip with correct symbol counts and scatter spacing
@@ -51,17 +106,29 @@ public class Reel implements IReel {
         for (int i = 0; i < count; i++) list.add(symbol);
     }
 
-    // Spins the reel and returns the 3-symbol visible window
+    // Spins the reel and returns the 3-symbol visible window.
+    // Only stops with at most one scatter in the window are drawn.
     public Symbol[] spin() {
-        int start = random.nextInt(strip.size());
+        return windowAt(spinStop());
+    }
+
+    public int spinStop() {
+        return stopAt(random.nextInt(validStops.length));
+    }
+
+    public int stopCount() {
+        return validStops.length;
+    }
+
+    public int stopAt(int index) {
+        return validStops[index];
+    }
+
+    public Symbol[] windowAt(int stop) {
         Symbol[] window = new Symbol[3];
         for (int i = 0; i < 3; i++) {
-            window[i] = strip.get((start + i) % strip.size());
+            window[i] = strip.get((stop + i) % strip.size());
         }
-        // Ensure at most one scatter in the window
-        int scatterCount = 0;
-        for (Symbol s : window) if (s == Symbol.SCATTER) scatterCount++;
-        if (scatterCount > 1) return spin(); // re-spin if more than one scatter
         return window;
     }
 
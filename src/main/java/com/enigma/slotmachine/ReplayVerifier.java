@@ -0,0 +1,314 @@
+package com.enigma.slotmachine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays recorded spins and checks every recorded payout against the paytable.
+ * <p>
+ * Input is either a {@link SpinJournal} directory, whose segment headers carry the strips and paylines the
+ * spins were played on, or a text file of recorded stops evaluated on a given machine. Stops are fed to a
+ * {@link BatchEvaluator} a batch at a time, and each expected payout (the bet-1 payout times the bet, which
+ * is how {@link SlotMachine#evaluate} scales wins) is compared with the recorded one. Every mismatch is
+ * re-evaluated with {@link SlotMachine#evaluate} itself, so reported values come from the game's own logic.
+ * Journal segments are split into chunks of records that worker threads claim, so even a single large
+ * segment keeps all cores busy.
+ */
+public class ReplayVerifier {
+    private static final int CHUNK_RECORDS = 1 << 20;
+    private static final int MAX_REPORTED = 100;
+
+    /**
+     * A recorded spin whose payout or scatter count differs from the replayed one. Expected values are -1
+     * when a stop lies outside its strip; a recorded scatter count of -1 means it was not recorded.
+     */
+    public static class Mismatch {
+        public final long sequence;
+        public final int[] stops;
+        public final int bet;
+        public final int recordedPayout;
+        public final int expectedPayout;
+        public final int recordedScatters;
+        public final int expectedScatters;
+
+        Mismatch(long sequence, int[] stops, int bet, int recordedPayout, int expectedPayout,
+                int recordedScatters, int expectedScatters) {
+            this.sequence = sequence;
+            this.stops = stops;
+            this.bet = bet;
+            this.recordedPayout = recordedPayout;
+            this.expectedPayout = expectedPayout;
+            this.recordedScatters = recordedScatters;
+            this.expectedScatters = expectedScatters;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d stops %s bet %d: recorded %d (%d scatters), expected %d (%d scatters)",
+                    sequence, Arrays.toString(stops), bet, recordedPayout, recordedScatters, expectedPayout, expectedScatters);
+        }
+    }
+
+    /**
+     * Outcome of a verification run.
+     */
+    public static class Results {
+        public long spins;
+        public long totalBet;
+        public long totalPaid;
+        public long mismatchCount;
+        // The first mismatches found (at most 100), in sequence order
+        public final List<Mismatch> mismatches = new ArrayList<>();
+        // Sequence numbers of journal records that failed their checksum
+        public final List<Long> corruptRecords = new ArrayList<>();
+
+        void merge(Results other) {
+            spins += other.spins;
+            totalBet += other.totalBet;
+            totalPaid += other.totalPaid;
+            mismatchCount += other.mismatchCount;
+            mismatches.addAll(other.mismatches);
+            mismatches.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+            if (mismatches.size() > MAX_REPORTED) mismatches.subList(MAX_REPORTED, mismatches.size()).clear();
+        }
+
+        public boolean isClean() {
+            return mismatchCount == 0 && corruptRecords.isEmpty();
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Constructs a verifier.
+     * @param threads Number of worker threads
+     */
+    public ReplayVerifier(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Verifies every record of a spin journal.
+     * @param dir Journal directory
+     * @return Verification results
+     * @throws IOException If a segment cannot be read
+     */
+    public Results verifyJournal(Path dir) throws IOException {
+        SpinJournalReader reader = new SpinJournalReader(dir);
+        List<long[]> chunks = new ArrayList<>();
+        List<Path> chunkFiles = new ArrayList<>();
+        for (Path segment : reader.segments()) {
+            long first = SpinJournalReader.firstSequence(segment);
+            long capacity;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                capacity = channel.size() / SpinJournal.RECORD_SIZE;
+            }
+            for (long from = first; from < first + capacity; from += CHUNK_RECORDS) {
+                chunks.add(new long[] {from, from + CHUNK_RECORDS - 1});
+                chunkFiles.add(segment);
+            }
+        }
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Results>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                Checker checker = new Checker();
+                SpinJournalReader.Record record = new SpinJournalReader.Record();
+                int chunk;
+                while ((chunk = next.getAndIncrement()) < chunks.size()) {
+                    long[] range = chunks.get(chunk);
+                    reader.scanSegment(chunkFiles.get(chunk), range[0], range[1], r -> true, checker::add, record);
+                    checker.flush();
+                }
+                return checker.results;
+            });
+        }
+        Results results = merge(workers);
+        results.corruptRecords.addAll(reader.getCorruptSequences());
+        results.corruptRecords.sort(null);
+        return results;
+    }
+
+    /**
+     * Verifies a text file of recorded spins, one per line: {@code stop1,stop2,stop3,stop4,stop5,bet,payout}.
+     * Lines that do not start with a digit (headers, comments) are skipped; the sequence number of a spin is
+     * its line number.
+     * @param file Stops file
+     * @param machine Machine the spins were played on
+     * @return Verification results
+     * @throws IOException If the file cannot be read or a line is malformed
+     */
+    public Results verifyStops(Path file, ISlotMachine machine) throws IOException {
+        Results results = new Results();
+        int chunkSize = threads * BatchEvaluator.DEFAULT_CAPACITY * 16;
+        List<long[]> lines = new ArrayList<>(chunkSize);
+        Checker[] checkers = new Checker[threads];
+        for (int t = 0; t < threads; t++) checkers[t] = new Checker(machine);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) continue;
+                lines.add(parseStopsLine(line, lineNumber));
+                if (lines.size() == chunkSize) {
+                    results.merge(verifyLines(lines, checkers));
+                    lines.clear();
+                }
+            }
+        }
+        results.merge(verifyLines(lines, checkers));
+        return results;
+    }
+
+    private Results verifyLines(List<long[]> lines, Checker[] checkers) {
+        List<Callable<Results>> workers = new ArrayList<>();
+        int per = (lines.size() + threads - 1) / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = Math.min(lines.size(), t * per);
+            int to = Math.min(lines.size(), from + per);
+            Checker checker = checkers[t];
+            SpinJournalReader.Record record = new SpinJournalReader.Record();
+            workers.add(() -> {
+                checker.results = new Results();
+                for (long[] values : lines.subList(from, to)) {
+                    record.sequence = values[0];
+                    for (int r = 0; r < SlotMachineConfig.REELS; r++) record.stops[r] = (int) values[1 + r];
+                    record.bet = (int) values[6];
+                    record.payout = (int) values[7];
+                    record.scatterCount = -1;
+                    checker.add(record);
+                }
+                checker.flush();
+                return checker.results;
+            });
+        }
+        return merge(workers);
+    }
+
+    private static long[] parseStopsLine(String line, long lineNumber) throws IOException {
+        String[] parts = line.split(",");
+        if (parts.length < 7) {
+            throw new IOException("Line " + lineNumber + ": expected stop1..stop5,bet,payout");
+        }
+        long[] values = new long[8];
+        values[0] = lineNumber;
+        try {
+            for (int i = 0; i < 7; i++) values[i + 1] = Integer.parseInt(parts[i].trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+        }
+        return values;
+    }
+
+    private static Results merge(List<Callable<Results>> workers) {
+        Results total = new Results();
+        for (Results results : Simulator.runAll(workers)) {
+            total.merge(results);
+        }
+        return total;
+    }
+
+    /**
+     * Collects records into a batch and checks the batch's payouts. Evaluators are kept per machine
+     * fingerprint, since a journal may hold segments of different machines.
+     */
+    private static class Checker {
+        private final Map<Long, BatchEvaluator> evaluators = new HashMap<>();
+        private final Map<Long, SlotMachine> machines = new HashMap<>();
+        private final int[][] stops = new int[SlotMachineConfig.REELS][BatchEvaluator.DEFAULT_CAPACITY];
+        private final long[] sequences = new long[BatchEvaluator.DEFAULT_CAPACITY];
+        private final int[] bets = new int[BatchEvaluator.DEFAULT_CAPACITY];
+        private final int[] payouts = new int[BatchEvaluator.DEFAULT_CAPACITY];
+        private final int[] scatters = new int[BatchEvaluator.DEFAULT_CAPACITY];
+        private final SlotMachine fixedMachine;
+        private SpinJournal.SegmentHeader segment;
+        private Symbol[][] strips;
+        private long fingerprint;
+        private int size;
+        Results results = new Results();
+
+        Checker() {
+            this.fixedMachine = null;
+        }
+
+        Checker(ISlotMachine machine) {
+            // Evaluate on a copy rebuilt from the strips so the caller's machine is never touched
+            SpinJournal.SegmentHeader header = SpinJournal.SegmentHeader.of(machine);
+            this.fixedMachine = header.toMachine();
+            this.fingerprint = header.fingerprint;
+            this.strips = header.strips;
+        }
+
+        void add(SpinJournalReader.Record record) {
+            if (fixedMachine == null && record.segment != segment) {
+                flush();
+                segment = record.segment;
+                fingerprint = segment.fingerprint;
+                strips = segment.strips;
+            }
+            for (int r = 0; r < SlotMachineConfig.REELS; r++) {
+                if (record.stops[r] < 0 || record.stops[r] >= strips[r].length) {
+                    // A stop that does not exist on the strip can never have produced the recorded payout
+                    results.spins++;
+                    results.totalBet += record.bet;
+                    results.totalPaid += record.payout;
+                    results.mismatchCount++;
+                    if (results.mismatches.size() < MAX_REPORTED) {
+                        results.mismatches.add(new Mismatch(record.sequence, record.stops.clone(), record.bet,
+                                record.payout, -1, record.scatterCount, -1));
+                    }
+                    return;
+                }
+            }
+            for (int r = 0; r < SlotMachineConfig.REELS; r++) stops[r][size] = record.stops[r];
+            sequences[size] = record.sequence;
+            bets[size] = record.bet;
+            payouts[size] = record.payout;
+            scatters[size] = record.scatterCount;
+            if (++size == BatchEvaluator.DEFAULT_CAPACITY) flush();
+        }
+
+        void flush() {
+            if (size == 0) return;
+            SlotMachine machine = machines.computeIfAbsent(fingerprint,
+                    f -> fixedMachine != null ? fixedMachine : segment.toMachine());
+            BatchEvaluator evaluator = evaluators.computeIfAbsent(fingerprint, f -> new BatchEvaluator(machine));
+            evaluator.fillStops(stops, size);
+            evaluator.evaluate();
+            for (int i = 0; i < size; i++) {
+                results.spins++;
+                results.totalBet += bets[i];
+                results.totalPaid += payouts[i];
+                long expected = (long) evaluator.payout(i) * bets[i];
+                boolean scattersDiffer = scatters[i] >= 0 && scatters[i] != evaluator.scatterCount(i);
+                if (expected != payouts[i] || scattersDiffer) {
+                    results.mismatchCount++;
+                    if (results.mismatches.size() < MAX_REPORTED) {
+                        int[] spinStops = new int[SlotMachineConfig.REELS];
+                        for (int r = 0; r < spinStops.length; r++) spinStops[r] = stops[r][i];
+                        SpinResult replayed = machine.evaluate(machine.gridAt(spinStops), bets[i]);
+                        results.mismatches.add(new Mismatch(sequences[i], spinStops, bets[i], payouts[i],
+                                replayed.totalPayout, scatters[i], replayed.scatterCount));
+                    }
+                }
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.enigma.slotmachine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Derives independent random streams for simulation from a single run seed.
+ * <p>
+ * Every simulation batch gets its own stream, keyed by (seed, batch index), so results do not depend on
+ * how many threads or processes share the work, and any batch can be regenerated without replaying
+ * the ones before it.
+ */
+public final class RngStreams {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private RngStreams() {
+    }
+
+    /**
+     * SplitMix64 finaliser: a bijective 64-bit mixing function.
+     * @param z Input value
+     * @return Mixed value
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the stream seed for a given key under a run seed.
+     * @param seed Run seed
+     * @param key Batch index (or any other counter)
+     * @return Derived seed
+     */
+    public static long derive(long seed, long key) {
+        return mix64(seed + (key + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Returns the random stream for one simulation batch.
+     * @param seed Run seed
+     * @param batch Batch index
+     * @return Fresh generator for the batch
+     */
+    public static SplittableRandom forBatch(long seed, long batch) {
+        return new SplittableRandom(derive(seed, batch));
+    }
+
+    /**
+     * Draws an unbiased index in [0, bound) using Lemire's multiply-shift method, which avoids the integer
+     * division of {@link SplittableRandom#nextInt(int)} on almost every draw.
+     * @param random Random stream
+     * @param bound Exclusive upper bound (positive)
+     * @return Uniform index
+     */
+    public static int nextIndex(SplittableRandom random, int bound) {
+        long product = (random.nextInt() & 0xFFFFFFFFL) * bound;
+        long low = product & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                product = (random.nextInt() & 0xFFFFFFFFL) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+}
@@ -0,0 +1,349 @@
+package com.enigma.slotmachine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live RTP, hit rate and bonus frequency of a machine over rolling 1, 5 and 60 minute windows, with alerts
+ * when a window drifts statistically out of band from the machine's theoretical values.
+ * <p>
+ * Spins are added to a ring of time buckets (5 seconds wide by default) covering the longest window. Each
+ * bucket is a few cache lines of counters in an {@link AtomicLongArray}, striped by thread like the
+ * {@link JackpotPool} cells, so {@link #record(SpinResult, int)} is one volatile read and a handful of
+ * uncontended atomic adds whatever the load or window length. The ring is advanced by {@link #advance()},
+ * once per bucket from the monitor's own thread after {@link #start()}: it clears the bucket about to become
+ * current before publishing it, so recording never resets anything.
+ * <p>
+ * Every advance sums each window over its closed buckets and compares it with the {@link Baseline}. Under
+ * the baseline, the window's total payout, hits and bonus triggers are approximately normal, so each gets a
+ * z-score; a window with at least {@link #MIN_SPINS} spins whose |z| exceeds the alert threshold raises an
+ * {@link Alert} to the listeners, once when it leaves the band and once when it returns.
+ */
+public class RtpMonitor implements Closeable {
+    public static final long DEFAULT_BUCKET_MILLIS = 5_000;
+    public static final double DEFAULT_ALERT_Z = 4.0;
+    public static final int[] WINDOW_MINUTES = {1, 5, 60};
+    // Fewer spins than this and the normal approximation of a window is not trusted
+    public static final long MIN_SPINS = 1000;
+
+    private static final int SPINS = 0;
+    private static final int BET = 1;
+    private static final int BET_SQUARES = 2;
+    private static final int PAYOUT = 3;
+    private static final int HITS = 4;
+    private static final int BONUSES = 5;
+    // Longs per stripe of a bucket: one 64-byte cache line
+    private static final int FIELDS = 8;
+    private static final int MAX_STRIPES = 8;
+
+    /**
+     * Monitored metric of a window.
+     */
+    public enum Metric {
+        RTP, HIT_RATE, BONUS_FREQUENCY
+    }
+
+    private final Baseline baseline;
+    private final long bucketMillis;
+    private final double alertZ;
+    private final int buckets;
+    private final int stripes;
+    private final int[] windowBuckets;
+    private final AtomicLongArray cells;
+    private final List<IRtpAlertListener> listeners = new CopyOnWriteArrayList<>();
+    // Bucket spins are currently added to; written by advance only
+    private volatile int current;
+    // outOfBand[window][metric], touched by advance only
+    private final boolean[][] outOfBand;
+    private Thread ticker;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a monitor with 5-second buckets and alerts beyond 4 standard errors.
+     * @param baseline Theoretical values of the machine
+     */
+    public RtpMonitor(Baseline baseline) {
+        this(baseline, DEFAULT_BUCKET_MILLIS, DEFAULT_ALERT_Z);
+    }
+
+    /**
+     * Constructs a monitor.
+     * @param baseline Theoretical values of the machine
+     * @param bucketMillis Width of a time bucket; must divide one minute
+     * @param alertZ Alert threshold, in standard errors from the baseline
+     */
+    public RtpMonitor(Baseline baseline, long bucketMillis, double alertZ) {
+        if (bucketMillis <= 0 || 60_000 % bucketMillis != 0) {
+            throw new IllegalArgumentException("Bucket width must divide one minute: " + bucketMillis);
+        }
+        if (!(alertZ > 0)) {
+            throw new IllegalArgumentException("Alert threshold must be positive");
+        }
+        this.baseline = baseline;
+        this.bucketMillis = bucketMillis;
+        this.alertZ = alertZ;
+        this.windowBuckets = new int[WINDOW_MINUTES.length];
+        for (int w = 0; w < WINDOW_MINUTES.length; w++) {
+            windowBuckets[w] = (int) (WINDOW_MINUTES[w] * 60_000L / bucketMillis);
+        }
+        // The longest window plus the bucket being filled
+        this.buckets = windowBuckets[windowBuckets.length - 1] + 1;
+        this.stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+        this.cells = new AtomicLongArray(buckets * stripes * FIELDS);
+        this.outOfBand = new boolean[WINDOW_MINUTES.length][Metric.values().length];
+    }
+
+    public Baseline getBaseline() {
+        return baseline;
+    }
+
+    public void addListener(IRtpAlertListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Records one evaluated spin.
+     * @param result Spin result
+     * @param betAmount Bet of the spin
+     */
+    public void record(SpinResult result, int betAmount) {
+        int stripe = stripes == 1 ? 0 : (int) RngStreams.mix64(System.identityHashCode(Thread.currentThread())) & (stripes - 1);
+        int base = (current * stripes + stripe) * FIELDS;
+        cells.getAndIncrement(base + SPINS);
+        cells.getAndAdd(base + BET, betAmount);
+        cells.getAndAdd(base + BET_SQUARES, (long) betAmount * betAmount);
+        if (result.totalPayout > 0) {
+            cells.getAndAdd(base + PAYOUT, result.totalPayout);
+            cells.getAndIncrement(base + HITS);
+        }
+        if (result.scatterCount >= FreeSpinState.TRIGGER_SCATTERS) cells.getAndIncrement(base + BONUSES);
+    }
+
+    /**
+     * Closes the current bucket, starts the next one and evaluates every window, raising alerts. Called
+     * once per bucket by the monitor's thread; call it directly when driving the monitor from another clock.
+     * Not to be called concurrently with itself.
+     * @return Stats of every window, shortest first
+     */
+    public synchronized List<WindowStats> advance() {
+        int next = (current + 1) % buckets;
+        // The next bucket is the oldest one; nothing records into it until it is published
+        int from = next * stripes * FIELDS;
+        for (int i = 0; i < stripes * FIELDS; i++) cells.set(from + i, 0);
+        int closedBucket = current;
+        current = next;
+        List<WindowStats> windows = new ArrayList<>(WINDOW_MINUTES.length);
+        for (int w = 0; w < WINDOW_MINUTES.length; w++) {
+            WindowStats stats = sum(w, closedBucket);
+            windows.add(stats);
+            check(w, Metric.RTP, stats, stats.rtp, baseline.rtp, stats.rtpZ);
+            check(w, Metric.HIT_RATE, stats, stats.hitRate, baseline.hitRate, stats.hitRateZ);
+            check(w, Metric.BONUS_FREQUENCY, stats, stats.bonusFrequency, baseline.bonusFrequency, stats.bonusZ);
+        }
+        return windows;
+    }
+
+    /**
+     * Returns the stats of all windows over their closed buckets, without raising alerts.
+     * @return Stats of every window, shortest first
+     */
+    public synchronized List<WindowStats> windows() {
+        int lastClosed = (current + buckets - 1) % buckets;
+        List<WindowStats> windows = new ArrayList<>(WINDOW_MINUTES.length);
+        for (int w = 0; w < WINDOW_MINUTES.length; w++) windows.add(sum(w, lastClosed));
+        return windows;
+    }
+
+    private WindowStats sum(int window, int lastBucket) {
+        long[] totals = new long[FIELDS];
+        for (int b = 0; b < windowBuckets[window]; b++) {
+            int bucket = (lastBucket - b + buckets) % buckets;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                int base = (bucket * stripes + stripe) * FIELDS;
+                for (int f = 0; f < FIELDS; f++) totals[f] += cells.get(base + f);
+            }
+        }
+        return new WindowStats(WINDOW_MINUTES[window], totals, baseline);
+    }
+
+    private void check(int window, Metric metric, WindowStats stats, double observed, double expected, double z) {
+        boolean out = stats.spins >= MIN_SPINS && Math.abs(z) > alertZ;
+        if (out == outOfBand[window][metric.ordinal()]) return;
+        outOfBand[window][metric.ordinal()] = out;
+        Alert alert = new Alert(metric, stats.windowMinutes, out, observed, expected, z, stats.spins);
+        for (IRtpAlertListener listener : listeners) listener.onAlert(alert);
+    }
+
+    /**
+     * Returns whether a metric of a window is currently out of band.
+     * @param windowMinutes Window length, one of {@link #WINDOW_MINUTES}
+     * @param metric Metric
+     * @return True between the alert raising it and the one clearing it
+     */
+    public synchronized boolean isOutOfBand(int windowMinutes, Metric metric) {
+        for (int w = 0; w < WINDOW_MINUTES.length; w++) {
+            if (WINDOW_MINUTES[w] == windowMinutes) return outOfBand[w][metric.ordinal()];
+        }
+        throw new IllegalArgumentException("No " + windowMinutes + "-minute window");
+    }
+
+    /**
+     * Starts the daemon thread advancing the ring once per bucket.
+     */
+    public synchronized void start() {
+        if (ticker != null) return;
+        ticker = new Thread(this::tickLoop, "rtp-monitor");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private void tickLoop() {
+        long next = System.nanoTime() + bucketMillis * 1_000_000L;
+        while (!closed) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                continue;
+            }
+            advance();
+            next += bucketMillis * 1_000_000L;
+        }
+    }
+
+    /**
+     * Stops the monitor's thread; recording still works but windows no longer advance.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+        }
+        if (thread == null) return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Theoretical per-spin values of a machine at a bet of 1, which the windows are tested against.
+     * <p>
+     * A metric without spread, such as the bonus frequency of a machine without scatters, is not tested:
+     * its z-score stays 0 and it never raises an alert.
+     */
+    public static class Baseline {
+        public final double rtp;
+        // Variance of the payout of one spin
+        public final double payoutVariance;
+        public final double hitRate;
+        public final double bonusFrequency;
+
+        public Baseline(double rtp, double payoutVariance, double hitRate, double bonusFrequency) {
+            if (!(payoutVariance >= 0) || !(hitRate >= 0 && hitRate <= 1) || !(bonusFrequency >= 0 && bonusFrequency <= 1)) {
+                throw new IllegalArgumentException("Baseline needs a non-negative variance and rates between 0 and 1");
+            }
+            this.rtp = rtp;
+            this.payoutVariance = payoutVariance;
+            this.hitRate = hitRate;
+            this.bonusFrequency = bonusFrequency;
+        }
+
+        /**
+         * Takes the baseline from simulation statistics.
+         * @param stats Statistics of a long simulation at a bet of 1
+         * @return Baseline
+         */
+        public static Baseline of(SimulationStats stats) {
+            double bonus = stats.getSpins() == 0 ? 0.0 : (double) stats.getScatterTriggers() / stats.getSpins();
+            return new Baseline(stats.rtp(), stats.variance(), stats.hitRate(), bonus);
+        }
+
+        /**
+         * Simulates a machine's reels and paylines to get its baseline.
+         * @param machine Machine to simulate
+         * @param spins Spins to simulate (millions give a baseline far tighter than any window)
+         * @param seed Simulation seed
+         * @return Baseline
+         */
+        public static Baseline simulate(ISlotMachine machine, long spins, long seed) {
+            return of(new Simulator(machine, seed, 1).run(spins));
+        }
+    }
+
+    /**
+     * Totals of one rolling window and their z-scores against the baseline.
+     */
+    public static class WindowStats {
+        public final int windowMinutes;
+        public final long spins;
+        public final long totalBet;
+        public final long totalPayout;
+        public final double rtp;
+        public final double hitRate;
+        public final double bonusFrequency;
+        public final double rtpZ;
+        public final double hitRateZ;
+        public final double bonusZ;
+
+        WindowStats(int windowMinutes, long[] totals, Baseline baseline) {
+            this.windowMinutes = windowMinutes;
+            this.spins = totals[SPINS];
+            this.totalBet = totals[BET];
+            this.totalPayout = totals[PAYOUT];
+            this.rtp = totalBet == 0 ? 0.0 : (double) totalPayout / totalBet;
+            this.hitRate = spins == 0 ? 0.0 : (double) totals[HITS] / spins;
+            this.bonusFrequency = spins == 0 ? 0.0 : (double) totals[BONUSES] / spins;
+            // A spin at bet b pays b times a unit-bet payout, so the window payout has variance var * sum(b^2)
+            double payoutError = Math.sqrt(baseline.payoutVariance * totals[BET_SQUARES]);
+            this.rtpZ = payoutError == 0 ? 0.0 : (totalPayout - baseline.rtp * totalBet) / payoutError;
+            this.hitRateZ = binomialZ(totals[HITS], spins, baseline.hitRate);
+            this.bonusZ = binomialZ(totals[BONUSES], spins, baseline.bonusFrequency);
+        }
+
+        private static double binomialZ(long count, long trials, double p) {
+            double spread = trials * p * (1 - p);
+            return spread == 0 ? 0.0 : (count - trials * p) / Math.sqrt(spread);
+        }
+    }
+
+    /**
+     * A window's metric leaving or returning to its band.
+     */
+    public static class Alert {
+        public final Metric metric;
+        public final int windowMinutes;
+        // True when the metric left the band, false when it returned
+        public final boolean outOfBand;
+        public final double observed;
+        public final double expected;
+        public final double z;
+        public final long spins;
+
+        Alert(Metric metric, int windowMinutes, boolean outOfBand, double observed, double expected, double z, long spins) {
+            this.metric = metric;
+            this.windowMinutes = windowMinutes;
+            this.outOfBand = outOfBand;
+            this.observed = observed;
+            this.expected = expected;
+            this.z = z;
+            this.spins = spins;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT, "%s %d-minute %s: %.4f vs %.4f expected (z %.1f over %d spins)",
+                    outOfBand ? "ALERT" : "CLEARED", windowMinutes, metric, observed, expected, z, spins);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.enigma.slotmachine;
+
+/**
+ * Plain scalar payline evaluator; the reference implementation and the fallback when SIMD is unavailable.
+ */
+public class ScalarPaylineEvaluator implements PaylineEvaluator {
+    private static final int REELS = 5;
+    private static final int SCATTER = Symbol.SCATTER.ordinal();
+
+    private final int[][] lineCells;
+
+    /**
+     * @param paylines Row index per reel for each payline
+     */
+    public ScalarPaylineEvaluator(int[][] paylines) {
+        this.lineCells = toCellIndices(paylines);
+    }
+
+    /**
+     * Converts paylines (row per reel) into cell indices (row * 5 + col).
+     * @param paylines Row index per reel for each payline
+     * @return Cell index per reel for each payline
+     */
+    static int[][] toCellIndices(int[][] paylines) {
+        int[][] cells = new int[paylines.length][REELS];
+        for (int i = 0; i < paylines.length; i++) {
+            for (int col = 0; col < REELS; col++) {
+                cells[i][col] = paylines[i][col] * REELS + col;
+            }
+        }
+        return cells;
+    }
+
+    public void evaluateGrid(int[] cells, int[] matchCounts, int[] symbols) {
+        for (int i = 0; i < lineCells.length; i++) {
+            int[] line = lineCells[i];
+            int first = cells[line[0]];
+            symbols[i] = first;
+            int match = 0;
+            if (first != SCATTER) {
+                match = 1;
+                while (match < REELS && cells[line[match]] == first) match++;
+            }
+            matchCounts[i] = match >= 3 ? match : 0;
+        }
+    }
+
+    public void evaluateBatch(int[][] cellColumns, int count, int line, int[] matchCounts) {
+        int[] c0 = cellColumns[lineCells[line][0]];
+        int[] c1 = cellColumns[lineCells[line][1]];
+        int[] c2 = cellColumns[lineCells[line][2]];
+        int[] c3 = cellColumns[lineCells[line][3]];
+        int[] c4 = cellColumns[lineCells[line][4]];
+        for (int g = 0; g < count; g++) {
+            int first = c0[g];
+            // Branch-free prefix count: each reel only counts while all previous reels matched
+            int m2 = (first != SCATTER && c1[g] == first && c2[g] == first) ? 1 : 0;
+            int m3 = m2 & (c3[g] == first ? 1 : 0);
+            int m4 = m3 & (c4[g] == first ? 1 : 0);
+            matchCounts[g] = m2 * 3 + m3 + m4;
+        }
+    }
+
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,144 @@
+package com.enigma.slotmachine;
+
+/**
+ * Counter-based random source of a player session: the stops of every spin are a pure function of the
+ * session seed and the spin's ordinal.
+ * <p>
+ * Unlike the {@link java.util.Random} inside a {@link Reel}, nothing is carried from one spin to the next
+ * but the ordinal, so the whole state is two longs. A {@link Snapshot} is taken and restored in constant
+ * time, {@link #seek(long)} jumps to any spin without drawing the ones before it, and
+ * {@link #stopsAt(long, long, IReel[])} regenerates a past spin from the seed and ordinal alone. An audit
+ * log therefore only needs a session's seed and its bets to reproduce every grid the player saw.
+ * <p>
+ * Each reel's stop index is drawn with Lemire's multiply-shift method from 32-bit words of a SplitMix64
+ * hash keyed by (seed, ordinal, reel), derived like the batch streams of {@link RngStreams}. Not thread-safe;
+ * like the session it belongs to, it is meant to be used by one thread at a time.
+ */
+public final class SessionRng {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private long ordinal;
+
+    /**
+     * Constructs a source positioned on the first spin of a session.
+     * @param seed Session seed
+     */
+    public SessionRng(long seed) {
+        this(seed, 0);
+    }
+
+    /**
+     * Constructs a source positioned on a given spin of a session.
+     * @param seed Session seed
+     * @param ordinal Ordinal of the next spin drawn
+     */
+    public SessionRng(long seed, long ordinal) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Spin ordinal must not be negative: " + ordinal);
+        }
+        this.seed = seed;
+        this.ordinal = ordinal;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the ordinal of the next spin drawn, which is also the number of spins drawn since ordinal 0.
+     * @return Next spin ordinal
+     */
+    public long getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Positions the source on any spin of the session, in constant time.
+     * @param ordinal Ordinal of the next spin drawn
+     */
+    public void seek(long ordinal) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Spin ordinal must not be negative: " + ordinal);
+        }
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Draws the stops of the next spin and moves on to the following one.
+     * @param reels Reels of the machine
+     * @return Stop position per reel
+     */
+    public int[] nextStops(IReel[] reels) {
+        return stopsAt(seed, ordinal++, reels);
+    }
+
+    /**
+     * Returns the current position of the source.
+     * @return Snapshot to hand back to {@link #restore(Snapshot)}
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(seed, ordinal);
+    }
+
+    /**
+     * Moves the source back (or forward) to a snapshot taken from this session.
+     * @param snapshot Snapshot of this source
+     */
+    public void restore(Snapshot snapshot) {
+        if (snapshot.seed != seed) {
+            throw new IllegalArgumentException("Snapshot belongs to another session");
+        }
+        this.ordinal = snapshot.ordinal;
+    }
+
+    /**
+     * Regenerates the stops of any spin of a session.
+     * @param seed Session seed
+     * @param ordinal Spin ordinal
+     * @param reels Reels of the machine the session plays
+     * @return Stop position per reel
+     */
+    public static int[] stopsAt(long seed, long ordinal, IReel[] reels) {
+        long spinKey = RngStreams.derive(seed, ordinal);
+        int[] stops = new int[reels.length];
+        for (int reel = 0; reel < reels.length; reel++) {
+            IReel r = reels[reel];
+            stops[reel] = r.stopAt(index(RngStreams.derive(spinKey, reel), r.stopCount()));
+        }
+        return stops;
+    }
+
+    // Lemire's multiply-shift on the words mix64(key + k * gamma), k = 1, 2, ...; a rejected word moves to the next k
+    private static int index(long key, int bound) {
+        long word = key;
+        long product = (RngStreams.mix64(word += GOLDEN_GAMMA) >>> 32) * bound;
+        long low = product & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                product = (RngStreams.mix64(word += GOLDEN_GAMMA) >>> 32) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * Immutable position of a {@link SessionRng}: its seed and the ordinal of its next spin.
+     */
+    public static final class Snapshot {
+        public final long seed;
+        public final long ordinal;
+
+        public Snapshot(long seed, long ordinal) {
+            this.seed = seed;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public String toString() {
+            return "seed " + seed + " at spin " + ordinal;
+        }
+    }
+}
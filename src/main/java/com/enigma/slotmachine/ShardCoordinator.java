@@ -0,0 +1,367 @@
+package com.enigma.slotmachine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Splits a simulation run across several worker JVMs and merges their results.
+ * <p>
+ * The batches of a run (see {@link Simulator}) are divided into contiguous shards. Each shard runs in its
+ * own process ({@code --mode worker}), draws only from its own batches' random streams and writes its
+ * statistics to a small binary shard file. Because shard statistics are exact integer sums, the merged
+ * result is identical to running the whole run in one process. Shard files are written atomically, end in
+ * a CRC32C of everything before it and are checked against the run (seed, spin count, batch range and
+ * machine fingerprint) before merging; a shard whose process fails or outlives the worker timeout, or whose
+ * file is missing, corrupt or invalid, is re-run. Valid shard files already in the work
+ * directory are reused, so shards can also be produced by workers on other hosts sharing the directory.
+ */
+public class ShardCoordinator {
+    private static final int MAGIC = 0x534D5348; // "SMSH"
+    private static final int VERSION = 2;
+    /** Default limit on one launch of the workers, after which unfinished ones are killed and re-run. */
+    static final long DEFAULT_WORKER_TIMEOUT_SECONDS = 3600;
+
+    private final String configPath;
+    private final long seed;
+    private final long spins;
+    private final int shards;
+    private final int threadsPerShard;
+    private final Path workDir;
+    private final int attempts;
+    private final long workerTimeoutSeconds;
+
+    /**
+     * Constructs a coordinator.
+     * @param configPath Properties file every worker loads
+     * @param seed Run seed
+     * @param spins Total number of spins
+     * @param shards Number of shards (worker processes)
+     * @param threadsPerShard Worker threads inside each process
+     * @param workDir Directory for shard files and worker logs
+     * @param attempts Maximum launches per shard
+     */
+    public ShardCoordinator(String configPath, long seed, long spins, int shards, int threadsPerShard,
+            Path workDir, int attempts) {
+        this(configPath, seed, spins, shards, threadsPerShard, workDir, attempts, DEFAULT_WORKER_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Constructs a coordinator with a limit on how long the workers of one attempt may run.
+     * @param configPath Properties file every worker loads
+     * @param seed Run seed
+     * @param spins Total number of spins
+     * @param shards Number of shards (worker processes)
+     * @param threadsPerShard Worker threads inside each process
+     * @param workDir Directory for shard files and worker logs
+     * @param attempts Maximum launches per shard
+     * @param workerTimeoutSeconds Seconds the workers of one attempt may run before they are killed
+     */
+    public ShardCoordinator(String configPath, long seed, long spins, int shards, int threadsPerShard,
+            Path workDir, int attempts, long workerTimeoutSeconds) {
+        if (shards < 1 || threadsPerShard < 1 || attempts < 1) {
+            throw new IllegalArgumentException("Shards, threads per shard and attempts must be at least 1");
+        }
+        if (workerTimeoutSeconds < 1) {
+            throw new IllegalArgumentException("Worker timeout must be at least 1 second");
+        }
+        if (spins < 0) {
+            throw new IllegalArgumentException("Invalid spin count: " + spins);
+        }
+        this.configPath = configPath;
+        this.seed = seed;
+        this.spins = spins;
+        this.shards = shards;
+        this.threadsPerShard = threadsPerShard;
+        this.workDir = workDir;
+        this.attempts = attempts;
+        this.workerTimeoutSeconds = workerTimeoutSeconds;
+    }
+
+    /**
+     * Runs all shards, re-running failed ones, and merges their statistics.
+     * @return Merged statistics of the whole run
+     * @throws IOException If a shard still fails after the allowed attempts
+     */
+    public SimulationStats run() throws IOException {
+        Files.createDirectories(workDir);
+        long fingerprint = fingerprint(SlotMachineConfig.load(configPath).createMachine(0, new Random(seed)));
+        long batches = (spins + Simulator.BATCH_SIZE - 1) / Simulator.BATCH_SIZE;
+        SimulationStats[] results = new SimulationStats[shards];
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            List<Integer> launched = new ArrayList<>();
+            List<Process> processes = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                if (results[shard] != null) continue;
+                results[shard] = readValid(shard, batches, fingerprint);
+                if (results[shard] != null) continue;
+                processes.add(launch(shard, batches));
+                launched.add(shard);
+            }
+            if (launched.isEmpty()) break;
+            // The workers run side by side, so they share one deadline
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(workerTimeoutSeconds);
+            for (int i = 0; i < processes.size(); i++) {
+                int shard = launched.get(i);
+                Process process = processes.get(i);
+                if (!waitFor(process, deadline)) {
+                    System.err.printf("Shard %d timed out after %d s (attempt %d of %d), see %s%n",
+                            shard, workerTimeoutSeconds, attempt, attempts, logFile(shard));
+                    continue;
+                }
+                if (process.exitValue() == 0) {
+                    results[shard] = readValid(shard, batches, fingerprint);
+                }
+                if (results[shard] == null) {
+                    System.err.printf("Shard %d failed (exit code %d, attempt %d of %d), see %s%n",
+                            shard, process.exitValue(), attempt, attempts, logFile(shard));
+                }
+            }
+        }
+        SimulationStats total = new SimulationStats();
+        for (int shard = 0; shard < shards; shard++) {
+            if (results[shard] == null) {
+                throw new IOException("Shard " + shard + " failed after " + attempts + " attempts, see " + logFile(shard));
+            }
+            total.merge(results[shard]);
+        }
+        return total;
+    }
+
+    private Process launch(int shard, long batches) throws IOException {
+        Files.deleteIfExists(shardFile(shard));
+        long[] range = shardRange(batches, shards, shard);
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(workerJvmArgs(ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("--mode=worker");
+        command.add("--config=" + configPath);
+        command.add("--seed=" + seed);
+        command.add("--spins=" + spins);
+        command.add("--from-batch=" + range[0]);
+        command.add("--to-batch=" + range[1]);
+        command.add("--threads=" + threadsPerShard);
+        command.add("--out=" + shardFile(shard));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile(shard).toFile())
+                .start();
+    }
+
+    /**
+     * Picks the flags of this JVM that workers inherit: modules (e.g. {@code --add-modules jdk.incubator.vector})
+     * and heap and stack sizes. Anything else, such as a debugger agent, a Java agent or a flight recording,
+     * stays with the coordinator.
+     * @param inputArguments Flags of this JVM
+     * @return Flags to start a worker with
+     */
+    static List<String> workerJvmArgs(List<String> inputArguments) {
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < inputArguments.size(); i++) {
+            String arg = inputArguments.get(i);
+            if (arg.equals("--add-modules") && i + 1 < inputArguments.size()) {
+                args.add(arg);
+                args.add(inputArguments.get(++i));
+            } else if (arg.startsWith("--add-modules=") || arg.equals("--enable-preview")
+                    || arg.startsWith("-Xmx") || arg.startsWith("-Xms") || arg.startsWith("-Xss")
+                    || arg.startsWith("-XX:MaxRAMPercentage=")) {
+                args.add(arg);
+            }
+        }
+        return args;
+    }
+
+    // Returns false, after killing the worker, if it is still running at the deadline
+    private static boolean waitFor(Process process, long deadline) throws IOException {
+        try {
+            if (process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            process.destroyForcibly().waitFor();
+            return false;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a worker", e);
+        }
+    }
+
+    private SimulationStats readValid(int shard, long batches, long fingerprint) {
+        Path file = shardFile(shard);
+        if (!Files.isRegularFile(file)) return null;
+        long[] range = shardRange(batches, shards, shard);
+        try {
+            ShardHeader header = new ShardHeader();
+            SimulationStats stats = readShard(file, header);
+            if (header.seed != seed || header.spins != spins || header.fromBatch != range[0]
+                    || header.toBatch != range[1] || header.fingerprint != fingerprint) {
+                System.err.println("Ignoring " + file + ": it belongs to a different run");
+                return null;
+            }
+            return stats;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Path shardFile(int shard) {
+        return workDir.resolve("shard-" + shard + ".bin");
+    }
+
+    private Path logFile(int shard) {
+        return workDir.resolve("shard-" + shard + ".log");
+    }
+
+    /**
+     * Returns the batch range of a shard; ranges are contiguous, disjoint and cover all batches.
+     * @param batches Total number of batches
+     * @param shards Number of shards
+     * @param shard Shard index
+     * @return {first batch (inclusive), last batch (exclusive)}
+     */
+    static long[] shardRange(long batches, int shards, int shard) {
+        return new long[] {batches * shard / shards, batches * (shard + 1) / shards};
+    }
+
+    /**
+     * Identifies the simulated machine by its reel strips, paylines and payout mode, so that shard files
+     * from a different configuration are never merged.
+     * @param machine Machine
+     * @return 64-bit fingerprint
+     */
+    static long fingerprint(ISlotMachine machine) {
+        long h = machine.isPayAllWins() ? 1 : 2;
+        for (IReel reel : machine.getReels()) {
+            h = RngStreams.mix64(h + 3);
+            for (Symbol symbol : reel.getFullStrip()) h = RngStreams.mix64(h + symbol.ordinal());
+        }
+        for (int[] line : machine.getPaylines()) {
+            h = RngStreams.mix64(h + 5);
+            for (int row : line) h = RngStreams.mix64(h + row);
+        }
+        return h;
+    }
+
+    /**
+     * Header fields of a shard file.
+     */
+    static class ShardHeader {
+        long seed;
+        long spins;
+        long fromBatch;
+        long toBatch;
+        long fingerprint;
+    }
+
+    /**
+     * Writes a shard file atomically and durably: to a temporary file that is forced to disk, then moved
+     * into place and the directory forced, so a crash never leaves a torn file under the shard's name.
+     * @param file Destination
+     * @param header Run and range the statistics belong to
+     * @param stats Shard statistics
+     * @throws IOException If writing fails
+     */
+    static void writeShard(Path file, ShardHeader header, SimulationStats stats) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                CheckedOutputStream checked = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32C());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+                out.writeLong(header.seed);
+                out.writeLong(header.spins);
+                out.writeLong(header.fromBatch);
+                out.writeLong(header.toBatch);
+                out.writeLong(header.fingerprint);
+                stats.writeTo(out);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            DirectorySync.force(dir);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads a shard file written by {@link #writeShard}.
+     * @param file Shard file
+     * @param header Output: header fields
+     * @return Shard statistics
+     * @throws IOException If the file cannot be read, is not a shard file or fails its checksum
+     */
+    static SimulationStats readShard(Path file, ShardHeader header) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), new CRC32C());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a shard file (version " + VERSION + ")");
+            }
+            header.seed = in.readLong();
+            header.spins = in.readLong();
+            header.fromBatch = in.readLong();
+            header.toBatch = in.readLong();
+            header.fingerprint = in.readLong();
+            SimulationStats stats = SimulationStats.readFrom(in);
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("checksum mismatch");
+            }
+            if (in.read() != -1) {
+                throw new IOException("trailing data");
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Runs one shard in this process and writes its shard file; the entry point of {@code --mode worker}.
+     * @param config Loaded configuration
+     * @param seed Run seed
+     * @param spins Spin count of the whole run
+     * @param fromBatch First batch (inclusive)
+     * @param toBatch Last batch (exclusive)
+     * @param threads Worker threads
+     * @param file Shard file to write
+     * @return Shard statistics
+     * @throws IOException If the shard file cannot be written
+     */
+    static SimulationStats runWorker(SlotMachineConfig config, long seed, long spins, long fromBatch, long toBatch,
+            int threads, Path file) throws IOException {
+        SlotMachine machine = config.createMachine(0, new Random(seed));
+        SimulationStats stats = new Simulator(machine, seed, threads).runBatches(fromBatch, toBatch, spins, null);
+        ShardHeader header = new ShardHeader();
+        header.seed = seed;
+        header.spins = spins;
+        header.fromBatch = fromBatch;
+        header.toBatch = toBatch;
+        header.fingerprint = fingerprint(machine);
+        writeShard(file, header, stats);
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package com.enigma.slotmachine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live progress and cancellation flag for a running simulation.
+ * <p>
+ * Workers add their totals once per batch through striped {@link LongAdder} counters, so any thread can
+ * poll spins/sec, running RTP and ETA without locking or slowing the workers down.
+ */
+public class SimulationProgress {
+    private final long targetSpins;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder spins = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a progress tracker.
+     * @param targetSpins Total number of spins the run is expected to perform
+     */
+    public SimulationProgress(long targetSpins) {
+        this.targetSpins = targetSpins;
+    }
+
+    void add(long batchSpins, long batchWon) {
+        spins.add(batchSpins);
+        won.add(batchWon);
+    }
+
+    /**
+     * Requests the run to stop after the batches currently in flight.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getTargetSpins() {
+        return targetSpins;
+    }
+
+    public long getSpins() {
+        return spins.sum();
+    }
+
+    /**
+     * Returns the wall-clock time since the run started.
+     * @return Elapsed seconds
+     */
+    public double elapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * Returns the average throughput since the run started.
+     * @return Spins per second
+     */
+    public double spinsPerSecond() {
+        double elapsed = elapsedSeconds();
+        return elapsed > 0 ? getSpins() / elapsed : 0.0;
+    }
+
+    /**
+     * Returns the RTP over the spins completed so far (at a bet of 1).
+     * @return Running RTP as a fraction of the amount bet
+     */
+    public double runningRtp() {
+        long done = getSpins();
+        return done == 0 ? 0.0 : (double) won.sum() / done;
+    }
+
+    /**
+     * Returns the estimated time to completion at the current throughput.
+     * @return Remaining seconds, or -1 if unknown
+     */
+    public double etaSeconds() {
+        double rate = spinsPerSecond();
+        if (rate <= 0) return -1;
+        return Math.max(0, targetSpins - getSpins()) / rate;
+    }
+}
@@ -0,0 +1,145 @@
+package com.enigma.slotmachine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Machine-readable summary of a simulation run, written as JSON or CSV.
+ * <p>
+ * Values are kept in insertion order so that CSV columns are stable across runs of the same mode.
+ */
+public class SimulationReport {
+    /**
+     * Supported output formats.
+     */
+    public enum Format {
+        JSON, CSV
+    }
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Adds a value to the report. Numbers and booleans are written unquoted, everything else as a string.
+     * @param key Field name
+     * @param value Field value
+     * @return This report
+     */
+    public SimulationReport put(String key, Object value) {
+        values.put(key, value);
+        return this;
+    }
+
+    /**
+     * Adds the standard RTP fields for a set of statistics.
+     * @param stats Simulation statistics
+     * @param elapsedNanos Wall-clock time of the run
+     * @return This report
+     */
+    public SimulationReport putStats(SimulationStats stats, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        put("spins", stats.getSpins());
+        put("totalWon", stats.getTotalWon());
+        put("lineWon", stats.getLineWon());
+        put("scatterWon", stats.getScatterWon());
+        put("rtp", stats.rtp());
+        put("rtpHalfWidth95", stats.rtpHalfWidth(1.959964));
+        put("rtpHalfWidth99", stats.rtpHalfWidth(2.575829));
+        put("hitRate", stats.hitRate());
+        put("stdDev", Math.sqrt(stats.variance()));
+        put("scatterTriggers", stats.getScatterTriggers());
+        put("biggestWin", stats.getBiggestWin());
+        put("elapsedSeconds", seconds);
+        put("spinsPerSecond", seconds > 0 ? stats.getSpins() / seconds : 0.0);
+        return this;
+    }
+
+    /**
+     * Writes the report in the given format.
+     * @param out Destination writer (not closed)
+     * @param format Output format
+     * @throws IOException If writing fails
+     */
+    public void write(Writer out, Format format) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(out);
+        } else {
+            writeJson(out);
+        }
+        out.flush();
+    }
+
+    private void writeJson(Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("\n  ");
+            out.write(quoteJson(entry.getKey()));
+            out.write(": ");
+            Object value = entry.getValue();
+            out.write(isBare(value) ? formatValue(value) : quoteJson(String.valueOf(value)));
+        }
+        out.write("\n}\n");
+    }
+
+    private void writeCsv(Writer out) throws IOException {
+        StringBuilder header = new StringBuilder();
+        StringBuilder row = new StringBuilder();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (header.length() > 0) {
+                header.append(',');
+                row.append(',');
+            }
+            header.append(quoteCsv(entry.getKey()));
+            Object value = entry.getValue();
+            row.append(isBare(value) ? formatValue(value) : quoteCsv(String.valueOf(value)));
+        }
+        out.write(header.append('\n').toString());
+        out.write(row.append('\n').toString());
+    }
+
+    private static boolean isBare(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return !Double.isNaN(d) && !Double.isInfinite(d);
+        }
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    private static String formatValue(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return String.format(Locale.ROOT, "%.8g", ((Number) value).doubleValue());
+        }
+        return String.valueOf(value);
+    }
+
+    private static String quoteJson(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String quoteCsv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
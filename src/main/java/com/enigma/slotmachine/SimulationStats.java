@@ -0,0 +1,191 @@
+package com.enigma.slotmachine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mergeable statistics for a simulation run.
+ * <p>
+ * All totals are kept as exact integers (payouts are evaluated at a bet of 1), so partial results from
+ * different threads, batches or processes can be merged in any order and give identical totals.
+ */
+public class SimulationStats {
+    long spins;
+    long totalWon;
+    long sumSquares;
+    long hits;
+    long lineWon;
+    long scatterWon;
+    long scatterTriggers;
+    long biggestWin;
+
+    /**
+     * Records one spin evaluated at a bet of 1.
+     * @param payout Total payout of the spin
+     * @param scatterPayout Scatter part of the payout
+     * @param scatterCount Number of scatters on the grid
+     */
+    public void record(int payout, int scatterPayout, int scatterCount) {
+        spins++;
+        totalWon += payout;
+        sumSquares += (long) payout * payout;
+        if (payout > 0) hits++;
+        lineWon += payout - scatterPayout;
+        scatterWon += scatterPayout;
+        if (scatterCount >= 3) scatterTriggers++;
+        if (payout > biggestWin) biggestWin = payout;
+    }
+
+    /**
+     * Adds another set of statistics into this one.
+     * @param other Statistics to merge
+     */
+    public void merge(SimulationStats other) {
+        spins += other.spins;
+        totalWon += other.totalWon;
+        sumSquares += other.sumSquares;
+        hits += other.hits;
+        lineWon += other.lineWon;
+        scatterWon += other.scatterWon;
+        scatterTriggers += other.scatterTriggers;
+        biggestWin = Math.max(biggestWin, other.biggestWin);
+    }
+
+    /**
+     * Writes the totals in a compact binary form (eight longs).
+     * @param out Destination
+     * @throws IOException If writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(spins);
+        out.writeLong(totalWon);
+        out.writeLong(sumSquares);
+        out.writeLong(hits);
+        out.writeLong(lineWon);
+        out.writeLong(scatterWon);
+        out.writeLong(scatterTriggers);
+        out.writeLong(biggestWin);
+    }
+
+    /**
+     * Reads totals written by {@link #writeTo(DataOutput)}.
+     * @param in Source
+     * @return Statistics read
+     * @throws IOException If reading fails
+     */
+    public static SimulationStats readFrom(DataInput in) throws IOException {
+        SimulationStats stats = new SimulationStats();
+        stats.spins = in.readLong();
+        stats.totalWon = in.readLong();
+        stats.sumSquares = in.readLong();
+        stats.hits = in.readLong();
+        stats.lineWon = in.readLong();
+        stats.scatterWon = in.readLong();
+        stats.scatterTriggers = in.readLong();
+        stats.biggestWin = in.readLong();
+        return stats;
+    }
+
+    public long getSpins() {
+        return spins;
+    }
+
+    public long getTotalWon() {
+        return totalWon;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getLineWon() {
+        return lineWon;
+    }
+
+    public long getScatterWon() {
+        return scatterWon;
+    }
+
+    public long getScatterTriggers() {
+        return scatterTriggers;
+    }
+
+    public long getBiggestWin() {
+        return biggestWin;
+    }
+
+    /**
+     * Returns the return to player as a fraction of the amount bet.
+     * @return RTP (e.g. 0.95 for 95%), or 0 if no spins were recorded
+     */
+    public double rtp() {
+        return spins == 0 ? 0.0 : (double) totalWon / spins;
+    }
+
+    /**
+     * Returns the fraction of spins with a non-zero payout.
+     * @return Hit rate
+     */
+    public double hitRate() {
+        return spins == 0 ? 0.0 : (double) hits / spins;
+    }
+
+    /**
+     * Returns the sample variance of the per-spin payout (at a bet of 1).
+     * @return Payout variance
+     */
+    public double variance() {
+        if (spins < 2) return 0.0;
+        double mean = rtp();
+        return Math.max(0.0, ((double) sumSquares - spins * mean * mean) / (spins - 1));
+    }
+
+    /**
+     * Returns the standard error of the RTP estimate.
+     * @return Standard error
+     */
+    public double rtpStdError() {
+        return spins == 0 ? 0.0 : Math.sqrt(variance() / spins);
+    }
+
+    /**
+     * Returns the half-width of the RTP confidence interval.
+     * @param z Normal quantile for the confidence level (e.g. 1.96 for 95%)
+     * @return Half-width as a fraction of the amount bet
+     */
+    public double rtpHalfWidth(double z) {
+        return z * rtpStdError();
+    }
+
+    /**
+     * Returns the two-sided normal quantile for a confidence level (e.g. 1.96 for 0.95), using Acklam's
+     * rational approximation (relative error below 1.2e-9).
+     * @param confidence Confidence level in (0, 1)
+     * @return Normal quantile z
+     */
+    public static double zForConfidence(double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        double p = 1 - (1 - confidence) / 2;
+        double q = Math.min(p, 1 - p);
+        double z;
+        if (q < 0.02425) {
+            double t = Math.sqrt(-2 * Math.log(q));
+            z = (((((-7.784894002430293e-03 * t - 3.223964580411365e-01) * t - 2.400758277161838e+00) * t
+                    - 2.549732539343734e+00) * t + 4.374664141464968e+00) * t + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * t + 3.224671290700398e-01) * t + 2.445134137142996e+00) * t
+                    + 3.754408661907416e+00) * t + 1);
+            z = -z;
+        } else {
+            double t = q - 0.5;
+            double r = t * t;
+            z = -(((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                    + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * t
+                    / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                    + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+        }
+        return z;
+    }
+}
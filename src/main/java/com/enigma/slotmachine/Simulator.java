@@ -0,0 +1,168 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded base-game simulator.
+ * <p>
+ * Spins are split into fixed-size batches. Each batch draws its reel stops from its own random stream
+ * (see {@link RngStreams}), and worker threads claim batches from a shared counter, so a run is fully
+ * determined by its seed and spin count regardless of the thread count. Each worker evaluates its batches
+ * with its own {@link BatchEvaluator}; payouts are at a bet of 1 and the machine's balance is never touched.
+ * An optional {@link IOutcomeSink} sees every evaluated batch, e.g. to record per-spin outcomes.
+ */
+public class Simulator {
+    public static final int BATCH_SIZE = 4096;
+
+    private final ISlotMachine machine;
+    private final long seed;
+    private final int threads;
+    private final IOutcomeSink sink;
+
+    /**
+     * Constructs a simulator for a machine.
+     * @param machine Machine whose reels and paylines are simulated
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     */
+    public Simulator(ISlotMachine machine, long seed, int threads) {
+        this(machine, seed, threads, null);
+    }
+
+    /**
+     * Constructs a simulator that passes every evaluated batch to a sink.
+     * @param machine Machine whose reels and paylines are simulated
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     * @param sink Receiver of evaluated batches (may be null)
+     */
+    public Simulator(ISlotMachine machine, long seed, int threads, IOutcomeSink sink) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.machine = machine;
+        this.seed = seed;
+        this.threads = threads;
+        this.sink = sink;
+    }
+
+    /**
+     * Runs the given number of spins and returns the merged statistics.
+     * @param spins Number of spins to simulate
+     * @return Merged statistics
+     */
+    public SimulationStats run(long spins) {
+        return run(spins, null);
+    }
+
+    /**
+     * Runs the given number of spins, publishing progress after every batch. If the progress is cancelled,
+     * workers stop after their current batch and the statistics of all completed batches are returned.
+     * @param spins Number of spins to simulate
+     * @param progress Progress tracker and cancellation flag (may be null)
+     * @return Merged statistics of the completed batches
+     */
+    public SimulationStats run(long spins, SimulationProgress progress) {
+        return runBatches(0, (spins + BATCH_SIZE - 1) / BATCH_SIZE, spins, progress);
+    }
+
+    /**
+     * Runs a contiguous range of the batches of a run. Disjoint ranges of the same run (same seed and spin
+     * count) merge into exactly the statistics of the whole run, which is how runs are split across processes.
+     * @param fromBatch First batch index (inclusive)
+     * @param toBatch Last batch index (exclusive)
+     * @param spins Spin count of the whole run (the last batch of the run may be partial)
+     * @param progress Progress tracker and cancellation flag (may be null)
+     * @return Merged statistics of the completed batches
+     */
+    public SimulationStats runBatches(long fromBatch, long toBatch, long spins, SimulationProgress progress) {
+        long batches = Math.min(toBatch, (spins + BATCH_SIZE - 1) / BATCH_SIZE);
+        AtomicLong nextBatch = new AtomicLong(fromBatch);
+        List<Callable<SimulationStats>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                SimulationStats local = new SimulationStats();
+                BatchEvaluator evaluator = new BatchEvaluator(machine, BATCH_SIZE);
+                long batch;
+                while ((progress == null || !progress.isCancelled())
+                        && (batch = nextBatch.getAndIncrement()) < batches) {
+                    long first = batch * BATCH_SIZE;
+                    long spinsBefore = local.spins;
+                    long wonBefore = local.totalWon;
+                    runBatch(evaluator, batch, (int) Math.min(BATCH_SIZE, spins - first), local);
+                    if (progress != null) {
+                        progress.add(local.spins - spinsBefore, local.totalWon - wonBefore);
+                    }
+                }
+                return local;
+            });
+        }
+        return runWorkers(workers);
+    }
+
+    private SimulationStats runWorkers(List<Callable<SimulationStats>> workers) {
+        SimulationStats total = new SimulationStats();
+        for (SimulationStats stats : runAll(workers)) {
+            total.merge(stats);
+        }
+        return total;
+    }
+
+    /**
+     * Runs worker tasks on a pool of one thread per task (or inline for a single task) and returns their
+     * results in task order. Shared by all simulators.
+     * @param workers Tasks to run
+     * @param <T> Result type
+     * @return Results in task order
+     */
+    static <T> List<T> runAll(List<Callable<T>> workers) {
+        List<T> results = new ArrayList<>();
+        if (workers.size() == 1) {
+            try {
+                results.add(workers.get(0).call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Simulation failed", e);
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            for (Future<T> future : executor.invokeAll(workers)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Simulates one batch into the given statistics.
+     * @param evaluator The worker's batch evaluator
+     * @param batch Batch index (selects the random stream)
+     * @param count Number of spins in the batch
+     * @param stats Statistics to record into
+     */
+    void runBatch(BatchEvaluator evaluator, long batch, int count, SimulationStats stats) {
+        evaluator.fillUniform(RngStreams.forBatch(seed, batch), count);
+        evaluator.evaluate();
+        evaluator.record(stats);
+        if (sink != null) {
+            sink.accept(batch, evaluator);
+        }
+    }
+}
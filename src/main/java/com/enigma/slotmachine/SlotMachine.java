@@ -23,6 +23,15 @@ public class SlotMachine implements ISlotMachine {
     private final Map<Symbol, Integer> symbolDistribution;
     private final int[][] paylines;
     private final int minScatterDistance;
+    private final PaylineEvaluator paylineEvaluator;
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final int SCATTER = Symbol.SCATTER.ordinal();
+    // windowOrdinals[reel][row][stop]: ordinal shown in a row when the reel stops at a position, built on first use
+    private volatile int[][][] windowOrdinals;
+    private volatile PayoutCache payoutCache;
+    private final FreeSpinState freeSpinState = new FreeSpinState(SlotMachineConfig.DEFAULT_FREE_SPINS_PER_TRIGGER);
+    // Draws the stops instead of the reels' own randomness when set
+    private SessionRng sessionRng;
 
     /**
      * Constructs a SlotMachine with a starting balance and payout mode.
@@ -62,6 +71,7 @@ public class SlotMachine implements ISlotMachine {
         this.payAllWins = payAllWins;
         this.symbolDistribution = Reel.parseSymbolDistribution(symbolConfig);
         this.paylines = parsePaylines(paylinesConfig);
+        this.paylineEvaluator = PaylineEvaluators.create(paylines);
         this.minScatterDistance = minScatterDistance;
         slotReels = new IReel[REELS];
         for (int i = 0; i < REELS; i++) {
@@ -82,6 +92,7 @@ public class SlotMachine implements ISlotMachine {
         this.payAllWins = payAllWins;
         this.symbolDistribution = Reel.parseSymbolDistribution(symbolConfig);
         this.paylines = parsePaylines(paylinesConfig);
+        this.paylineEvaluator = PaylineEvaluators.create(paylines);
         this.minScatterDistance = minScatterDistance;
         if (reels == null || reels.length != REELS) {
             throw new IllegalArgumentException("Reels array must be non-null and of length " + REELS);
@@ -89,6 +100,31 @@ public class SlotMachine implements ISlotMachine {
         this.slotReels = reels;
     }
 
+    /**
+     * Constructs a SlotMachine on already parsed paylines and built reels, which may be shared with other
+     * machines (see {@link MachineRegistry}).
+     * @param startingBalance Initial player balance
+     * @param payAllWins If true, pay all winning lines; if false, only pay the highest line win
+     * @param symbolDistribution Symbol distribution the reels were built from
+     * @param paylines Paylines
+     * @param paylineEvaluator Evaluator of the paylines
+     * @param minScatterDistance Minimum distance between scatters on a reel
+     * @param reels Array of IReel to use (must be length 5)
+     */
+    SlotMachine(int startingBalance, boolean payAllWins, Map<Symbol, Integer> symbolDistribution, int[][] paylines,
+                PaylineEvaluator paylineEvaluator, int minScatterDistance, IReel[] reels) {
+        if (reels == null || reels.length != REELS) {
+            throw new IllegalArgumentException("Reels array must be non-null and of length " + REELS);
+        }
+        this.balance = startingBalance;
+        this.payAllWins = payAllWins;
+        this.symbolDistribution = symbolDistribution;
+        this.paylines = paylines;
+        this.paylineEvaluator = paylineEvaluator;
+        this.minScatterDistance = minScatterDistance;
+        this.slotReels = reels;
+    }
+
     /**
      * Returns the current balance.
      * @return Player balance
@@ -145,14 +181,52 @@ public class SlotMachine implements ISlotMachine {
         return paylines;
     }
 
+    /**
+     * Returns the payout mode.
+     * @return True if all winning lines pay, false if only the highest line win pays
+     */
+    public boolean isPayAllWins() {
+        return payAllWins;
+    }
+
+    /**
+     * Returns the reels backing this machine.
+     * @return Array of reels, one per column
+     */
+    public IReel[] getReels() {
+        return slotReels;
+    }
+
     /**
      * Spins the reels and returns the resulting grid.
      * @return 3x5 grid of symbols
      */
     public Symbol[][] spin() {
+        return gridAt(spinStops());
+    }
+
+    /**
+     * Spins the reels and returns where each one landed.
+     * @return Stop position per reel (see {@link #gridAt(int[])})
+     */
+    public int[] spinStops() {
+        if (sessionRng != null) return sessionRng.nextStops(slotReels);
+        int[] stops = new int[REELS];
+        for (int col = 0; col < REELS; col++) {
+            stops[col] = slotReels[col].spinStop();
+        }
+        return stops;
+    }
+
+    /**
+     * Builds the grid shown when each reel lands on the given stop position.
+     * @param stops Stop position per reel
+     * @return 3x5 grid of symbols
+     */
+    public Symbol[][] gridAt(int[] stops) {
         Symbol[][] grid = new Symbol[ROWS][REELS];
         for (int col = 0; col < REELS; col++) {
-            Symbol[] window = slotReels[col].spin();
+            Symbol[] window = slotReels[col].windowAt(stops[col]);
             for (int row = 0; row < ROWS; row++) {
                 grid[row][col] = window[row];
             }
@@ -183,19 +257,12 @@ public class SlotMachine implements ISlotMachine {
     public int calculatePayout(Symbol[][] grid) {
         int totalPayout = 0;
         // Check paylines for 3, 4, 5 consecutive matches
-        for (int[] payline : paylines) {
-            Symbol first = grid[payline[0]][0];
-            if (first == Symbol.SCATTER) continue;
-            int match = 1;
-            for (int col = 1; col < REELS; col++) {
-                if (grid[payline[col]][col] == first) {
-                    match++;
-                } else {
-                    break;
-                }
-            }
-            if (match >= 3) {
-                totalPayout += first.getPayout(match);
+        int[] matchCounts = new int[paylines.length];
+        int[] symbols = new int[paylines.length];
+        paylineEvaluator.evaluateGrid(toOrdinals(grid), matchCounts, symbols);
+        for (int i = 0; i < paylines.length; i++) {
+            if (matchCounts[i] >= 3) {
+                totalPayout += SYMBOLS[symbols[i]].getPayout(matchCounts[i]);
             }
         }
         // Scatter payout (anywhere on grid)
@@ -256,26 +323,267 @@ public class SlotMachine implements ISlotMachine {
 
     /**
      * Spins the reels and evaluates all wins, returning detailed results.
-     * @return SpinResult containing grid, line wins, scatter info, and total payout
+     * @return Packed SpinResult containing stops, line wins, scatter info, and total payout (see {@link #evaluateStops(int[], int)})
      */
     public SpinResult spinAndEvaluate() {
-        Symbol[][] grid = spin();
+        return spinAndEvaluate(betAmount);
+    }
+
+    FreeSpinState getFreeSpinState() {
+        return freeSpinState;
+    }
+
+    /**
+     * Returns the free spins left in the current bonus round.
+     * @return Free spins left, 0 outside a round
+     */
+    public int getFreeSpins() {
+        return freeSpinState.getFreeSpins();
+    }
+
+    /**
+     * Returns the number of free spins a trigger of three or more scatters awards.
+     * @return Free spins per trigger
+     */
+    public int getFreeSpinsPerTrigger() {
+        return freeSpinState.getFreeSpinsPerTrigger();
+    }
+
+    /**
+     * Sets the number of free spins a trigger of three or more scatters awards.
+     * @param freeSpinsPerTrigger Free spins per trigger (0 disables free spins)
+     */
+    public void setFreeSpinsPerTrigger(int freeSpinsPerTrigger) {
+        freeSpinState.setFreeSpinsPerTrigger(freeSpinsPerTrigger);
+    }
+
+    /**
+     * Plays one spin with balance and bonus-round bookkeeping (see {@link ISlotMachine#playSpin()}).
+     * @return SpinResult
+     */
+    public SpinResult playSpin() {
+        return freeSpinState.play(this, this::spinAndEvaluate);
+    }
+
+    /**
+     * Plays all free spins left, retriggers included, in one call.
+     * @return Aggregated round
+     */
+    public FreeSpinRound playFreeSpinRound() {
+        return freeSpinState.playRound(this, this::spinAndEvaluate);
+    }
+
+    /**
+     * Spins the reels and evaluates all wins at the given bet, for sessions that keep their own bet.
+     * @param betAmount Bet multiplier applied to all payouts
+     * @return Packed SpinResult
+     */
+    SpinResult spinAndEvaluate(int betAmount) {
+        return spinAndEvaluate(betAmount, sessionRng);
+    }
+
+    /**
+     * Spins the reels with a session's random source and evaluates all wins at the given bet.
+     * @param betAmount Bet multiplier applied to all payouts
+     * @param rng Session random source, or null for the reels' own randomness
+     * @return Packed SpinResult
+     */
+    SpinResult spinAndEvaluate(int betAmount, SessionRng rng) {
+        GameEvents.SpinEvent event = new GameEvents.SpinEvent();
+        event.begin();
+        SpinResult result = evaluateStops(rng != null ? rng.nextStops(slotReels) : spinStops(), betAmount);
+        event.end(betAmount, result);
+        return result;
+    }
+
+    /**
+     * Draws every spin's stops from a counter-based session source from now on, so any spin can later be
+     * regenerated from the session seed and its ordinal (see {@link #replaySpin(long, int)}).
+     * @param sessionRng Session random source, or null to go back to the reels' own randomness
+     */
+    public void setSessionRng(SessionRng sessionRng) {
+        this.sessionRng = sessionRng;
+    }
+
+    /**
+     * Returns the session source spins are drawn from.
+     * @return Source, or null when the reels' own randomness is used
+     */
+    public SessionRng getSessionRng() {
+        return sessionRng;
+    }
+
+    /**
+     * Regenerates and evaluates a past (or future) spin of this machine's session without moving its source.
+     * @param ordinal Spin ordinal within the session
+     * @param betAmount Bet the spin was played at
+     * @return SpinResult identical to the one the spin produced
+     */
+    public SpinResult replaySpin(long ordinal, int betAmount) {
+        if (sessionRng == null) {
+            throw new IllegalStateException("Spins are not drawn from a session source");
+        }
+        return evaluateStops(SessionRng.stopsAt(sessionRng.getSeed(), ordinal, slotReels), betAmount);
+    }
+
+    /**
+     * Evaluates all wins on a grid for the given bet without touching balance or reels.
+     * Safe to call concurrently as long as the machine is not reconfigured.
+     * @param grid The symbol grid
+     * @param betAmount Bet multiplier applied to all payouts
+     * @return SpinResult containing grid, line wins, scatter info, and total payout
+     */
+    public SpinResult evaluate(Symbol[][] grid, int betAmount) {
+        return evaluate(null, grid, betAmount);
+    }
+
+    /**
+     * Evaluates all wins of the spin that landed on the given stops, without building the grid.
+     * The result is packed: its grid and line wins are only built when asked for, so evaluating allocates
+     * nothing but the result itself. Payouts are identical to {@link #evaluate(Symbol[][], int)} on the grid
+     * of the stops. Safe to call concurrently as long as the machine is not reconfigured.
+     * @param stops Stop position per reel
+     * @param betAmount Bet multiplier applied to all payouts
+     * @return Packed SpinResult
+     */
+    public SpinResult evaluateStops(int[] stops, int betAmount) {
+        // The win bitmask has one bit per payline
+        if (paylines.length > Long.SIZE) return evaluate(stops, gridAt(stops), betAmount);
+        int[][][] windows = windowOrdinals();
+        PayoutCache cache = payoutCache;
+        if (cache != null) {
+            PayoutCache.Entry entry = cache.lookup(stops);
+            return evaluateLines(windows, stops, betAmount, entry.open | entry.won, entry,
+                    cache.getPrefixReels(), entry.scatters + cache.suffixScatters(stops));
+        }
+        int scatterCount = 0;
+        for (int col = 0; col < REELS; col++) {
+            for (int row = 0; row < ROWS; row++) {
+                if (windows[col][row][stops[col]] == SCATTER) scatterCount++;
+            }
+        }
+        return evaluateLines(windows, stops, betAmount, -1L >>> (Long.SIZE - paylines.length), null, 0, scatterCount);
+    }
+
+    // Evaluates the given lines in order; with a cache entry, each line resumes from its run over the keyed reels
+    private SpinResult evaluateLines(int[][][] windows, int[] stops, int betAmount, long lines,
+                                     PayoutCache.Entry entry, int keyedReels, int scatterCount) {
+        long winMask = 0;
+        long matchCounts = 0;
+        int linePayout = 0;
+        int highest = -1;
+        for (long mask = lines; mask != 0; mask &= mask - 1) {
+            int i = Long.numberOfTrailingZeros(mask);
+            int match;
+            if (entry == null) {
+                match = lineMatch(windows, stops, paylines[i]);
+            } else if (entry.runs[i] < keyedReels) {
+                match = entry.runs[i];
+            } else {
+                int[] line = paylines[i];
+                int first = windows[0][line[0]][stops[0]];
+                match = keyedReels;
+                while (match < REELS && windows[match][line[match]][stops[match]] == first) match++;
+                if (match < 3) continue;
+            }
+            if (match == 0) continue;
+            int payout = SYMBOLS[windows[0][paylines[i][0]][stops[0]]].getPayout(match) * betAmount;
+            if (payAllWins) {
+                winMask |= 1L << i;
+                if (i < SpinResult.PACKED_LINES) matchCounts |= (long) match << (3 * i);
+                linePayout += payout;
+            } else if (highest < 0 || payout > linePayout) {
+                // Ties keep the lowest line
+                highest = i;
+                winMask = 1L << i;
+                matchCounts = i < SpinResult.PACKED_LINES ? (long) match << (3 * i) : 0;
+                linePayout = payout;
+            }
+        }
+        int scatterPayout = scatterCount >= 3 ? Symbol.SCATTER.getPayout(Math.min(scatterCount, 5)) * betAmount : 0;
+        return new SpinResult(this, stops, betAmount, winMask, matchCounts, scatterCount, scatterPayout,
+                linePayout + scatterPayout);
+    }
+
+    /**
+     * Enables memoisation of payline work in {@link #evaluateStops(int[], int)} (and so {@link #spinAndEvaluate()}),
+     * keyed by the deduplicated windows of the leading reels (see {@link PayoutCache}). Results are unchanged.
+     * @param capacity Number of cache slots (a power of two), or 0 to disable the cache
+     */
+    public void setPayoutCacheSize(int capacity) {
+        if (capacity == 0 || paylines.length > Long.SIZE) {
+            payoutCache = null;
+        } else {
+            payoutCache = new PayoutCache(windowOrdinals(), paylines, capacity);
+        }
+    }
+
+    /**
+     * Returns the payout cache in use.
+     * @return Payout cache, or null if disabled
+     */
+    PayoutCache getPayoutCache() {
+        return payoutCache;
+    }
+
+    /**
+     * Returns the symbol on the first reel of a payline for the given stops.
+     * @param stops Stop position per reel
+     * @param line Payline index, starting at 0
+     * @return Symbol the line starts with
+     */
+    Symbol lineSymbol(int[] stops, int line) {
+        return SYMBOLS[windowOrdinals()[0][paylines[line][0]][stops[0]]];
+    }
+
+    /**
+     * Returns how many symbols match on a payline for the given stops.
+     * @param stops Stop position per reel
+     * @param line Payline index, starting at 0
+     * @return Match count, or 0 if the line does not pay
+     */
+    int lineMatch(int[] stops, int line) {
+        return lineMatch(windowOrdinals(), stops, paylines[line]);
+    }
+
+    // Same rules as ScalarPaylineEvaluator: a run of at least 3 from the left reel, never starting with a scatter
+    private static int lineMatch(int[][][] windows, int[] stops, int[] payline) {
+        int first = windows[0][payline[0]][stops[0]];
+        if (first == SCATTER) return 0;
+        int match = 1;
+        while (match < REELS && windows[match][payline[match]][stops[match]] == first) match++;
+        return match >= 3 ? match : 0;
+    }
+
+    private int[][][] windowOrdinals() {
+        int[][][] windows = windowOrdinals;
+        if (windows == null) {
+            windows = new int[REELS][ROWS][];
+            for (int col = 0; col < REELS; col++) {
+                Symbol[] strip = slotReels[col].getFullStrip();
+                for (int row = 0; row < ROWS; row++) {
+                    windows[col][row] = new int[strip.length];
+                    for (int stop = 0; stop < strip.length; stop++) {
+                        windows[col][row][stop] = strip[(stop + row) % strip.length].ordinal();
+                    }
+                }
+            }
+            windowOrdinals = windows;
+        }
+        return windows;
+    }
+
+    private SpinResult evaluate(int[] stops, Symbol[][] grid, int betAmount) {
         java.util.List<SpinResult.LineWin> lineWins = new java.util.ArrayList<>();
         int totalPayout = 0;
         SpinResult.LineWin highest = null;
+        int[] matchCounts = new int[paylines.length];
+        int[] symbols = new int[paylines.length];
+        paylineEvaluator.evaluateGrid(toOrdinals(grid), matchCounts, symbols);
         for (int i = 0; i < paylines.length; i++) {
-            int[] payline = paylines[i];
-            Symbol first = grid[payline[0]][0];
-            if (first == Symbol.SCATTER) continue;
-            int match = 1;
-            for (int col = 1; col < REELS; col++) {
-                if (grid[payline[col]][col] == first) {
-                    match++;
-                } else {
-                    break;
-                }
-            }
+            int match = matchCounts[i];
             if (match >= 3) {
+                Symbol first = SYMBOLS[symbols[i]];
                 int payout = first.getPayout(match) * betAmount;
                 SpinResult.LineWin win = new SpinResult.LineWin(i + 1, first, match, payout);
                 if (payAllWins) {
@@ -297,10 +605,29 @@ public class SlotMachine implements ISlotMachine {
             scatterPayout = Symbol.SCATTER.getPayout(Math.min(scatterCount, 5)) * betAmount;
             totalPayout += scatterPayout;
         }
-        return new SpinResult(grid, lineWins, scatterCount, scatterPayout, totalPayout);
+        return new SpinResult(stops, grid, lineWins, scatterCount, scatterPayout, totalPayout);
+    }
+
+    // Flattens a grid into symbol ordinals, row-major, for the payline evaluator
+    private static int[] toOrdinals(Symbol[][] grid) {
+        int[] cells = new int[ROWS * REELS];
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < REELS; col++) {
+                cells[row * REELS + col] = grid[row][col].ordinal();
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the payline evaluator in use.
+     * @return Payline evaluator
+     */
+    public PaylineEvaluator getPaylineEvaluator() {
+        return paylineEvaluator;
     }
 
-    private int[][] parsePaylines(String config) {
+    static int[][] parsePaylines(String config) {
         if (config == null) {
             return new int[][] {
                 {1, 1, 1, 1, 1},
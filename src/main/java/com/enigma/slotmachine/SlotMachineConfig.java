@@ -0,0 +1,253 @@
+package com.enigma.slotmachine;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Game configuration as read from a slotmachine.properties file.
+ * <p>
+ * Invalid numeric values fall back to their defaults and are reported through {@link #getWarnings()},
+ * leaving it to the caller (console game or headless runner) to decide where to print them.
+ */
+public class SlotMachineConfig {
+    public static final String DEFAULT_PATH = "slotmachine.properties";
+    public static final int REELS = 5;
+    public static final int DEFAULT_PAYOUT_CACHE_SIZE = 1 << 16;
+    public static final int DEFAULT_FREE_SPINS_PER_TRIGGER = 10;
+
+    private boolean payAllWins = true;
+    private String symbolConfig;
+    private String paylinesConfig;
+    private int minScatterDistance = 3;
+    private int autospinCount = 1000;
+    private int freeSpinsPerTrigger = DEFAULT_FREE_SPINS_PER_TRIGGER;
+    private String journalDir;
+    private String walletDir;
+    private boolean metricsEnabled;
+    private int payoutCacheSize = DEFAULT_PAYOUT_CACHE_SIZE;
+    private String jackpotDir;
+    private int jackpotContributionBasisPoints = 100;
+    private int jackpotSeed = 1000;
+    private JackpotPool.Trigger jackpotTrigger = new JackpotPool.Trigger(Symbol.SCATTER, 5);
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * Returns a configuration with all default values.
+     * @return Default configuration
+     */
+    public static SlotMachineConfig defaults() {
+        return new SlotMachineConfig();
+    }
+
+    /**
+     * Loads a configuration from a properties file.
+     * @param path Path to the properties file
+     * @return Loaded configuration
+     * @throws IOException If the file is missing or unreadable
+     */
+    public static SlotMachineConfig load(String path) throws IOException {
+        GameEvents.ConfigLoadEvent event = new GameEvents.ConfigLoadEvent();
+        event.begin();
+        try {
+            SlotMachineConfig config = read(path);
+            event.warnings = config.warnings.size();
+            event.succeeded = true;
+            return config;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.size = new java.io.File(path).length();
+                event.commit();
+            }
+        }
+    }
+
+    private static SlotMachineConfig read(String path) throws IOException {
+        SlotMachineConfig config = new SlotMachineConfig();
+        try (FileInputStream configStream = new FileInputStream(path)) {
+            Properties properties = new Properties();
+            properties.load(configStream);
+            String payAll = properties.getProperty("payAllWins");
+            if (payAll != null)
+                config.payAllWins = Boolean.parseBoolean(payAll);
+            config.symbolConfig = properties.getProperty("symbols");
+            config.paylinesConfig = properties.getProperty("paylines");
+            config.minScatterDistance = config.parseInt(properties, "minScatterDistance", config.minScatterDistance);
+            config.autospinCount = config.parseInt(properties, "autospinCount", config.autospinCount);
+            config.freeSpinsPerTrigger = config.parseInt(properties, "freeSpinsPerTrigger", config.freeSpinsPerTrigger);
+            if (config.freeSpinsPerTrigger < 0) {
+                config.warnings.add("Invalid freeSpinsPerTrigger in config, using default " + DEFAULT_FREE_SPINS_PER_TRIGGER + ".");
+                config.freeSpinsPerTrigger = DEFAULT_FREE_SPINS_PER_TRIGGER;
+            }
+            String journal = properties.getProperty("journalDir");
+            if (journal != null && !journal.trim().isEmpty())
+                config.journalDir = journal.trim();
+            String metrics = properties.getProperty("metrics");
+            if (metrics != null)
+                config.metricsEnabled = Boolean.parseBoolean(metrics.trim());
+            config.payoutCacheSize = config.parseInt(properties, "payoutCacheSize", config.payoutCacheSize);
+            if (config.payoutCacheSize < 0 || (config.payoutCacheSize & (config.payoutCacheSize - 1)) != 0) {
+                config.warnings.add("Invalid payoutCacheSize in config, using default " + DEFAULT_PAYOUT_CACHE_SIZE + ".");
+                config.payoutCacheSize = DEFAULT_PAYOUT_CACHE_SIZE;
+            }
+            String jackpot = properties.getProperty("jackpotDir");
+            if (jackpot != null && !jackpot.trim().isEmpty())
+                config.jackpotDir = jackpot.trim();
+            String contribution = properties.getProperty("jackpotContribution");
+            if (contribution != null) {
+                try {
+                    long basisPoints = Math.round(Double.parseDouble(contribution.trim()) * 100);
+                    if (basisPoints < 0 || basisPoints > JackpotPool.UNITS_PER_CREDIT) throw new NumberFormatException();
+                    config.jackpotContributionBasisPoints = (int) basisPoints;
+                } catch (NumberFormatException e) {
+                    config.warnings.add("Invalid jackpotContribution in config, using default 1%.");
+                }
+            }
+            config.jackpotSeed = config.parseInt(properties, "jackpotSeed", config.jackpotSeed);
+            String trigger = properties.getProperty("jackpotTrigger");
+            if (trigger != null) {
+                try {
+                    config.jackpotTrigger = JackpotPool.Trigger.parse(trigger);
+                } catch (IllegalArgumentException e) {
+                    config.warnings.add("Invalid jackpotTrigger in config, using default " + config.jackpotTrigger + ".");
+                }
+            }
+            String wallet = properties.getProperty("walletDir");
+            if (wallet != null && !wallet.trim().isEmpty())
+                config.walletDir = wallet.trim();
+        }
+        return config;
+    }
+
+    private int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            warnings.add("Invalid " + key + " in config, using default " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Builds the reels for this configuration. All reels draw their strip shuffle and spins from the given random source.
+     * @param random Random source (seed it for reproducible strips)
+     * @return Array of reels, one per column
+     */
+    public IReel[] createReels(Random random) {
+        IReel[] reels = new IReel[REELS];
+        Map<Symbol, Integer> symbolDist = Reel.parseSymbolDistribution(symbolConfig);
+        for (int i = 0; i < REELS; i++) {
+            reels[i] = new Reel(symbolDist, minScatterDistance, random);
+        }
+        return reels;
+    }
+
+    /**
+     * Creates a slot machine for this configuration.
+     * @param startingBalance Initial player balance
+     * @param random Random source for reel construction and spins
+     * @return Configured slot machine
+     */
+    public SlotMachine createMachine(int startingBalance, Random random) {
+        SlotMachine machine = new SlotMachine(startingBalance, payAllWins, symbolConfig, paylinesConfig, minScatterDistance, createReels(random));
+        machine.setPayoutCacheSize(payoutCacheSize);
+        machine.setFreeSpinsPerTrigger(freeSpinsPerTrigger);
+        return machine;
+    }
+
+    public boolean isPayAllWins() {
+        return payAllWins;
+    }
+
+    public String getSymbolConfig() {
+        return symbolConfig;
+    }
+
+    public String getPaylinesConfig() {
+        return paylinesConfig;
+    }
+
+    public int getMinScatterDistance() {
+        return minScatterDistance;
+    }
+
+    public int getAutospinCount() {
+        return autospinCount;
+    }
+
+    public int getFreeSpinsPerTrigger() {
+        return freeSpinsPerTrigger;
+    }
+
+    /**
+     * Returns the directory of the spin audit journal.
+     * @return Journal directory, or null if spins are not journaled
+     */
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    /**
+     * Returns the directory of the persistent wallet store.
+     * @return Wallet directory, or null if balances are kept in memory only
+     */
+    public String getWalletDir() {
+        return walletDir;
+    }
+
+    /**
+     * Returns whether the console game records engine metrics (see {@link EngineMetrics}).
+     * @return True if spins are instrumented
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Returns the number of payout cache slots of created machines (see {@link SlotMachine#setPayoutCacheSize(int)}).
+     * @return Cache slots, 0 if disabled
+     */
+    public int getPayoutCacheSize() {
+        return payoutCacheSize;
+    }
+
+    /**
+     * Returns the directory of the progressive jackpot pool.
+     * @return Jackpot directory, or null if there is no jackpot
+     */
+    public String getJackpotDir() {
+        return jackpotDir;
+    }
+
+    /**
+     * Returns the share of every bet added to the jackpot.
+     * @return Contribution in basis points (hundredths of a percent)
+     */
+    public int getJackpotContributionBasisPoints() {
+        return jackpotContributionBasisPoints;
+    }
+
+    public int getJackpotSeed() {
+        return jackpotSeed;
+    }
+
+    public JackpotPool.Trigger getJackpotTrigger() {
+        return jackpotTrigger;
+    }
+
+    /**
+     * Returns messages about invalid values that were replaced by defaults.
+     * @return List of warnings, empty if the file was valid
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+}
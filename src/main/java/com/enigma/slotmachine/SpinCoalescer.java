@@ -0,0 +1,283 @@
+package com.enigma.slotmachine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coalesces concurrent spin requests on one machine and evaluates them together on the batch engine.
+ * <p>
+ * Callers hand in the player whose spin it is, usually a {@link MachineSession} on a shared model, and get a
+ * future of their own result. A dispatcher thread takes the first waiting request, collects whatever else
+ * arrives within the window (or until the batch is full), draws all their stops in one pass and evaluates
+ * them with a {@link BatchEvaluator}. Submitting is one lock-free enqueue and counter increment; the
+ * dispatcher is only woken when it may be idle or when a batch has filled up. Under load a batch fills long before the window closes, so each spin
+ * costs a fraction of a single {@link ISlotMachine#spinAndEvaluate()}; an idle machine adds at most the
+ * window to a lone spin.
+ * <p>
+ * Spins go through the player's bonus-round state just like {@link ISlotMachine#playSpin()}: the spin is
+ * staked on the calling thread when it is submitted, taking a free spin if the player has any left and
+ * deducting the bet otherwise, and settled by the dispatcher just before the future completes, crediting the
+ * payout and awarding the free spins of a scatter trigger. A player must therefore not be used again until its
+ * spin has completed; completion makes the balance and bonus updates visible to whoever waits on the future.
+ * Results are packed {@link SpinResult}s, exactly as the machine would evaluate their stops.
+ * <p>
+ * Stops come from the coalescer's own random source, except for players with a {@link SessionRng} (seeded
+ * registry sessions, or machines given one): their stops are drawn from that source at the next ordinal,
+ * exactly as a direct spin would, so {@code replaySpin} regenerates them.
+ */
+public class SpinCoalescer implements Closeable {
+    public static final long DEFAULT_WINDOW_NANOS = 200_000L;
+    public static final int DEFAULT_MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+    private final SlotMachine machine;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final SplittableRandom random;
+    private final BatchEvaluator evaluator;
+    private final IReel[] reels;
+    // stopBuffer[reel][spin]: stops of a batch with seeded players, used by the dispatcher only
+    private final int[][] stopBuffer;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    // Requests submitted and not yet taken by the dispatcher
+    private final AtomicInteger queued = new AtomicInteger();
+    // Set by start() once the coalescer is fully constructed; volatile as the final field it replaces was safe
+    private volatile Thread dispatcher;
+    private volatile boolean closed;
+    // Written by the dispatcher only
+    private volatile long batches;
+    private volatile long spins;
+
+    /**
+     * Starts a coalescer with the default window and batch size, drawing from an unseeded random source.
+     * @param machine Machine whose reels and paylines are spun
+     * @return Running coalescer
+     */
+    public static SpinCoalescer start(SlotMachine machine) {
+        return start(machine, DEFAULT_WINDOW_NANOS, DEFAULT_MAX_BATCH, new SplittableRandom());
+    }
+
+    /**
+     * Starts a coalescer and its dispatcher thread.
+     * @param machine Machine whose reels and paylines are spun
+     * @param windowNanos Longest wait for more requests after the first one of a batch
+     * @param maxBatch Most spins evaluated together
+     * @param random Random source of the reel stops, used by the dispatcher only
+     * @return Running coalescer
+     */
+    public static SpinCoalescer start(SlotMachine machine, long windowNanos, int maxBatch, SplittableRandom random) {
+        SpinCoalescer coalescer = new SpinCoalescer(machine, windowNanos, maxBatch, random);
+        Thread dispatcher = new Thread(coalescer::dispatchLoop, "spin-coalescer");
+        dispatcher.setDaemon(true);
+        coalescer.dispatcher = dispatcher;
+        dispatcher.start();
+        return coalescer;
+    }
+
+    private SpinCoalescer(SlotMachine machine, long windowNanos, int maxBatch, SplittableRandom random) {
+        if (windowNanos < 0) {
+            throw new IllegalArgumentException("Window must not be negative");
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (machine.getPaylines().length > Long.SIZE) {
+            throw new IllegalArgumentException("Spin coalescing supports at most " + Long.SIZE + " paylines");
+        }
+        this.machine = machine;
+        this.windowNanos = windowNanos;
+        this.maxBatch = maxBatch;
+        this.random = random;
+        this.evaluator = new BatchEvaluator(machine, maxBatch);
+        this.reels = machine.getReels();
+        this.stopBuffer = new int[reels.length][maxBatch];
+    }
+
+    /**
+     * Submits the player's next spin: a free spin while any are left, otherwise a paid spin at its current bet,
+     * deducted right away.
+     * @param player Player whose balance, bet and bonus round are used; it must play this coalescer's machine
+     *               and be one of the engine's own implementations
+     * @return Future of the spin's result, failed with {@link IllegalStateException} if the coalescer is closed
+     *         or the player's balance does not cover the bet, and with {@link IllegalArgumentException} if the
+     *         player keeps no bonus state the coalescer can settle
+     */
+    public CompletableFuture<SpinResult> spin(ISlotMachine player) {
+        CompletableFuture<SpinResult> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("Spin coalescer is closed"));
+            return future;
+        }
+        FreeSpinState bonus = FreeSpinState.of(player);
+        if (bonus == null) {
+            future.completeExceptionally(new IllegalArgumentException("Cannot settle the bonus rounds of a " + player.getClass().getName()));
+            return future;
+        }
+        int bet;
+        try {
+            bet = bonus.stake(player);
+        } catch (IllegalStateException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        Request request = new Request(player, bonus, sessionRng(player), bet, future);
+        queue.offer(request);
+        int before = queued.getAndIncrement();
+        // Wake the dispatcher when it may be idle, or when its batch has just filled up
+        if (before <= 0 || before + 1 == maxBatch) LockSupport.unpark(dispatcher);
+        if (closed && queue.remove(request)) {
+            // The dispatcher may already have drained for the last time
+            queued.decrementAndGet();
+            bonus.unstake(player, bet);
+            future.completeExceptionally(new IllegalStateException("Spin coalescer is closed"));
+        }
+        return future;
+    }
+
+    private void dispatchLoop() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            if (queued.get() <= 0) {
+                if (closed && queue.isEmpty()) return;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            collect(batch);
+            if (!batch.isEmpty()) dispatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Waits until the batch is full or the window closes, then takes up to a batch of requests
+    private void collect(List<Request> batch) {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining = windowNanos;
+        while (queued.get() < maxBatch && remaining > 0 && !closed) {
+            LockSupport.parkNanos(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        Request request;
+        while (batch.size() < maxBatch && (request = queue.poll()) != null) batch.add(request);
+        // May go negative for a moment when a request is taken before its submitter counted it
+        queued.addAndGet(-batch.size());
+    }
+
+    private static SessionRng sessionRng(ISlotMachine player) {
+        if (player instanceof MachineSession) return ((MachineSession) player).getSessionRng();
+        if (player instanceof SlotMachine) return ((SlotMachine) player).getSessionRng();
+        return null;
+    }
+
+    private void dispatch(List<Request> batch) {
+        int count = batch.size();
+        try {
+            fill(batch);
+            evaluator.evaluate();
+        } catch (RuntimeException e) {
+            // Nothing was played: give the stakes back and rewind the session sources
+            for (Request request : batch) {
+                if (request.ordinal >= 0) request.rng.seek(request.ordinal);
+                request.bonus.unstake(request.player, request.bet);
+                request.future.completeExceptionally(e);
+            }
+            return;
+        }
+        // Counted before completing, so a caller that saw its result also sees it counted
+        batches++;
+        spins += count;
+        for (int i = 0; i < count; i++) {
+            Request request = batch.get(i);
+            SpinResult result = evaluator.result(machine, i, request.bet);
+            request.bonus.settle(request.player, result);
+            request.future.complete(result);
+        }
+    }
+
+    // Uniform stops for the whole batch, unless a player draws from its own session source
+    private void fill(List<Request> batch) {
+        int count = batch.size();
+        boolean seeded = false;
+        for (Request request : batch) seeded |= request.rng != null;
+        if (!seeded) {
+            evaluator.fillUniform(random, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            Request request = batch.get(i);
+            if (request.rng != null) {
+                request.ordinal = request.rng.getOrdinal();
+                int[] stops = request.rng.nextStops(reels);
+                for (int r = 0; r < reels.length; r++) stopBuffer[r][i] = stops[r];
+            } else {
+                for (int r = 0; r < reels.length; r++) {
+                    stopBuffer[r][i] = reels[r].stopAt(RngStreams.nextIndex(random, reels[r].stopCount()));
+                }
+            }
+        }
+        evaluator.fillStops(stopBuffer, count);
+    }
+
+    /**
+     * Returns the number of batches evaluated so far.
+     * @return Batches
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns the number of spins evaluated so far.
+     * @return Spins
+     */
+    public long getSpins() {
+        return spins;
+    }
+
+    /**
+     * Returns the mean number of spins evaluated together.
+     * @return Mean batch size, 0 before the first batch
+     */
+    public double meanBatchSize() {
+        long done = batches;
+        return done == 0 ? 0.0 : (double) spins / done;
+    }
+
+    /**
+     * Stops accepting spins, completes every spin already submitted and stops the dispatcher.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Request {
+        final ISlotMachine player;
+        final FreeSpinState bonus;
+        final SessionRng rng;
+        final int bet;
+        final CompletableFuture<SpinResult> future;
+        // Ordinal the spin was drawn at, to rewind the session source if the batch fails; -1 until drawn
+        long ordinal = -1;
+
+        Request(ISlotMachine player, FreeSpinState bonus, SessionRng rng, int bet, CompletableFuture<SpinResult> future) {
+            this.player = player;
+            this.bonus = bonus;
+            this.rng = rng;
+            this.bet = bet;
+            this.future = future;
+        }
+    }
+}
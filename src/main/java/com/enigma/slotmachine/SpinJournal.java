@@ -0,0 +1,479 @@
+package com.enigma.slotmachine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit journal of real-money spins, written to memory-mapped segment files.
+ * <p>
+ * Every spin is one fixed-size 48-byte record: sequence number, time, reel stops, bet, payout, scatter count,
+ * free-spin flag, balance after the spin and a CRC32C. Records are copied into the mapped segment under a
+ * short lock, so appending costs well under a microsecond. Durability uses group commit: a background thread
+ * forces the written range to disk every commit interval, covering all spins appended since the last
+ * commit in one sync; {@link #awaitDurable(long)} blocks until a given record is on disk.
+ * <p>
+ * A segment starts with a header holding the reel strips, paylines and payout mode of the machine, so every
+ * recorded spin can be reconstructed from its stops alone. When a segment is full the journal rolls over to
+ * a new file named after its first sequence number. Reopening a journal continues after the last intact
+ * record; a record torn by a crash fails its CRC and is overwritten. Reopened for a different machine, it
+ * starts a new segment, or rewrites the header of a last segment that holds no records yet. Use {@link SpinJournalReader} to scan.
+ */
+public class SpinJournal implements Closeable {
+    public static final int RECORD_SIZE = 48;
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final long DEFAULT_COMMIT_MILLIS = 5;
+
+    static final int MAGIC = 0x534D4A4E; // "SMJN"
+    static final int VERSION = 1;
+    static final String SEGMENT_PREFIX = "spins-";
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final int FLAG_FREE_SPIN = 1;
+    private static final int PAGE = 4096;
+
+    // Record layout
+    static final int SEQUENCE = 0;
+    static final int TIME = 8;
+    static final int STOPS = 16;
+    static final int FLAGS = 26;
+    static final int SCATTERS = 27;
+    static final int BET = 28;
+    static final int PAYOUT = 32;
+    static final int BALANCE = 36;
+    static final int RESERVED = 40; // zero, kept for future fields
+    static final int CRC = 44;
+
+    private final Path dir;
+    private final long segmentSize;
+    private final long commitMillis;
+    private final SegmentHeader template;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Thread committer;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private int dirtyFrom;
+    private long lastSequence;
+    private long durableSequence;
+    private boolean commitRequested;
+    private boolean closed;
+    private IOException commitFailure;
+
+    /**
+     * Opens (or creates) a journal with the default segment size and commit interval.
+     * @param dir Journal directory
+     * @param machine Machine whose spins are recorded
+     * @throws IOException If the journal cannot be opened
+     */
+    public SpinJournal(Path dir, ISlotMachine machine) throws IOException {
+        this(dir, machine, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) a journal.
+     * @param dir Journal directory
+     * @param machine Machine whose spins are recorded
+     * @param segmentSize Size of each segment file in bytes (header included)
+     * @param commitMillis Group commit interval in milliseconds
+     * @throws IOException If the journal cannot be opened
+     */
+    public SpinJournal(Path dir, ISlotMachine machine, long segmentSize, long commitMillis) throws IOException {
+        if (commitMillis < 1) {
+            throw new IllegalArgumentException("Commit interval must be at least 1 ms");
+        }
+        this.dir = dir;
+        this.template = SegmentHeader.of(machine);
+        if (segmentSize < template.size + RECORD_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.commitMillis = commitMillis;
+        Files.createDirectories(dir);
+        openLastSegment();
+        this.committer = new Thread(this::commitLoop, "spin-journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Records a completed spin.
+     * @param result Spin result from {@link ISlotMachine#spinAndEvaluate()} (must carry its stops)
+     * @param betAmount Bet of the spin (the bet the payout was computed for)
+     * @param freeSpin Whether the spin was free (no bet deducted)
+     * @param balanceAfter Player balance after the payout was credited
+     * @return Sequence number of the record
+     * @throws IOException If the journal is closed or a segment cannot be created
+     */
+    public long append(SpinResult result, int betAmount, boolean freeSpin, int balanceAfter) throws IOException {
+        if (result.stops == null) {
+            throw new IllegalArgumentException("Spin result has no reel stops");
+        }
+        return append(result.stops, betAmount, result.totalPayout, result.scatterCount, freeSpin, balanceAfter);
+    }
+
+    /**
+     * Records a completed spin.
+     * @param stops Stop position per reel
+     * @param betAmount Bet of the spin
+     * @param payout Total payout
+     * @param scatterCount Scatters on the grid
+     * @param freeSpin Whether the spin was free (no bet deducted)
+     * @param balanceAfter Player balance after the payout was credited
+     * @return Sequence number of the record
+     * @throws IOException If the journal is closed or a segment cannot be created
+     */
+    public synchronized long append(int[] stops, int betAmount, int payout, int scatterCount, boolean freeSpin,
+            int balanceAfter) throws IOException {
+        if (closed) {
+            throw new IOException("Spin journal is closed");
+        }
+        if (position + RECORD_SIZE > segmentSize) {
+            rollover();
+        }
+        long sequence = lastSequence + 1;
+        record.clear();
+        record.putLong(SEQUENCE, sequence);
+        record.putLong(TIME, System.currentTimeMillis());
+        for (int r = 0; r < SlotMachineConfig.REELS; r++) {
+            record.putShort(STOPS + 2 * r, (short) stops[r]);
+        }
+        record.put(FLAGS, (byte) (freeSpin ? FLAG_FREE_SPIN : 0));
+        record.put(SCATTERS, (byte) scatterCount);
+        record.putInt(BET, betAmount);
+        record.putInt(PAYOUT, payout);
+        record.putInt(BALANCE, balanceAfter);
+        record.putInt(RESERVED, 0);
+        crc.reset();
+        crc.update(record.array(), 0, CRC);
+        record.putInt(CRC, (int) crc.getValue());
+        segment.put(position, record.array());
+        position += RECORD_SIZE;
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number (and all before it) is on disk.
+     * @param sequence Sequence number returned by an append
+     * @throws IOException If a commit failed or the wait was interrupted
+     */
+    public synchronized void awaitDurable(long sequence) throws IOException {
+        while (durableSequence < sequence) {
+            if (commitFailure != null) throw commitFailure;
+            if (closed) throw new IOException("Spin journal is closed");
+            commitRequested = true;
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the spin journal");
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     * @throws IOException If a commit failed
+     */
+    public void flush() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = lastSequence;
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Returns the sequence number of the last appended record (0 if the journal is empty).
+     * @return Last sequence number
+     */
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Commits all records and stops the commit thread.
+     * @throws IOException If the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+        }
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    // Group commit: one force per interval covers every record appended since the previous one
+    private void commitLoop() {
+        while (true) {
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            synchronized (this) {
+                if (!closed && !commitRequested) {
+                    try {
+                        wait(commitMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                commitRequested = false;
+                if (lastSequence == durableSequence) {
+                    if (closed) return;
+                    continue;
+                }
+                buffer = segment;
+                from = dirtyFrom;
+                to = position;
+                target = lastSequence;
+                dirtyFrom = position;
+            }
+            try {
+                buffer.force(from, to - from);
+                synchronized (this) {
+                    durableSequence = Math.max(durableSequence, target);
+                    notifyAll();
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    commitFailure = new IOException("Spin journal commit failed", e);
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // Called with the lock held: seals the full segment and starts the next one
+    private void rollover() throws IOException {
+        segment.force();
+        channel.close();
+        durableSequence = lastSequence;
+        // Every record of the sealed segment is now on disk; wake awaitDurable callers waiting on them
+        notifyAll();
+        createSegment(lastSequence + 1);
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> segments = listSegments(dir);
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            FileChannel existing = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer mapped = existing.map(FileChannel.MapMode.READ_WRITE, 0, existing.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            SegmentHeader header = SegmentHeader.read(mapped, last);
+            int end = header.size;
+            long sequence = header.firstSequence - 1;
+            while (end + RECORD_SIZE <= mapped.capacity() && isValidRecord(mapped, end, sequence + 1, crc)) {
+                sequence++;
+                end += RECORD_SIZE;
+            }
+            lastSequence = sequence;
+            durableSequence = sequence;
+            if (header.fingerprint == template.fingerprint) {
+                channel = existing;
+                segment = mapped;
+                position = end;
+                dirtyFrom = end;
+                // Clear a torn record left by a crash so readers stop at the right place
+                if (end + RECORD_SIZE <= mapped.capacity()) {
+                    mapped.put(end, new byte[RECORD_SIZE]);
+                    mapped.force(end, RECORD_SIZE);
+                }
+                return;
+            }
+            // The machine changed since the journal was written. A segment without records is
+            // taken over for the new machine, since a new one would need its file name
+            if (sequence < header.firstSequence && mapped.capacity() == segmentSize) {
+                mapped.put(0, new byte[Math.min(mapped.capacity(), Math.max(header.size, template.size) + RECORD_SIZE)]);
+                channel = existing;
+                segment = mapped;
+                initSegment(header.firstSequence);
+                return;
+            }
+            existing.close();
+            if (sequence < header.firstSequence) {
+                Files.delete(last);
+            }
+        }
+        createSegment(lastSequence + 1);
+    }
+
+    private void createSegment(long firstSequence) throws IOException {
+        Path file = dir.resolve(segmentName(firstSequence));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        initSegment(firstSequence);
+    }
+
+    // Writes the header of the mapped segment, which must be zero past it
+    private void initSegment(long firstSequence) {
+        template.write(segment, firstSequence, System.currentTimeMillis());
+        segment.force(0, template.size + RECORD_SIZE);
+        position = template.size;
+        dirtyFrom = position;
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Lists the segment files of a journal in sequence order.
+     * @param dir Journal directory
+     * @return Segment files, oldest first
+     * @throws IOException If the directory cannot be listed
+     */
+    static List<Path> listSegments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    /**
+     * Checks that a record is intact and carries the expected sequence number.
+     * @param buffer Segment contents
+     * @param offset Record offset
+     * @param expectedSequence Sequence number the record must have
+     * @param check Checksum instance to reuse
+     * @return True if the record is valid
+     */
+    static boolean isValidRecord(ByteBuffer buffer, int offset, long expectedSequence, CRC32C check) {
+        if (buffer.getLong(offset + SEQUENCE) != expectedSequence) return false;
+        check.reset();
+        check.update(buffer.slice(offset, CRC));
+        return buffer.getInt(offset + CRC) == (int) check.getValue();
+    }
+
+    /**
+     * Segment header: record format, first sequence number and the machine the spins were played on.
+     */
+    static class SegmentHeader {
+        int size;
+        long firstSequence;
+        long createdMillis;
+        long fingerprint;
+        boolean payAllWins;
+        Symbol[][] strips;
+        int[][] paylines;
+
+        static SegmentHeader of(ISlotMachine machine) {
+            SegmentHeader header = new SegmentHeader();
+            IReel[] reels = machine.getReels();
+            header.strips = new Symbol[reels.length][];
+            for (int r = 0; r < reels.length; r++) {
+                header.strips[r] = reels[r].getFullStrip();
+            }
+            header.paylines = machine.getPaylines();
+            header.payAllWins = machine.isPayAllWins();
+            header.fingerprint = ShardCoordinator.fingerprint(machine);
+            int bytes = 48;
+            for (Symbol[] strip : header.strips) bytes += 2 + strip.length;
+            for (int[] line : header.paylines) bytes += line.length;
+            header.size = (bytes + PAGE - 1) / PAGE * PAGE;
+            return header;
+        }
+
+        void write(ByteBuffer buffer, long first, long created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, size);
+            buffer.putLong(16, first);
+            buffer.putLong(24, created);
+            buffer.putLong(32, fingerprint);
+            buffer.put(40, (byte) (payAllWins ? 1 : 0));
+            buffer.put(41, (byte) strips.length);
+            buffer.putShort(42, (short) paylines.length);
+            int offset = 48;
+            for (Symbol[] strip : strips) {
+                buffer.putShort(offset, (short) strip.length);
+                offset += 2;
+                for (Symbol symbol : strip) buffer.put(offset++, (byte) symbol.ordinal());
+            }
+            for (int[] line : paylines) {
+                for (int row : line) buffer.put(offset++, (byte) row);
+            }
+        }
+
+        /**
+         * Rebuilds the machine the segment's spins were played on.
+         * @return Machine with the recorded strips, paylines and payout mode
+         */
+        SlotMachine toMachine() {
+            IReel[] reels = new IReel[strips.length];
+            for (int r = 0; r < strips.length; r++) {
+                reels[r] = new Reel(strips[r], new java.util.Random(0));
+            }
+            StringBuilder lines = new StringBuilder();
+            for (int[] line : paylines) {
+                if (lines.length() > 0) lines.append(';');
+                for (int c = 0; c < line.length; c++) {
+                    if (c > 0) lines.append(',');
+                    lines.append(line[c]);
+                }
+            }
+            return new SlotMachine(0, payAllWins, null, lines.toString(), 3, reels);
+        }
+
+        static SegmentHeader read(ByteBuffer buffer, Path file) throws IOException {
+            if (buffer.capacity() < 48 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != RECORD_SIZE) {
+                throw new IOException(file + " is not a spin journal segment (version " + VERSION + ")");
+            }
+            SegmentHeader header = new SegmentHeader();
+            header.size = buffer.getInt(12);
+            header.firstSequence = buffer.getLong(16);
+            header.createdMillis = buffer.getLong(24);
+            header.fingerprint = buffer.getLong(32);
+            header.payAllWins = buffer.get(40) != 0;
+            header.strips = new Symbol[buffer.get(41)][];
+            header.paylines = new int[buffer.getShort(42)][SlotMachineConfig.REELS];
+            Symbol[] symbols = Symbol.values();
+            int offset = 48;
+            for (int r = 0; r < header.strips.length; r++) {
+                header.strips[r] = new Symbol[buffer.getShort(offset)];
+                offset += 2;
+                for (int i = 0; i < header.strips[r].length; i++) header.strips[r][i] = symbols[buffer.get(offset++)];
+            }
+            for (int[] line : header.paylines) {
+                for (int c = 0; c < line.length; c++) line[c] = buffer.get(offset++);
+            }
+            return header;
+        }
+    }
+}
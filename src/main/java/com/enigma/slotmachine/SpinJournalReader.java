@@ -0,0 +1,213 @@
+package com.enigma.slotmachine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Scans the segments of a {@link SpinJournal}.
+ * <p>
+ * Segments are memory-mapped read-only and decoded record by record into a single reused {@link Record}, so
+ * a scan allocates nothing per spin. Sequence ranges skip whole segments by their file names. Scanning stops
+ * at the end of each segment's intact records, so a journal can be read while it is being written. A record
+ * that fails its checksum but is not blank (torn by a crash or altered) also ends the scan of its segment and
+ * is reported by {@link #getCorruptSequences()}.
+ */
+public class SpinJournalReader {
+    /**
+     * One decoded journal record. During a scan the same instance is reused for every record; use
+     * {@link #copy()} to keep one.
+     */
+    public static class Record {
+        public long sequence;
+        public long timeMillis;
+        public final int[] stops = new int[SlotMachineConfig.REELS];
+        public boolean freeSpin;
+        public int scatterCount;
+        public int bet;
+        public int payout;
+        public int balanceAfter;
+        // Header of the segment the record belongs to: reel strips, paylines and payout mode
+        SpinJournal.SegmentHeader segment;
+
+        public Record copy() {
+            Record copy = new Record();
+            copy.sequence = sequence;
+            copy.timeMillis = timeMillis;
+            System.arraycopy(stops, 0, copy.stops, 0, stops.length);
+            copy.freeSpin = freeSpin;
+            copy.scatterCount = scatterCount;
+            copy.bet = bet;
+            copy.payout = payout;
+            copy.balanceAfter = balanceAfter;
+            copy.segment = segment;
+            return copy;
+        }
+
+        /**
+         * Returns the reel strips of the machine the spin was played on.
+         * @return Strip per reel
+         */
+        public Symbol[][] strips() {
+            return segment.strips;
+        }
+
+        /**
+         * Returns the paylines of the machine the spin was played on.
+         * @return Paylines
+         */
+        public int[][] paylines() {
+            return segment.paylines;
+        }
+
+        public boolean isPayAllWins() {
+            return segment.payAllWins;
+        }
+    }
+
+    private final Path dir;
+    private final List<Long> corruptSequences = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Constructs a reader for a journal directory.
+     * @param dir Journal directory
+     */
+    public SpinJournalReader(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Scans every record.
+     * @param filter Records to pass on
+     * @param action Called for each matching record (the instance is reused)
+     * @return Number of matching records
+     * @throws IOException If a segment cannot be read
+     */
+    public long scan(Predicate<Record> filter, Consumer<Record> action) throws IOException {
+        return scan(1, Long.MAX_VALUE, filter, action);
+    }
+
+    /**
+     * Scans the records within a sequence range.
+     * @param fromSequence First sequence number (inclusive)
+     * @param toSequence Last sequence number (inclusive)
+     * @param filter Records to pass on
+     * @param action Called for each matching record (the instance is reused)
+     * @return Number of matching records
+     * @throws IOException If a segment cannot be read
+     */
+    public long scan(long fromSequence, long toSequence, Predicate<Record> filter, Consumer<Record> action)
+            throws IOException {
+        List<Path> segments = SpinJournal.listSegments(dir);
+        Record record = new Record();
+        long matched = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            if (s + 1 < segments.size() && firstSequence(segments.get(s + 1)) <= fromSequence) continue;
+            if (firstSequence(segments.get(s)) > toSequence) break;
+            matched += scanSegment(segments.get(s), fromSequence, toSequence, filter, action, record);
+        }
+        return matched;
+    }
+
+    /**
+     * Returns the segment files of the journal, oldest first.
+     * @return Segment files
+     * @throws IOException If the directory cannot be listed
+     */
+    public List<Path> segments() throws IOException {
+        return SpinJournal.listSegments(dir);
+    }
+
+    /**
+     * Returns the sequence numbers of corrupt records met by the scans so far.
+     * @return Sequence numbers (in the order found)
+     */
+    public List<Long> getCorruptSequences() {
+        synchronized (corruptSequences) {
+            return new ArrayList<>(corruptSequences);
+        }
+    }
+
+    /**
+     * Scans the records of one segment within a sequence range. Safe to call from several threads at once,
+     * each with its own record.
+     * @param file Segment file
+     * @param fromSequence First sequence number (inclusive)
+     * @param toSequence Last sequence number (inclusive)
+     * @param filter Records to pass on
+     * @param action Called for each matching record
+     * @param record Record instance to decode into
+     * @return Number of matching records
+     * @throws IOException If the segment cannot be read
+     */
+    public long scanSegment(Path file, long fromSequence, long toSequence, Predicate<Record> filter,
+            Consumer<Record> action, Record record) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        SpinJournal.SegmentHeader header = SpinJournal.SegmentHeader.read(buffer, file);
+        record.segment = header;
+        long sequence = header.firstSequence;
+        int offset = header.size;
+        if (fromSequence > sequence) {
+            long skip = Math.min(fromSequence - sequence, (buffer.capacity() - offset) / SpinJournal.RECORD_SIZE);
+            sequence += skip;
+            offset += (int) skip * SpinJournal.RECORD_SIZE;
+        }
+        CRC32C check = new CRC32C();
+        long matched = 0;
+        while (sequence <= toSequence && offset + SpinJournal.RECORD_SIZE <= buffer.capacity()
+                && SpinJournal.isValidRecord(buffer, offset, sequence, check)) {
+            record.sequence = sequence;
+            record.timeMillis = buffer.getLong(offset + SpinJournal.TIME);
+            for (int r = 0; r < record.stops.length; r++) {
+                record.stops[r] = buffer.getShort(offset + SpinJournal.STOPS + 2 * r);
+            }
+            record.freeSpin = (buffer.get(offset + SpinJournal.FLAGS) & SpinJournal.FLAG_FREE_SPIN) != 0;
+            record.scatterCount = buffer.get(offset + SpinJournal.SCATTERS);
+            record.bet = buffer.getInt(offset + SpinJournal.BET);
+            record.payout = buffer.getInt(offset + SpinJournal.PAYOUT);
+            record.balanceAfter = buffer.getInt(offset + SpinJournal.BALANCE);
+            if (filter.test(record)) {
+                action.accept(record);
+                matched++;
+            }
+            sequence++;
+            offset += SpinJournal.RECORD_SIZE;
+        }
+        if (sequence <= toSequence && offset + SpinJournal.RECORD_SIZE <= buffer.capacity()
+                && !isBlank(buffer, offset)) {
+            corruptSequences.add(sequence);
+        }
+        return matched;
+    }
+
+    private static boolean isBlank(MappedByteBuffer buffer, int offset) {
+        for (int i = 0; i < SpinJournal.RECORD_SIZE; i += 8) {
+            if (buffer.getLong(offset + i) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sequence number of the first record of a segment, from its file name.
+     * @param segment Segment file
+     * @return First sequence number
+     */
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SpinJournal.SEGMENT_PREFIX.length(),
+                name.length() - SpinJournal.SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,164 @@
+package com.enigma.slotmachine;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Publisher} of simulated spins, produced only as fast as each subscriber asks for them.
+ * <p>
+ * Every subscription replays the same seeded stream as a {@link Simulator} run: spins come in batches of
+ * {@link Simulator#BATCH_SIZE}, each drawn from its own random stream and evaluated by a
+ * {@link BatchEvaluator}. A batch is evaluated only when the subscriber has demand and the previous batch
+ * is used up, so the only buffer is the subscription's one evaluator, whatever the speed of the consumer.
+ * A fast subscriber requesting {@code Long.MAX_VALUE} gets spins at batch-engine speed; a slow one simply
+ * leaves production paused. Items are packed {@link SpinResult}s whose grid and line wins are built on demand.
+ * <p>
+ * Signals to a subscriber are serialized and delivered on the given executor (the common pool by default);
+ * the balance of the machine is never touched.
+ */
+public class SpinPublisher implements Flow.Publisher<SpinResult> {
+    private final SlotMachine machine;
+    private final long seed;
+    private final long spins;
+    private final int betAmount;
+    private final Executor executor;
+
+    /**
+     * Constructs a publisher delivering on the common fork-join pool.
+     * @param machine Machine whose reels and paylines are spun
+     * @param seed Stream seed (the same seed gives the same spins as a {@link Simulator} run)
+     * @param spins Spins per subscription, or {@code Long.MAX_VALUE} for an endless stream
+     * @param betAmount Bet multiplier applied to all payouts
+     */
+    public SpinPublisher(SlotMachine machine, long seed, long spins, int betAmount) {
+        this(machine, seed, spins, betAmount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a publisher.
+     * @param machine Machine whose reels and paylines are spun
+     * @param seed Stream seed (the same seed gives the same spins as a {@link Simulator} run)
+     * @param spins Spins per subscription, or {@code Long.MAX_VALUE} for an endless stream
+     * @param betAmount Bet multiplier applied to all payouts
+     * @param executor Executor delivering the signals
+     */
+    public SpinPublisher(SlotMachine machine, long seed, long spins, int betAmount, Executor executor) {
+        if (spins < 0) {
+            throw new IllegalArgumentException("Spin count must not be negative");
+        }
+        if (machine.getPaylines().length > Long.SIZE) {
+            throw new IllegalArgumentException("Spin stream supports at most " + Long.SIZE + " paylines");
+        }
+        this.machine = machine;
+        this.seed = seed;
+        this.spins = spins;
+        this.betAmount = betAmount;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SpinResult> subscriber) {
+        Objects.requireNonNull(subscriber);
+        SpinSubscription subscription = new SpinSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class SpinSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super SpinResult> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        // Pending drain requests; only the caller that raises it from 0 schedules a drain
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        // Drain state, only touched by the running drain
+        private BatchEvaluator evaluator;
+        private long nextBatch;
+        private int index;
+        private long produced;
+
+        SpinSubscription(Flow.Subscriber<? super SpinResult> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Request must be positive, was " + n);
+            } else {
+                requested.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!cancelled) {
+                    try {
+                        drain();
+                    } catch (RuntimeException e) {
+                        // A subscriber that throws is treated as having cancelled
+                        cancelled = true;
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (invalidRequest != null) {
+                cancelled = true;
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            long demand = requested.get();
+            long sent = 0;
+            while (!cancelled) {
+                if (produced == spins && (evaluator == null || index == evaluator.size())) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                if (sent == demand) {
+                    if (demand != Long.MAX_VALUE) demand = requested.addAndGet(-sent);
+                    sent = 0;
+                    if (demand == 0) return;
+                }
+                if (evaluator == null || index == evaluator.size()) {
+                    try {
+                        nextBatch();
+                    } catch (RuntimeException e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                }
+                subscriber.onNext(evaluator.result(machine, index++, betAmount));
+                sent++;
+            }
+        }
+
+        private void nextBatch() {
+            if (evaluator == null) evaluator = new BatchEvaluator(machine, Simulator.BATCH_SIZE);
+            int count = (int) Math.min(Simulator.BATCH_SIZE, spins - produced);
+            evaluator.fillUniform(RngStreams.forBatch(seed, nextBatch++), count);
+            evaluator.evaluate();
+            produced += count;
+            index = 0;
+        }
+    }
+}
@@ -1,23 +1,151 @@
 package com.enigma.slotmachine;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Data class representing the result of a spin, including grid, wins, and payout.
+ * <p>
+ * Results of {@link SlotMachine#evaluateStops(int[], int)} are packed: they only hold the stops, the paid
+ * lines as a bitmask with their match counts, and the payouts. The grid and the {@link LineWin} objects are
+ * built from the machine the first time {@link #getGrid()} or {@link #getLineWins()} is called, so spins
+ * that are never displayed allocate neither. Those two accessors replace the former public {@code grid}
+ * and {@code lineWins} fields, which a lazily built value cannot be exposed as.
  */
 public class SpinResult {
-    public final Symbol[][] grid;
-    public final List<LineWin> lineWins;
+    // Packed match counts cover this many paylines, at 3 bits each
+    static final int PACKED_LINES = Long.SIZE / 3;
+
+    // Stop position per reel, or null if the grid was not produced by a spin
+    public final int[] stops;
     public final int scatterCount;
     public final int scatterPayout;
     public final int totalPayout;
+    // Bit i is set when payline i + 1 pays
+    public final long winMask;
+    // Match count of paid line i + 1 in bits [3i, 3i + 3), for the first PACKED_LINES paylines
+    public final long matchCounts;
+    // Machine the grid and line wins are built from, null when they were given
+    private final SlotMachine machine;
+    private final int betAmount;
+    private volatile Symbol[][] grid;
+    private volatile List<LineWin> lineWins;
 
     public SpinResult(Symbol[][] grid, List<LineWin> lineWins, int scatterCount, int scatterPayout, int totalPayout) {
+        this(null, grid, lineWins, scatterCount, scatterPayout, totalPayout);
+    }
+
+    public SpinResult(int[] stops, Symbol[][] grid, List<LineWin> lineWins, int scatterCount, int scatterPayout, int totalPayout) {
+        this.stops = stops;
         this.grid = grid;
         this.lineWins = lineWins;
         this.scatterCount = scatterCount;
         this.scatterPayout = scatterPayout;
         this.totalPayout = totalPayout;
+        long mask = 0;
+        long counts = 0;
+        for (LineWin win : lineWins) {
+            int line = win.lineIndex - 1;
+            if (line >= 0 && line < Long.SIZE) mask |= 1L << line;
+            if (line >= 0 && line < PACKED_LINES) counts |= (long) win.count << (3 * line);
+        }
+        this.winMask = mask;
+        this.matchCounts = counts;
+        this.machine = null;
+        this.betAmount = 0;
+    }
+
+    /**
+     * Constructs a packed result whose grid and line wins are built on demand.
+     * @param machine Machine that evaluated the stops
+     * @param stops Stop position per reel
+     * @param betAmount Bet the payouts were multiplied by
+     * @param winMask Paid lines, bit i for payline i + 1
+     * @param matchCounts Match counts of the paid lines (see {@link #matchCounts})
+     * @param scatterCount Number of scatters on the grid
+     * @param scatterPayout Scatter payout
+     * @param totalPayout Total payout
+     */
+    SpinResult(SlotMachine machine, int[] stops, int betAmount, long winMask, long matchCounts,
+               int scatterCount, int scatterPayout, int totalPayout) {
+        this.stops = stops;
+        this.scatterCount = scatterCount;
+        this.scatterPayout = scatterPayout;
+        this.totalPayout = totalPayout;
+        this.winMask = winMask;
+        this.matchCounts = matchCounts;
+        this.machine = machine;
+        this.betAmount = betAmount;
+    }
+
+    /**
+     * Returns the grid, building it on first use for packed results.
+     * @return 3x5 grid of symbols
+     */
+    public Symbol[][] getGrid() {
+        Symbol[][] result = grid;
+        if (result == null) {
+            result = machine.gridAt(stops);
+            grid = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the paid lines in payline order, building them on first use for packed results.
+     * @return Line wins
+     */
+    public List<LineWin> getLineWins() {
+        List<LineWin> result = lineWins;
+        if (result == null) {
+            result = new ArrayList<>(Long.bitCount(winMask));
+            for (long mask = winMask; mask != 0; mask &= mask - 1) {
+                int line = Long.numberOfTrailingZeros(mask);
+                Symbol symbol = machine.lineSymbol(stops, line);
+                int count = getMatchCount(line + 1);
+                result.add(new LineWin(line + 1, symbol, count, symbol.getPayout(count) * betAmount));
+            }
+            lineWins = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of paid lines without building them.
+     * @return Number of line wins
+     */
+    public int getWinningLineCount() {
+        List<LineWin> wins = lineWins;
+        return wins != null ? wins.size() : Long.bitCount(winMask);
+    }
+
+    /**
+     * Returns how many symbols matched on a paid line.
+     * @param lineIndex Payline number, starting at 1
+     * @return Match count, or 0 if the line did not pay
+     */
+    public int getMatchCount(int lineIndex) {
+        int line = lineIndex - 1;
+        if (line >= 0 && line < PACKED_LINES) return (int) (matchCounts >>> (3 * line)) & 7;
+        if (machine != null) return line < Long.SIZE && (winMask & 1L << line) != 0 ? machine.lineMatch(stops, line) : 0;
+        for (LineWin win : lineWins) {
+            if (win.lineIndex == lineIndex) return win.count;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the symbol of a paid line without building the line wins.
+     * @param lineIndex Payline number, starting at 1
+     * @return Winning symbol, or null if the line did not pay
+     */
+    public Symbol getLineSymbol(int lineIndex) {
+        int line = lineIndex - 1;
+        if (machine != null) return line >= 0 && line < Long.SIZE && (winMask & 1L << line) != 0 ? machine.lineSymbol(stops, line) : null;
+        for (LineWin win : lineWins) {
+            if (win.lineIndex == lineIndex) return win.symbol;
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,283 @@
+package com.enigma.slotmachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulator with variance-reduced sampling of reel stops and an optional control-variate estimator.
+ * <p>
+ * Samplers produce one uniform draw per reel and spin; all of them keep every single draw uniformly
+ * distributed, so RTP, hit rate and scatter-trigger frequency stay unbiased:
+ * <ul>
+ *   <li>{@link Sampler#UNIFORM}: independent draws, as in {@link Simulator}</li>
+ *   <li>{@link Sampler#ANTITHETIC}: spins come in pairs (u, 1 - u) on every reel</li>
+ *   <li>{@link Sampler#STRATIFIED}: Latin hypercube per batch; each reel's draws cover every stratum of
+ *       [0, 1) exactly once, with the strata independently permuted across reels</li>
+ * </ul>
+ * Confidence intervals are computed over independent replicates (a single spin, an antithetic pair or a
+ * stratified batch). The control variate is the pay-all line payout, whose exact mean is known from
+ * {@link AnalyticRtp}; its coefficient is estimated on a separate pilot run so the estimator stays unbiased.
+ */
+public class VarianceReducedSimulator {
+    /**
+     * Reel-stop sampling scheme.
+     */
+    public enum Sampler {
+        UNIFORM, ANTITHETIC, STRATIFIED
+    }
+
+    private static final int PILOT_BATCHES = 32;
+    // Keeps pilot streams apart from the main run's batch streams
+    private static final long PILOT_STREAM_OFFSET = 1L << 61;
+
+    /**
+     * Exact sums over replicates of the payout Y and the control X (both summed over the replicate's spins).
+     */
+    public static class ReplicateStats {
+        long replicates;
+        long sumY;
+        long sumX;
+        long sumYY;
+        long sumXX;
+        long sumXY;
+
+        void add(long y, long x) {
+            replicates++;
+            sumY += y;
+            sumX += x;
+            sumYY += y * y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+
+        void merge(ReplicateStats other) {
+            replicates += other.replicates;
+            sumY += other.sumY;
+            sumX += other.sumX;
+            sumYY += other.sumYY;
+            sumXX += other.sumXX;
+            sumXY += other.sumXY;
+        }
+
+        double covariance(double sumA, double sumB, double sumAB) {
+            if (replicates < 2) return 0.0;
+            return (sumAB - sumA * sumB / replicates) / (replicates - 1);
+        }
+
+        /**
+         * Returns the control-variate coefficient that minimises the variance of Y - beta * X.
+         * @return Optimal coefficient, or 0 if the control has no variance
+         */
+        double optimalBeta() {
+            double varX = covariance(sumX, sumX, sumXX);
+            return varX > 0 ? covariance(sumX, sumY, sumXY) / varX : 0.0;
+        }
+    }
+
+    /**
+     * Results of a variance-reduced run. Estimates are per spin at a bet of 1.
+     */
+    public static class Results {
+        public final SimulationStats stats = new SimulationStats();
+        public final ReplicateStats replicates = new ReplicateStats();
+        public Sampler sampler;
+        public int replicateSize;
+        public double beta;
+        public double controlMean;
+
+        /**
+         * Returns the plain RTP estimate (mean payout per spin).
+         * @return RTP estimate
+         */
+        public double rtp() {
+            return stats.rtp();
+        }
+
+        /**
+         * Returns the half-width of the plain RTP estimate's confidence interval, from replicate variance.
+         * @param z Normal quantile for the confidence level
+         * @return Half-width as a fraction of the amount bet
+         */
+        public double rtpHalfWidth(double z) {
+            return halfWidth(0.0, z);
+        }
+
+        /**
+         * Returns the control-variate RTP estimate: mean of Y - beta * (X - E[X]).
+         * @return Control-variate RTP estimate
+         */
+        public double controlVariateRtp() {
+            if (replicates.replicates == 0) return 0.0;
+            double meanY = (double) replicates.sumY / replicates.replicates / replicateSize;
+            double meanX = (double) replicates.sumX / replicates.replicates / replicateSize;
+            return meanY - beta * (meanX - controlMean);
+        }
+
+        /**
+         * Returns the half-width of the control-variate estimate's confidence interval.
+         * @param z Normal quantile for the confidence level
+         * @return Half-width as a fraction of the amount bet
+         */
+        public double controlVariateHalfWidth(double z) {
+            return halfWidth(beta, z);
+        }
+
+        private double halfWidth(double b, double z) {
+            ReplicateStats r = replicates;
+            if (r.replicates < 2) return 0.0;
+            double varY = r.covariance(r.sumY, r.sumY, r.sumYY);
+            double varX = r.covariance(r.sumX, r.sumX, r.sumXX);
+            double covXY = r.covariance(r.sumX, r.sumY, r.sumXY);
+            double variance = Math.max(0.0, varY - 2 * b * covXY + b * b * varX);
+            // Replicate totals are sums over replicateSize spins; scale to per-spin means
+            return z * Math.sqrt(variance / r.replicates) / replicateSize;
+        }
+    }
+
+    private final ISlotMachine machine;
+    private final long seed;
+    private final int threads;
+    private final Sampler sampler;
+
+    /**
+     * Constructs a variance-reduced simulator.
+     * @param machine Machine whose reels and paylines are simulated
+     * @param seed Run seed
+     * @param threads Number of worker threads
+     * @param sampler Reel-stop sampling scheme
+     */
+    public VarianceReducedSimulator(ISlotMachine machine, long seed, int threads, Sampler sampler) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.machine = machine;
+        this.seed = seed;
+        this.threads = threads;
+        this.sampler = sampler;
+    }
+
+    /**
+     * Runs at least the given number of spins, rounded up to whole replicates (pairs or batches).
+     * @param spins Number of spins
+     * @return Estimates and their replicate statistics
+     */
+    public Results run(long spins) {
+        int batchSize = Simulator.BATCH_SIZE;
+        long batches = (spins + batchSize - 1) / batchSize;
+        Results results = new Results();
+        results.sampler = sampler;
+        results.replicateSize = replicateSize(batchSize);
+        results.controlMean = AnalyticRtp.allLinesRtp(machine);
+
+        ReplicateStats pilot = new ReplicateStats();
+        BatchEvaluator pilotEvaluator = new BatchEvaluator(machine, batchSize);
+        double[][] pilotUniforms = new double[SlotMachineConfig.REELS][batchSize];
+        for (long b = 0; b < PILOT_BATCHES; b++) {
+            runBatch(PILOT_STREAM_OFFSET + b, batchSize, pilotUniforms, pilotEvaluator, new SimulationStats(), pilot);
+        }
+        results.beta = pilot.optimalBeta();
+
+        AtomicLong nextBatch = new AtomicLong();
+        long total = sampler == Sampler.STRATIFIED ? batches * batchSize : roundUp(spins);
+        List<Callable<Results>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                Results local = new Results();
+                BatchEvaluator evaluator = new BatchEvaluator(machine, batchSize);
+                double[][] uniforms = new double[SlotMachineConfig.REELS][batchSize];
+                long batch;
+                while ((batch = nextBatch.getAndIncrement()) < batches) {
+                    int count = (int) Math.min(batchSize, total - batch * batchSize);
+                    runBatch(batch, count, uniforms, evaluator, local.stats, local.replicates);
+                }
+                return local;
+            });
+        }
+        for (Results local : Simulator.runAll(workers)) {
+            results.stats.merge(local.stats);
+            results.replicates.merge(local.replicates);
+        }
+        return results;
+    }
+
+    // Spins per independent replicate: one spin, an antithetic pair, or a whole stratified batch
+    private int replicateSize(int batchCount) {
+        switch (sampler) {
+            case ANTITHETIC:
+                return 2;
+            case STRATIFIED:
+                return batchCount;
+            default:
+                return 1;
+        }
+    }
+
+    private long roundUp(long spins) {
+        return sampler == Sampler.ANTITHETIC ? (spins + 1) / 2 * 2 : spins;
+    }
+
+    private void runBatch(long batch, int count, double[][] uniforms, BatchEvaluator evaluator,
+            SimulationStats stats, ReplicateStats replicates) {
+        SplittableRandom random = RngStreams.forBatch(seed, batch);
+        fill(random, uniforms, count);
+        evaluator.fillUniforms(uniforms, count);
+        evaluator.evaluate();
+        evaluator.record(stats);
+        int size = replicateSize(count);
+        for (int start = 0; start < count; start += size) {
+            long y = 0;
+            long x = 0;
+            for (int i = start; i < start + size; i++) {
+                y += evaluator.payout(i);
+                x += evaluator.allLinePayout(i);
+            }
+            replicates.add(y, x);
+        }
+    }
+
+    /**
+     * Fills uniform draws for one batch according to the sampler.
+     * @param random Random stream of the batch
+     * @param uniforms Output: uniform draw per reel, each array indexed by spin
+     * @param count Number of spins (even for antithetic sampling)
+     */
+    void fill(SplittableRandom random, double[][] uniforms, int count) {
+        switch (sampler) {
+            case ANTITHETIC:
+                // nextDown(1.0) - u maps the 2^53 grid of nextDouble() onto itself, so the partner is uniform too
+                double top = Math.nextDown(1.0);
+                for (int i = 0; i < count; i += 2) {
+                    for (double[] reel : uniforms) {
+                        double u = random.nextDouble();
+                        reel[i] = u;
+                        reel[i + 1] = top - u;
+                    }
+                }
+                break;
+            case STRATIFIED:
+                int[] strata = new int[count];
+                for (double[] reel : uniforms) {
+                    for (int i = 0; i < count; i++) strata[i] = i;
+                    for (int i = count - 1; i > 0; i--) {
+                        int j = random.nextInt(i + 1);
+                        int tmp = strata[i];
+                        strata[i] = strata[j];
+                        strata[j] = tmp;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        reel[i] = (strata[i] + random.nextDouble()) / count;
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    for (double[] reel : uniforms) {
+                        reel[i] = random.nextDouble();
+                    }
+                }
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.enigma.slotmachine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Crash-safe store of player balances: a write-ahead log of balance changes plus periodic snapshots.
+ * <p>
+ * Balances live in memory, keyed by session id. Every change is one 48-byte log record holding both the
+ * debit and the credit of a spin, so a spin is never recorded half-applied. A credit paying something
+ * recorded elsewhere, such as a jackpot award, carries that reference in the same record; the store keeps
+ * the last reference credited per session, so a payment found missing after a crash is made exactly once. Records are appended to an
+ * in-memory buffer and written and forced to disk by a background thread every commit interval (group
+ * commit), so many sessions share one fsync; {@link #awaitDurable(long)} blocks until a change is on disk.
+ * <p>
+ * After a set number of records the store writes a compacted snapshot of all balances (atomically, via a
+ * temporary file), starts a new log segment and deletes the older segments and snapshots. Recovery loads
+ * the newest valid snapshot and replays only the log records after it; a record torn by a crash ends the
+ * log and is truncated away. A damaged snapshot is only skipped when an older one plus the remaining log
+ * segments still cover every record; otherwise recovery fails rather than silently losing balances.
+ */
+public class WalletStore implements Closeable {
+    public static final int RECORD_SIZE = 48;
+    public static final long DEFAULT_SNAPSHOT_RECORDS = 1_000_000;
+    public static final long DEFAULT_COMMIT_MILLIS = 2;
+
+    private static final int SNAPSHOT_MAGIC = 0x534D5753; // "SMWS"
+    private static final int VERSION = 2;
+    private static final String LOG_PREFIX = "wallet-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "wallet-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path dir;
+    private final long snapshotRecords;
+    private final long commitMillis;
+    private final Map<Long, Long> balances = new HashMap<>();
+    // Last reference credited per session, for sessions that were credited one
+    private final Map<Long, Long> references = new HashMap<>();
+    private final CRC32C crc = new CRC32C();
+    // Serialises log writes, segment rotation and snapshots; taken before the store's own lock
+    private final Object ioLock = new Object();
+    // Started by open() once the store is fully constructed
+    private Thread committer;
+
+    private ByteBuffer pending = newBuffer(64 * 1024);
+    private ByteBuffer writing = newBuffer(64 * 1024);
+    private FileChannel log;
+    private long lastLsn;
+    private long durableLsn;
+    private long snapshotLsn;
+    private boolean commitRequested;
+    private boolean closed;
+    private IOException commitFailure;
+
+    /**
+     * Opens (or creates) a wallet store with the default snapshot and commit intervals.
+     * @param dir Store directory
+     * @return Open store
+     * @throws IOException If the store cannot be opened or recovered
+     */
+    public static WalletStore open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SNAPSHOT_RECORDS, DEFAULT_COMMIT_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) a wallet store, recovering balances from its snapshot and log, and starts its
+     * commit thread.
+     * @param dir Store directory
+     * @param snapshotRecords Log records between snapshots
+     * @param commitMillis Group commit interval in milliseconds
+     * @return Open store
+     * @throws IOException If the store cannot be opened or recovered
+     */
+    public static WalletStore open(Path dir, long snapshotRecords, long commitMillis) throws IOException {
+        WalletStore store = new WalletStore(dir, snapshotRecords, commitMillis);
+        store.committer = new Thread(store::commitLoop, "wallet-commit");
+        store.committer.setDaemon(true);
+        store.committer.start();
+        return store;
+    }
+
+    private WalletStore(Path dir, long snapshotRecords, long commitMillis) throws IOException {
+        if (snapshotRecords < 1 || commitMillis < 1) {
+            throw new IllegalArgumentException("Snapshot interval and commit interval must be at least 1");
+        }
+        this.dir = dir;
+        this.snapshotRecords = snapshotRecords;
+        this.commitMillis = commitMillis;
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    /**
+     * Returns the balance of a session.
+     * @param sessionId Session id
+     * @return Current balance (0 for an unknown session)
+     */
+    public synchronized long balance(long sessionId) {
+        return balances.getOrDefault(sessionId, 0L);
+    }
+
+    public synchronized boolean hasSession(long sessionId) {
+        return balances.containsKey(sessionId);
+    }
+
+    public synchronized int sessionCount() {
+        return balances.size();
+    }
+
+    /**
+     * Credits a deposit to a session.
+     * @param sessionId Session id
+     * @param amount Amount to add
+     * @return Log sequence number of the change
+     * @throws IOException If the store is closed or a commit failed
+     */
+    public long deposit(long sessionId, long amount) throws IOException {
+        return settle(sessionId, 0, amount);
+    }
+
+    /**
+     * Records a spin's debit (the bet) and credit (the payout) as one atomic change.
+     * @param sessionId Session id
+     * @param debit Amount taken, e.g. the bet (0 for a free spin)
+     * @param credit Amount paid out
+     * @return Log sequence number of the change
+     * @throws IOException If the store is closed or a commit failed
+     * @throws IllegalArgumentException If an amount is negative or the balance does not cover the debit
+     */
+    public synchronized long settle(long sessionId, long debit, long credit) throws IOException {
+        return append(sessionId, debit, credit, 0);
+    }
+
+    /**
+     * Credits a payment recorded elsewhere, e.g. a jackpot award, at most once. References of a session
+     * must increase; crediting a reference at or below the last one credited changes nothing.
+     * @param sessionId Session id
+     * @param amount Amount to add
+     * @param reference Positive id of the payment, e.g. the award id
+     * @return Log sequence number of the change, or of the last change if the reference was already credited
+     * @throws IOException If the store is closed or a commit failed
+     */
+    public synchronized long credit(long sessionId, long amount, long reference) throws IOException {
+        if (reference < 1) {
+            throw new IllegalArgumentException("Reference must be positive: " + reference);
+        }
+        if (reference <= lastReference(sessionId)) return lastLsn;
+        return append(sessionId, 0, amount, reference);
+    }
+
+    /**
+     * Returns the last reference credited to a session through {@link #credit(long, long, long)}.
+     * @param sessionId Session id
+     * @return Last reference, 0 if none
+     */
+    public synchronized long lastReference(long sessionId) {
+        return references.getOrDefault(sessionId, 0L);
+    }
+
+    // Called holding the lock
+    private long append(long sessionId, long debit, long credit, long reference) throws IOException {
+        if (debit < 0 || credit < 0) {
+            throw new IllegalArgumentException("Amounts must not be negative");
+        }
+        if (closed) throw new IOException("Wallet store is closed");
+        if (commitFailure != null) throw commitFailure;
+        long balance = balances.getOrDefault(sessionId, 0L);
+        if (balance < debit) {
+            throw new IllegalArgumentException("Insufficient balance " + balance + " for " + debit);
+        }
+        long lsn = lastLsn + 1;
+        if (pending.remaining() < RECORD_SIZE) {
+            ByteBuffer larger = newBuffer(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.putLong(lsn).putLong(sessionId).putLong(debit).putLong(credit).putLong(reference);
+        crc.reset();
+        crc.update(pending.array(), start, 40);
+        pending.putInt((int) crc.getValue()).putInt(0);
+        balances.put(sessionId, balance - debit + credit);
+        if (reference != 0) references.put(sessionId, reference);
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    /**
+     * Blocks until the change with the given sequence number (and every earlier one) is on disk.
+     * @param lsn Log sequence number
+     * @throws IOException If a commit failed or the wait was interrupted
+     */
+    public synchronized void awaitDurable(long lsn) throws IOException {
+        while (durableLsn < lsn) {
+            if (commitFailure != null) throw commitFailure;
+            commitRequested = true;
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the wallet store");
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of all balances, starts a new log segment and removes the files it supersedes.
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        synchronized (ioLock) {
+            Map<Long, Long> copy;
+            Map<Long, Long> referencesCopy;
+            long lsn;
+            synchronized (this) {
+                commit();
+                copy = new HashMap<>(balances);
+                referencesCopy = new HashMap<>(references);
+                lsn = lastLsn;
+                if (lsn == snapshotLsn) return;
+            }
+            log.close();
+            log = openLog(lsn + 1);
+            writeSnapshot(copy, referencesCopy, lsn);
+            synchronized (this) {
+                snapshotLsn = lsn;
+            }
+            for (Path file : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (sequenceOf(file, SNAPSHOT_SUFFIX) < lsn) Files.delete(file);
+            }
+            for (Path file : list(LOG_PREFIX, LOG_SUFFIX)) {
+                if (sequenceOf(file, LOG_SUFFIX) <= lsn) Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Commits every change and stops the commit thread.
+     * @throws IOException If the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                synchronized (this) {
+                    commit();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    commitFailure = e;
+                    notifyAll();
+                }
+                throw e;
+            } finally {
+                log.close();
+            }
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            synchronized (this) {
+                if (closed) return;
+                if (!commitRequested) {
+                    try {
+                        wait(commitMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                commitRequested = false;
+                if (closed) return;
+            }
+            try {
+                boolean snapshotDue;
+                synchronized (ioLock) {
+                    long target;
+                    synchronized (this) {
+                        if (pending.position() == 0) continue;
+                        ByteBuffer swap = writing;
+                        writing = pending;
+                        pending = swap;
+                        target = lastLsn;
+                    }
+                    writeOut(writing);
+                    synchronized (this) {
+                        durableLsn = Math.max(durableLsn, target);
+                        notifyAll();
+                        snapshotDue = durableLsn - snapshotLsn >= snapshotRecords;
+                    }
+                }
+                if (snapshotDue) snapshot();
+            } catch (IOException e) {
+                synchronized (this) {
+                    commitFailure = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // Writes everything still pending; called with both locks held
+    private void commit() throws IOException {
+        if (pending.position() > 0) {
+            writeOut(pending);
+        }
+        durableLsn = lastLsn;
+        notifyAll();
+    }
+
+    private void writeOut(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) log.write(buffer);
+        log.force(false);
+        buffer.clear();
+    }
+
+    private void recover() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<IOException> damaged = new ArrayList<>();
+        for (int i = snapshots.size() - 1; i >= 0 && snapshotLsn == 0; i--) {
+            try {
+                snapshotLsn = readSnapshot(snapshots.get(i));
+            } catch (IOException e) {
+                balances.clear();
+                references.clear();
+                damaged.add(new IOException("Damaged wallet snapshot " + snapshots.get(i) + ": " + e.getMessage(), e));
+            }
+        }
+        lastLsn = snapshotLsn;
+        List<Path> logs = list(LOG_PREFIX, LOG_SUFFIX);
+        // The segments left must continue right after the snapshot loaded; older ones were deleted with it
+        long firstLogged = logs.isEmpty() ? Long.MAX_VALUE : sequenceOf(logs.get(0), LOG_SUFFIX);
+        if ((!damaged.isEmpty() || !logs.isEmpty()) && firstLogged > snapshotLsn + 1) {
+            IOException failure = new IOException("Wallet records " + (snapshotLsn + 1) + " to "
+                    + (logs.isEmpty() ? "the end" : String.valueOf(firstLogged - 1)) + " are missing"
+                    + (snapshotLsn == 0 ? ": no snapshot could be loaded" : " after snapshot " + snapshotLsn));
+            for (IOException e : damaged) failure.addSuppressed(e);
+            throw failure;
+        }
+        ByteBuffer record = newBuffer(RECORD_SIZE);
+        for (int s = 0; s < logs.size(); s++) {
+            Path file = logs.get(s);
+            boolean last = s == logs.size() - 1;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = newBuffer(1 << 20);
+                long offset = 0;
+                long validEnd = 0;
+                boolean torn = false;
+                while (!torn) {
+                    buffer.clear();
+                    int read = channel.read(buffer, offset);
+                    if (read <= 0) break;
+                    buffer.flip();
+                    while (buffer.remaining() >= RECORD_SIZE) {
+                        buffer.get(record.clear().array(), 0, RECORD_SIZE);
+                        if (!replay(record)) {
+                            torn = true;
+                            break;
+                        }
+                        validEnd += RECORD_SIZE;
+                    }
+                    if (buffer.hasRemaining() && read < buffer.capacity()) torn = true;
+                    offset = validEnd;
+                }
+                if (validEnd < channel.size()) {
+                    if (!last) {
+                        throw new IOException(file + " is damaged at byte " + validEnd + " but later log segments exist");
+                    }
+                    channel.truncate(validEnd);
+                    channel.force(true);
+                }
+            }
+        }
+        durableLsn = lastLsn;
+        log = openLog(logs.isEmpty() ? lastLsn + 1 : sequenceOf(logs.get(logs.size() - 1), LOG_SUFFIX));
+    }
+
+    // Applies one log record during recovery; returns false at the end of the valid log
+    private boolean replay(ByteBuffer record) throws IOException {
+        crc.reset();
+        crc.update(record.array(), 0, 40);
+        if (record.getInt(40) != (int) crc.getValue()) return false;
+        long lsn = record.getLong(0);
+        if (lsn <= snapshotLsn) return true;
+        if (lsn != lastLsn + 1) {
+            // An intact record out of sequence means records are missing, not a torn tail
+            throw new IOException("Wallet log jumps from record " + lastLsn + " to " + lsn);
+        }
+        long sessionId = record.getLong(8);
+        balances.merge(sessionId, record.getLong(24) - record.getLong(16), Long::sum);
+        if (record.getLong(32) != 0) references.put(sessionId, record.getLong(32));
+        lastLsn = lsn;
+        return true;
+    }
+
+    private FileChannel openLog(long firstLsn) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(String.format("%s%020d%s", LOG_PREFIX, firstLsn, LOG_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private void writeSnapshot(Map<Long, Long> snapshot, Map<Long, Long> lastReferences, long lsn) throws IOException {
+        ByteBuffer buffer = newBuffer(24 + 24 * snapshot.size() + 4);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(lsn).putInt(snapshot.size()).putInt(0);
+        for (Map.Entry<Long, Long> entry : snapshot.entrySet()) {
+            buffer.putLong(entry.getKey()).putLong(entry.getValue())
+                    .putLong(lastReferences.getOrDefault(entry.getKey(), 0L));
+        }
+        CRC32C check = new CRC32C();
+        check.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) check.getValue());
+        buffer.flip();
+        Path file = dir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename must be durable before snapshot() deletes the segments it supersedes
+            DirectorySync.force(dir);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private long readSnapshot(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < 28 || buffer.getInt(0) != SNAPSHOT_MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a wallet snapshot (version " + VERSION + ")");
+        }
+        int count = buffer.getInt(16);
+        int end = 24 + 24 * count;
+        if (count < 0 || buffer.limit() != end + 4) {
+            throw new IOException("truncated snapshot");
+        }
+        CRC32C check = new CRC32C();
+        check.update(buffer.array(), 0, end);
+        if (buffer.getInt(end) != (int) check.getValue()) {
+            throw new IOException("checksum mismatch");
+        }
+        for (int i = 0; i < count; i++) {
+            long sessionId = buffer.getLong(24 + 24 * i);
+            balances.put(sessionId, buffer.getLong(32 + 24 * i));
+            if (buffer.getLong(40 + 24 * i) != 0) references.put(sessionId, buffer.getLong(40 + 24 * i));
+        }
+        return buffer.getLong(8);
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(dir)) {
+            entries.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long sequenceOf(Path file, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - suffix.length()));
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
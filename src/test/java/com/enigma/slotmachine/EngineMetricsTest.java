@@ -0,0 +1,87 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the engine metrics, their latency histograms and the instrumented machine.
+ */
+public class EngineMetricsTest {
+    @Test
+    void testHistogramBucketsAndPercentiles() {
+        for (long value : new long[] {0, 7, 8, 15, 16, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i * 1000L);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500, snapshot.mean(), 1e-9);
+        long p50 = snapshot.percentile(0.5);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 " + p50);
+        assertEquals(1_000_000, snapshot.percentile(1.0));
+    }
+
+    @Test
+    void testInstrumentedMachineCountsSpinsWithoutChangingResults() {
+        SlotMachine plain = SlotMachineConfig.defaults().createMachine(0, new Random(11));
+        EngineMetrics metrics = new EngineMetrics(plain.getPaylines().length);
+        SlotMachine delegate = SlotMachineConfig.defaults().createMachine(0, new Random(11));
+        ISlotMachine instrumented = new InstrumentedSlotMachine(delegate, metrics, 4);
+        instrumented.setBetAmount(2);
+        plain.setBetAmount(2);
+        long paid = 0;
+        long[] lineWins = new long[plain.getPaylines().length];
+        for (int i = 0; i < 5000; i++) {
+            SpinResult expected = plain.spinAndEvaluate();
+            SpinResult actual = instrumented.spinAndEvaluate();
+            assertArrayEquals(expected.stops, actual.stops);
+            assertEquals(expected.totalPayout, actual.totalPayout);
+            paid += actual.totalPayout;
+            for (SpinResult.LineWin win : actual.getLineWins()) lineWins[win.lineIndex - 1]++;
+        }
+        EngineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(5000, snapshot.spins);
+        assertEquals(10_000, snapshot.totalBet);
+        assertEquals(paid, snapshot.totalPayout);
+        assertArrayEquals(lineWins, snapshot.paylineWins);
+        // One spin in four is timed
+        assertEquals(1250, snapshot.spinLatency.getCount());
+        assertTrue(snapshot.spinsPerSecond() > 0);
+
+        metrics.setEnabled(false);
+        instrumented.spinAndEvaluate();
+        assertEquals(5000, metrics.getSpins());
+    }
+
+    @Test
+    void testMetricsAreReadableOverJmx() throws Exception {
+        EngineMetrics metrics = new EngineMetrics(5);
+        SlotMachine delegate = SlotMachineConfig.defaults().createMachine(0, new Random(11));
+        ISlotMachine machine = new InstrumentedSlotMachine(delegate, metrics, 1);
+        for (int i = 0; i < 100; i++) machine.spinAndEvaluate();
+        ObjectName name = metrics.register("test-" + System.nanoTime());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(100L, server.getAttribute(name, "Spins"));
+            assertTrue((Long) server.getAttribute(name, "SpinLatencyP99Nanos") > 0);
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, metrics.getSpins());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
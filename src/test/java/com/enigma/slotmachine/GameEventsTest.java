@@ -0,0 +1,128 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the JFR events emitted by the game.
+ */
+public class GameEventsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testEventsAreRecordedWithTheirFields() throws Exception {
+        Path config = dir.resolve("test.properties");
+        Files.writeString(config, "minScatterDistance=x\n");
+        Path dump = dir.resolve("events.jfr");
+        long paid = 0;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.enigma.slotmachine.Spin").withThreshold(Duration.ZERO);
+            recording.enable("com.enigma.slotmachine.ReelBuild");
+            recording.enable("com.enigma.slotmachine.ConfigLoad");
+            recording.start();
+            SlotMachine machine = SlotMachineConfig.load(config.toString()).createMachine(0, new Random(4));
+            machine.setBetAmount(2);
+            for (int i = 0; i < 200; i++) paid += machine.spinAndEvaluate().totalPayout;
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        long spins = 0;
+        long recordedPaid = 0;
+        int reels = 0;
+        int configs = 0;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case "com.enigma.slotmachine.Spin":
+                    spins++;
+                    assertEquals(2, event.getInt("bet"));
+                    recordedPaid += event.getInt("payout");
+                    break;
+                case "com.enigma.slotmachine.ReelBuild":
+                    reels++;
+                    assertTrue(event.getInt("validStops") <= event.getInt("stripLength"));
+                    break;
+                case "com.enigma.slotmachine.ConfigLoad":
+                    configs++;
+                    assertEquals(config.toString(), event.getString("path"));
+                    assertEquals(1, event.getInt("warnings"));
+                    assertTrue(event.getBoolean("succeeded"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        assertEquals(200, spins);
+        assertEquals(paid, recordedPaid);
+        assertEquals(SlotMachineConfig.REELS, reels);
+        assertEquals(1, configs);
+    }
+
+    @Test
+    void testInstrumentedMachineRecordsEverySpin() throws Exception {
+        Path dump = dir.resolve("instrumented.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.enigma.slotmachine.Spin").withThreshold(Duration.ZERO);
+            recording.start();
+            SlotMachine machine = SlotMachineConfig.defaults().createMachine(10_000, new Random(5));
+            EngineMetrics metrics = new EngineMetrics(machine.getPaylines().length);
+            ISlotMachine instrumented = new InstrumentedSlotMachine(machine, metrics);
+            // Timed and untimed spins, through both the plain and the bonus-tracking paths
+            for (int i = 0; i < 100; i++) instrumented.spinAndEvaluate();
+            for (int i = 0; i < 100; i++) instrumented.playSpin();
+            recording.stop();
+            recording.dump(dump);
+        }
+        long spins = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("com.enigma.slotmachine.Spin")).count();
+        assertEquals(200, spins);
+    }
+
+    @Test
+    void testFreeSpinRoundEventEndsWithTheRound() throws Exception {
+        Path dump = dir.resolve("rounds.jfr");
+        int rounds = 20;
+        long spinsPlayed = 0;
+        long roundPayout = 0;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.enigma.slotmachine.FreeSpinRound");
+            recording.start();
+            SlotMachine machine = SlotMachineTest.scatterRichMachine(100_000, 3);
+            machine.setFreeSpinsPerTrigger(1);
+            for (int i = 0; i < rounds; i++) {
+                while (machine.getFreeSpins() == 0) machine.playSpin();
+                FreeSpinRound round = machine.playFreeSpinRound();
+                spinsPlayed += round.spinsPlayed;
+                roundPayout += round.totalPayout;
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("com.enigma.slotmachine.FreeSpinRound")).toList();
+        assertEquals(rounds, events.size());
+        long recordedSpins = 0;
+        long recordedPayout = 0;
+        for (RecordedEvent event : events) {
+            assertTrue(event.getInt("triggerScatterCount") >= 3);
+            assertEquals(event.getInt("spinsAwarded"), event.getInt("spinsPlayed"));
+            recordedSpins += event.getInt("spinsPlayed");
+            recordedPayout += event.getLong("payout");
+        }
+        assertEquals(spinsPlayed, recordedSpins);
+        assertEquals(roundPayout, recordedPayout);
+    }
+}
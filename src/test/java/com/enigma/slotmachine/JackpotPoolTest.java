@@ -0,0 +1,170 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the progressive jackpot pool: striped contributions, exactly-once awards and recovery.
+ */
+public class JackpotPoolTest {
+    private static final JackpotPool.Trigger FIVE_KINGS = new JackpotPool.Trigger(Symbol.K, 5);
+
+    @TempDir
+    Path dir;
+
+    private static SpinResult lineWin(Symbol symbol, int count) {
+        List<SpinResult.LineWin> wins = List.of(new SpinResult.LineWin(2, symbol, count, symbol.getPayout(count)));
+        return new SpinResult(new Symbol[3][5], wins, 0, 0, symbol.getPayout(count));
+    }
+
+    @Test
+    void testTriggers() {
+        assertTrue(FIVE_KINGS.matches(lineWin(Symbol.K, 5)));
+        assertFalse(FIVE_KINGS.matches(lineWin(Symbol.K, 4)));
+        assertFalse(FIVE_KINGS.matches(lineWin(Symbol.A, 5)));
+        JackpotPool.Trigger scatters = JackpotPool.Trigger.parse("SCATTER:3");
+        assertTrue(scatters.matches(new SpinResult(new Symbol[3][5], List.of(), 3, 2, 2)));
+        assertFalse(scatters.matches(new SpinResult(new Symbol[3][5], List.of(), 2, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> JackpotPool.Trigger.parse("K:6"));
+        assertThrows(IllegalArgumentException.class, () -> JackpotPool.Trigger.parse("X:5"));
+    }
+
+    @Test
+    void testConcurrentContributionsAndAwardsConserveThePool() throws Exception {
+        int threads = 4;
+        int spins = 50_000;
+        AtomicLong awardedAbove = new AtomicLong();
+        try (JackpotPool pool = new JackpotPool(dir, FIVE_KINGS, 150, 1000)) {
+            List<Thread> players = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long session = t;
+                players.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < spins; i++) {
+                            SpinResult result = i % 10_000 == 9_999 ? lineWin(Symbol.K, 5) : lineWin(Symbol.A, 3);
+                            JackpotPool.Award award = pool.onSpin(session, i, 2, result);
+                            if (award != null) awardedAbove.addAndGet(award.amount - 1000);
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (Thread player : players) player.start();
+            for (Thread player : players) player.join();
+            assertEquals(threads * (spins / 10_000), pool.getAwards().size());
+            // 2 credits at 1.5% per spin: every contributed credit is either awarded or still in the pool
+            long contributed = (long) threads * spins * 2 * 150 / JackpotPool.UNITS_PER_CREDIT;
+            assertEquals(contributed, awardedAbove.get() + pool.value() - 1000);
+        }
+    }
+
+    @Test
+    void testFailedBackgroundCheckpointIsThrownFromTheNextSpin() throws Exception {
+        Path poolDir = dir.resolve("pool");
+        JackpotPool pool = new JackpotPool(poolDir, FIVE_KINGS, 100, 500, 1);
+        pool.contribute(1);
+        // Without its directory, every checkpoint fails
+        try (java.util.stream.Stream<Path> files = Files.list(poolDir)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(poolDir);
+        IOException failure = null;
+        for (int i = 0; i < 1000 && failure == null; i++) {
+            try {
+                pool.onSpin(1, i, 1, lineWin(Symbol.A, 3));
+                Thread.sleep(5);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        assertNotNull(failure);
+        assertEquals("Jackpot checkpoint failed", failure.getMessage());
+        assertThrows(IOException.class, pool::close);
+    }
+
+    @Test
+    void testAwardLostBeforeTheWalletCreditIsPaidOnceOnRestart() throws Exception {
+        Path walletDir = dir.resolve("wallet");
+        JackpotPool.Award award;
+        try (JackpotPool pool = new JackpotPool(dir.resolve("jackpot"), FIVE_KINGS, 100, 500);
+                WalletStore wallet = WalletStore.open(walletDir, 100, 1)) {
+            wallet.awaitDurable(wallet.deposit(Main.PLAYER_SESSION, 100));
+            // The award is durable, but the process dies before the wallet is credited
+            award = pool.award(Main.PLAYER_SESSION, 1, lineWin(Symbol.K, 5));
+            pool.award(Main.PLAYER_SESSION + 1, 1, lineWin(Symbol.K, 5));
+        }
+        try (JackpotPool pool = new JackpotPool(dir.resolve("jackpot"), FIVE_KINGS, 100, 500);
+                WalletStore wallet = WalletStore.open(walletDir, 100, 1)) {
+            assertEquals(1, Main.payUnpaidAwards(wallet, pool));
+            assertEquals(100 + award.amount, wallet.balance(Main.PLAYER_SESSION));
+            assertEquals(award.awardId, wallet.lastReference(Main.PLAYER_SESSION));
+            wallet.snapshot();
+        }
+        // The reference survives the snapshot, so the award is not paid twice
+        try (JackpotPool pool = new JackpotPool(dir.resolve("jackpot"), FIVE_KINGS, 100, 500);
+                WalletStore wallet = WalletStore.open(walletDir, 100, 1)) {
+            assertEquals(0, Main.payUnpaidAwards(wallet, pool));
+            wallet.awaitDurable(wallet.credit(Main.PLAYER_SESSION, award.amount, award.awardId));
+            assertEquals(100 + award.amount, wallet.balance(Main.PLAYER_SESSION));
+        }
+    }
+
+    @Test
+    void testAwardIsExactlyOncePerSpinAndSurvivesRestart() throws Exception {
+        JackpotPool.Award award;
+        try (JackpotPool pool = new JackpotPool(dir, FIVE_KINGS, 100, 500)) {
+            for (int i = 0; i < 1234; i++) pool.contribute(1);
+            assertEquals(512, pool.value());
+            assertNull(pool.onSpin(1, 1, 1, lineWin(Symbol.K, 4)));
+            award = pool.onSpin(1, 2, 1, lineWin(Symbol.K, 5));
+            assertEquals(512, award.amount);
+            assertEquals(500, pool.value());
+            assertSame(award, pool.award(1, 2, lineWin(Symbol.K, 5)));
+            assertThrows(IllegalArgumentException.class, () -> pool.award(1, 3, lineWin(Symbol.Q, 5)));
+            for (int i = 0; i < 250; i++) pool.contribute(2);
+        }
+        try (JackpotPool pool = new JackpotPool(dir, FIVE_KINGS, 100, 500)) {
+            // 0.34 carried over from the award plus 5 contributed afterwards
+            assertEquals(505, pool.value());
+            assertEquals(1, pool.getAwards().size());
+            JackpotPool.Award again = pool.award(1, 2, lineWin(Symbol.K, 5));
+            assertEquals(award.awardId, again.awardId);
+            assertEquals(award.amount, again.amount);
+            assertEquals(505, pool.value());
+        }
+    }
+
+    @Test
+    void testAwardLoggedAfterLastCheckpointIsNotPaidAgain() throws Exception {
+        Path saved = dir.resolve("saved.state");
+        try (JackpotPool pool = new JackpotPool(dir, FIVE_KINGS, 100, 0)) {
+            for (int i = 0; i < 1000; i++) pool.contribute(5);
+            pool.flush();
+            Files.copy(dir.resolve("jackpot.state"), saved);
+            assertEquals(50, pool.award(7, 1, lineWin(Symbol.K, 5)).amount);
+        }
+        // As if the process died between logging the award and checkpointing the emptied pool
+        Files.move(saved, dir.resolve("jackpot.state"), StandardCopyOption.REPLACE_EXISTING);
+        try (JackpotPool pool = new JackpotPool(dir, FIVE_KINGS, 100, 0)) {
+            assertEquals(0, pool.value());
+            assertEquals(1, pool.getAwards().size());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the multi-tenant registry: interning of reels, paylines and models, and session handles.
+ */
+public class MachineRegistryTest {
+    @TempDir
+    Path dir;
+
+    private Path write(String name, String properties) throws Exception {
+        Path path = dir.resolve(name);
+        Files.writeString(path, properties);
+        return path;
+    }
+
+    @Test
+    void testIdenticalPiecesAreShared() throws Exception {
+        MachineRegistry registry = new MachineRegistry(42L);
+        SlotMachine classic = registry.register("classic", SlotMachineConfig.defaults());
+        assertSame(classic, registry.register("classic-copy", SlotMachineConfig.defaults()));
+        registry.load("highest", write("highest.properties", "payAllWins=false\n"));
+        registry.load("lines", write("lines.properties", "paylines=1,1,1,1,1;0,1,2,1,0\n"));
+        registry.load("royal", write("royal.properties", "symbols=TEN:12,J:12,Q:12,K:12,A:12,P1:6,P2:6,P3:3,P4:3,SCATTER:2\n"));
+
+        SlotMachine highest = registry.getModel("highest");
+        assertNotSame(classic, highest);
+        assertSame(classic.getReels(), highest.getReels());
+        assertSame(classic.getPaylines(), highest.getPaylines());
+        assertSame(classic.getPaylineEvaluator(), highest.getPaylineEvaluator());
+        assertSame(classic.getReels(), registry.getModel("lines").getReels());
+        assertNotSame(classic.getReels(), registry.getModel("royal").getReels());
+        assertEquals(10, registry.distinctReelStrips());
+        assertEquals(2, registry.distinctPaylineTables());
+        assertEquals(4, registry.distinctModels());
+        assertEquals(List.of("classic", "classic-copy", "highest", "lines", "royal"), List.copyOf(registry.getNames()));
+    }
+
+    @Test
+    void testSessionsKeepTheirOwnBalanceAndBet() {
+        MachineRegistry registry = new MachineRegistry(7L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        MachineSession first = registry.openSession("classic", 100);
+        MachineSession second = registry.openSession("classic", 50);
+        assertSame(first.getModel(), second.getModel());
+        first.setBetAmount(5);
+        first.deductBalance(5);
+        second.addBalance(10);
+        assertEquals(95, first.getBalance());
+        assertEquals(60, second.getBalance());
+        assertEquals(1, second.getBetAmount());
+        assertEquals(1, first.getModel().getBetAmount());
+        for (int i = 0; i < 2000; i++) {
+            SpinResult result = first.spinAndEvaluate();
+            SpinResult expected = first.getModel().evaluateStops(result.stops, 5);
+            assertEquals(expected.totalPayout, result.totalPayout);
+            assertEquals(expected.winMask, result.winMask);
+            assertEquals(result.totalPayout, first.calculatePayout(result.getGrid()));
+            assertArrayEquals(result.getGrid(), first.gridAt(result.stops));
+        }
+    }
+
+    @Test
+    void testSeedFixesStripsButNotSpins() {
+        MachineRegistry first = new MachineRegistry(11L);
+        MachineRegistry second = new MachineRegistry(11L);
+        first.register("classic", SlotMachineConfig.defaults());
+        second.register("classic", SlotMachineConfig.defaults());
+        IReel[] reels = first.getModel("classic").getReels();
+        for (int r = 0; r < reels.length; r++) {
+            assertArrayEquals(reels[r].getFullStrip(), second.getModel("classic").getReels()[r].getFullStrip());
+        }
+        MachineSession a = first.openSession("classic", 0);
+        MachineSession b = second.openSession("classic", 0);
+        boolean differ = false;
+        for (int i = 0; i < 20 && !differ; i++) differ = !Arrays.equals(a.spinStops(), b.spinStops());
+        assertTrue(differ, "unseeded sessions repeated the same spins");
+    }
+
+    @Test
+    void testUnknownAndDuplicateGamesAreRejected() {
+        MachineRegistry registry = new MachineRegistry(1L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        assertThrows(IllegalArgumentException.class, () -> registry.register("classic", SlotMachineConfig.defaults()));
+        assertThrows(IllegalArgumentException.class, () -> registry.openSession("missing", 100));
+    }
+}
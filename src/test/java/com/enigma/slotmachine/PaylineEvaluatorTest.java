@@ -0,0 +1,104 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the payline evaluators: the scalar reference, the SIMD implementation (when the Vector API
+ * module is present) and the grid and batch entry points must all agree.
+ */
+class PaylineEvaluatorTest {
+    private static final int[][] PAYLINES = {
+        {1, 1, 1, 1, 1}, {0, 0, 0, 0, 0}, {2, 2, 2, 2, 2}, {0, 1, 2, 1, 0}, {2, 1, 0, 1, 2},
+        {0, 0, 1, 2, 2}, {2, 2, 1, 0, 0}, {1, 0, 0, 0, 1}, {1, 2, 2, 2, 1}, {0, 1, 0, 1, 0}
+    };
+
+    @Test
+    void testScalarGridMatchesExpectedCounts() {
+        int[] cells = new int[15];
+        // Top row: Q Q Q Q K -> 4 of a kind on line 2; middle row starts with a scatter -> no win
+        int q = Symbol.Q.ordinal();
+        int[] top = {q, q, q, q, Symbol.K.ordinal()};
+        for (int col = 0; col < 5; col++) {
+            cells[col] = top[col];
+            cells[5 + col] = col == 0 ? Symbol.SCATTER.ordinal() : Symbol.J.ordinal();
+            cells[10 + col] = Symbol.values()[col].ordinal();
+        }
+        int[] counts = new int[PAYLINES.length];
+        int[] symbols = new int[PAYLINES.length];
+        new ScalarPaylineEvaluator(PAYLINES).evaluateGrid(cells, counts, symbols);
+        assertEquals(0, counts[0]);
+        assertEquals(4, counts[1]);
+        assertEquals(q, symbols[1]);
+        assertEquals(0, counts[2]);
+    }
+
+    @Test
+    void testAllEvaluatorsAgreeOnRandomGrids() {
+        PaylineEvaluator scalar = new ScalarPaylineEvaluator(PAYLINES);
+        PaylineEvaluator vector = PaylineEvaluators.createVector(PAYLINES);
+        if (PaylineEvaluators.isVectorAvailable()) {
+            assertNotNull(vector, "Vector evaluator should load when the module is present");
+        }
+        Random random = new Random(5);
+        int grids = 1000;
+        int[][] columns = new int[15][grids];
+        int[][] expected = new int[PAYLINES.length][grids];
+        for (int g = 0; g < grids; g++) {
+            int[] cells = new int[15];
+            for (int cell = 0; cell < 15; cell++) {
+                // Few distinct symbols so that long matches are common
+                cells[cell] = random.nextInt(10) < 8 ? Symbol.K.ordinal() : random.nextInt(Symbol.values().length);
+                columns[cell][g] = cells[cell];
+            }
+            int[] counts = new int[PAYLINES.length];
+            int[] symbols = new int[PAYLINES.length];
+            scalar.evaluateGrid(cells, counts, symbols);
+            for (int line = 0; line < PAYLINES.length; line++) expected[line][g] = counts[line];
+            if (vector != null) {
+                int[] vectorCounts = new int[PAYLINES.length];
+                int[] vectorSymbols = new int[PAYLINES.length];
+                vector.evaluateGrid(cells, vectorCounts, vectorSymbols);
+                assertArrayEquals(counts, vectorCounts);
+                assertArrayEquals(symbols, vectorSymbols);
+            }
+        }
+        for (int line = 0; line < PAYLINES.length; line++) {
+            int[] batch = new int[grids];
+            scalar.evaluateBatch(columns, grids, line, batch);
+            assertArrayEquals(expected[line], batch);
+            if (vector != null) {
+                int[] vectorBatch = new int[grids];
+                vector.evaluateBatch(columns, grids, line, vectorBatch);
+                assertArrayEquals(expected[line], vectorBatch);
+            }
+        }
+    }
+
+    @Test
+    void testBatchEvaluatorMatchesSlotMachine() {
+        for (boolean payAllWins : new boolean[] {true, false}) {
+            SlotMachine machine = new SlotMachine(0, payAllWins, null, null, 3,
+                    SlotMachineConfig.defaults().createReels(new Random(8)));
+            BatchEvaluator batch = new BatchEvaluator(machine, 2000);
+            batch.fillUniform(new java.util.SplittableRandom(4), 2000);
+            batch.evaluate();
+            int[] stops = new int[5];
+            for (int i = 0; i < batch.size(); i++) {
+                for (int r = 0; r < 5; r++) stops[r] = batch.stop(r, i);
+                SpinResult expected = machine.evaluate(machine.gridAt(stops), 1);
+                assertEquals(expected.totalPayout, batch.payout(i), "Payout mismatch at spin " + i);
+                assertEquals(expected.scatterCount, batch.scatterCount(i));
+                assertEquals(expected.scatterPayout, batch.scatterPayout(i));
+                long mask = 0;
+                for (SpinResult.LineWin win : expected.getLineWins()) mask |= 1L << (win.lineIndex - 1);
+                assertEquals(mask, batch.winMask(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the sliding-window RTP monitor, driven bucket by bucket through {@link RtpMonitor#advance()}.
+ */
+public class RtpMonitorTest {
+    private static final RtpMonitor.Baseline BASELINE =
+            RtpMonitor.Baseline.simulate(SlotMachineConfig.defaults().createMachine(0, new Random(1)), 1_000_000L, 1L);
+
+    @Test
+    void testWindowsRollAndStayInBandForTheMachineItself() {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(2));
+        RtpMonitor monitor = new RtpMonitor(BASELINE);
+        List<RtpMonitor.Alert> alerts = new ArrayList<>();
+        monitor.addListener(alerts::add);
+        long payout = 0;
+        long bets = 0;
+        List<RtpMonitor.WindowStats> windows = null;
+        for (int bucket = 0; bucket < 12; bucket++) {
+            for (int i = 0; i < 2000; i++) {
+                int bet = 1 + i % 3;
+                SpinResult result = machine.spinAndEvaluate(bet);
+                payout += result.totalPayout;
+                bets += bet;
+                monitor.record(result, bet);
+            }
+            windows = monitor.advance();
+        }
+        assertTrue(alerts.isEmpty(), alerts.toString());
+        for (RtpMonitor.WindowStats window : windows) {
+            assertEquals(24_000, window.spins);
+            assertEquals(bets, window.totalBet);
+            assertEquals(payout, window.totalPayout);
+            assertTrue(Math.abs(window.rtpZ) < RtpMonitor.DEFAULT_ALERT_Z, "z " + window.rtpZ);
+        }
+        // One more bucket pushes the first out of the 1-minute window only
+        monitor.record(machine.spinAndEvaluate(1), 1);
+        windows = monitor.advance();
+        assertEquals(22_001, windows.get(0).spins);
+        assertEquals(24_001, windows.get(1).spins);
+        assertEquals(24_001, monitor.windows().get(2).spins);
+    }
+
+    @Test
+    void testBiasedFeedRaisesAndClearsAlerts() {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(3));
+        RtpMonitor monitor = new RtpMonitor(BASELINE);
+        List<RtpMonitor.Alert> alerts = new ArrayList<>();
+        monitor.addListener(alerts::add);
+        // Losing spins only: far below the baseline RTP and hit rate
+        for (int recorded = 0; recorded < 5000; ) {
+            SpinResult result = machine.spinAndEvaluate(1);
+            if (result.totalPayout > 0) continue;
+            monitor.record(result, 1);
+            recorded++;
+        }
+        monitor.advance();
+        assertTrue(monitor.isOutOfBand(1, RtpMonitor.Metric.RTP));
+        assertTrue(monitor.isOutOfBand(60, RtpMonitor.Metric.HIT_RATE));
+        RtpMonitor.Alert rtp = alerts.stream().filter(a -> a.metric == RtpMonitor.Metric.RTP).findFirst().orElseThrow();
+        assertTrue(rtp.outOfBand);
+        assertEquals(0.0, rtp.observed);
+        assertTrue(rtp.z < -RtpMonitor.DEFAULT_ALERT_Z);
+        int raised = alerts.size();
+        // Honest spins for a full minute flush the bias out of the 1-minute window only
+        for (int bucket = 0; bucket < 12; bucket++) {
+            for (int i = 0; i < 2000; i++) monitor.record(machine.spinAndEvaluate(1), 1);
+            monitor.advance();
+        }
+        assertFalse(monitor.isOutOfBand(1, RtpMonitor.Metric.RTP));
+        assertFalse(monitor.isOutOfBand(1, RtpMonitor.Metric.HIT_RATE));
+        assertTrue(monitor.isOutOfBand(60, RtpMonitor.Metric.HIT_RATE));
+        assertTrue(alerts.subList(raised, alerts.size()).stream().anyMatch(a -> !a.outOfBand && a.windowMinutes == 1));
+        assertThrows(IllegalArgumentException.class, () -> new RtpMonitor(BASELINE, 7_000L, 4.0));
+    }
+
+    @Test
+    void testMachineWithoutBonusesIsMonitoredWithoutBonusTest(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("no-scatter.properties");
+        Files.writeString(file, "symbols=TEN:15,J:15,Q:15,K:10,A:10,P1:6,P2:6,P3:3,P4:3,SCATTER:0\n");
+        SlotMachineConfig config = SlotMachineConfig.load(file.toString());
+        SlotMachine machine = config.createMachine(0, new Random(4));
+        RtpMonitor.Baseline baseline = RtpMonitor.Baseline.simulate(machine, 200_000L, 1L);
+        assertEquals(0.0, baseline.bonusFrequency);
+        RtpMonitor monitor = new RtpMonitor(baseline);
+        for (int i = 0; i < 5000; i++) monitor.record(machine.spinAndEvaluate(1), 1);
+        RtpMonitor.WindowStats window = monitor.advance().get(0);
+        assertEquals(0.0, window.bonusZ);
+        assertFalse(monitor.isOutOfBand(1, RtpMonitor.Metric.BONUS_FREQUENCY));
+    }
+}
@@ -0,0 +1,91 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for counter-based session randomness: seeking, snapshots and replaying spins.
+ */
+public class SessionRngTest {
+    @Test
+    void testStopsDependOnSeedAndOrdinalOnly() {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(1));
+        IReel[] reels = machine.getReels();
+        SessionRng rng = new SessionRng(99L);
+        List<int[]> drawn = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) drawn.add(rng.nextStops(reels));
+        assertEquals(1000, rng.getOrdinal());
+        rng.seek(700);
+        assertArrayEquals(drawn.get(700), rng.nextStops(reels));
+        assertArrayEquals(drawn.get(123), SessionRng.stopsAt(99L, 123, reels));
+        assertFalse(Arrays.equals(drawn.get(123), SessionRng.stopsAt(100L, 123, reels)));
+
+        SessionRng.Snapshot snapshot = rng.snapshot();
+        int[] next = rng.nextStops(reels);
+        rng.nextStops(reels);
+        rng.restore(snapshot);
+        assertArrayEquals(next, rng.nextStops(reels));
+        assertThrows(IllegalArgumentException.class, () -> rng.restore(new SessionRng(1L).snapshot()));
+        assertThrows(IllegalArgumentException.class, () -> rng.seek(-1));
+
+        // Every valid stop of a reel comes up about equally often
+        IReel reel = reels[0];
+        int[] counts = new int[reel.getFullStrip().length];
+        int draws = reel.stopCount() * 1000;
+        for (int i = 0; i < draws; i++) counts[SessionRng.stopsAt(7L, i, reels)[0]]++;
+        for (int index = 0; index < reel.stopCount(); index++) {
+            int count = counts[reel.stopAt(index)];
+            assertTrue(count > 850 && count < 1150, "stop " + reel.stopAt(index) + " drawn " + count + " times");
+        }
+    }
+
+    @Test
+    void testSessionSpinsReplayFromSeedAndOrdinal() {
+        MachineRegistry registry = new MachineRegistry(5L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        MachineSession session = registry.openSession("classic", 100_000, 42L);
+        session.setBetAmount(2);
+        List<SpinResult> played = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) played.add(session.playSpin());
+        assertEquals(2000, session.getSessionRng().getOrdinal());
+        for (int i = 0; i < played.size(); i++) {
+            SpinResult replayed = session.replaySpin(i, 2);
+            assertArrayEquals(played.get(i).stops, replayed.stops);
+            assertEquals(played.get(i).totalPayout, replayed.totalPayout);
+        }
+        // Another session on the same seed sees the same spins
+        MachineSession twin = registry.openSession("classic", 0, 42L);
+        assertArrayEquals(played.get(0).stops, twin.spinStops());
+        assertThrows(IllegalStateException.class, () -> registry.openSession("classic", 0).replaySpin(0, 1));
+
+        // Spins served by a coalescer, mixed with unseeded players, still come from the session source
+        MachineSession coalesced = registry.openSession("classic", 100_000, 77L);
+        MachineSession unseeded = registry.openSession("classic", 100_000);
+        try (SpinCoalescer coalescer = SpinCoalescer.start(registry.getModel("classic"))) {
+            for (int i = 0; i < 500; i++) {
+                CompletableFuture<SpinResult> other = coalescer.spin(unseeded);
+                SpinResult result = coalescer.spin(coalesced).join();
+                other.join();
+                assertArrayEquals(coalesced.replaySpin(i, 1).stops, result.stops);
+            }
+        }
+        assertEquals(500, coalesced.getSessionRng().getOrdinal());
+
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(3));
+        machine.setSessionRng(new SessionRng(42L, 10));
+        SpinResult result = machine.spinAndEvaluate();
+        assertArrayEquals(result.stops, machine.replaySpin(10, 1).stops);
+        assertEquals(11, machine.getSessionRng().getOrdinal());
+    }
+}
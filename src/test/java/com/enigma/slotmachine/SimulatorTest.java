@@ -0,0 +1,298 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the batch simulator, its mergeable statistics and the headless report output.
+ */
+class SimulatorTest {
+    @Test
+    void testSameSeedGivesSameResultForAnyThreadCount() {
+        SimulationStats single = new Simulator(SlotMachineConfig.defaults().createMachine(0, new Random(42)), 7L, 1).run(20_000);
+        SimulationStats multi = new Simulator(SlotMachineConfig.defaults().createMachine(0, new Random(42)), 7L, 4).run(20_000);
+        assertEquals(20_000, single.getSpins());
+        assertEquals(single.getSpins(), multi.getSpins());
+        assertEquals(single.getTotalWon(), multi.getTotalWon());
+        assertEquals(single.getHits(), multi.getHits());
+        assertEquals(single.getScatterTriggers(), multi.getScatterTriggers());
+    }
+
+    @Test
+    void testMergeAddsTotals() {
+        SimulationStats a = new SimulationStats();
+        a.record(10, 0, 0);
+        a.record(0, 0, 1);
+        SimulationStats b = new SimulationStats();
+        b.record(22, 20, 5);
+        a.merge(b);
+        assertEquals(3, a.getSpins());
+        assertEquals(32, a.getTotalWon());
+        assertEquals(2, a.getHits());
+        assertEquals(1, a.getScatterTriggers());
+        assertEquals(22, a.getBiggestWin());
+        assertEquals(12, a.getLineWon());
+    }
+
+    @Test
+    void testSimulatedRtpIsPlausible() {
+        SimulationStats stats = new Simulator(SlotMachineConfig.defaults().createMachine(0, new Random(1)), 99L, 2).run(100_000);
+        assertTrue(stats.rtp() > 0.0 && stats.rtp() < 2.0, "RTP should be a sane fraction of the bet");
+        assertTrue(stats.rtpHalfWidth(1.96) > 0.0);
+    }
+
+    @Test
+    void testReportWritesJsonAndCsv() throws Exception {
+        SimulationReport report = new SimulationReport().put("mode", "simulate").put("seed", 5L).put("rtp", 0.5);
+        StringWriter json = new StringWriter();
+        report.write(json, SimulationReport.Format.JSON);
+        assertTrue(json.toString().contains("\"mode\": \"simulate\""));
+        assertTrue(json.toString().contains("\"seed\": 5"));
+        StringWriter csv = new StringWriter();
+        report.write(csv, SimulationReport.Format.CSV);
+        assertTrue(csv.toString().startsWith("mode,seed,rtp\nsimulate,5,"));
+    }
+
+    @Test
+    void testPlayerSessionsAreDeterministicAndClassified() {
+        PlayerSessionSimulator.Rules rules = new PlayerSessionSimulator.Rules(10, 50, 0, 200, 2.0);
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(3));
+        PlayerSessionSimulator.Results a = new PlayerSessionSimulator(machine, 11L, 1).run(3000, rules);
+        PlayerSessionSimulator.Results b = new PlayerSessionSimulator(machine, 11L, 3).run(3000, rules);
+        assertEquals(a.count(PlayerSessionSimulator.OUTCOME_RUIN), b.count(PlayerSessionSimulator.OUTCOME_RUIN));
+        int total = 0;
+        for (byte kind = 0; kind < 3; kind++) total += a.count(kind);
+        assertEquals(3000, total);
+        for (int p = 0; p < a.players(); p++) {
+            assertTrue(a.startBalance[p] >= 10 && a.startBalance[p] <= 50);
+            assertTrue(a.spins[p] <= 200);
+            if (a.outcome[p] == PlayerSessionSimulator.OUTCOME_RUIN) {
+                assertTrue(a.finalBalance[p] < a.bet[p], "Ruined players cannot afford another bet");
+            }
+        }
+    }
+
+    @Test
+    void testPlayerSessionsPlayBonusRounds() {
+        PlayerSessionSimulator.Rules rules = new PlayerSessionSimulator.Rules(20, 20, 1, 100, 0);
+        SlotMachine noBonus = SlotMachineTest.scatterRichMachine(0, 4);
+        noBonus.setFreeSpinsPerTrigger(0);
+        SlotMachine bonus = SlotMachineTest.scatterRichMachine(0, 4);
+        bonus.setFreeSpinsPerTrigger(10);
+        PlayerSessionSimulator.Results without = new PlayerSessionSimulator(noBonus, 5L, 1).run(2000, rules);
+        PlayerSessionSimulator.Results with = new PlayerSessionSimulator(bonus, 5L, 1).run(2000, rules);
+        // Free spins cost nothing, so the same outcome stream leaves players richer and ruins fewer of them
+        long before = 0;
+        long after = 0;
+        for (int p = 0; p < 2000; p++) {
+            before += without.finalBalance[p];
+            after += with.finalBalance[p];
+        }
+        assertTrue(after > before, after + " <= " + before);
+        assertTrue(with.count(PlayerSessionSimulator.OUTCOME_RUIN) <= without.count(PlayerSessionSimulator.OUTCOME_RUIN));
+        assertThrows(IllegalArgumentException.class, () -> new PlayerSessionSimulator.Rules(20, 20, -1, 100, 0));
+    }
+
+    @Test
+    void testComparisonUsesCommonRandomNumbers() {
+        SlotMachine baseline = SlotMachineConfig.defaults().createMachine(0, new Random(9));
+        SlotMachine same = SlotMachineConfig.defaults().createMachine(0, new Random(9));
+        SlotMachine extraLine = new SlotMachine(0, true, null,
+                "1,1,1,1,1;0,0,0,0,0;2,2,2,2,2;0,1,2,1,0;2,1,0,1,2;0,0,1,2,2", 3,
+                SlotMachineConfig.defaults().createReels(new Random(9)));
+        ComparisonSimulator.Results results = new ComparisonSimulator(
+                java.util.List.of(baseline, same, extraLine), 21L, 2).run(50_000);
+        // Identical configurations on common draws must not differ at all
+        assertEquals(0.0, results.paired[1].meanDiff());
+        assertEquals(0.0, results.paired[1].halfWidth(1.96));
+        // An extra payline can only add wins on the same draws
+        assertTrue(results.paired[2].meanDiff() > 0.0);
+        assertEquals(results.stats[2].rtp() - results.stats[0].rtp(), results.paired[2].meanDiff(), 1e-12);
+        assertTrue(results.varianceReduction(2) > 1.0);
+    }
+
+    @Test
+    void testVarianceReducedSamplersAgreeWithAnalyticRtp() {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(13));
+        double analyticLines = AnalyticRtp.allLinesRtp(machine);
+        for (VarianceReducedSimulator.Sampler sampler : VarianceReducedSimulator.Sampler.values()) {
+            VarianceReducedSimulator.Results results = new VarianceReducedSimulator(machine, 17L, 2, sampler).run(400_000);
+            assertEquals(results.stats.getSpins(), results.replicates.replicates * results.replicateSize);
+            // Pay-all mode: the control is the line payout, so the estimate sits near the exact line RTP plus scatters
+            assertEquals(analyticLines + AnalyticRtp.scatterRtp(machine), results.controlVariateRtp(),
+                    5 * results.controlVariateHalfWidth(1.0) + 1e-9, sampler.name());
+            assertEquals(results.rtp(), results.controlVariateRtp(), 5 * results.rtpHalfWidth(1.0), sampler.name());
+            assertTrue(results.controlVariateHalfWidth(1.96) < results.rtpHalfWidth(1.96), sampler.name());
+        }
+        // The variance-reduced simulator neither checkpoints nor records outcomes, so those options are refused
+        assertEquals(2, HeadlessRunner.run(new String[] {"--sampler=antithetic", "--checkpoint=run.ckpt", "--spins=10"}));
+        assertEquals(2, HeadlessRunner.run(new String[] {"--sampler=antithetic", "--outcomes=outcomes", "--spins=10"}));
+    }
+
+    @Test
+    void testAdaptiveRunStopsAtTargetPrecisionForAnyThreadCount() {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(5));
+        AdaptiveSimulator.Target target = new AdaptiveSimulator.Target(0.01, 0.95, 0, 100_000_000L, 0);
+        AdaptiveSimulator.Results one = new AdaptiveSimulator(machine, 3L, 1).run(target, null);
+        AdaptiveSimulator.Results four = new AdaptiveSimulator(machine, 3L, 4).run(target, null);
+        assertEquals(AdaptiveSimulator.StopReason.CONVERGED, one.stopReason);
+        assertTrue(one.halfWidth() <= 0.01);
+        assertEquals(one.stats.getSpins(), four.stats.getSpins());
+        assertEquals(one.stats.getTotalWon(), four.stats.getTotalWon());
+        // The run stops at the first batch that meets the target
+        SimulationStats shorter = new Simulator(machine, 3L, 2).run(one.stats.getSpins() - Simulator.BATCH_SIZE);
+        assertTrue(shorter.rtpHalfWidth(one.z) > 0.01);
+
+        AdaptiveSimulator.Target budget = new AdaptiveSimulator.Target(1e-9, 0.99, 0, 10_000, 0);
+        AdaptiveSimulator.Results capped = new AdaptiveSimulator(machine, 3L, 2).run(budget, null);
+        assertEquals(AdaptiveSimulator.StopReason.SPIN_BUDGET, capped.stopReason);
+        assertEquals(10_000, capped.stats.getSpins());
+        assertEquals(1.959964, SimulationStats.zForConfidence(0.95), 1e-6);
+    }
+
+    @Test
+    void testCancelledAutoSpinReturnsPartialStats() throws Exception {
+        int target = 1000 * Simulator.BATCH_SIZE;
+        AutoSpinTask task = new AutoSpinTask(SlotMachineConfig.defaults().createMachine(0, new Random(9)), target, 1);
+        task.cancel();
+        SimulationStats stats = task.awaitResult();
+        assertTrue(task.isDone());
+        assertTrue(task.isCancelled());
+        // Only whole batches finished before the cancel are reported, and the progress agrees with them
+        assertTrue(stats.getSpins() < target);
+        assertEquals(0, stats.getSpins() % Simulator.BATCH_SIZE);
+        assertEquals(stats.getSpins(), task.getProgress().getSpins());
+    }
+
+    @Test
+    void testProgressCountersAndEtaAdvance() throws Exception {
+        SimulationProgress progress = new SimulationProgress(1000);
+        assertEquals(-1.0, progress.etaSeconds());
+        assertEquals(0.0, progress.runningRtp());
+
+        Thread.sleep(2);
+        progress.add(400, 380);
+        assertEquals(400, progress.getSpins());
+        assertEquals(0.95, progress.runningRtp(), 1e-12);
+        assertTrue(progress.spinsPerSecond() > 0);
+        double eta = progress.etaSeconds();
+        assertTrue(eta > 0);
+
+        progress.add(600, 570);
+        assertEquals(1000, progress.getSpins());
+        assertEquals(0.95, progress.runningRtp(), 1e-12);
+        assertTrue(progress.etaSeconds() < eta);
+        assertEquals(0.0, progress.etaSeconds());
+        assertTrue(progress.elapsedSeconds() > 0);
+    }
+
+    @Test
+    void testShardedRunMatchesSingleProcessAndReplacesBadShards() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("shards");
+        java.nio.file.Path config = dir.resolve("test.properties");
+        java.nio.file.Files.writeString(config, "minScatterDistance=3\n");
+        long spins = 5 * Simulator.BATCH_SIZE + 100;
+        // A corrupt file for shard 1 must be ignored and its shard re-run
+        java.nio.file.Files.write(dir.resolve("shard-1.bin"), new byte[] {1, 2, 3});
+
+        SimulationStats sharded = new ShardCoordinator(config.toString(), 8L, spins, 2, 1, dir, 2).run();
+
+        SlotMachine machine = SlotMachineConfig.load(config.toString()).createMachine(0, new Random(8L));
+        SimulationStats single = new Simulator(machine, 8L, 3).run(spins);
+        assertEquals(single.getSpins(), sharded.getSpins());
+        assertEquals(single.getTotalWon(), sharded.getTotalWon());
+        assertEquals(single.variance(), sharded.variance());
+        assertEquals(single.getBiggestWin(), sharded.getBiggestWin());
+
+        ShardCoordinator.ShardHeader header = new ShardCoordinator.ShardHeader();
+        SimulationStats part = ShardCoordinator.readShard(dir.resolve("shard-1.bin"), header);
+        assertEquals(ShardCoordinator.fingerprint(machine), header.fingerprint);
+        assertEquals(new Simulator(machine, 8L, 1).runBatches(header.fromBatch, header.toBatch, spins, null).getTotalWon(),
+                part.getTotalWon());
+
+        // A flipped bit in the statistics body fails the checksum, so the shard would be re-run
+        byte[] bytes = java.nio.file.Files.readAllBytes(dir.resolve("shard-1.bin"));
+        bytes[bytes.length - 12] ^= 1;
+        java.nio.file.Path damaged = dir.resolve("damaged.bin");
+        java.nio.file.Files.write(damaged, bytes);
+        assertThrows(java.io.IOException.class, () -> ShardCoordinator.readShard(damaged, header));
+
+        // Workers get modules and memory sizes, never the coordinator's agents or recordings
+        assertEquals(java.util.List.of("--add-modules", "jdk.incubator.vector", "-Xmx2g"),
+                ShardCoordinator.workerJvmArgs(java.util.List.of("-agentlib:jdwp=transport=dt_socket,server=y",
+                        "--add-modules", "jdk.incubator.vector", "-XX:StartFlightRecording", "-Xmx2g",
+                        "-javaagent:agent.jar", "-Dapp.secret=x")));
+    }
+
+    @Test
+    void testResumedRunMatchesUninterruptedRun() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(6));
+        long spins = 40L * Simulator.BATCH_SIZE;
+        java.nio.file.Path file = java.nio.file.Files.createTempDirectory("ckpt").resolve("run.ckpt");
+        // Cancel part-way; the final checkpoint keeps every batch merged so far
+        SimulationProgress progress = new SimulationProgress(spins) {
+            @Override
+            void add(long spinsDone, long won) {
+                super.add(spinsDone, won);
+                if (getSpins() >= 10L * Simulator.BATCH_SIZE) cancel();
+            }
+        };
+        SimulationStats partial = new CheckpointedSimulator(machine, 4L, 3, file, 0).run(spins, progress);
+        CheckpointedSimulator.Checkpoint saved = CheckpointedSimulator.read(file);
+        assertTrue(saved.nextBatch > 0 && saved.nextBatch < 40);
+        assertEquals(saved.nextBatch * Simulator.BATCH_SIZE, partial.getSpins());
+
+        // A restart without --seed picks the run's seed back up from the checkpoint
+        HeadlessRunner restart = new HeadlessRunner(java.util.Map.of("checkpoint", java.util.List.of(file.toString())));
+        assertEquals(4L, restart.simulationSeed());
+        SimulationStats resumed = new CheckpointedSimulator(machine, 4L, 2, file, 0).run(spins, null);
+        SimulationStats uninterrupted = new Simulator(machine, 4L, 1).run(spins);
+        assertEquals(uninterrupted.getSpins(), resumed.getSpins());
+        assertEquals(uninterrupted.getTotalWon(), resumed.getTotalWon());
+        assertEquals(uninterrupted.variance(), resumed.variance());
+        assertEquals(40, CheckpointedSimulator.read(file).nextBatch);
+    }
+
+    @Test
+    void testRecordedOutcomesMatchSimulationAndReplay() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(8));
+        long spins = 3L * Simulator.BATCH_SIZE + 123;
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("outcomes");
+        SimulationStats stats;
+        try (OutcomeRecorder recorder = new OutcomeRecorder(dir, machine, spins)) {
+            stats = new Simulator(machine, 9L, 3, recorder).run(spins);
+        }
+        OutcomeScanner scanner = new OutcomeScanner(dir, 2);
+        assertEquals(spins, scanner.spins());
+        assertEquals(stats.getTotalWon(), scanner.totalPayout());
+        long[] histogram = scanner.payoutHistogram(0, 10);
+        assertEquals(spins - stats.getHits(), histogram[0]);
+        assertEquals(spins, histogram[0] + histogram[1] + histogram[2]);
+
+        // Stops replay to the recorded payout, and the heatmap diagonal counts each line's wins
+        long[] lineHits = scanner.scan(() -> new long[5], (hits, slice) -> {
+            int[] stops = new int[5];
+            for (int i = 0; i < slice.size(); i++) {
+                for (int r = 0; r < 5; r++) stops[r] = slice.stop(r, i);
+                SpinResult result = machine.evaluate(machine.gridAt(stops), 1);
+                assertEquals(result.totalPayout, slice.payout(i));
+                assertEquals(result.scatterCount, slice.scatterCount(i));
+                for (SpinResult.LineWin win : result.getLineWins()) hits[win.lineIndex - 1]++;
+            }
+        }, (a, b) -> {
+            for (int k = 0; k < a.length; k++) a[k] += b[k];
+            return a;
+        });
+        long[][] heatmap = scanner.paylineHeatmap();
+        for (int line = 0; line < 5; line++) {
+            assertEquals(lineHits[line], heatmap[line][line]);
+            assertEquals(heatmap[line][(line + 1) % 5], heatmap[(line + 1) % 5][line]);
+        }
+    }
+}
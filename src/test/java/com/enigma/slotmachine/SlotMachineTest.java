@@ -1,10 +1,14 @@
 package com.enigma.slotmachine;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -19,6 +23,8 @@ import org.junit.jupiter.api.Test;
  *   <li>Scatter counting and payout logic</li>
  *   <li>Payline wins (including V and inverted V shapes)</li>
  *   <li>Simultaneous wins and payout modes</li>
+ *   <li>Packed spin results and the payout cache matching grid evaluation</li>
+ *   <li>Free-spin rounds, retriggers and their balance bookkeeping</li>
  *   <li>Reel symbol distribution (default and custom)</li>
  *   <li>Scatter minimum distance enforcement</li>
  *   <li>Edge cases (min/max balance, bet changes, etc.)</li>
@@ -155,6 +161,80 @@ class SlotMachineTest {
         assertTrue(payout >= 8); // Both lines should pay
     }
 
+    @Test
+    void testPackedResultsMatchGridEvaluation() {
+        for (boolean payAllWins : new boolean[] {true, false}) {
+            SlotMachine sm = new SlotMachine(0, payAllWins, null, null, 3,
+                    SlotMachineConfig.defaults().createReels(new Random(1)));
+            // Dense reels so that many lines win at once
+            SlotMachine dense = new SlotMachine(0, payAllWins, "TEN:2,K:30,A:3,SCATTER:2", null, 3);
+            for (SlotMachine machine : new SlotMachine[] {sm, dense}) {
+                for (int i = 0; i < 2000; i++) {
+                    int[] stops = machine.spinStops();
+                    SpinResult packed = machine.evaluateStops(stops, 5);
+                    SpinResult expected = machine.evaluate(machine.gridAt(stops), 5);
+                    assertEquals(expected.totalPayout, packed.totalPayout);
+                    assertEquals(expected.scatterCount, packed.scatterCount);
+                    assertEquals(expected.scatterPayout, packed.scatterPayout);
+                    assertEquals(expected.winMask, packed.winMask);
+                    assertEquals(expected.matchCounts, packed.matchCounts);
+                    assertEquals(expected.getLineWins().size(), packed.getWinningLineCount());
+                    List<SpinResult.LineWin> wins = packed.getLineWins();
+                    for (int w = 0; w < wins.size(); w++) {
+                        SpinResult.LineWin want = expected.getLineWins().get(w);
+                        assertEquals(want.lineIndex, wins.get(w).lineIndex);
+                        assertEquals(want.symbol, wins.get(w).symbol);
+                        assertEquals(want.symbol, packed.getLineSymbol(want.lineIndex));
+                        assertEquals(want.count, wins.get(w).count);
+                        assertEquals(want.payout, wins.get(w).payout);
+                    }
+                    assertTrue(Arrays.deepEquals(expected.getGrid(), packed.getGrid()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPayoutCacheKeepsResults() {
+        for (boolean payAllWins : new boolean[] {true, false}) {
+            // Tiny strips fit the whole 5-tuple of windows in the key; default ones only a prefix
+            for (String symbols : new String[] {"K:4,A:3,SCATTER:1", null}) {
+                for (int capacity : new int[] {1, 64, SlotMachineConfig.DEFAULT_PAYOUT_CACHE_SIZE}) {
+                    SlotMachine plain = new SlotMachine(0, payAllWins, symbols, null, 3, symbols == null
+                            ? SlotMachineConfig.defaults().createReels(new Random(2)) : tinyReels(symbols));
+                    SlotMachine cached = new SlotMachine(0, payAllWins, symbols, null, 3, plain.getReels());
+                    cached.setPayoutCacheSize(capacity);
+                    PayoutCache cache = cached.getPayoutCache();
+                    if (symbols != null && capacity == SlotMachineConfig.DEFAULT_PAYOUT_CACHE_SIZE) {
+                        assertEquals(5, cache.getPrefixReels());
+                    }
+                    for (int i = 0; i < 3000; i++) {
+                        int[] stops = plain.spinStops();
+                        SpinResult expected = plain.evaluateStops(stops, 2);
+                        SpinResult actual = cached.evaluateStops(stops, 2);
+                        assertEquals(expected.totalPayout, actual.totalPayout);
+                        assertEquals(expected.scatterCount, actual.scatterCount);
+                        assertEquals(expected.winMask, actual.winMask);
+                        assertEquals(expected.matchCounts, actual.matchCounts);
+                    }
+                    assertTrue(cache.getMisses() <= 3000);
+                    if (capacity == SlotMachineConfig.DEFAULT_PAYOUT_CACHE_SIZE && symbols == null) {
+                        // Every window pair of the first two reels fits, so nothing is evicted
+                        assertEquals(2, cache.getPrefixReels());
+                        assertTrue(cache.getMisses() <= cache.distinctWindows(0) * cache.distinctWindows(1));
+                        assertTrue(cache.getMisses() < 3000);
+                    }
+                }
+            }
+        }
+    }
+
+    private static IReel[] tinyReels(String symbols) {
+        IReel[] reels = new IReel[5];
+        for (int i = 0; i < reels.length; i++) reels[i] = new Reel(Reel.parseSymbolDistribution(symbols), 3, new Random(i));
+        return reels;
+    }
+
     @Test
     void testScatterSpacingOnReel() {
         Reel reel = new Reel();
@@ -281,4 +361,64 @@ class SlotMachineTest {
             assertTrue(wrapDistance >= minScatterDistance, "Scatters must be at least " + minScatterDistance + " apart (wrap-around)");
         }
     }
+
+    // Every sixth stop is a scatter, so each reel shows one half of the time and about half the spins trigger
+    static SlotMachine scatterRichMachine(int startingBalance, long seed) {
+        Symbol[] strip = {Symbol.SCATTER, Symbol.TEN, Symbol.J, Symbol.Q, Symbol.K, Symbol.A};
+        Random random = new Random(seed);
+        IReel[] reels = new IReel[5];
+        for (int r = 0; r < reels.length; r++) reels[r] = new Reel(strip, random);
+        return new SlotMachine(startingBalance, true, null, null, 3, reels);
+    }
+
+    @Test
+    void testFreeSpinsDecrementAndPayAtTheTriggeringBet() {
+        SlotMachine sm = scatterRichMachine(1000, 5);
+        sm.setFreeSpinsPerTrigger(1);
+        sm.setBetAmount(2);
+        SpinResult trigger;
+        do {
+            trigger = sm.playSpin();
+        } while (sm.getFreeSpins() == 0);
+        assertTrue(trigger.scatterCount >= 3);
+        sm.setBetAmount(5);
+        for (int i = 0; i < 20 && sm.getFreeSpins() > 0; i++) {
+            int before = sm.getFreeSpins();
+            int balance = sm.getBalance();
+            SpinResult free = sm.playSpin();
+            assertEquals(before - 1 + (free.scatterCount >= 3 ? 1 : 0), sm.getFreeSpins());
+            assertEquals(balance + free.totalPayout, sm.getBalance());
+            assertEquals(sm.evaluateStops(free.stops, 2).totalPayout, free.totalPayout);
+        }
+        sm.addBalance(-sm.getBalance());
+        sm.playFreeSpinRound();
+        assertThrows(IllegalStateException.class, sm::playSpin);
+    }
+
+    @Test
+    void testFreeSpinRoundIsPlayedInOneCall() {
+        SlotMachine sm = scatterRichMachine(10_000, 11);
+        sm.setFreeSpinsPerTrigger(2);
+        sm.setBetAmount(3);
+        assertEquals(0, sm.playFreeSpinRound().spinsPlayed);
+        for (int rounds = 0; rounds < 50; rounds++) {
+            while (sm.getFreeSpins() == 0) sm.playSpin();
+            int balance = sm.getBalance();
+            FreeSpinRound round = sm.playFreeSpinRound();
+            assertEquals(0, sm.getFreeSpins());
+            assertEquals(3, round.betAmount);
+            assertEquals(2 + round.spinsAwarded, round.spinsPlayed);
+            assertEquals(2 * round.retriggers, round.spinsAwarded);
+            assertEquals(balance + round.totalPayout, sm.getBalance());
+            long total = 0;
+            int retriggers = 0;
+            for (SpinResult spin : round.getSpins()) {
+                assertEquals(sm.evaluateStops(spin.stops, 3).totalPayout, spin.totalPayout);
+                total += spin.totalPayout;
+                if (spin.scatterCount >= 3) retriggers++;
+            }
+            assertEquals(total, round.totalPayout);
+            assertEquals(retriggers, round.retriggers);
+        }
+    }
 }
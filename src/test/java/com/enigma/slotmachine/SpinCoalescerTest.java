@@ -0,0 +1,104 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for coalescing concurrent spins into batches.
+ */
+public class SpinCoalescerTest {
+    @Test
+    void testConcurrentPlayersGetTheirOwnResultsAndBalances() throws Exception {
+        MachineRegistry registry = new MachineRegistry(3L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        SlotMachine model = registry.getModel("classic");
+        int players = 16;
+        int spins = 500;
+        List<MachineSession> sessions = new ArrayList<>();
+        long[] paid = new long[players];
+        long[] staked = new long[players];
+        long[] freeSpins = new long[players];
+        try (SpinCoalescer coalescer = SpinCoalescer.start(model, 500_000L, 64, new SplittableRandom(9))) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < players; p++) {
+                MachineSession session = registry.openSession("classic", 10_000);
+                session.setBetAmount(1 + p % 5);
+                sessions.add(session);
+                int player = p;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < spins; i++) {
+                        if (session.getFreeSpins() > 0) {
+                            freeSpins[player]++;
+                        } else {
+                            staked[player] += session.getBetAmount();
+                        }
+                        SpinResult result = coalescer.spin(session).join();
+                        SpinResult expected = model.evaluateStops(result.stops, session.getBetAmount());
+                        if (expected.totalPayout != result.totalPayout || expected.winMask != result.winMask) {
+                            throw new IllegalStateException("Spin " + i + " of player " + player + " differs");
+                        }
+                        paid[player] += result.totalPayout;
+                    }
+                }));
+            }
+            for (Thread thread : threads) thread.start();
+            for (Thread thread : threads) thread.join();
+            assertEquals(players * spins, coalescer.getSpins());
+            assertTrue(coalescer.meanBatchSize() > 1.0, "mean batch " + coalescer.meanBatchSize());
+        }
+        long totalFree = 0;
+        for (int p = 0; p < players; p++) {
+            assertEquals(10_000 - staked[p] + paid[p], sessions.get(p).getBalance());
+            totalFree += freeSpins[p];
+        }
+        // Scatter triggers award the session's free spins, which are then played through the coalescer
+        assertTrue(totalFree > 0);
+    }
+
+    @Test
+    void testCloseCompletesSubmittedSpinsAndRejectsNewOnes() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new java.util.Random(1));
+        MachineSession[] sessions = new MachineSession[100];
+        List<CompletableFuture<SpinResult>> futures = new ArrayList<>();
+        MachineRegistry registry = new MachineRegistry(1L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        SpinCoalescer coalescer = SpinCoalescer.start(registry.getModel("classic"), 1_000_000L, 16, new SplittableRandom(2));
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = registry.openSession("classic", 100);
+            futures.add(coalescer.spin(sessions[i]));
+        }
+        coalescer.close();
+        for (int i = 0; i < sessions.length; i++) {
+            SpinResult result = futures.get(i).get(1, TimeUnit.SECONDS);
+            assertEquals(99 + result.totalPayout, sessions[i].getBalance());
+        }
+        assertTrue(coalescer.getBatches() >= sessions.length / 16);
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> coalescer.spin(sessions[0]).get());
+        assertTrue(rejected.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalArgumentException.class, () -> SpinCoalescer.start(machine, 0L, 0, new SplittableRandom()));
+    }
+
+    @Test
+    void testSpinBeyondTheBalanceIsRejected() throws Exception {
+        MachineRegistry registry = new MachineRegistry(4L);
+        registry.register("classic", SlotMachineConfig.defaults());
+        MachineSession session = registry.openSession("classic", 4);
+        session.setBetAmount(5);
+        try (SpinCoalescer coalescer = SpinCoalescer.start(registry.getModel("classic"))) {
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> coalescer.spin(session).get());
+            assertTrue(rejected.getCause() instanceof IllegalStateException);
+            assertEquals(4, session.getBalance());
+            assertEquals(0, coalescer.getSpins());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the spin audit journal and its reader.
+ */
+public class SpinJournalTest {
+    // Small segments so that a few hundred spins roll over several times
+    private static final long SEGMENT_SIZE = 4096 + 100 * SpinJournal.RECORD_SIZE;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecordsRollOverAndReadBackInOrder() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        List<SpinResult> spins = new ArrayList<>();
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 350; i++) {
+                SpinResult result = machine.spinAndEvaluate();
+                spins.add(result);
+                assertEquals(i + 1, journal.append(result, 1, i % 7 == 0, 1000 + i));
+            }
+            journal.flush();
+        }
+        assertEquals(4, SpinJournal.listSegments(dir).size());
+
+        List<SpinJournalReader.Record> records = new ArrayList<>();
+        long count = new SpinJournalReader(dir).scan(r -> true, r -> records.add(r.copy()));
+        assertEquals(350, count);
+        for (int i = 0; i < 350; i++) {
+            SpinJournalReader.Record record = records.get(i);
+            assertEquals(i + 1, record.sequence);
+            assertArrayEquals(spins.get(i).stops, record.stops);
+            assertEquals(spins.get(i).totalPayout, record.payout);
+            assertEquals(i % 7 == 0, record.freeSpin);
+            assertEquals(1000 + i, record.balanceAfter);
+        }
+        // Stops and the strips stored in the segment header reproduce the grid
+        SpinJournalReader.Record last = records.get(349);
+        for (int col = 0; col < 5; col++) {
+            Symbol[] strip = last.strips()[col];
+            for (int row = 0; row < 3; row++) {
+                assertEquals(spins.get(349).getGrid()[row][col], strip[(last.stops[col] + row) % strip.length]);
+            }
+        }
+    }
+
+    @Test
+    void testRangeAndFilterScan() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        long paying = 0;
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 300; i++) {
+                SpinResult result = machine.spinAndEvaluate();
+                journal.append(result, 2, false, 0);
+                if (i >= 150 && i < 250 && result.totalPayout > 0) paying++;
+            }
+        }
+        List<Long> sequences = new ArrayList<>();
+        long count = new SpinJournalReader(dir).scan(151, 250, r -> r.payout > 0, r -> sequences.add(r.sequence));
+        assertEquals(paying, count);
+        assertTrue(sequences.stream().allMatch(s -> s >= 151 && s <= 250));
+    }
+
+    @Test
+    void testReopenContinuesAfterTornRecord() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 50; i++) journal.append(machine.spinAndEvaluate(), 1, false, i);
+        }
+        // Simulate a crash in the middle of writing record 50
+        Path segment = SpinJournal.listSegments(dir).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int offset = 4096 + 49 * SpinJournal.RECORD_SIZE;
+            buffer.putInt(offset + SpinJournal.PAYOUT, 12345);
+            buffer.force();
+        }
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            assertEquals(49, journal.lastSequence());
+            assertEquals(50, journal.append(machine.spinAndEvaluate(), 1, false, 0));
+        }
+        assertEquals(50, new SpinJournalReader(dir).scan(r -> true, r -> { }));
+        assertTrue(Files.size(segment) > 0);
+    }
+
+    @Test
+    void testReopenWithChangedMachine() throws Exception {
+        SlotMachine first = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        SlotMachine second = SlotMachineConfig.defaults().createMachine(1000, new Random(4));
+        new SpinJournal(dir, first, SEGMENT_SIZE, 1).close();
+        // No spins were recorded for the first machine, so its segment is taken over
+        try (SpinJournal journal = new SpinJournal(dir, second, SEGMENT_SIZE, 1)) {
+            journal.append(second.spinAndEvaluate(), 1, false, 0);
+        }
+        assertEquals(1, SpinJournal.listSegments(dir).size());
+        // With records on disk, the changed machine starts a new segment
+        try (SpinJournal journal = new SpinJournal(dir, first, SEGMENT_SIZE, 1)) {
+            assertEquals(2, journal.append(first.spinAndEvaluate(), 1, false, 0));
+        }
+        assertEquals(2, SpinJournal.listSegments(dir).size());
+
+        List<SpinJournalReader.Record> records = new ArrayList<>();
+        assertEquals(2, new SpinJournalReader(dir).scan(r -> true, r -> records.add(r.copy())));
+        assertArrayEquals(second.getReels()[0].getFullStrip(), records.get(0).strips()[0]);
+        assertArrayEquals(first.getReels()[0].getFullStrip(), records.get(1).strips()[0]);
+    }
+
+    @Test
+    void testReplayFlagsWrongPayoutsAndCorruptRecords() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        machine.setBetAmount(5);
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 250; i++) {
+                SpinResult result = machine.spinAndEvaluate();
+                journal.append(result, 5, false, 0);
+            }
+        }
+        ReplayVerifier.Results clean = new ReplayVerifier(3).verifyJournal(dir);
+        assertEquals(250, clean.spins);
+        assertTrue(clean.isClean());
+
+        // A record with a valid checksum but a payout the paytable cannot produce
+        int[] stops = machine.spinStops();
+        int expected = machine.evaluate(machine.gridAt(stops), 5).totalPayout;
+        try (SpinJournal journal = new SpinJournal(dir, machine, SEGMENT_SIZE, 1)) {
+            journal.append(stops, 5, expected + 5, 0, false, 0);
+        }
+        ReplayVerifier.Results tampered = new ReplayVerifier(2).verifyJournal(dir);
+        assertEquals(1, tampered.mismatchCount);
+        assertEquals(251, tampered.mismatches.get(0).sequence);
+        assertEquals(expected, tampered.mismatches.get(0).expectedPayout);
+
+        // A record altered after writing fails its checksum
+        Path segment = SpinJournal.listSegments(dir).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(4096 + 9 * SpinJournal.RECORD_SIZE + SpinJournal.PAYOUT, 999);
+        }
+        assertEquals(List.of(10L), new ReplayVerifier(2).verifyJournal(dir).corruptRecords);
+    }
+
+    @Test
+    void testReplayOfStopsFile() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(1000, new Random(3));
+        StringBuilder lines = new StringBuilder("stop1,stop2,stop3,stop4,stop5,bet,payout\n");
+        for (int i = 0; i < 500; i++) {
+            int[] stops = machine.spinStops();
+            int payout = machine.evaluate(machine.gridAt(stops), 2).totalPayout;
+            if (i == 123) payout += 1;
+            lines.append(stops[0]).append(',').append(stops[1]).append(',').append(stops[2]).append(',')
+                    .append(stops[3]).append(',').append(stops[4]).append(",2,").append(payout).append('\n');
+        }
+        Path file = dir.resolve("stops.csv");
+        Files.writeString(file, lines);
+        ReplayVerifier.Results results = new ReplayVerifier(4).verifyStops(file, machine);
+        assertEquals(500, results.spins);
+        assertEquals(1, results.mismatchCount);
+        // Line 1 is the header, so spin 123 is on line 125
+        assertEquals(125, results.mismatches.get(0).sequence);
+    }
+}
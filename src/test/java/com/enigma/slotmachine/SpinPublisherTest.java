@@ -0,0 +1,95 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the demand-driven spin publisher.
+ */
+public class SpinPublisherTest {
+    /**
+     * Subscriber that records what it receives and requests only when told to.
+     */
+    private static class Recorder implements Flow.Subscriber<SpinResult> {
+        final List<SpinResult> items = new ArrayList<>();
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+        Flow.Subscription subscription;
+        long count;
+        long total;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(SpinResult item) {
+            if (items.size() < 1000) items.add(item);
+            count++;
+            total += item.totalPayout;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(total);
+        }
+    }
+
+    @Test
+    void testStreamMatchesSimulatorRun() throws Exception {
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(42));
+        Recorder recorder = new Recorder();
+        new SpinPublisher(machine, 7L, 20_000, 2).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        long paid = recorder.done.get(30, TimeUnit.SECONDS);
+        assertEquals(2 * new Simulator(machine, 7L, 1).run(20_000).getTotalWon(), paid);
+        for (SpinResult item : recorder.items) {
+            SpinResult expected = machine.evaluateStops(item.stops, 2);
+            assertEquals(expected.totalPayout, item.totalPayout);
+            assertEquals(expected.winMask, item.winMask);
+            assertEquals(expected.matchCounts, item.matchCounts);
+            assertEquals(expected.getLineWins().size(), item.getLineWins().size());
+        }
+    }
+
+    @Test
+    void testNothingIsProducedWithoutDemand() {
+        Recorder recorder = new Recorder();
+        // Signals are delivered on the requesting thread, so every request is fully served when it returns
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(42));
+        new SpinPublisher(machine, 1L, Long.MAX_VALUE, 1, Runnable::run).subscribe(recorder);
+        assertEquals(0, recorder.count);
+        recorder.subscription.request(5);
+        assertEquals(5, recorder.count);
+        // Spans two batches
+        recorder.subscription.request(5000);
+        assertEquals(5005, recorder.count);
+        recorder.subscription.cancel();
+        recorder.subscription.request(10);
+        assertEquals(5005, recorder.count);
+        assertTrue(!recorder.done.isDone());
+    }
+
+    @Test
+    void testInvalidRequestSignalsError() {
+        Recorder recorder = new Recorder();
+        SlotMachine machine = SlotMachineConfig.defaults().createMachine(0, new Random(42));
+        new SpinPublisher(machine, 1L, 10, 1, Runnable::run).subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.done.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,142 @@
+package com.enigma.slotmachine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the crash-safe wallet store.
+ */
+public class WalletStoreTest {
+    @TempDir
+    Path dir;
+
+    private static List<Path> files(Path dir, String suffix) throws Exception {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.filter(p -> p.toString().endsWith(suffix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testManySessionsSurviveSnapshotsAndReopen() throws Exception {
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(5);
+        try (WalletStore wallet = WalletStore.open(dir, 10_000, 1)) {
+            for (long session = 0; session < 20_000; session++) {
+                wallet.deposit(session, 100);
+                expected.put(session, 100L);
+            }
+            long lsn = 0;
+            for (int i = 0; i < 50_000; i++) {
+                long session = random.nextInt(20_000);
+                long bet = 1 + random.nextInt(5);
+                long payout = random.nextInt(4) == 0 ? bet * random.nextInt(20) : 0;
+                if (expected.get(session) < bet) continue;
+                lsn = wallet.settle(session, bet, payout);
+                expected.merge(session, payout - bet, Long::sum);
+            }
+            wallet.awaitDurable(lsn);
+            wallet.snapshot();
+        }
+        // Superseded logs and snapshots are deleted
+        assertEquals(1, files(dir, ".snapshot").size());
+        assertEquals(1, files(dir, ".log").size());
+
+        try (WalletStore wallet = WalletStore.open(dir, 10_000, 1)) {
+            assertEquals(expected.size(), wallet.sessionCount());
+            for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), wallet.balance(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void testDurableChangesSurviveCrash() throws Exception {
+        WalletStore wallet = WalletStore.open(dir, 100, 1);
+        wallet.deposit(7, 500);
+        for (int i = 0; i < 250; i++) {
+            wallet.settle(7, 5, i % 3 == 0 ? 10 : 0);
+        }
+        wallet.awaitDurable(wallet.settle(8, 0, 42));
+        long balance = wallet.balance(7);
+
+        // Copy the files of the still-open store, as a crash would leave them
+        Path crashed = dir.resolve("crashed");
+        Files.createDirectories(crashed);
+        for (Path file : files(dir, "")) {
+            if (Files.isRegularFile(file)) Files.copy(file, crashed.resolve(file.getFileName()));
+        }
+        try (WalletStore recovered = WalletStore.open(crashed, 100, 1)) {
+            assertEquals(balance, recovered.balance(7));
+            assertEquals(42, recovered.balance(8));
+        }
+        wallet.close();
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws Exception {
+        try (WalletStore wallet = WalletStore.open(dir)) {
+            wallet.deposit(1, 100);
+            wallet.settle(1, 10, 30);
+            wallet.settle(1, 10, 0);
+        }
+        Path log = files(dir, ".log").get(0);
+        // Damage the last record and leave half a record behind it
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 20] ^= 1;
+        Files.write(log, bytes);
+        Files.write(log, new byte[WalletStore.RECORD_SIZE / 2], StandardOpenOption.APPEND);
+
+        try (WalletStore wallet = WalletStore.open(dir)) {
+            assertEquals(120, wallet.balance(1));
+            assertEquals(2L * WalletStore.RECORD_SIZE, Files.size(log));
+            wallet.settle(1, 20, 0);
+        }
+        try (WalletStore wallet = WalletStore.open(dir)) {
+            assertEquals(100, wallet.balance(1));
+        }
+    }
+
+    @Test
+    void testDamagedSnapshotWithoutCoveringLogFailsRecovery() throws Exception {
+        try (WalletStore wallet = WalletStore.open(dir)) {
+            wallet.deposit(1, 100);
+            wallet.settle(1, 10, 30);
+            wallet.snapshot();
+        }
+        Path snapshot = files(dir, ".snapshot").get(0);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+        IOException failure = assertThrows(IOException.class, () -> WalletStore.open(dir));
+        assertTrue(failure.getMessage().contains("missing"), failure.getMessage());
+        assertEquals(1, failure.getSuppressed().length);
+    }
+
+    @Test
+    void testRejectsDebitBeyondBalance() throws Exception {
+        try (WalletStore wallet = WalletStore.open(dir)) {
+            wallet.deposit(3, 5);
+            assertThrows(IllegalArgumentException.class, () -> wallet.settle(3, 6, 100));
+            assertThrows(IllegalArgumentException.class, () -> wallet.settle(3, -1, 0));
+            assertEquals(5, wallet.balance(3));
+            assertTrue(wallet.hasSession(3));
+            assertFalse(wallet.hasSession(4));
+        }
+    }
+}
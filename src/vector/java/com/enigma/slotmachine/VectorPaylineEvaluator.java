@@ -0,0 +1,90 @@
+package com.enigma.slotmachine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Payline evaluator using the incubating Vector API.
+ * <p>
+ * Single grids are evaluated with one SIMD lane per payline (gathering each line's cells); batches are
+ * evaluated with one lane per grid over column-major cell arrays, which needs no gathers at all. Only
+ * instantiate through {@link PaylineEvaluators}, which falls back to {@link ScalarPaylineEvaluator} when the
+ * {@code jdk.incubator.vector} module is not present.
+ */
+public class VectorPaylineEvaluator implements PaylineEvaluator {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int REELS = 5;
+    private static final int SCATTER = Symbol.SCATTER.ordinal();
+
+    private final int[][] lineCells;
+    // Cell index per payline for each reel, padded to a whole number of vectors
+    private final int[][] columnCells;
+    private final int paddedLines;
+
+    /**
+     * @param paylines Row index per reel for each payline
+     */
+    public VectorPaylineEvaluator(int[][] paylines) {
+        this.lineCells = ScalarPaylineEvaluator.toCellIndices(paylines);
+        this.paddedLines = SPECIES.loopBound(paylines.length + SPECIES.length() - 1);
+        this.columnCells = new int[REELS][paddedLines];
+        for (int col = 0; col < REELS; col++) {
+            for (int i = 0; i < paylines.length; i++) {
+                columnCells[col][i] = lineCells[i][col];
+            }
+        }
+    }
+
+    public void evaluateGrid(int[] cells, int[] matchCounts, int[] symbols) {
+        int lines = lineCells.length;
+        for (int i = 0; i < lines; i += SPECIES.length()) {
+            VectorMask<Integer> valid = SPECIES.indexInRange(i, lines);
+            IntVector first = IntVector.fromArray(SPECIES, cells, 0, columnCells[0], i, valid);
+            VectorMask<Integer> alive = first.compare(VectorOperators.NE, SCATTER, valid);
+            IntVector match = IntVector.zero(SPECIES).blend(1, alive);
+            for (int col = 1; col < REELS; col++) {
+                IntVector next = IntVector.fromArray(SPECIES, cells, 0, columnCells[col], i, valid);
+                alive = alive.and(next.compare(VectorOperators.EQ, first));
+                match = match.add(1, alive);
+            }
+            match = match.blend(0, match.compare(VectorOperators.LT, 3));
+            match.intoArray(matchCounts, i, valid);
+            first.intoArray(symbols, i, valid);
+        }
+    }
+
+    public void evaluateBatch(int[][] cellColumns, int count, int line, int[] matchCounts) {
+        int[] c0 = cellColumns[lineCells[line][0]];
+        int[] c1 = cellColumns[lineCells[line][1]];
+        int[] c2 = cellColumns[lineCells[line][2]];
+        int[] c3 = cellColumns[lineCells[line][3]];
+        int[] c4 = cellColumns[lineCells[line][4]];
+        int g = 0;
+        int bound = SPECIES.loopBound(count);
+        for (; g < bound; g += SPECIES.length()) {
+            IntVector first = IntVector.fromArray(SPECIES, c0, g);
+            VectorMask<Integer> alive = first.compare(VectorOperators.NE, SCATTER)
+                    .and(IntVector.fromArray(SPECIES, c1, g).compare(VectorOperators.EQ, first))
+                    .and(IntVector.fromArray(SPECIES, c2, g).compare(VectorOperators.EQ, first));
+            IntVector match = IntVector.zero(SPECIES).blend(3, alive);
+            alive = alive.and(IntVector.fromArray(SPECIES, c3, g).compare(VectorOperators.EQ, first));
+            match = match.add(1, alive);
+            alive = alive.and(IntVector.fromArray(SPECIES, c4, g).compare(VectorOperators.EQ, first));
+            match = match.add(1, alive);
+            match.intoArray(matchCounts, g);
+        }
+        for (; g < count; g++) {
+            int first = c0[g];
+            int m2 = (first != SCATTER && c1[g] == first && c2[g] == first) ? 1 : 0;
+            int m3 = m2 & (c3[g] == first ? 1 : 0);
+            int m4 = m3 & (c4[g] == first ? 1 : 0);
+            matchCounts[g] = m2 * 3 + m3 + m4;
+        }
+    }
+
+    public String name() {
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+}